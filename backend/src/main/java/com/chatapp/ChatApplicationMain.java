@@ -1,8 +1,39 @@
 package com.chatapp;
 
 import com.chatapp.auth.AuthService;
+import com.chatapp.auth.LoginThrottle;
+import com.chatapp.auth.SessionTokenService;
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.database.DatabaseReadinessProbe;
+import com.chatapp.journal.MessageJournal;
+import com.chatapp.presence.PresenceService;
+import com.chatapp.push.PushCoalescer;
+import com.chatapp.push.PushRegistry;
 import com.chatapp.server.ChatServer;
+import com.chatapp.server.EphemeralEventChannel;
+import com.chatapp.server.JournalReplayer;
+import com.chatapp.server.MailboxService;
+import com.chatapp.server.MessageIdGenerator;
+import com.chatapp.server.ReactionService;
+import com.chatapp.server.ReadReceiptBuffer;
+import com.chatapp.server.RoomService;
+import com.chatapp.server.SyncService;
 import com.chatapp.database.DatabaseConnection;
+import com.chatapp.filter.ContentFilter;
+import com.chatapp.tracing.TailSampler;
+import com.chatapp.tracing.Tracer;
+import com.chatapp.tracing.ZipkinFileReporter;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
 
 /**
  * ChatApplicationMain - Main entry point for Chat Application
@@ -11,36 +42,265 @@ import com.chatapp.database.DatabaseConnection;
  * - Database connection
  * - Authentication service
  * - Chat server
+ * - Push connections and presence
+ * - Offline mailbox delivery
+ * - Group chat rooms
+ * - Request tracing
  * - REST API endpoints
+ * 
+ * Services are wired once around a single shared DatabaseConnection
+ * and UserDictionary before the Spring context starts. Sends that hit a
+ * database outage are journaled locally and replayed once it is back. Database availability is probed in
+ * the background, so startup never waits on the network; see /api/ready.
+ * 
+ * Running with -Dchatapp.cds.training=true starts the application and
+ * exits once it is ready, which is used to record a class-data-sharing
+ * archive (see the "cds" Maven profile).
  */
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
 public class ChatApplicationMain {
     private static AuthService authService;
     private static ChatServer chatServer;
     private static DatabaseConnection dbConnection;
+    private static UserDictionary userDictionary;
+    private static DatabaseReadinessProbe readinessProbe;
+    private static PushRegistry pushRegistry;
+    private static PushCoalescer pushCoalescer;
+    private static PresenceService presenceService;
+    private static EphemeralEventChannel ephemeralChannel;
+    private static SyncService syncService;
+    private static RoomService roomService;
+    private static MessageJournal messageJournal;
+    private static JournalReplayer journalReplayer;
+    private static MailboxService mailboxService;
+    private static ReactionService reactionService;
+    private static ReadReceiptBuffer readReceipts;
+    private static Tracer tracer;
+    private static ContentFilter contentFilter;
+    private static LoginThrottle loginThrottle;
+    private static SessionTokenService sessionTokens;
+    private static boolean tokenlessSendAllowed;
 
     /**
-     * Initialize application services
+     * Initialize application services (idempotent)
      */
-    public static void initializeServices() {
+    public static synchronized void initializeServices() {
+        if (dbConnection != null) {
+            return;
+        }
+        System.out.println("\n⚙️  Initializing services...");
+
+        // Initialize logging on this thread; pools are created on background threads
+        // and would otherwise race Spring Boot's logging setup
+        LoggerFactory.getILoggerFactory();
+
+        tracer = openTracer();
         dbConnection = new DatabaseConnection();
-        authService = new AuthService();
-        chatServer = new ChatServer();
+        readinessProbe = new DatabaseReadinessProbe(dbConnection);
+        readinessProbe.start();
 
-        // Test database connection (non-blocking)
-        System.out.println("\n⚙️  Initializing services...");
-        boolean dbConnected = dbConnection.testConnection();
-        
-        if (dbConnected) {
-            System.out.println("✓ Database connection successful");
-        } else {
-            System.out.println("⚠️  WARNING: Database connection failed");
-            System.out.println("   PostgreSQL may not be running.");
-            System.out.println("   Setup: See backend/BACKEND_SETUP.md");
-            System.out.println("   Application will continue in demo mode.\n");
+        userDictionary = new UserDictionary(dbConnection);
+        loginThrottle = new LoginThrottle(
+                Long.parseLong(DatabaseConnection.setting("chatapp.login.window.ms", "CHATAPP_LOGIN_WINDOW_MS",
+                        String.valueOf(LoginThrottle.DEFAULT_WINDOW_MS))),
+                Integer.parseInt(DatabaseConnection.setting("chatapp.login.max.failures", "CHATAPP_LOGIN_MAX_FAILURES",
+                        String.valueOf(LoginThrottle.DEFAULT_MAX_USER_FAILURES))),
+                Integer.parseInt(DatabaseConnection.setting("chatapp.login.ip.max.failures",
+                        "CHATAPP_LOGIN_IP_MAX_FAILURES", String.valueOf(LoginThrottle.DEFAULT_MAX_IP_FAILURES))));
+        sessionTokens = openSessionTokens();
+        authService = new AuthService(dbConnection, userDictionary, loginThrottle, sessionTokens);
+        tokenlessSendAllowed = Boolean.parseBoolean(DatabaseConnection.setting("chatapp.send.allow.tokenless",
+                "CHATAPP_SEND_ALLOW_TOKENLESS", "false"));
+        messageJournal = openJournal();
+        int nodeId = Integer.parseInt(DatabaseConnection.setting("chatapp.node.id", "CHATAPP_NODE_ID", "0"));
+        contentFilter = openContentFilter();
+        chatServer = new ChatServer(dbConnection, userDictionary, messageJournal, new MessageIdGenerator(nodeId),
+                contentFilter);
+        if (messageJournal != null) {
+            journalReplayer = new JournalReplayer(chatServer, messageJournal);
+            journalReplayer.start();
         }
+        long commitWindowMs = Long.parseLong(DatabaseConnection.setting("chatapp.id.commit.window.ms",
+                "CHATAPP_ID_COMMIT_WINDOW_MS", String.valueOf(MessageIdGenerator.DEFAULT_COMMIT_WINDOW_MS)));
+        syncService = new SyncService(chatServer, commitWindowMs);
+        pushRegistry = new PushRegistry();
+        presenceService = new PresenceService(pushRegistry);
+        presenceService.start();
+        pushCoalescer = new PushCoalescer(pushRegistry,
+                Long.parseLong(DatabaseConnection.setting("chatapp.push.coalesce.ms", "CHATAPP_PUSH_COALESCE_MS",
+                        String.valueOf(PushCoalescer.DEFAULT_WINDOW_MS))),
+                Integer.parseInt(DatabaseConnection.setting("chatapp.push.max.batch", "CHATAPP_PUSH_MAX_BATCH",
+                        String.valueOf(PushCoalescer.DEFAULT_MAX_BATCH))));
+        pushCoalescer.start();
+        mailboxService = new MailboxService(chatServer, dbConnection, pushRegistry, pushCoalescer,
+                MailboxService.DEFAULT_DRAIN_LIMIT, MailboxService.DEFAULT_FLUSH_INTERVAL_MS, commitWindowMs);
+        mailboxService.start();
+        ephemeralChannel = new EphemeralEventChannel();
+        ephemeralChannel.addListener(EphemeralEventChannel.pushDelivery(pushRegistry));
+        roomService = new RoomService(dbConnection, userDictionary, RoomService.DEFAULT_FANOUT_BATCH_SIZE,
+                RoomService.DEFAULT_MAX_CACHED_ROOMS, contentFilter);
+        roomService.addListener(RoomService.pushDelivery(pushCoalescer));
+        reactionService = new ReactionService(dbConnection, userDictionary,
+                Long.parseLong(DatabaseConnection.setting("chatapp.reactions.flush.ms", "CHATAPP_REACTIONS_FLUSH_MS",
+                        String.valueOf(ReactionService.DEFAULT_FLUSH_INTERVAL_MS))),
+                Long.parseLong(DatabaseConnection.setting("chatapp.reactions.push.ms", "CHATAPP_REACTIONS_PUSH_MS",
+                        String.valueOf(ReactionService.DEFAULT_PUSH_INTERVAL_MS))),
+                ReactionService.DEFAULT_MAX_TRACKED_MESSAGES);
+        reactionService.addListener(ReactionService.pushDelivery(pushCoalescer));
+        reactionService.start();
+        readReceipts = new ReadReceiptBuffer(chatServer,
+                Long.parseLong(DatabaseConnection.setting("chatapp.read.flush.ms", "CHATAPP_READ_FLUSH_MS",
+                        String.valueOf(ReadReceiptBuffer.DEFAULT_FLUSH_INTERVAL_MS))));
+        readReceipts.start();
 
         System.out.println("✓ AuthService initialized");
-        System.out.println("✓ ChatServer initialized");
+        System.out.println("✓ ChatServer initialized (message ID node " + nodeId + ")");
+        if (dbConnection.isSharded()) {
+            System.out.println("✓ Messages sharded over " + dbConnection.getShards().size() + " databases");
+        }
+        System.out.println("✓ PresenceService initialized");
+        System.out.println("✓ MailboxService initialized");
+        System.out.println("✓ RoomService initialized");
+        System.out.println("✓ ReactionService initialized");
+        System.out.println("✓ ReadReceiptBuffer initialized");
+        if (tokenlessSendAllowed) {
+            System.out.println("⚠️  WARNING: chatapp.send.allow.tokenless is on; sends without a session token are"
+                    + " accepted for any username logged in on this node");
+        }
+    }
+
+    /**
+     * Stop background services
+     */
+    public static synchronized void shutdownServices() {
+        if (dbConnection == null) {
+            return;
+        }
+        readinessProbe.shutdown();
+        presenceService.shutdown();
+        ephemeralChannel.shutdown();
+        syncService.shutdown();
+        mailboxService.shutdown();
+        roomService.shutdown();
+        reactionService.shutdown();
+        readReceipts.shutdown();
+        pushCoalescer.shutdown();
+        contentFilter.shutdown();
+        sessionTokens.shutdown();
+        if (journalReplayer != null) {
+            journalReplayer.shutdown();
+        }
+        if (messageJournal != null) {
+            messageJournal.close();
+        }
+        dbConnection.close();
+        if (tracer != null) {
+            Tracer.install(null);
+            tracer.close();
+        }
+    }
+
+    /**
+     * Open the message journal configured by chatapp.journal.dir
+     * 
+     * @return Journal, or null if the directory is unusable (sends then fail during outages)
+     */
+    private static MessageJournal openJournal() {
+        String directory = DatabaseConnection.setting("chatapp.journal.dir", "CHATAPP_JOURNAL_DIR", "data/journal");
+        try {
+            MessageJournal journal = new MessageJournal(Paths.get(directory));
+            System.out.println("✓ Message journal at " + journal.getDirectory().toAbsolutePath());
+            return journal;
+        } catch (IOException e) {
+            System.out.println("⚠️  WARNING: Message journal disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Create the session token service configured by chatapp.session.*
+     * 
+     * Every node must share chatapp.session.secret (base64, at least 32
+     * bytes) to accept each other's tokens. Without it a random secret is
+     * used, so tokens only work on this node until it restarts.
+     * 
+     * @return Started session token service
+     */
+    private static SessionTokenService openSessionTokens() {
+        long ttlMs = Long.parseLong(DatabaseConnection.setting("chatapp.session.ttl.ms", "CHATAPP_SESSION_TTL_MS",
+                String.valueOf(SessionTokenService.DEFAULT_TTL_MS)));
+        String configured = DatabaseConnection.setting("chatapp.session.secret", "CHATAPP_SESSION_SECRET", "");
+        byte[] secret = null;
+        if (!configured.isEmpty()) {
+            try {
+                secret = Base64.getDecoder().decode(configured);
+            } catch (IllegalArgumentException e) {
+                System.err.println("chatapp.session.secret is not valid base64: " + e.getMessage());
+            }
+            if (secret != null && secret.length < SessionTokenService.MIN_SECRET_BYTES) {
+                System.err.println("chatapp.session.secret must be at least " + SessionTokenService.MIN_SECRET_BYTES
+                        + " bytes");
+                secret = null;
+            }
+        }
+        if (secret == null) {
+            System.out.println("⚠️  WARNING: No chatapp.session.secret set; session tokens are only valid on this"
+                    + " node until it restarts");
+            secret = SessionTokenService.randomSecret();
+        }
+        SessionTokenService service = new SessionTokenService(secret, ttlMs, dbConnection,
+                SessionTokenService.DEFAULT_POLL_INTERVAL_MS);
+        service.start();
+        return service;
+    }
+
+    /**
+     * Open the content filter dictionary configured by chatapp.filter.file
+     * 
+     * The file is watched for changes; until it exists every message is accepted.
+     * 
+     * @return Started content filter
+     */
+    private static ContentFilter openContentFilter() {
+        Path file = Paths.get(DatabaseConnection.setting("chatapp.filter.file", "CHATAPP_FILTER_FILE",
+                "data/filter/terms.txt"));
+        ContentFilter filter = new ContentFilter(file);
+        filter.start();
+        if (filter.getLoadedAtMillis() == 0) {
+            System.out.println("⚠️  WARNING: Content filter dictionary " + file.toAbsolutePath()
+                    + " not found; messages are not filtered until it is created");
+        }
+        return filter;
+    }
+
+    /**
+     * Install the request tracer configured by chatapp.tracing.*
+     * 
+     * Traces that fail or take at least chatapp.tracing.slow.ms, plus a
+     * chatapp.tracing.sample.rate fraction of the rest, are written to
+     * chatapp.tracing.file.
+     * 
+     * @return Installed tracer, or null if tracing is disabled or the file is unusable
+     */
+    private static Tracer openTracer() {
+        if (!Boolean.parseBoolean(DatabaseConnection.setting("chatapp.tracing.enabled", "CHATAPP_TRACING_ENABLED", "true"))) {
+            return null;
+        }
+        String file = DatabaseConnection.setting("chatapp.tracing.file", "CHATAPP_TRACING_FILE", "data/traces/traces.json");
+        long slowMs = Long.parseLong(DatabaseConnection.setting("chatapp.tracing.slow.ms", "CHATAPP_TRACING_SLOW_MS",
+                String.valueOf(TailSampler.DEFAULT_SLOW_MS)));
+        double sampleRate = Double.parseDouble(DatabaseConnection.setting("chatapp.tracing.sample.rate",
+                "CHATAPP_TRACING_SAMPLE_RATE", String.valueOf(TailSampler.DEFAULT_SAMPLE_RATE)));
+        try {
+            ZipkinFileReporter reporter = new ZipkinFileReporter(Paths.get(file), "chatapp");
+            Tracer installed = new Tracer(new TailSampler(slowMs, sampleRate), reporter);
+            Tracer.install(installed);
+            System.out.println("✓ Tracing to " + reporter.getFile().toAbsolutePath() + " (slow >= " + slowMs + " ms)");
+            return installed;
+        } catch (IOException e) {
+            System.out.println("⚠️  WARNING: Tracing disabled: " + e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -54,15 +314,21 @@ public class ChatApplicationMain {
         System.out.println("========================================");
 
         initializeServices();
+        ConfigurableApplicationContext context = SpringApplication.run(ChatApplicationMain.class, args);
+        long readyMs = StartupTimer.markReady();
 
-        System.out.println("\n✓ Chat Application ready!");
-        System.out.println("  Backend Server: http://localhost:8080");
+        System.out.println("\n✓ Chat Application ready in " + readyMs + " ms (since JVM start)");
+        System.out.println("  Backend Server: http://localhost:" + context.getEnvironment().getProperty("local.server.port", "8080"));
         System.out.println("========================================\n");
 
-        // Keep application running
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("\nShutting down Chat Application...");
+            shutdownServices();
         }));
+
+        if (Boolean.getBoolean("chatapp.cds.training")) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
     // Getters for services
@@ -77,4 +343,72 @@ public class ChatApplicationMain {
     public static DatabaseConnection getDbConnection() {
         return dbConnection;
     }
+
+    public static UserDictionary getUserDictionary() {
+        return userDictionary;
+    }
+
+    public static DatabaseReadinessProbe getReadinessProbe() {
+        return readinessProbe;
+    }
+
+    public static PushRegistry getPushRegistry() {
+        return pushRegistry;
+    }
+
+    public static PushCoalescer getPushCoalescer() {
+        return pushCoalescer;
+    }
+
+    public static PresenceService getPresenceService() {
+        return presenceService;
+    }
+
+    public static EphemeralEventChannel getEphemeralChannel() {
+        return ephemeralChannel;
+    }
+
+    public static SyncService getSyncService() {
+        return syncService;
+    }
+
+    public static RoomService getRoomService() {
+        return roomService;
+    }
+
+    public static MailboxService getMailboxService() {
+        return mailboxService;
+    }
+
+    public static ReactionService getReactionService() {
+        return reactionService;
+    }
+
+    public static ReadReceiptBuffer getReadReceiptBuffer() {
+        return readReceipts;
+    }
+
+    public static boolean isTokenlessSendAllowed() {
+        return tokenlessSendAllowed;
+    }
+
+    public static MessageJournal getMessageJournal() {
+        return messageJournal;
+    }
+
+    public static JournalReplayer getJournalReplayer() {
+        return journalReplayer;
+    }
+
+    public static ContentFilter getContentFilter() {
+        return contentFilter;
+    }
+
+    public static LoginThrottle getLoginThrottle() {
+        return loginThrottle;
+    }
+
+    public static Tracer getTracer() {
+        return tracer;
+    }
 }
@@ -0,0 +1,70 @@
+package com.chatapp;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * StartupTimer - Records startup milestones relative to JVM start
+ *
+ * Tracks:
+ * - When the application context finished starting ("ready")
+ * - When the first HTTP request was fully served
+ *
+ * Both are printed once and exposed through /api/ready so startup time
+ * can be tracked across builds.
+ */
+@Component
+public class StartupTimer extends OncePerRequestFilter {
+    private static final long JVM_START_MS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final AtomicBoolean FIRST_REQUEST_SEEN = new AtomicBoolean();
+
+    private static volatile long readyMs = -1;
+    private static volatile long firstRequestMs = -1;
+
+    /**
+     * Record that the application finished starting
+     *
+     * @return Milliseconds since JVM start
+     */
+    public static long markReady() {
+        readyMs = System.currentTimeMillis() - JVM_START_MS;
+        return readyMs;
+    }
+
+    /**
+     * Get time from JVM start to application ready
+     *
+     * @return Milliseconds, or -1 if not ready yet
+     */
+    public static long getReadyMs() {
+        return readyMs;
+    }
+
+    /**
+     * Get time from JVM start to the first served request
+     *
+     * @return Milliseconds, or -1 if no request has been served yet
+     */
+    public static long getFirstRequestMs() {
+        return firstRequestMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, response);
+        if (firstRequestMs < 0 && FIRST_REQUEST_SEEN.compareAndSet(false, true)) {
+            firstRequestMs = System.currentTimeMillis() - JVM_START_MS;
+            System.out.println("✓ First request served " + firstRequestMs + " ms after JVM start ("
+                    + request.getMethod() + " " + request.getRequestURI() + ")");
+        }
+    }
+}
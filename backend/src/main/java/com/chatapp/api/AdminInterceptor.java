@@ -0,0 +1,64 @@
+package com.chatapp.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * AdminInterceptor - Restricts the /api/admin endpoints to operators
+ *
+ * Admin endpoints expose usernames, client addresses and internal
+ * counters, so a request must carry the configured admin secret
+ * (chatapp.admin.secret) in the X-Admin-Secret header. Without a
+ * configured secret every admin request is refused. Refusals are 403
+ * responses with the API's usual success/message body; the secret is
+ * compared in constant time.
+ */
+public class AdminInterceptor implements HandlerInterceptor {
+    public static final String ADMIN_SECRET_HEADER = "X-Admin-Secret";
+
+    private static final String REFUSED = "{\"success\":false,\"message\":\"Admin access required\"}";
+
+    private final byte[] secret;
+
+    /**
+     * Constructor - Accept requests carrying a secret
+     *
+     * @param secret - Admin secret, or null/empty to refuse every admin request
+     */
+    public AdminInterceptor(String secret) {
+        this.secret = secret == null || secret.isEmpty() ? null : secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (isAdmin(request.getHeader(ADMIN_SECRET_HEADER))) {
+            return true;
+        }
+        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+        response.setContentType("application/json");
+        response.getWriter().write(REFUSED);
+        return false;
+    }
+
+    /**
+     * Check a presented secret against the configured one
+     *
+     * @param presented - Header value, may be null
+     * @return true if a secret is configured and matches
+     */
+    boolean isAdmin(String presented) {
+        return secret != null && presented != null
+                && MessageDigest.isEqual(secret, presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Getters
+    public boolean isEnabled() {
+        return secret != null;
+    }
+}
@@ -0,0 +1,156 @@
+package com.chatapp.api;
+
+import com.chatapp.server.Message;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CborMessageConverter - Compact binary encoding for API responses
+ *
+ * Selected when the client sends {@code Accept: application/cbor}; JSON
+ * stays the default. Responses are encoded as CBOR maps with the same
+ * keys as the JSON form, except that every {@link Message} becomes a
+ * positional array instead of an object:
+ *
+ * <pre>
+ *   [messageId, senderIndex, recipientIndex, sentAtEpochMillis, isRead, content]
+ * </pre>
+ *
+ * where the indexes point into a per-response string table written
+ * under the top-level key {@code "userTable"}. Usernames and field names
+ * are therefore sent once per response rather than once per message.
+ */
+public class CborMessageConverter extends AbstractHttpMessageConverter<Map<?, ?>> {
+    public static final MediaType APPLICATION_CBOR = MediaType.parseMediaType("application/cbor");
+    public static final String USER_TABLE_KEY = "userTable";
+
+    /**
+     * Constructor - Register for application/cbor
+     */
+    public CborMessageConverter() {
+        super(APPLICATION_CBOR);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Map.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Map<?, ?> readInternal(Class<? extends Map<?, ?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("CBOR request bodies are not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Map<?, ?> body, HttpOutputMessage outputMessage) throws IOException {
+        byte[] encoded = encode(body);
+        outputMessage.getHeaders().setContentLength(encoded.length);
+        outputMessage.getBody().write(encoded);
+    }
+
+    /**
+     * Encode a response map
+     *
+     * @param body - Response body
+     * @return CBOR bytes
+     */
+    public static byte[] encode(Map<?, ?> body) {
+        Map<String, Integer> userTable = new LinkedHashMap<>();
+        collectUsers(body, userTable);
+
+        CborWriter writer = new CborWriter(256);
+        writer.writeMapHeader(body.size() + (userTable.isEmpty() ? 0 : 1));
+        if (!userTable.isEmpty()) {
+            writer.writeString(USER_TABLE_KEY);
+            writer.writeArrayHeader(userTable.size());
+            for (String username : userTable.keySet()) {
+                writer.writeString(username);
+            }
+        }
+        for (Map.Entry<?, ?> entry : body.entrySet()) {
+            writer.writeString(String.valueOf(entry.getKey()));
+            writeValue(writer, entry.getValue(), userTable);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Assign string-table indexes to every username referenced by a Message
+     */
+    private static void collectUsers(Object value, Map<String, Integer> userTable) {
+        if (value instanceof Message) {
+            Message message = (Message) value;
+            userTable.putIfAbsent(message.getSender(), userTable.size());
+            userTable.putIfAbsent(message.getRecipient(), userTable.size());
+        } else if (value instanceof Map) {
+            for (Object nested : ((Map<?, ?>) value).values()) {
+                collectUsers(nested, userTable);
+            }
+        } else if (value instanceof Collection) {
+            for (Object nested : (Collection<?>) value) {
+                collectUsers(nested, userTable);
+            }
+        }
+    }
+
+    /**
+     * Write a single value of any supported type
+     */
+    private static void writeValue(CborWriter writer, Object value, Map<String, Integer> userTable) {
+        if (value == null) {
+            writer.writeNull();
+        } else if (value instanceof Message) {
+            Message message = (Message) value;
+            writer.writeArrayHeader(6);
+            writer.writeLong(message.getMessageId());
+            writer.writeLong(userTable.get(message.getSender()));
+            writer.writeLong(userTable.get(message.getRecipient()));
+            writer.writeLong(message.getSentAt() != null ? message.getSentAt().getTime() : 0L);
+            writer.writeBoolean(message.isRead());
+            writer.writeString(message.getContent());
+        } else if (value instanceof Boolean) {
+            writer.writeBoolean((Boolean) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writer.writeLong(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            writer.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof CharSequence) {
+            writer.writeString(value.toString());
+        } else if (value instanceof byte[]) {
+            writer.writeBytes((byte[]) value);
+        } else if (value instanceof Date) {
+            writer.writeLong(((Date) value).getTime());
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writer.writeMapHeader(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writer.writeString(String.valueOf(entry.getKey()));
+                writeValue(writer, entry.getValue(), userTable);
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            writer.writeArrayHeader(collection.size());
+            for (Object item : collection) {
+                writeValue(writer, item, userTable);
+            }
+        } else if (value instanceof Enum) {
+            writer.writeString(((Enum<?>) value).name());
+        } else {
+            writer.writeString(String.valueOf(value));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.chatapp.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * CborWriter - Minimal CBOR (RFC 8949) encoder
+ *
+ * Supports the subset needed for API responses: unsigned/negative
+ * integers, text strings, byte strings, arrays, maps, booleans, null
+ * and 64-bit floats. Lengths are always definite.
+ */
+public class CborWriter {
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+
+    private static final int SIMPLE_FALSE = 0xF4;
+    private static final int SIMPLE_TRUE = 0xF5;
+    private static final int SIMPLE_NULL = 0xF6;
+    private static final int FLOAT_64 = 0xFB;
+
+    private byte[] buffer;
+    private int size;
+
+    /**
+     * Constructor - Create a writer with an initial buffer capacity
+     *
+     * @param initialCapacity - Initial buffer size in bytes
+     */
+    public CborWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Write an integer
+     *
+     * @param value - Value to write
+     */
+    public void writeLong(long value) {
+        if (value >= 0) {
+            writeHead(MAJOR_UNSIGNED, value);
+        } else {
+            writeHead(MAJOR_NEGATIVE, -1 - value);
+        }
+    }
+
+    /**
+     * Write a 64-bit float
+     *
+     * @param value - Value to write
+     */
+    public void writeDouble(double value) {
+        ensure(9);
+        buffer[size++] = (byte) FLOAT_64;
+        writeRaw64(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Write a boolean
+     *
+     * @param value - Value to write
+     */
+    public void writeBoolean(boolean value) {
+        ensure(1);
+        buffer[size++] = (byte) (value ? SIMPLE_TRUE : SIMPLE_FALSE);
+    }
+
+    /**
+     * Write null
+     */
+    public void writeNull() {
+        ensure(1);
+        buffer[size++] = (byte) SIMPLE_NULL;
+    }
+
+    /**
+     * Write a UTF-8 text string
+     *
+     * @param value - String to write
+     */
+    public void writeString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeHead(MAJOR_TEXT, utf8.length);
+        writeBytesRaw(utf8);
+    }
+
+    /**
+     * Write a byte string
+     *
+     * @param value - Bytes to write
+     */
+    public void writeBytes(byte[] value) {
+        writeHead(MAJOR_BYTES, value.length);
+        writeBytesRaw(value);
+    }
+
+    /**
+     * Start an array of known length; the caller writes that many items next
+     *
+     * @param length - Number of items
+     */
+    public void writeArrayHeader(int length) {
+        writeHead(MAJOR_ARRAY, length);
+    }
+
+    /**
+     * Start a map of known size; the caller writes that many key/value pairs next
+     *
+     * @param entries - Number of key/value pairs
+     */
+    public void writeMapHeader(int entries) {
+        writeHead(MAJOR_MAP, entries);
+    }
+
+    /**
+     * Get the encoded bytes
+     *
+     * @return Copy of the encoded data
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Get the number of bytes written
+     *
+     * @return Encoded size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Write a major type with its argument in the shortest encoding
+     */
+    private void writeHead(int majorType, long argument) {
+        int major = majorType << 5;
+        ensure(9);
+        if (argument < 24) {
+            buffer[size++] = (byte) (major | argument);
+        } else if (argument < 0x100) {
+            buffer[size++] = (byte) (major | 24);
+            buffer[size++] = (byte) argument;
+        } else if (argument < 0x10000) {
+            buffer[size++] = (byte) (major | 25);
+            buffer[size++] = (byte) (argument >>> 8);
+            buffer[size++] = (byte) argument;
+        } else if (argument < 0x100000000L) {
+            buffer[size++] = (byte) (major | 26);
+            buffer[size++] = (byte) (argument >>> 24);
+            buffer[size++] = (byte) (argument >>> 16);
+            buffer[size++] = (byte) (argument >>> 8);
+            buffer[size++] = (byte) argument;
+        } else {
+            buffer[size++] = (byte) (major | 27);
+            writeRaw64(argument);
+        }
+    }
+
+    private void writeRaw64(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeBytesRaw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensure(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
@@ -1,11 +1,45 @@
 package com.chatapp.api;
 
 import com.chatapp.ChatApplicationMain;
+import com.chatapp.StartupTimer;
 import com.chatapp.auth.AuthService;
+import com.chatapp.auth.LoginThrottle;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.database.DatabaseReadinessProbe;
+import com.chatapp.database.SqlStatistics;
+import com.chatapp.filter.ContentFilter;
+import com.chatapp.presence.PresenceService;
+import com.chatapp.push.PushCoalescer;
+import com.chatapp.push.PushRegistry;
+import com.chatapp.push.SsePushConnection;
 import com.chatapp.server.ChatServer;
+import com.chatapp.server.ConversationSummary;
+import com.chatapp.server.EphemeralEventChannel;
+import com.chatapp.server.MailboxService;
+import com.chatapp.server.Message;
+import com.chatapp.server.ReactionCounts;
+import com.chatapp.server.ReactionService;
+import com.chatapp.server.ReadReceiptBuffer;
+import com.chatapp.server.RoomService;
+import com.chatapp.server.SyncService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -14,14 +48,41 @@ import java.util.Map;
  * Provides endpoints for:
  * - User authentication (login/logout)
  * - Message sending and retrieval
+ * - Streaming export of a user's messages
  * - User management
+ * - Push connections and presence
+ * - Group chat rooms
+ * - SQL, push, content filter and login throttle statistics for operators
  */
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class ChatController {
+    private static final int MAX_PRESENCE_LOOKUP = 500;
+    private static final long PUSH_TIMEOUT_MS = 0L;
+    private static final long MAX_SYNC_WAIT_MS = 60_000L;
+    private static final int MAX_HISTORY_PAGE = 500;
+    private static final int MAX_SQL_STATS = 100;
+    private static final int MAX_LOGIN_OFFENDERS = 100;
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final int MAX_INBOX_PAGE = 200;
+
     private AuthService authService;
     private ChatServer chatServer;
+    private PushRegistry pushRegistry;
+    private PushCoalescer pushCoalescer;
+    private PresenceService presenceService;
+    private EphemeralEventChannel ephemeralChannel;
+    private SyncService syncService;
+    private DatabaseReadinessProbe readinessProbe;
+    private RoomService roomService;
+    private MailboxService mailboxService;
+    private SqlStatistics sqlStatistics;
+    private ContentFilter contentFilter;
+    private LoginThrottle loginThrottle;
+    private ReactionService reactionService;
+    private ReadReceiptBuffer readReceipts;
+    private boolean tokenlessSend;
 
     /**
      * Constructor - Initialize services
@@ -29,16 +90,37 @@ public class ChatController {
     public ChatController() {
         this.authService = ChatApplicationMain.getAuthService();
         this.chatServer = ChatApplicationMain.getChatServer();
+        this.pushRegistry = ChatApplicationMain.getPushRegistry();
+        this.pushCoalescer = ChatApplicationMain.getPushCoalescer();
+        this.presenceService = ChatApplicationMain.getPresenceService();
+        this.ephemeralChannel = ChatApplicationMain.getEphemeralChannel();
+        this.syncService = ChatApplicationMain.getSyncService();
+        this.readinessProbe = ChatApplicationMain.getReadinessProbe();
+        this.roomService = ChatApplicationMain.getRoomService();
+        this.mailboxService = ChatApplicationMain.getMailboxService();
+        this.contentFilter = ChatApplicationMain.getContentFilter();
+        this.loginThrottle = ChatApplicationMain.getLoginThrottle();
+        this.reactionService = ChatApplicationMain.getReactionService();
+        this.readReceipts = ChatApplicationMain.getReadReceiptBuffer();
+        this.tokenlessSend = ChatApplicationMain.isTokenlessSendAllowed();
+        DatabaseConnection dbConnection = ChatApplicationMain.getDbConnection();
+        this.sqlStatistics = dbConnection != null ? dbConnection.getSqlStatistics() : null;
     }
 
     /**
      * User login endpoint
      * 
+     * A successful login returns a session token to send as
+     * {@code Authorization: Bearer <token>}; any node accepts it.
+     * Repeated failures lock out the username or the client address for a
+     * while; a locked-out attempt reports retryAfterSeconds.
+     * 
      * @param loginRequest - JSON object with username and password
+     * @param request - HTTP request, for the client address
      * @return Response with success/failure message
      */
     @PostMapping("/auth/login")
-    public Map<String, Object> login(@RequestBody Map<String, String> loginRequest) {
+    public Map<String, Object> login(@RequestBody Map<String, String> loginRequest, HttpServletRequest request) {
         Map<String, Object> response = new HashMap<>();
         String username = loginRequest.get("username");
         String password = loginRequest.get("password");
@@ -49,13 +131,25 @@ public class ChatController {
             return response;
         }
 
-        if (authService.authenticate(username, password)) {
+        String clientIp = request.getRemoteAddr();
+        if (authService.authenticate(username, password, clientIp)) {
             response.put("success", true);
             response.put("message", "Login successful");
             response.put("username", username);
+            response.put("token", authService.issueSessionToken(username));
+            presenceService.heartbeat(username);
+            // Deliver what arrived while offline to devices that are already connected
+            mailboxService.requestDrain(username);
         } else {
+            long retryAfterMs = authService.getLoginRetryAfterMillis(username, clientIp);
             response.put("success", false);
-            response.put("message", "Invalid username or password");
+            if (retryAfterMs > 0) {
+                long retryAfterSeconds = (retryAfterMs + 999) / 1000;
+                response.put("message", "Too many failed login attempts; try again in " + retryAfterSeconds + "s");
+                response.put("retryAfterSeconds", retryAfterSeconds);
+            } else {
+                response.put("message", "Invalid username or password");
+            }
         }
 
         return response;
@@ -64,21 +158,35 @@ public class ChatController {
     /**
      * User logout endpoint
      * 
-     * @param logoutRequest - JSON object with username
+     * With a session token the token is revoked on every node and the
+     * username is taken from it; otherwise the body names the user.
+     * 
+     * @param logoutRequest - JSON object with username (optional with a session token)
+     * @param authorization - Authorization header carrying a bearer session token (optional)
      * @return Response with success/failure message
      */
     @PostMapping("/auth/logout")
-    public Map<String, Object> logout(@RequestBody Map<String, String> logoutRequest) {
+    public Map<String, Object> logout(@RequestBody Map<String, String> logoutRequest,
+                                      @RequestHeader(value = "Authorization", required = false) String authorization) {
         Map<String, Object> response = new HashMap<>();
         String username = logoutRequest.get("username");
+        String token = bearerToken(authorization);
 
-        if (username == null) {
+        if (token != null) {
+            username = authService.logoutSession(token);
+            if (username == null) {
+                response.put("success", false);
+                response.put("message", "Invalid or expired session");
+                return response;
+            }
+        } else if (username == null) {
             response.put("success", false);
             response.put("message", "Username is required");
             return response;
+        } else {
+            authService.logout(username);
         }
-
-        authService.logout(username);
+        presenceService.disconnect(username);
         response.put("success", true);
         response.put("message", "Logged out successfully");
 
@@ -118,24 +226,53 @@ public class ChatController {
     /**
      * Send message endpoint
      * 
-     * @param messageRequest - JSON object with sender, recipient (optional), message
-     * @return Response with success/failure message
+     * The sender is the bearer session token's user, verified on this node
+     * without a session lookup; a sender field, if given, must match it.
+     * Sends without a token are refused unless chatapp.send.allow.tokenless
+     * is on, for clients that predate tokens: the sender field is then only
+     * checked against logins made on this node, so anyone can send as a
+     * logged-in user. A message journaled during a database outage has no
+     * ID yet: the response says pending instead, and the message arrives
+     * through sync and pushes with its ID once it is stored.
+     * 
+     * @param messageRequest - JSON object with sender (optional), recipient (optional), message
+     * @param authorization - Authorization header carrying a bearer session token
+     * @return Response with success/failure message and the ID assigned to the message, or pending
      */
     @PostMapping("/chat/send")
-    public Map<String, Object> sendMessage(@RequestBody Map<String, String> messageRequest) {
+    public Map<String, Object> sendMessage(@RequestBody Map<String, String> messageRequest,
+                                           @RequestHeader(value = "Authorization", required = false) String authorization) {
         Map<String, Object> response = new HashMap<>();
         String sender = messageRequest.get("sender");
         String recipient = messageRequest.get("recipient");
         String message = messageRequest.get("message");
+        String token = bearerToken(authorization);
 
-        if (sender == null || message == null) {
+        if ((sender == null && token == null) || message == null) {
             response.put("success", false);
             response.put("message", "Sender and message content are required");
             return response;
         }
 
-        // Check if sender is logged in
-        if (!authService.isLoggedIn(sender)) {
+        if (token != null) {
+            String tokenUser = authService.verifySessionToken(token);
+            if (tokenUser == null) {
+                response.put("success", false);
+                response.put("message", "Invalid or expired session");
+                return response;
+            }
+            if (sender != null && !sender.equals(tokenUser)) {
+                response.put("success", false);
+                response.put("message", "Sender does not match session");
+                return response;
+            }
+            sender = tokenUser;
+        } else if (!tokenlessSend) {
+            response.put("success", false);
+            response.put("message", "Session token required");
+            return response;
+        } else if (!authService.isLoggedIn(sender)) {
+            // Compatibility mode: the sender must have logged in on this node
             response.put("success", false);
             response.put("message", "Sender is not logged in");
             return response;
@@ -146,14 +283,619 @@ public class ChatController {
             recipient = "broadcast";
         }
 
-        if (chatServer.sendMessage(sender, recipient, message)) {
+        long messageId = chatServer.storeMessage(sender, recipient, message);
+        if (messageId >= 0) {
             response.put("success", true);
             response.put("message", "Message sent successfully");
+            response.put("messageId", String.valueOf(messageId));
+        } else if (messageId == ChatServer.JOURNALED) {
+            // Accepted during a database outage; its ID is assigned when it is stored
+            response.put("success", true);
+            response.put("message", "Message accepted, it will be stored once the database is back");
+            response.put("pending", true);
+        } else if (messageId == ChatServer.REJECTED) {
+            response.put("success", false);
+            response.put("message", "Message rejected by content filter");
+        } else {
+            response.put("success", false);
+            response.put("message", "Failed to send message");
+        }
+
+        return response;
+    }
+
+    /**
+     * Conversation history endpoint (one page, newest first by page)
+     * 
+     * Responses are JSON by default, or CBOR with {@code Accept: application/cbor}.
+     * 
+     * @param username - Requesting user (must be logged in)
+     * @param peer - Other participant of the conversation
+     * @param before - Only return messages older than this ID (omit for the newest page)
+     * @param limit - Maximum number of messages to return
+     * @return Response with messages (oldest first) and the cursor for the next page
+     */
+    @GetMapping("/chat/history")
+    public Map<String, Object> history(@RequestParam("username") String username,
+                                       @RequestParam("peer") String peer,
+                                       @RequestParam(value = "before", defaultValue = "" + Long.MAX_VALUE) long before,
+                                       @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE));
+        List<Message> messages = chatServer.getConversationHistory(username, peer, before, pageSize);
+        response.put("success", true);
+        response.put("messages", messages);
+        if (messages.size() == pageSize) {
+            response.put("nextBefore", String.valueOf(messages.get(0).getMessageId()));
+        }
+        return response;
+    }
+
+    /**
+     * Delta sync endpoint with long-poll
+     * 
+     * Returns messages newer than {@code since} across all of the user's
+     * conversations. If there are none, the request is parked without
+     * holding a servlet thread until a new message arrives or {@code wait}
+     * milliseconds pass, in which case an empty list is returned.
+     * 
+     * @param username - User to sync
+     * @param since - Last message ID the client has seen (0 for everything)
+     * @param limit - Maximum number of messages to return
+     * @param wait - Maximum time to wait for new messages in milliseconds
+     * @return Deferred response with messages and the newest message ID
+     */
+    @GetMapping("/chat/sync")
+    public DeferredResult<Map<String, Object>> sync(@RequestParam("username") String username,
+                                                    @RequestParam(value = "since", defaultValue = "0") long since,
+                                                    @RequestParam(value = "limit", defaultValue = "200") int limit,
+                                                    @RequestParam(value = "wait", defaultValue = "25000") long wait) {
+        long waitMs = Math.max(0, Math.min(wait, MAX_SYNC_WAIT_MS));
+        DeferredResult<Map<String, Object>> result = new DeferredResult<>(waitMs + 5_000L);
+
+        if (!authService.isLoggedIn(username)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            result.setResult(response);
+            return result;
+        }
+
+        syncService.sync(username, since, limit, waitMs).whenComplete((messages, error) -> {
+            Map<String, Object> response = new HashMap<>();
+            if (error != null) {
+                response.put("success", false);
+                response.put("message", "Sync failed");
+            } else {
+                long latestId = since;
+                for (Message message : messages) {
+                    latestId = Math.max(latestId, message.getMessageId());
+                }
+                response.put("success", true);
+                response.put("messages", messages);
+                response.put("latestId", String.valueOf(latestId));
+            }
+            result.setResult(response);
+        });
+        return result;
+    }
+
+    /**
+     * Export endpoint: every message the user sent or received directly, as NDJSON
+     * 
+     * Messages are written oldest first, one JSON object per line, as they
+     * are read from the database cursor, so the export is never held in
+     * memory and a slow client simply slows the cursor down. The response
+     * is gzip-compressed when the client sends Accept-Encoding: gzip. If
+     * the database fails part way through, the connection is aborted
+     * rather than ending the stream as if it were complete.
+     * 
+     * @param username - User to export (must be logged in, or match the session token)
+     * @param authorization - Authorization header carrying a bearer session token (optional)
+     * @param response - Servlet response to stream to; 401 if not authorized
+     */
+    @GetMapping(value = "/chat/export", produces = NdjsonMessageWriter.MEDIA_TYPE)
+    public void export(@RequestParam("username") String username,
+                       @RequestHeader(value = "Authorization", required = false) String authorization,
+                       HttpServletResponse response) throws IOException {
+        String token = bearerToken(authorization);
+        boolean authorized = token != null
+                ? username.equals(authService.verifySessionToken(token))
+                : authService.isLoggedIn(username);
+        if (!authorized) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        response.setContentType(NdjsonMessageWriter.MEDIA_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(username + "-messages.ndjson", StandardCharsets.UTF_8).build().toString());
+        try (NdjsonMessageWriter writer = new NdjsonMessageWriter(response.getOutputStream())) {
+            chatServer.exportMessages(username, writer);
+        } catch (SQLException e) {
+            System.err.println("Export failed for " + username + ": " + e.getMessage());
+            throw new IOException("Export failed", e);
+        }
+    }
+
+    /**
+     * Inbox endpoint: the user's most recently active direct conversations
+     * 
+     * @param username - Requesting user (must be logged in)
+     * @param limit - Maximum number of conversations to return
+     * @return Response with conversations (peer, lastMessageId, lastSender,
+     *         preview, lastSentAt, unreadCount), most recent first
+     */
+    @GetMapping("/chat/inbox")
+    public Map<String, Object> inbox(@RequestParam("username") String username,
+                                     @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        List<Map<String, Object>> conversations = new ArrayList<>();
+        for (ConversationSummary summary : chatServer.getInbox(username, Math.max(1, Math.min(limit, MAX_INBOX_PAGE)))) {
+            conversations.add(summary.toMap());
+        }
+        response.put("success", true);
+        response.put("conversations", conversations);
+        return response;
+    }
+
+    /**
+     * Create room endpoint
+     * 
+     * @param roomRequest - JSON object with username and name
+     * @return Response with the new room ID
+     */
+    @PostMapping("/rooms")
+    public Map<String, Object> createRoom(@RequestBody Map<String, String> roomRequest) {
+        Map<String, Object> response = new HashMap<>();
+        String username = roomRequest.get("username");
+        String name = roomRequest.get("name");
+
+        if (username == null || name == null) {
+            response.put("success", false);
+            response.put("message", "Username and room name are required");
+            return response;
+        }
+
+        if (!authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        long roomId = roomService.createRoom(name, username);
+        if (roomId > 0) {
+            response.put("success", true);
+            response.put("roomId", roomId);
+        } else {
+            response.put("success", false);
+            response.put("message", "Failed to create room");
+        }
+        return response;
+    }
+
+    /**
+     * Join room endpoint
+     * 
+     * @param roomId - Room to join
+     * @param joinRequest - JSON object with username
+     * @return Response with success/failure message
+     */
+    @PostMapping("/rooms/{roomId}/join")
+    public Map<String, Object> joinRoom(@PathVariable("roomId") long roomId, @RequestBody Map<String, String> joinRequest) {
+        Map<String, Object> response = new HashMap<>();
+        String username = joinRequest.get("username");
+
+        if (username == null || !authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        boolean joined = roomService.joinRoom(roomId, username);
+        response.put("success", joined);
+        response.put("message", joined ? "Joined room" : "Failed to join room");
+        return response;
+    }
+
+    /**
+     * Leave room endpoint
+     * 
+     * @param roomId - Room to leave
+     * @param leaveRequest - JSON object with username
+     * @return Response with success/failure message
+     */
+    @PostMapping("/rooms/{roomId}/leave")
+    public Map<String, Object> leaveRoom(@PathVariable("roomId") long roomId, @RequestBody Map<String, String> leaveRequest) {
+        Map<String, Object> response = new HashMap<>();
+        String username = leaveRequest.get("username");
+
+        if (username == null || !authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        boolean left = roomService.leaveRoom(roomId, username);
+        response.put("success", left);
+        response.put("message", left ? "Left room" : "Not a member of this room");
+        return response;
+    }
+
+    /**
+     * Send room message endpoint
+     * 
+     * @param roomId - Target room
+     * @param messageRequest - JSON object with sender and message
+     * @return Response with the new message ID
+     */
+    @PostMapping("/rooms/{roomId}/send")
+    public Map<String, Object> sendRoomMessage(@PathVariable("roomId") long roomId, @RequestBody Map<String, String> messageRequest) {
+        Map<String, Object> response = new HashMap<>();
+        String sender = messageRequest.get("sender");
+        String message = messageRequest.get("message");
+
+        if (sender == null || message == null) {
+            response.put("success", false);
+            response.put("message", "Sender and message content are required");
+            return response;
+        }
+
+        if (!authService.isLoggedIn(sender)) {
+            response.put("success", false);
+            response.put("message", "Sender is not logged in");
+            return response;
+        }
+
+        long messageId = roomService.sendRoomMessage(roomId, sender, message);
+        if (messageId > 0) {
+            response.put("success", true);
+            response.put("messageId", String.valueOf(messageId));
+        } else if (messageId == ChatServer.REJECTED) {
+            response.put("success", false);
+            response.put("message", "Message rejected by content filter");
         } else {
             response.put("success", false);
             response.put("message", "Failed to send message");
         }
+        return response;
+    }
+
+    /**
+     * Room history endpoint
+     * 
+     * @param roomId - Room to read
+     * @param username - Requesting member
+     * @param before - Only return messages older than this ID
+     * @param limit - Maximum number of messages
+     * @return Response with messages (oldest first)
+     */
+    @GetMapping("/rooms/{roomId}/history")
+    public Map<String, Object> roomHistory(@PathVariable("roomId") long roomId,
+                                           @RequestParam("username") String username,
+                                           @RequestParam(value = "before", defaultValue = "" + Long.MAX_VALUE) long before,
+                                           @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!authService.isLoggedIn(username) || !roomService.isMember(roomId, username)) {
+            response.put("success", false);
+            response.put("message", "Not a member of this room");
+            return response;
+        }
 
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE));
+        List<Message> messages = roomService.getRoomHistory(roomId, before, pageSize);
+        response.put("success", true);
+        response.put("roomId", roomId);
+        response.put("messages", messages);
+        if (messages.size() == pageSize) {
+            response.put("nextBefore", String.valueOf(messages.get(0).getMessageId()));
+        }
+        return response;
+    }
+
+    /**
+     * Typing indicator endpoint (ephemeral, never stored)
+     *
+     * @param typingRequest - JSON object with sender, recipient, typing ("true"/"false")
+     * @return Response with success/failure message
+     */
+    @PostMapping("/chat/typing")
+    public Map<String, Object> typing(@RequestBody Map<String, String> typingRequest) {
+        Map<String, Object> response = new HashMap<>();
+        String sender = typingRequest.get("sender");
+        String recipient = typingRequest.get("recipient");
+
+        if (sender == null || recipient == null) {
+            response.put("success", false);
+            response.put("message", "Sender and recipient are required");
+            return response;
+        }
+
+        if (!authService.isLoggedIn(sender)) {
+            response.put("success", false);
+            response.put("message", "Sender is not logged in");
+            return response;
+        }
+
+        ephemeralChannel.publishTyping(sender, recipient, !"false".equals(typingRequest.get("typing")));
+        response.put("success", true);
+        return response;
+    }
+
+    /**
+     * Read receipt endpoint (pushed at once; unread counts are reset in batches)
+     *
+     * @param seenRequest - JSON object with reader, sender, messageId
+     * @return Response with success/failure message
+     */
+    @PostMapping("/chat/seen")
+    public Map<String, Object> seen(@RequestBody Map<String, String> seenRequest) {
+        Map<String, Object> response = new HashMap<>();
+        String reader = seenRequest.get("reader");
+        String sender = seenRequest.get("sender");
+        String messageId = seenRequest.get("messageId");
+
+        if (reader == null || sender == null || messageId == null) {
+            response.put("success", false);
+            response.put("message", "Reader, sender and messageId are required");
+            return response;
+        }
+
+        if (!authService.isLoggedIn(reader)) {
+            response.put("success", false);
+            response.put("message", "Reader is not logged in");
+            return response;
+        }
+
+        long lastSeenMessageId;
+        try {
+            lastSeenMessageId = Long.parseLong(messageId);
+        } catch (NumberFormatException e) {
+            response.put("success", false);
+            response.put("message", "Invalid messageId");
+            return response;
+        }
+        ephemeralChannel.publishSeen(reader, sender, lastSeenMessageId);
+        readReceipts.markRead(reader, sender, lastSeenMessageId);
+        response.put("success", true);
+        return response;
+    }
+
+    /**
+     * Reaction endpoint: add or remove an emoji reaction on a message
+     *
+     * Counts come from memory and are written to the database in batches;
+     * everyone who can see the message is pushed the new counts as a
+     * "reaction" event. Reacting twice with the same emoji counts once.
+     *
+     * @param reactionRequest - JSON object with username (optional with a session token), messageId, emoji
+     *                          and remove ("true" to take the reaction back)
+     * @param authorization - Authorization header carrying a bearer session token (optional)
+     * @return Response with the message's counts per emoji, most used first
+     */
+    @PostMapping("/chat/react")
+    public Map<String, Object> react(@RequestBody Map<String, String> reactionRequest,
+                                     @RequestHeader(value = "Authorization", required = false) String authorization) {
+        Map<String, Object> response = new HashMap<>();
+        String username = reactionRequest.get("username");
+        String messageId = reactionRequest.get("messageId");
+        String emoji = reactionRequest.get("emoji");
+        String token = bearerToken(authorization);
+
+        if ((username == null && token == null) || messageId == null || emoji == null) {
+            response.put("success", false);
+            response.put("message", "Username, messageId and emoji are required");
+            return response;
+        }
+
+        if (token != null) {
+            String tokenUser = authService.verifySessionToken(token);
+            if (tokenUser == null) {
+                response.put("success", false);
+                response.put("message", "Invalid or expired session");
+                return response;
+            }
+            if (username != null && !username.equals(tokenUser)) {
+                response.put("success", false);
+                response.put("message", "User does not match session");
+                return response;
+            }
+            username = tokenUser;
+        } else if (!authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        long id;
+        try {
+            id = Long.parseLong(messageId);
+        } catch (NumberFormatException e) {
+            response.put("success", false);
+            response.put("message", "Invalid messageId");
+            return response;
+        }
+        ReactionCounts counts = "true".equals(reactionRequest.get("remove"))
+                ? reactionService.unreact(username, id, emoji)
+                : reactionService.react(username, id, emoji);
+        if (counts == null) {
+            response.put("success", false);
+            response.put("message", "Message not found or reaction not allowed");
+            return response;
+        }
+        response.put("success", true);
+        response.put("messageId", String.valueOf(id));
+        response.put("reactions", counts.getCounts());
+        return response;
+    }
+
+    /**
+     * Reaction counts endpoint
+     *
+     * @param username - Requesting user (must be logged in and able to see the message)
+     * @param messageId - Message to look up
+     * @return Response with the message's counts per emoji, most used first
+     */
+    @GetMapping("/chat/reactions")
+    public Map<String, Object> reactions(@RequestParam("username") String username,
+                                         @RequestParam("messageId") long messageId) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        ReactionCounts counts = reactionService.getCounts(username, messageId);
+        if (counts == null) {
+            response.put("success", false);
+            response.put("message", "Message not found");
+            return response;
+        }
+        response.put("success", true);
+        response.put("messageId", String.valueOf(messageId));
+        response.put("reactions", counts.getCounts());
+        return response;
+    }
+
+    /**
+     * Open a push connection (Server-Sent Events) for a logged-in user
+     *
+     * @param username - Connecting user
+     * @return Event stream, or 401 if the user is not logged in
+     */
+    @GetMapping("/push/connect")
+    public ResponseEntity<SseEmitter> connectPush(@RequestParam("username") String username) {
+        if (!authService.isLoggedIn(username)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        SsePushConnection connection = new SsePushConnection(username, PUSH_TIMEOUT_MS, pushRegistry);
+        pushRegistry.register(connection);
+        presenceService.heartbeat(username);
+        return ResponseEntity.ok(connection.getEmitter());
+    }
+
+    /**
+     * Presence heartbeat endpoint
+     *
+     * @param heartbeatRequest - JSON object with username
+     * @return Response with success/failure message
+     */
+    @PostMapping("/presence/heartbeat")
+    public Map<String, Object> heartbeat(@RequestBody Map<String, String> heartbeatRequest) {
+        Map<String, Object> response = new HashMap<>();
+        String username = heartbeatRequest.get("username");
+
+        if (username == null) {
+            response.put("success", false);
+            response.put("message", "Username is required");
+            return response;
+        }
+
+        if (!authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        presenceService.heartbeat(username);
+        response.put("success", true);
+        return response;
+    }
+
+    /**
+     * Bulk presence lookup endpoint
+     *
+     * @param username - Requesting user (must be logged in)
+     * @param users - Comma-separated list of usernames
+     * @return Response with a username to online-flag map
+     */
+    @GetMapping("/presence")
+    public Map<String, Object> getPresence(@RequestParam("username") String username,
+                                           @RequestParam("users") String users) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!authService.isLoggedIn(username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        List<String> usernames = new ArrayList<>();
+        for (String user : users.split(",")) {
+            String trimmed = user.trim();
+            if (!trimmed.isEmpty()) {
+                usernames.add(trimmed);
+            }
+        }
+
+        if (usernames.size() > MAX_PRESENCE_LOOKUP) {
+            response.put("success", false);
+            response.put("message", "At most " + MAX_PRESENCE_LOOKUP + " users can be looked up at once");
+            return response;
+        }
+
+        response.put("success", true);
+        response.put("presence", presenceService.getPresence(usernames));
+        return response;
+    }
+
+    /**
+     * Set the contacts a user receives presence updates for
+     *
+     * Subscriptions last until the user's presence expires or they log out,
+     * so clients set them again after reconnecting.
+     *
+     * @param contactsRequest - JSON object with username and contacts (array of usernames)
+     * @return Response with success/failure message
+     */
+    @PostMapping("/presence/contacts")
+    public Map<String, Object> setContacts(@RequestBody Map<String, Object> contactsRequest) {
+        Map<String, Object> response = new HashMap<>();
+        Object username = contactsRequest.get("username");
+        Object contacts = contactsRequest.get("contacts");
+
+        if (!(username instanceof String) || !(contacts instanceof Collection)) {
+            response.put("success", false);
+            response.put("message", "Username and contacts are required");
+            return response;
+        }
+
+        if (!authService.isLoggedIn((String) username)) {
+            response.put("success", false);
+            response.put("message", "User is not logged in");
+            return response;
+        }
+
+        List<String> contactNames = new ArrayList<>();
+        for (Object contact : (Collection<?>) contacts) {
+            contactNames.add(String.valueOf(contact));
+        }
+        if (!presenceService.setContacts((String) username, contactNames)) {
+            response.put("success", false);
+            response.put("message", "At most " + presenceService.getMaxContacts() + " contacts can be watched");
+            return response;
+        }
+        response.put("success", true);
+        response.put("presence", presenceService.getPresence(contactNames));
         return response;
     }
 
@@ -169,4 +911,191 @@ public class ChatController {
         response.put("service", "Chat Application API");
         return response;
     }
+
+    /**
+     * SQL statistics endpoint
+     * 
+     * Lists the statements with the highest total execute time since
+     * startup, with execution count, latency, rows and fetch time. SQL is
+     * shown normalized; bind values are never recorded.
+     * 
+     * @param limit - Maximum number of statements to return
+     * @return Response with the top statements, or success=false if statistics are off
+     */
+    @GetMapping("/admin/sql-stats")
+    public Map<String, Object> sqlStats(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        if (sqlStatistics == null) {
+            response.put("success", false);
+            response.put("message", "SQL statistics are disabled");
+            return response;
+        }
+        response.put("success", true);
+        response.put("statements", sqlStatistics.top(Math.max(1, Math.min(limit, MAX_SQL_STATS))));
+        response.put("distinctStatements", sqlStatistics.getStatementCount());
+        response.put("slowQueries", sqlStatistics.getSlowQueryCount());
+        return response;
+    }
+
+    /**
+     * Push statistics endpoint
+     * 
+     * Reports how many frames live pushes were written as and how many
+     * messages each frame carried, overall and over the last second.
+     * 
+     * @return Response with frame and message counters
+     */
+    @GetMapping("/admin/push-stats")
+    public Map<String, Object> pushStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("connectedUsers", pushRegistry.getConnectedUserCount());
+        response.put("windowMs", pushCoalescer.getWindowMs());
+        response.put("frames", pushCoalescer.getFrameCount());
+        response.put("messages", pushCoalescer.getMessageCount());
+        response.put("messagesPerFrame", pushCoalescer.getMessagesPerFrame());
+        response.put("framesPerSecond", pushCoalescer.getFramesPerSecond());
+        response.put("messagesPerSecond", pushCoalescer.getMessagesPerSecond());
+        return response;
+    }
+
+    /**
+     * Content filter statistics endpoint
+     * 
+     * Reports the size and load time of the dictionary in use and how many
+     * messages were scanned, rejected, masked and flagged since startup.
+     * 
+     * @return Response with filter counters
+     */
+    @GetMapping("/admin/filter-stats")
+    public Map<String, Object> filterStats() {
+        Map<String, Object> response = new HashMap<>();
+        if (contentFilter == null) {
+            response.put("success", false);
+            response.put("message", "Content filter is not available");
+            return response;
+        }
+        response.put("success", true);
+        response.put("dictionary", String.valueOf(contentFilter.getDictionary()));
+        response.put("terms", contentFilter.getTermCount());
+        response.put("loadedAt", contentFilter.getLoadedAtMillis());
+        response.put("scanned", contentFilter.getScannedCount());
+        response.put("rejected", contentFilter.getRejectedCount());
+        response.put("masked", contentFilter.getMaskedCount());
+        response.put("flagged", contentFilter.getFlaggedCount());
+        return response;
+    }
+
+    /**
+     * Login throttle statistics endpoint
+     * 
+     * Reports failed logins, lockouts and attempts refused while locked out
+     * since startup, and the usernames and client addresses with the most
+     * failures among those currently tracked.
+     * 
+     * @param limit - Maximum number of offenders to return
+     * @return Response with throttle counters and top offenders
+     */
+    @GetMapping("/admin/login-stats")
+    public Map<String, Object> loginStats(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        if (loginThrottle == null) {
+            response.put("success", false);
+            response.put("message", "Login throttle is not available");
+            return response;
+        }
+        List<Map<String, Object>> offenders = new ArrayList<>();
+        for (LoginThrottle.Offender offender : loginThrottle.getTopOffenders(
+                Math.max(1, Math.min(limit, MAX_LOGIN_OFFENDERS)))) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("kind", offender.getKind());
+            entry.put("key", offender.getKey());
+            entry.put("failures", offender.getTotalFailures());
+            entry.put("windowFailures", offender.getWindowFailures());
+            entry.put("blocked", offender.getBlockedAttempts());
+            entry.put("lockedForMs", offender.getLockedForMillis());
+            offenders.add(entry);
+        }
+        response.put("success", true);
+        response.put("failures", loginThrottle.getFailureCount());
+        response.put("lockouts", loginThrottle.getLockoutCount());
+        response.put("blocked", loginThrottle.getBlockedCount());
+        response.put("trackedUsers", loginThrottle.getTrackedUserCount());
+        response.put("trackedIps", loginThrottle.getTrackedIpCount());
+        response.put("topOffenders", offenders);
+        return response;
+    }
+
+    /**
+     * Reaction statistics endpoint
+     *
+     * Reports how many messages have counts in memory, how many reactions
+     * are waiting to be written, and how many were written, corrected by
+     * the database and published since startup.
+     *
+     * @return Response with reaction counters
+     */
+    @GetMapping("/admin/reaction-stats")
+    public Map<String, Object> reactionStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("trackedMessages", reactionService.getTrackedMessageCount());
+        response.put("pending", reactionService.getPendingCount());
+        response.put("flushed", reactionService.getFlushedCount());
+        response.put("flushes", reactionService.getFlushCount());
+        response.put("corrections", reactionService.getCorrectionCount());
+        response.put("published", reactionService.getPublishedCount());
+        return response;
+    }
+
+    /**
+     * Accept sends without a session token from users logged in on this node
+     *
+     * @param allowed - true to enable the compatibility mode
+     */
+    void setTokenlessSend(boolean allowed) {
+        this.tokenlessSend = allowed;
+    }
+
+    /**
+     * Extract the token from an Authorization header
+     * 
+     * @param authorization - Header value, may be null
+     * @return Bearer token, or null if the header is absent or not a bearer token
+     */
+    private static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        String token = authorization.substring(BEARER_PREFIX.length()).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    /**
+     * Readiness endpoint
+     * 
+     * Unlike /health (process is up), this reports whether the service can
+     * serve traffic: 200 while the database answers the background probe,
+     * 503 before it first does ("starting") and while it is unreachable
+     * afterwards ("unavailable").
+     * 
+     * @return Readiness status with startup timings
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        Map<String, Object> response = new HashMap<>();
+        boolean dbReady = readinessProbe != null && readinessProbe.isReady();
+        response.put("status", dbReady ? "ready"
+                : readinessProbe != null && readinessProbe.getReadyAtMs() > 0 ? "unavailable" : "starting");
+        response.put("database", dbReady);
+        if (!dbReady && readinessProbe != null && readinessProbe.getLastError() != null) {
+            response.put("databaseError", readinessProbe.getLastError());
+        }
+        if (chatServer != null) {
+            response.put("journalPending", chatServer.getJournalPendingCount());
+        }
+        response.put("startupMs", StartupTimer.getReadyMs());
+        response.put("firstRequestMs", StartupTimer.getFirstRequestMs());
+        return ResponseEntity.status(dbReady ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
 }
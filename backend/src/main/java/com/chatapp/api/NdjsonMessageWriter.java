@@ -0,0 +1,65 @@
+package com.chatapp.api;
+
+import com.chatapp.server.ChatServer;
+import com.chatapp.server.Message;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * NdjsonMessageWriter - Writes messages as newline-delimited JSON
+ *
+ * Each message is one JSON object on its own line, serialized the same
+ * way as in the JSON API responses. Output goes through the generator's
+ * fixed buffer straight to the stream, so a large export never holds
+ * more than a buffer's worth of text; writes block while the client is
+ * not reading.
+ */
+public class NdjsonMessageWriter implements ChatServer.MessageSink, Closeable {
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final JsonGenerator generator;
+    private long count;
+
+    /**
+     * Constructor - Write to an output stream
+     *
+     * @param out - Stream to write to; left open by close()
+     */
+    public NdjsonMessageWriter(OutputStream out) throws IOException {
+        this.generator = MAPPER.getFactory().createGenerator(out);
+    }
+
+    /**
+     * Write one message and its line terminator
+     *
+     * @param message - Message to write
+     */
+    @Override
+    public void accept(Message message) throws IOException {
+        generator.writeObject(message);
+        generator.writeRaw('\n');
+        count++;
+    }
+
+    /**
+     * Flush buffered output to the stream
+     */
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    // Getters
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,92 @@
+package com.chatapp.api;
+
+import com.chatapp.tracing.Span;
+import com.chatapp.tracing.Tracer;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * TracingInterceptor - Starts a trace for each API request
+ *
+ * The root span covers the whole request and is named after the route
+ * ("POST /api/chat/send"); a child span covers the ChatController handler
+ * itself, including writing its response body. The trace ID is returned
+ * in the X-Trace-Id header so a slow response can be found in the trace
+ * file. Long-polls and push connections are traced up to the point where
+ * the request goes asynchronous.
+ */
+public class TracingInterceptor implements AsyncHandlerInterceptor {
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static final String ROOT_SPAN = TracingInterceptor.class.getName() + ".root";
+    private static final String HANDLER_SPAN = TracingInterceptor.class.getName() + ".handler";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || Tracer.getInstalled() == null) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Span root = Tracer.startTrace(request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI()));
+        root.tag("http.method", request.getMethod()).tag("http.path", request.getRequestURI());
+        request.setAttribute(ROOT_SPAN, root);
+        response.setHeader(TRACE_ID_HEADER, Tracer.currentTraceId());
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            request.setAttribute(HANDLER_SPAN,
+                    Tracer.span(method.getBeanType().getSimpleName() + "." + method.getMethod().getName()));
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        closeHandlerSpan(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Span root = (Span) request.getAttribute(ROOT_SPAN);
+        if (root == null) {
+            return;
+        }
+        closeHandlerSpan(request);
+        root.tag("http.status_code", String.valueOf(response.getStatus()));
+        if (ex != null) {
+            root.error(ex);
+        } else if (response.getStatus() >= 500) {
+            root.tag("error", String.valueOf(response.getStatus()));
+        }
+        root.close();
+        Tracer.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        Span root = (Span) request.getAttribute(ROOT_SPAN);
+        if (root == null) {
+            return;
+        }
+        request.removeAttribute(ROOT_SPAN);
+        closeHandlerSpan(request);
+        root.tag("async", "true");
+        root.close();
+        Tracer.clear();
+    }
+
+    private void closeHandlerSpan(HttpServletRequest request) {
+        Span handlerSpan = (Span) request.getAttribute(HANDLER_SPAN);
+        if (handlerSpan != null) {
+            request.removeAttribute(HANDLER_SPAN);
+            handlerSpan.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.chatapp.api;
+
+import com.chatapp.database.DatabaseConnection;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * WebConfig - Spring MVC configuration for the REST API
+ *
+ * Registers the CBOR converter after the default converters so JSON
+ * remains the default and CBOR is only used when explicitly accepted.
+ * Every API request passes through the TracingInterceptor; admin
+ * endpoints also through the AdminInterceptor.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CborMessageConverter());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TracingInterceptor()).addPathPatterns("/api/**");
+        registry.addInterceptor(new AdminInterceptor(
+                DatabaseConnection.setting("chatapp.admin.secret", "CHATAPP_ADMIN_SECRET", "")))
+                .addPathPatterns("/api/admin/**");
+    }
+}
@@ -1,12 +1,16 @@
 package com.chatapp.auth;
 
 import com.chatapp.database.DatabaseConnection;
+import com.chatapp.server.MessageIdGenerator;
+import com.chatapp.tracing.Span;
+import com.chatapp.tracing.Tracer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.sql.Statement;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AuthService - Handles user authentication and login/logout operations
@@ -15,17 +19,72 @@ import java.util.Map;
  * - User credential verification
  * - Session management
  * - User authentication flow
+ * - Priming the shared UserDictionary with user IDs it reads or creates
+ * - Refusing logins locked out by the LoginThrottle before querying the database
+ * - Issuing, verifying and revoking signed session tokens
+ *
+ * isLoggedIn reflects logins made on this node only; requests that may
+ * reach any node identify the user with a session token instead.
  */
 public class AuthService {
     private DatabaseConnection dbConnection;
     private Map<String, String> activeSessions;
+    private final UserDictionary userDictionary;
+    private final LoginThrottle loginThrottle;
+    private final SessionTokenService sessionTokens;
 
     /**
      * Constructor - Initialize AuthService
      */
     public AuthService() {
-        this.dbConnection = new DatabaseConnection();
-        this.activeSessions = new HashMap<>();
+        this(new DatabaseConnection());
+    }
+
+    /**
+     * Constructor - Initialize AuthService with a shared database connection
+     * 
+     * @param dbConnection - Database used for credential lookups
+     */
+    public AuthService(DatabaseConnection dbConnection) {
+        this(dbConnection, new UserDictionary(dbConnection));
+    }
+
+    /**
+     * Constructor - Initialize AuthService with a shared database connection and user dictionary
+     * 
+     * @param dbConnection - Database used for credential lookups
+     * @param userDictionary - Username to user_id dictionary over the same database
+     */
+    public AuthService(DatabaseConnection dbConnection, UserDictionary userDictionary) {
+        this(dbConnection, userDictionary, new LoginThrottle());
+    }
+
+    /**
+     * Constructor - Initialize AuthService with a shared database connection, user dictionary and login throttle
+     * 
+     * @param dbConnection - Database used for credential lookups
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param loginThrottle - Failed login counters and lockouts
+     */
+    public AuthService(DatabaseConnection dbConnection, UserDictionary userDictionary, LoginThrottle loginThrottle) {
+        this(dbConnection, userDictionary, loginThrottle, new SessionTokenService(dbConnection));
+    }
+
+    /**
+     * Constructor - Initialize AuthService with all collaborators
+     * 
+     * @param dbConnection - Database used for credential lookups
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param loginThrottle - Failed login counters and lockouts
+     * @param sessionTokens - Issuer and verifier of session tokens, shared by every node through its secret
+     */
+    public AuthService(DatabaseConnection dbConnection, UserDictionary userDictionary, LoginThrottle loginThrottle,
+                       SessionTokenService sessionTokens) {
+        this.dbConnection = dbConnection;
+        this.activeSessions = new ConcurrentHashMap<>();
+        this.userDictionary = userDictionary;
+        this.loginThrottle = loginThrottle;
+        this.sessionTokens = sessionTokens;
     }
 
     /**
@@ -36,24 +95,48 @@ public class AuthService {
      * @return true if credentials are valid, false otherwise
      */
     public boolean authenticate(String username, String password) {
-        try (Connection conn = dbConnection.getConnection()) {
-            String query = "SELECT password FROM users WHERE username = ?";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setString(1, username);
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                String storedPassword = rs.getString("password");
-                // In production, compare hashed passwords
-                if (storedPassword.equals(password)) {
-                    activeSessions.put(username, System.currentTimeMillis() + "");
-                    return true;
+        return authenticate(username, password, null);
+    }
+
+    /**
+     * Authenticate user with username and password from a client address
+     * 
+     * Attempts for a locked-out username or address fail without a database
+     * query; use getLoginRetryAfterMillis to tell them from wrong credentials.
+     * 
+     * @param username - User's username
+     * @param password - User's password (should be hashed in production)
+     * @param clientIp - Client address, or null if unknown
+     * @return true if credentials are valid and the login is not locked out, false otherwise
+     */
+    public boolean authenticate(String username, String password, String clientIp) {
+        try (Span span = Tracer.span("AuthService.authenticate")) {
+            if (loginThrottle.checkAttempt(username, clientIp) > 0) {
+                span.tag("throttled", "true");
+                return false;
+            }
+            try (Connection conn = dbConnection.getReadConnection(username)) {
+                String query = "SELECT user_id, password FROM users WHERE username = ?";
+                PreparedStatement stmt = conn.prepareStatement(query);
+                stmt.setString(1, username);
+
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    String storedPassword = rs.getString("password");
+                    // In production, compare hashed passwords
+                    if (storedPassword.equals(password)) {
+                        userDictionary.register(rs.getInt("user_id"), username);
+                        activeSessions.put(username, System.currentTimeMillis() + "");
+                        loginThrottle.recordSuccess(username);
+                        return true;
+                    }
                 }
+                loginThrottle.recordFailure(username, clientIp);
+            } catch (SQLException e) {
+                System.err.println("Database error during authentication: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Database error during authentication: " + e.getMessage());
+            return false;
         }
-        return false;
     }
 
     /**
@@ -64,17 +147,55 @@ public class AuthService {
      * @return true if registration successful, false otherwise
      */
     public boolean registerUser(String username, String password) {
-        try (Connection conn = dbConnection.getConnection()) {
-            String query = "INSERT INTO users (username, password) VALUES (?, ?)";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setString(1, username);
-            stmt.setString(2, password); // Should be hashed in production
-
-            stmt.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            System.err.println("Error registering user: " + e.getMessage());
-            return false;
+        try (Span span = Tracer.span("AuthService.registerUser")) {
+            try (Connection conn = dbConnection.getConnection()) {
+                String query = "INSERT INTO users (username, password) VALUES (?, ?)";
+                PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+                stmt.setString(1, username);
+                stmt.setString(2, password); // Should be hashed in production
+
+                stmt.executeUpdate();
+                dbConnection.recordWrite(username);
+                ResultSet keys = stmt.getGeneratedKeys();
+                if (keys.next()) {
+                    int userId = keys.getInt(1);
+                    userDictionary.register(userId, username);
+                    // Start the mailbox at the current time so earlier broadcasts are not delivered;
+                    // messages may be on shards, so the primary's MAX(message_id) would not do
+                    PreparedStatement cursor = conn.prepareStatement("INSERT INTO mailbox_cursors (user_id, delivered_message_id)"
+                            + " VALUES (?, ?)");
+                    cursor.setInt(1, userId);
+                    cursor.setLong(2, MessageIdGenerator.maxIdAt(System.currentTimeMillis()));
+                    cursor.executeUpdate();
+                }
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error registering user: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Issue a session token for a user who has just authenticated
+     * 
+     * @param username - Authenticated user
+     * @return Signed token any node accepts until it expires or is revoked
+     */
+    public String issueSessionToken(String username) {
+        return sessionTokens.issue(username);
+    }
+
+    /**
+     * Verify a session token without a database or cross-node lookup
+     * 
+     * @param token - Token from a request, may be null
+     * @return Username the token was issued to, or null if it is invalid, expired or revoked
+     */
+    public String verifySessionToken(String token) {
+        try (Span span = Tracer.span("AuthService.verifySessionToken")) {
+            SessionToken session = sessionTokens.verify(token);
+            return session != null ? session.getUsername() : null;
         }
     }
 
@@ -87,6 +208,22 @@ public class AuthService {
         activeSessions.remove(username);
     }
 
+    /**
+     * Logout the holder of a session token and revoke the token on every node
+     * 
+     * @param token - Token to revoke
+     * @return Username the token was issued to, or null if it was not valid
+     */
+    public String logoutSession(String token) {
+        SessionToken session = sessionTokens.verify(token);
+        if (session == null) {
+            return null;
+        }
+        sessionTokens.revoke(token);
+        activeSessions.remove(session.getUsername());
+        return session.getUsername();
+    }
+
     /**
      * Check if user is currently logged in
      * 
@@ -94,6 +231,46 @@ public class AuthService {
      * @return true if user has active session, false otherwise
      */
     public boolean isLoggedIn(String username) {
-        return activeSessions.containsKey(username);
+        try (Span span = Tracer.span("AuthService.isLoggedIn")) {
+            return activeSessions.containsKey(username);
+        }
+    }
+
+    /**
+     * Get how long logins for a username from an address are locked out
+     * 
+     * @param username - Username being logged in
+     * @param clientIp - Client address, or null if unknown
+     * @return 0 if logins may be attempted, otherwise milliseconds until they may be retried
+     */
+    public long getLoginRetryAfterMillis(String username, String clientIp) {
+        return loginThrottle.getRetryAfterMillis(username, clientIp);
+    }
+
+    /**
+     * Get the login throttle
+     * 
+     * @return Failed login counters and lockouts
+     */
+    public LoginThrottle getLoginThrottle() {
+        return loginThrottle;
+    }
+
+    /**
+     * Get the session token service
+     * 
+     * @return Issuer and verifier of session tokens
+     */
+    public SessionTokenService getSessionTokens() {
+        return sessionTokens;
+    }
+
+    /**
+     * Get the dictionary shared with the chat services
+     * 
+     * @return Username to user_id dictionary
+     */
+    public UserDictionary getUserDictionary() {
+        return userDictionary;
     }
 }
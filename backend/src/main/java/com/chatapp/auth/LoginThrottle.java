@@ -0,0 +1,394 @@
+package com.chatapp.auth;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * LoginThrottle - Brute-force protection for logins by username and by client IP
+ *
+ * This service manages:
+ * - Sliding-window counts of failed logins per username and per client IP
+ * - Lockouts that double with each repeat, up to a maximum
+ * - Answering whether an attempt is locked out without touching the database
+ * - Counters and the top offenders for operators
+ *
+ * Each key keeps the failures of the current and the previous fixed
+ * window; the sliding count is the current one plus the previous one
+ * weighted by how much of it still overlaps the last windowMs. Reaching
+ * the limit locks the key for baseLockoutMs, doubled for each lockout
+ * since the key was last idle, up to maxLockoutMs. Attempts made while
+ * locked are refused and not counted, so retrying during a lockout does
+ * not extend it; another failure after it ends, while the window is still
+ * over the limit, locks the key again for twice as long. A successful login
+ * clears its username's state but not its IP's, since one address may
+ * try many accounts.
+ *
+ * Keys live in a fixed number of stripes, each an access-ordered map
+ * behind its own lock, so concurrent logins rarely contend. Each stripe
+ * holds at most maxKeys / STRIPES keys and drops the least recently used
+ * one beyond that, and keys that have been idle for two windows since
+ * their last failure or lockout are dropped as the stripe is used, so a
+ * spray of random usernames or addresses cannot grow memory without bound.
+ */
+public class LoginThrottle {
+    public static final long DEFAULT_WINDOW_MS = 60_000;
+    public static final int DEFAULT_MAX_USER_FAILURES = 5;
+    public static final int DEFAULT_MAX_IP_FAILURES = 50;
+    public static final long DEFAULT_BASE_LOCKOUT_MS = 1_000;
+    public static final long DEFAULT_MAX_LOCKOUT_MS = 15 * 60_000;
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+
+    static final int STRIPES = 16;
+
+    private final long windowMs;
+    private final long baseLockoutMs;
+    private final long maxLockoutMs;
+    private final LongSupplier clock;
+    private final KeyTable users;
+    private final KeyTable ips;
+    private final LongAdder failures;
+    private final LongAdder lockouts;
+    private final LongAdder blocked;
+
+    /**
+     * Constructor - Create a throttle with default limits
+     */
+    public LoginThrottle() {
+        this(DEFAULT_WINDOW_MS, DEFAULT_MAX_USER_FAILURES, DEFAULT_MAX_IP_FAILURES);
+    }
+
+    /**
+     * Constructor - Create a throttle with explicit limits and default lockouts
+     *
+     * @param windowMs - Length of the sliding window
+     * @param maxUserFailures - Failures per username within the window that lock it
+     * @param maxIpFailures - Failures per client IP within the window that lock it
+     */
+    public LoginThrottle(long windowMs, int maxUserFailures, int maxIpFailures) {
+        this(windowMs, maxUserFailures, maxIpFailures, DEFAULT_BASE_LOCKOUT_MS, DEFAULT_MAX_LOCKOUT_MS,
+                DEFAULT_MAX_KEYS, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor - Create a throttle with explicit limits, lockouts, size and clock
+     *
+     * @param windowMs - Length of the sliding window
+     * @param maxUserFailures - Failures per username within the window that lock it
+     * @param maxIpFailures - Failures per client IP within the window that lock it
+     * @param baseLockoutMs - First lockout of a key
+     * @param maxLockoutMs - Longest lockout
+     * @param maxKeys - Keys tracked per kind before the least recently used are dropped
+     * @param clock - Source of the current time in milliseconds
+     */
+    LoginThrottle(long windowMs, int maxUserFailures, int maxIpFailures, long baseLockoutMs, long maxLockoutMs,
+                  int maxKeys, LongSupplier clock) {
+        this.windowMs = windowMs;
+        this.baseLockoutMs = baseLockoutMs;
+        this.maxLockoutMs = maxLockoutMs;
+        this.clock = clock;
+        this.users = new KeyTable("user", maxUserFailures, maxKeys);
+        this.ips = new KeyTable("ip", maxIpFailures, maxKeys);
+        this.failures = new LongAdder();
+        this.lockouts = new LongAdder();
+        this.blocked = new LongAdder();
+    }
+
+    /**
+     * Check an attempt before the credentials are looked up, counting it if it is refused
+     *
+     * @param username - Username being logged in
+     * @param clientIp - Client address, or null if unknown
+     * @return 0 if the attempt may proceed, otherwise milliseconds until it may be retried
+     */
+    public long checkAttempt(String username, String clientIp) {
+        long retryAfter = getRetryAfterMillis(username, clientIp);
+        if (retryAfter > 0) {
+            blocked.increment();
+            long now = clock.getAsLong();
+            users.markBlocked(username, now);
+            ips.markBlocked(clientIp, now);
+        }
+        return retryAfter;
+    }
+
+    /**
+     * Get how long an attempt would be refused, without counting it
+     *
+     * @param username - Username being logged in
+     * @param clientIp - Client address, or null if unknown
+     * @return 0 if neither key is locked, otherwise milliseconds until both are unlocked
+     */
+    public long getRetryAfterMillis(String username, String clientIp) {
+        long now = clock.getAsLong();
+        return Math.max(users.retryAfter(username, now), ips.retryAfter(clientIp, now));
+    }
+
+    /**
+     * Record a login rejected for wrong credentials
+     *
+     * @param username - Username that failed
+     * @param clientIp - Client address, or null if unknown
+     */
+    public void recordFailure(String username, String clientIp) {
+        failures.increment();
+        long now = clock.getAsLong();
+        users.recordFailure(username, now);
+        ips.recordFailure(clientIp, now);
+    }
+
+    /**
+     * Record a successful login, clearing the username's failures and lockouts
+     *
+     * @param username - Username that logged in
+     */
+    public void recordSuccess(String username) {
+        users.remove(username);
+    }
+
+    /**
+     * Get the keys with the most failures since they started being tracked
+     *
+     * @param limit - Maximum number of offenders
+     * @return Usernames and IPs, most failures first
+     */
+    public List<Offender> getTopOffenders(int limit) {
+        long now = clock.getAsLong();
+        List<Offender> offenders = new ArrayList<>();
+        users.collect(now, offenders);
+        ips.collect(now, offenders);
+        offenders.sort(Comparator.comparingLong(Offender::getTotalFailures).reversed()
+                .thenComparing(Comparator.comparingDouble(Offender::getWindowFailures).reversed()));
+        return offenders.size() > limit ? new ArrayList<>(offenders.subList(0, limit)) : offenders;
+    }
+
+    // Getters
+    public int getTrackedUserCount() {
+        return users.size();
+    }
+
+    public int getTrackedIpCount() {
+        return ips.size();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getLockoutCount() {
+        return lockouts.sum();
+    }
+
+    public long getBlockedCount() {
+        return blocked.sum();
+    }
+
+    /**
+     * KeyTable - Striped, bounded map from usernames or IPs to their counters
+     */
+    private final class KeyTable {
+        private final String kind;
+        private final int maxFailures;
+        private final List<LinkedHashMap<String, Counter>> stripes;
+
+        KeyTable(String kind, int maxFailures, int maxKeys) {
+            this.kind = kind;
+            this.maxFailures = maxFailures;
+            this.stripes = new ArrayList<>(STRIPES);
+            int perStripe = Math.max(1, maxKeys / STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.add(new LinkedHashMap<String, Counter>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Counter> eldest) {
+                        return size() > perStripe;
+                    }
+                });
+            }
+        }
+
+        private LinkedHashMap<String, Counter> stripe(String key) {
+            int h = key.hashCode();
+            return stripes.get((h ^ (h >>> 16)) & (STRIPES - 1));
+        }
+
+        long retryAfter(String key, long now) {
+            if (key == null) {
+                return 0;
+            }
+            LinkedHashMap<String, Counter> stripe = stripe(key);
+            synchronized (stripe) {
+                Counter counter = stripe.get(key);
+                return counter != null ? Math.max(0, counter.lockedUntil - now) : 0;
+            }
+        }
+
+        void markBlocked(String key, long now) {
+            if (key == null) {
+                return;
+            }
+            LinkedHashMap<String, Counter> stripe = stripe(key);
+            synchronized (stripe) {
+                Counter counter = stripe.get(key);
+                if (counter != null && counter.lockedUntil > now) {
+                    counter.blocked++;
+                }
+            }
+        }
+
+        void recordFailure(String key, long now) {
+            if (key == null) {
+                return;
+            }
+            LinkedHashMap<String, Counter> stripe = stripe(key);
+            synchronized (stripe) {
+                evictIdle(stripe, now);
+                Counter counter = stripe.computeIfAbsent(key, k -> new Counter());
+                counter.roll(now);
+                counter.current++;
+                counter.total++;
+                counter.lastFailure = now;
+                if (counter.lockedUntil <= now && counter.estimate(now) >= maxFailures) {
+                    // Double per lockout since the key was last idle: base, 2x base, 4x base, ...
+                    long lockout = counter.lockouts < 32 ? baseLockoutMs << counter.lockouts : maxLockoutMs;
+                    counter.lockedUntil = now + Math.min(lockout, maxLockoutMs);
+                    counter.lockouts++;
+                    lockouts.increment();
+                }
+            }
+        }
+
+        void remove(String key) {
+            LinkedHashMap<String, Counter> stripe = stripe(key);
+            synchronized (stripe) {
+                stripe.remove(key);
+            }
+        }
+
+        /**
+         * Drop least recently used keys that have been idle for two windows, stopping at the first busy one
+         */
+        private void evictIdle(LinkedHashMap<String, Counter> stripe, long now) {
+            Iterator<Counter> counters = stripe.values().iterator();
+            while (counters.hasNext()) {
+                Counter counter = counters.next();
+                if (Math.max(counter.lastFailure, counter.lockedUntil) + 2 * windowMs > now) {
+                    return;
+                }
+                counters.remove();
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (LinkedHashMap<String, Counter> stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return size;
+        }
+
+        void collect(long now, List<Offender> offenders) {
+            for (LinkedHashMap<String, Counter> stripe : stripes) {
+                synchronized (stripe) {
+                    for (Map.Entry<String, Counter> entry : stripe.entrySet()) {
+                        Counter counter = entry.getValue();
+                        counter.roll(now);
+                        offenders.add(new Offender(kind, entry.getKey(), counter.total, counter.estimate(now),
+                                counter.blocked, Math.max(0, counter.lockedUntil - now)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counter - Failures of one key in the current and previous window, guarded by its stripe's lock
+     */
+    private final class Counter {
+        long windowStart;
+        long previous;
+        long current;
+        long total;
+        long blocked;
+        long lastFailure;
+        long lockedUntil;
+        int lockouts;
+
+        void roll(long now) {
+            long start = now - Math.floorMod(now, windowMs);
+            if (start == windowStart) {
+                return;
+            }
+            previous = start == windowStart + windowMs ? current : 0;
+            current = 0;
+            windowStart = start;
+        }
+
+        double estimate(long now) {
+            double overlap = (double) (windowMs - (now - windowStart)) / windowMs;
+            return previous * overlap + current;
+        }
+    }
+
+    /**
+     * Offender - Snapshot of one tracked username or IP
+     */
+    public static final class Offender {
+        private final String kind;
+        private final String key;
+        private final long totalFailures;
+        private final double windowFailures;
+        private final long blockedAttempts;
+        private final long lockedForMillis;
+
+        Offender(String kind, String key, long totalFailures, double windowFailures, long blockedAttempts,
+                 long lockedForMillis) {
+            this.kind = kind;
+            this.key = key;
+            this.totalFailures = totalFailures;
+            this.windowFailures = windowFailures;
+            this.blockedAttempts = blockedAttempts;
+            this.lockedForMillis = lockedForMillis;
+        }
+
+        // Getters
+        /**
+         * @return "user" or "ip"
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getTotalFailures() {
+            return totalFailures;
+        }
+
+        /**
+         * @return Failures in the sliding window
+         */
+        public double getWindowFailures() {
+            return windowFailures;
+        }
+
+        public long getBlockedAttempts() {
+            return blockedAttempts;
+        }
+
+        /**
+         * @return Milliseconds until the key is unlocked, 0 if it is not locked
+         */
+        public long getLockedForMillis() {
+            return lockedForMillis;
+        }
+    }
+}
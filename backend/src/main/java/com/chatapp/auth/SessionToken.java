@@ -0,0 +1,45 @@
+package com.chatapp.auth;
+
+/**
+ * SessionToken - Verified contents of a signed session token
+ *
+ * Instances are only created by SessionTokenService, after the token's
+ * signature has been checked.
+ */
+public final class SessionToken {
+    private final String username;
+    private final String tokenId;
+    private final long expiresAtMillis;
+
+    SessionToken(String username, String tokenId, long expiresAtMillis) {
+        this.username = username;
+        this.tokenId = tokenId;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * Check whether the token has expired
+     *
+     * @param nowMillis - Current time in epoch milliseconds
+     * @return true at or after the expiry time
+     */
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    // Getters
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return Random ID naming the token in the revocation list
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+}
@@ -0,0 +1,375 @@
+package com.chatapp.auth;
+
+import com.chatapp.database.DatabaseConnection;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * SessionTokenService - Issues and verifies stateless, HMAC-signed session tokens
+ *
+ * This service manages:
+ * - Issuing a token naming the user and its expiry, signed with HMAC-SHA256
+ * - Verifying tokens from the signature alone, caching the result for the token's lifetime
+ * - A revocation list for logged-out tokens, replicated between nodes through the database
+ *
+ * A token is {@code base64url(tokenId.expiresAt.username).base64url(mac)}.
+ * Every node configured with the same secret accepts every other node's
+ * tokens, so requests need neither sticky sessions nor a session lookup.
+ *
+ * Verification never touches the database: a token is valid if its MAC
+ * matches, it has not expired and its ID is not in the in-memory
+ * revocation list. Revoking a token adds it to the local list and to the
+ * revoked_sessions table; every node polls that table for rows added
+ * since its last poll, so a logout takes effect on other nodes within
+ * one poll interval. Revocations are dropped once the token would have
+ * expired anyway, which keeps the list as small as the number of recent
+ * logouts. A node that cannot reach the database keeps verifying with
+ * the revocations it has and catches up when the database answers again.
+ */
+public class SessionTokenService {
+    public static final long DEFAULT_TTL_MS = 12 * 60 * 60_000L;
+    public static final long DEFAULT_POLL_INTERVAL_MS = 2_000;
+    public static final int DEFAULT_MAX_CACHED = 100_000;
+    public static final int MIN_SECRET_BYTES = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_ID_BYTES = 12;
+    private static final int POLL_BATCH = 1_000;
+    private static final int REREAD_IDS = 1_000;
+    private static final long PURGE_INTERVAL_MS = 10 * 60_000L;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long ttlMs;
+    private final DatabaseConnection dbConnection;
+    private final long pollIntervalMs;
+    private final int maxCached;
+    private final LongSupplier clock;
+    private final ThreadLocal<Mac> macs;
+    private final SecureRandom random;
+    private final Map<String, SessionToken> verified;
+    private final Map<String, Long> revoked;
+    private final ScheduledExecutorService poller;
+    private final LongAdder issuedCount;
+    private final LongAdder cacheHits;
+    private final LongAdder invalidCount;
+    private volatile long lastRevocationId;
+
+    /**
+     * Constructor - Create a service with a random secret, valid only on this node until restart
+     *
+     * @param dbConnection - Database holding the revocation list, or null to keep revocations local
+     */
+    public SessionTokenService(DatabaseConnection dbConnection) {
+        this(randomSecret(), DEFAULT_TTL_MS, dbConnection, DEFAULT_POLL_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Create a service with a shared secret
+     *
+     * @param secret - HMAC key shared by every node, at least MIN_SECRET_BYTES long
+     * @param ttlMs - Lifetime of issued tokens
+     * @param dbConnection - Database holding the revocation list, or null to keep revocations local
+     * @param pollIntervalMs - Interval between polls of the revocation list
+     */
+    public SessionTokenService(byte[] secret, long ttlMs, DatabaseConnection dbConnection, long pollIntervalMs) {
+        this(secret, ttlMs, dbConnection, pollIntervalMs, DEFAULT_MAX_CACHED, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor - Create a service with an explicit cache size and clock
+     *
+     * @param secret - HMAC key shared by every node, at least MIN_SECRET_BYTES long
+     * @param ttlMs - Lifetime of issued tokens
+     * @param dbConnection - Database holding the revocation list, or null to keep revocations local
+     * @param pollIntervalMs - Interval between polls of the revocation list
+     * @param maxCached - Verified tokens cached before expired ones are purged
+     * @param clock - Source of the current time in epoch milliseconds
+     */
+    SessionTokenService(byte[] secret, long ttlMs, DatabaseConnection dbConnection, long pollIntervalMs,
+                        int maxCached, LongSupplier clock) {
+        if (secret.length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("Session secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        this.key = new SecretKeySpec(secret.clone(), ALGORITHM);
+        this.ttlMs = ttlMs;
+        this.dbConnection = dbConnection;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxCached = maxCached;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.random = new SecureRandom();
+        this.verified = new ConcurrentHashMap<>();
+        this.revoked = new ConcurrentHashMap<>();
+        this.issuedCount = new LongAdder();
+        this.cacheHits = new LongAdder();
+        this.invalidCount = new LongAdder();
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-revocations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Generate a random secret
+     *
+     * @return MIN_SECRET_BYTES random bytes
+     */
+    public static byte[] randomSecret() {
+        byte[] secret = new byte[MIN_SECRET_BYTES];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    /**
+     * Start polling the revocation list, beginning immediately
+     */
+    public void start() {
+        if (dbConnection != null) {
+            poller.scheduleWithFixedDelay(this::refreshRevocations, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+            poller.scheduleWithFixedDelay(this::deleteExpiredRevocations, PURGE_INTERVAL_MS, PURGE_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop polling the revocation list
+     */
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Issue a token for a user
+     *
+     * @param username - Authenticated user
+     * @return Signed token valid for the configured lifetime
+     */
+    public String issue(String username) {
+        byte[] id = new byte[TOKEN_ID_BYTES];
+        random.nextBytes(id);
+        long expiresAt = clock.getAsLong() + ttlMs;
+        String payload = ENCODER.encodeToString(id) + "." + expiresAt + "." + username;
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        issuedCount.increment();
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(macs.get().doFinal(payloadBytes));
+    }
+
+    /**
+     * Verify a token
+     *
+     * @param token - Token from a request, may be null
+     * @return Token contents, or null if the token is malformed, forged, expired or revoked
+     */
+    public SessionToken verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        SessionToken session = verified.get(token);
+        if (session != null) {
+            cacheHits.increment();
+        } else {
+            session = parse(token);
+            if (session == null) {
+                invalidCount.increment();
+                return null;
+            }
+            if (!session.isExpired(now)) {
+                if (verified.size() >= maxCached) {
+                    purgeExpired(now);
+                }
+                if (verified.size() < maxCached) {
+                    verified.put(token, session);
+                }
+            }
+        }
+        if (session.isExpired(now)) {
+            verified.remove(token);
+            return null;
+        }
+        return revoked.containsKey(session.getTokenId()) ? null : session;
+    }
+
+    /**
+     * Decode a token and check its MAC
+     */
+    private SessionToken parse(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        byte[] payloadBytes;
+        byte[] mac;
+        try {
+            payloadBytes = DECODER.decode(token.substring(0, dot));
+            mac = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(mac, macs.get().doFinal(payloadBytes))) {
+            return null;
+        }
+        String[] fields = new String(payloadBytes, StandardCharsets.UTF_8).split("\\.", 3);
+        if (fields.length != 3) {
+            return null;
+        }
+        try {
+            return new SessionToken(fields[2], fields[0], Long.parseLong(fields[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Revoke a token on every node
+     *
+     * The token is rejected on this node at once and on the others after
+     * their next poll. If the revocation cannot be stored it still holds
+     * on this node.
+     *
+     * @param token - Token to revoke
+     * @return true if the token was valid
+     */
+    public boolean revoke(String token) {
+        SessionToken session = verify(token);
+        if (session == null) {
+            return false;
+        }
+        revoked.put(session.getTokenId(), session.getExpiresAtMillis());
+        verified.remove(token);
+        if (dbConnection != null) {
+            try (Connection conn = dbConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO revoked_sessions (token_id, expires_at) VALUES (?, ?)")) {
+                stmt.setString(1, session.getTokenId());
+                stmt.setLong(2, session.getExpiresAtMillis());
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println("Error storing session revocation: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read revocations added since the last poll and drop expired state
+     *
+     * Revocation IDs are assigned before their insert commits, so a row may
+     * become visible after one with a higher ID. Each poll therefore reads
+     * again from REREAD_IDS below the highest ID seen, which covers inserts
+     * that were still in flight during the previous poll.
+     *
+     * @return Number of revocation rows read
+     */
+    public int refreshRevocations() {
+        long now = clock.getAsLong();
+        purgeExpired(now);
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        if (dbConnection == null) {
+            return 0;
+        }
+        int read = 0;
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT revocation_id, token_id, expires_at"
+                     + " FROM revoked_sessions WHERE revocation_id > ? AND expires_at > ?"
+                     + " ORDER BY revocation_id LIMIT " + POLL_BATCH)) {
+            long from = Math.max(0, lastRevocationId - REREAD_IDS);
+            int batch;
+            do {
+                batch = 0;
+                stmt.setLong(1, from);
+                stmt.setLong(2, now);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        revoked.put(rs.getString("token_id"), rs.getLong("expires_at"));
+                        from = rs.getLong("revocation_id");
+                        batch++;
+                    }
+                }
+                read += batch;
+            } while (batch == POLL_BATCH);
+            lastRevocationId = Math.max(lastRevocationId, from);
+        } catch (SQLException e) {
+            System.err.println("Error polling session revocations: " + e.getMessage());
+        }
+        return read;
+    }
+
+    /**
+     * Delete revocations of tokens that have expired from the table
+     *
+     * @return Number of rows deleted
+     */
+    public int deleteExpiredRevocations() {
+        if (dbConnection == null) {
+            return 0;
+        }
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM revoked_sessions WHERE expires_at <= ?")) {
+            stmt.setLong(1, clock.getAsLong());
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error deleting expired session revocations: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void purgeExpired(long now) {
+        verified.values().removeIf(session -> session.isExpired(now));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    // Getters
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    public int getCachedCount() {
+        return verified.size();
+    }
+
+    public int getRevokedCount() {
+        return revoked.size();
+    }
+
+    public long getIssuedCount() {
+        return issuedCount.sum();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getInvalidCount() {
+        return invalidCount.sum();
+    }
+}
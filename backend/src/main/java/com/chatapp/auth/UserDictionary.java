@@ -0,0 +1,194 @@
+package com.chatapp.auth;
+
+import com.chatapp.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UserDictionary - Shared username to integer ID mapping
+ *
+ * Tables reference users by users.user_id and caches and queues store
+ * users as int IDs; this dictionary translates so the API can keep
+ * speaking usernames. Each username is held once per process and lookups
+ * by ID are a plain array read.
+ *
+ * Backed by a database, IDs are users.user_id: misses are loaded with a
+ * single-row query and unknown usernames map to 0 without being cached,
+ * so a user registered later is still found. Without a database, IDs are
+ * assigned in-process starting at 1. User IDs are never reused, so cached
+ * entries never go stale. 0 means "no user".
+ *
+ * idOf and nameOf log a failed query and answer "no user"; callers that
+ * must tell an unknown user from an unreachable database use lookupId and
+ * lookupName, which throw the SQLException instead.
+ */
+public class UserDictionary {
+    private final DatabaseConnection dbConnection;
+    private final Map<String, Integer> idsByName;
+    private volatile String[] namesById;
+    private int nextId;
+
+    /**
+     * Constructor - Create an in-process dictionary that assigns its own IDs
+     */
+    public UserDictionary() {
+        this(null);
+    }
+
+    /**
+     * Constructor - Create a dictionary backed by the users table
+     *
+     * @param dbConnection - Database holding the users table
+     */
+    public UserDictionary(DatabaseConnection dbConnection) {
+        this.dbConnection = dbConnection;
+        this.idsByName = new ConcurrentHashMap<>();
+        this.namesById = new String[1024];
+        this.nextId = 1;
+    }
+
+    /**
+     * Get the ID of a username
+     *
+     * @param username - Username to look up
+     * @return Positive ID, or 0 if the dictionary is database-backed and the user does not exist
+     *         or could not be looked up
+     */
+    public int idOf(String username) {
+        try {
+            return lookupId(username);
+        } catch (SQLException e) {
+            System.err.println("Error looking up user ID: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Get the ID of a username, failing if the users table cannot be read
+     *
+     * @param username - Username to look up
+     * @return Positive ID, or 0 if the dictionary is database-backed and the user does not exist
+     * @throws SQLException - If the users table cannot be read
+     */
+    public int lookupId(String username) throws SQLException {
+        Integer id = idsByName.get(username);
+        if (id != null) {
+            return id;
+        }
+        if (dbConnection != null) {
+            int loaded = queryId(username);
+            if (loaded > 0) {
+                register(loaded, username);
+            }
+            return loaded;
+        }
+        synchronized (this) {
+            id = idsByName.get(username);
+            if (id != null) {
+                return id;
+            }
+            int assigned = nextId++;
+            store(assigned, username);
+            return assigned;
+        }
+    }
+
+    /**
+     * Get the username for an ID
+     *
+     * @param id - User ID
+     * @return Username, or null if the ID is unknown or could not be looked up
+     */
+    public String nameOf(int id) {
+        try {
+            return lookupName(id);
+        } catch (SQLException e) {
+            System.err.println("Error looking up username: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the username for an ID, failing if the users table cannot be read
+     *
+     * @param id - User ID
+     * @return Username, or null if the ID is unknown
+     * @throws SQLException - If the users table cannot be read
+     */
+    public String lookupName(int id) throws SQLException {
+        if (id <= 0) {
+            return null;
+        }
+        String[] names = namesById;
+        String name = id < names.length ? names[id] : null;
+        if (name == null && dbConnection != null) {
+            name = queryName(id);
+            if (name != null) {
+                register(id, name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Record a known mapping, e.g. right after a user row is inserted or read
+     *
+     * @param id - users.user_id
+     * @param username - Username of that row
+     */
+    public void register(int id, String username) {
+        if (id <= 0) {
+            return;
+        }
+        synchronized (this) {
+            store(id, username);
+        }
+    }
+
+    /**
+     * Get the number of known usernames
+     *
+     * @return Dictionary size
+     */
+    public int size() {
+        return idsByName.size();
+    }
+
+    /**
+     * Store a mapping; caller holds the lock
+     */
+    private void store(int id, String username) {
+        String[] names = namesById;
+        if (id >= names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, id + 1));
+        }
+        names[id] = username;
+        namesById = names;
+        idsByName.put(username, id);
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    private int queryId(String username) throws SQLException {
+        try (Connection conn = dbConnection.getReadConnection(username)) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?");
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getInt("user_id") : 0;
+        }
+    }
+
+    private String queryName(int id) throws SQLException {
+        try (Connection conn = dbConnection.getReadConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT username FROM users WHERE user_id = ?");
+            stmt.setInt(1, id);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getString("username") : null;
+        }
+    }
+}
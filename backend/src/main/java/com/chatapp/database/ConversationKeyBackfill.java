@@ -0,0 +1,148 @@
+package com.chatapp.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * ConversationKeyBackfill - Online, batched backfill of messages.conversation_key
+ *
+ * Part of migration 002. Rows written before the column existed have a
+ * NULL key; this fills them in message_id ranges of {@code batchSize},
+ * newest first so recent history becomes visible to key-based reads
+ * soonest. Every batch is its own short transaction and the backfill
+ * pauses between batches, so row locks are held briefly and replicas can
+ * keep up while the application serves traffic. Re-running is safe: only
+ * NULL keys are touched, and the key formula matches
+ * ChatServer.conversationKey.
+ *
+ * Run with:
+ *
+ * <pre>
+ *   mvn compile exec:java -Dexec.mainClass=com.chatapp.database.ConversationKeyBackfill \
+ *       -Dexec.args="5000 50"
+ * </pre>
+ */
+public class ConversationKeyBackfill {
+    public static final int DEFAULT_BATCH_SIZE = 5_000;
+    public static final long DEFAULT_PAUSE_MS = 50;
+
+    private static final String UPDATE_BATCH = "UPDATE messages SET conversation_key ="
+            + " CAST(LEAST(sender_id, COALESCE(recipient_id, 0)) AS BIGINT) * 4294967296"
+            + " + GREATEST(sender_id, COALESCE(recipient_id, 0))"
+            + " WHERE message_id > ? AND message_id <= ? AND conversation_key IS NULL";
+
+    private final DatabaseConnection dbConnection;
+    private final int batchSize;
+    private final long pauseMs;
+
+    /**
+     * Constructor - Create a backfill
+     *
+     * @param dbConnection - Database to migrate
+     * @param batchSize - Width of each message_id range
+     * @param pauseMs - Pause between batches
+     */
+    public ConversationKeyBackfill(DatabaseConnection dbConnection, int batchSize, long pauseMs) {
+        this.dbConnection = dbConnection;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    /**
+     * Fill every NULL conversation_key
+     *
+     * @return Number of rows updated
+     * @throws SQLException - If a batch fails; rows from earlier batches stay committed
+     * @throws InterruptedException - If interrupted while pausing
+     */
+    public long run() throws SQLException, InterruptedException {
+        long[] range = pendingRange();
+        if (range == null) {
+            return 0;
+        }
+        long lowest = range[0];
+        long upper = range[1];
+        long updated = 0;
+        while (upper >= lowest) {
+            long lower = Math.max(upper - batchSize, lowest - 1);
+            updated += updateBatch(lower, upper);
+            upper = lower;
+            if (pauseMs > 0 && upper >= lowest) {
+                Thread.sleep(pauseMs);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Count rows that still have no key
+     *
+     * @return Remaining row count
+     * @throws SQLException - If the query fails
+     */
+    public long remaining() throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM messages WHERE conversation_key IS NULL");
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Find the message_id range of rows without a key
+     *
+     * @return {min, max}, or null if there are none
+     */
+    private long[] pendingRange() throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT MIN(message_id), MAX(message_id) FROM messages WHERE conversation_key IS NULL");
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                return null;
+            }
+            long min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return null;
+            }
+            return new long[] {min, rs.getLong(2)};
+        }
+    }
+
+    /**
+     * Update the rows with lower < message_id <= upper in one transaction
+     */
+    private int updateBatch(long lower, long upper) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(UPDATE_BATCH);
+            stmt.setLong(1, lower);
+            stmt.setLong(2, upper);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Main method - Run the backfill against the configured database
+     *
+     * @param args - Optional batch size and pause in milliseconds
+     */
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BATCH_SIZE;
+        long pauseMs = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_PAUSE_MS;
+        ConversationKeyBackfill backfill = new ConversationKeyBackfill(new DatabaseConnection(), batchSize, pauseMs);
+
+        long start = System.currentTimeMillis();
+        long updated = backfill.run();
+        System.out.println("✓ Backfilled conversation_key on " + updated + " rows in "
+                + (System.currentTimeMillis() - start) + " ms");
+        long remaining = backfill.remaining();
+        if (remaining == 0) {
+            System.out.println("✓ No rows left; apply migrations/003_conversation_key_not_null.sql");
+        } else {
+            System.out.println("⚠ " + remaining + " rows still without a key; run again");
+        }
+    }
+}
@@ -1,17 +1,55 @@
 package com.chatapp.database;
 
+import com.chatapp.tracing.Span;
+import com.chatapp.tracing.Tracer;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * DatabaseConnection - Manages database connectivity
  * 
  * This class handles:
- * - Connection pool management
+ * - Connection pool management (one pool per database)
  * - Database connection establishment
+ * - Routing reads to read replicas, with read-your-writes
+ * - Message shards, selected by consistent hashing of the conversation key
+ * - Optional per-statement SQL statistics
  * - Connection closure and cleanup
  * 
+ * Writes and anything that must see the latest data use
+ * {@link #getConnection()}, which always goes to the primary. Reads that
+ * tolerate replication lag use {@link #getReadConnection(String...)}; they
+ * go to the least loaded healthy replica unless one of the given affinity
+ * keys (a username, a room) saw a write through this node within the
+ * read-your-writes window, in which case they stay on the primary. With no
+ * replicas configured every read goes to the primary. Pools are created
+ * on first use, so constructing this class never touches the network.
+ * With SQL statistics on, connections are instrumented to record
+ * per-statement timings and a slow-query log (see SqlStatistics). On a
+ * traced request, acquiring a connection and each statement executed on
+ * it are also recorded as spans.
+ * 
+ * Users, sessions and everything else stay on the primary. The messages
+ * table may be split over shards, each its own database with its own pool
+ * (sharing the primary's credentials and pool size); {@link #shardFor(long)}
+ * picks a conversation's shard from a ShardMap. A shard URL equal to the
+ * primary's makes the primary one of the shards. Without shards the
+ * primary is the only shard.
+ * 
  * Supported databases:
  * - PostgreSQL (primary)
  * - Supabase (PostgreSQL-based)
@@ -22,26 +60,293 @@ public class DatabaseConnection {
     private static final String DB_USER = "chatapp_user";
     private static final String DB_PASSWORD = "your_secure_password";
     private static final String DRIVER = "org.postgresql.Driver";
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final long DEFAULT_READ_YOUR_WRITES_MS = 5_000;
+    private static final long HEALTH_CHECK_INTERVAL_MS = 2_000;
+    private static final long PRIMARY_CONNECTION_TIMEOUT_MS = 3_000;
+    private static final long REPLICA_CONNECTION_TIMEOUT_MS = 1_000;
+    private static final String GLOBAL_WRITE = "";
+
+    private static volatile boolean driverLoaded;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final List<String> replicaUrls;
+    private final int poolSize;
+    private final long readYourWritesMs;
+    private final Map<String, Long> recentWrites;
+    private final SqlStatistics sqlStatistics;
+    private final List<DatabaseConnection> shards;
+    private final ShardMap shardMap;
+    private volatile HikariDataSource primaryPool;
+    private volatile ReplicaRouter replicaRouter;
+    private ScheduledExecutorService healthChecker;
 
     /**
-     * Constructor - Initialize database driver
+     * Constructor - Use the configured database
+     * 
+     * Settings are read from system properties (chatapp.db.url,
+     * chatapp.db.user, chatapp.db.password, chatapp.db.replicas,
+     * chatapp.db.pool.size, chatapp.db.read.your.writes.ms,
+     * chatapp.db.sql.stats, chatapp.db.slow.query.ms, chatapp.db.shards),
+     * then environment variables (CHATAPP_DB_URL, CHATAPP_DB_USER,
+     * CHATAPP_DB_PASSWORD, CHATAPP_DB_REPLICAS, CHATAPP_DB_POOL_SIZE,
+     * CHATAPP_DB_READ_YOUR_WRITES_MS, CHATAPP_DB_SQL_STATS,
+     * CHATAPP_DB_SLOW_QUERY_MS, CHATAPP_DB_SHARDS), then the built-in local
+     * defaults. Replicas and shards are comma-separated lists of JDBC URLs
+     * sharing the primary's credentials.
      */
     public DatabaseConnection() {
-        try {
-            Class.forName(DRIVER);
-        } catch (ClassNotFoundException e) {
-            System.err.println("PostgreSQL JDBC Driver not found: " + e.getMessage());
+        this(setting("chatapp.db.url", "CHATAPP_DB_URL", DB_URL),
+                setting("chatapp.db.user", "CHATAPP_DB_USER", DB_USER),
+                setting("chatapp.db.password", "CHATAPP_DB_PASSWORD", DB_PASSWORD),
+                splitUrls(setting("chatapp.db.replicas", "CHATAPP_DB_REPLICAS", "")),
+                Integer.parseInt(setting("chatapp.db.pool.size", "CHATAPP_DB_POOL_SIZE", String.valueOf(DEFAULT_POOL_SIZE))),
+                Long.parseLong(setting("chatapp.db.read.your.writes.ms", "CHATAPP_DB_READ_YOUR_WRITES_MS",
+                        String.valueOf(DEFAULT_READ_YOUR_WRITES_MS))),
+                Boolean.parseBoolean(setting("chatapp.db.sql.stats", "CHATAPP_DB_SQL_STATS", "true"))
+                        ? new SqlStatistics(Long.parseLong(setting("chatapp.db.slow.query.ms", "CHATAPP_DB_SLOW_QUERY_MS",
+                                String.valueOf(SqlStatistics.DEFAULT_SLOW_QUERY_MS))))
+                        : null,
+                splitUrls(setting("chatapp.db.shards", "CHATAPP_DB_SHARDS", "")));
+    }
+
+    /**
+     * Constructor - Use an explicit database
+     * 
+     * @param url - JDBC URL
+     * @param user - Database user
+     * @param password - Database password
+     */
+    public DatabaseConnection(String url, String user, String password) {
+        this(url, user, password, Collections.emptyList(), DEFAULT_POOL_SIZE, DEFAULT_READ_YOUR_WRITES_MS);
+    }
+
+    /**
+     * Constructor - Use an explicit primary and read replicas
+     * 
+     * @param url - JDBC URL of the primary
+     * @param user - Database user (primary and replicas)
+     * @param password - Database password (primary and replicas)
+     * @param replicaUrls - JDBC URLs of the read replicas (may be empty)
+     * @param poolSize - Maximum connections per pool
+     * @param readYourWritesMs - How long reads for a written key stay on the primary
+     */
+    public DatabaseConnection(String url, String user, String password, List<String> replicaUrls,
+                              int poolSize, long readYourWritesMs) {
+        this(url, user, password, replicaUrls, poolSize, readYourWritesMs, null);
+    }
+
+    /**
+     * Constructor - Use an explicit primary and read replicas, recording SQL statistics
+     * 
+     * @param url - JDBC URL of the primary
+     * @param user - Database user (primary and replicas)
+     * @param password - Database password (primary and replicas)
+     * @param replicaUrls - JDBC URLs of the read replicas (may be empty)
+     * @param poolSize - Maximum connections per pool
+     * @param readYourWritesMs - How long reads for a written key stay on the primary
+     * @param sqlStatistics - Statistics to record statements into, or null for plain connections
+     */
+    public DatabaseConnection(String url, String user, String password, List<String> replicaUrls,
+                              int poolSize, long readYourWritesMs, SqlStatistics sqlStatistics) {
+        this(url, user, password, replicaUrls, poolSize, readYourWritesMs, sqlStatistics, Collections.emptyList());
+    }
+
+    /**
+     * Constructor - Use an explicit primary, read replicas and message shards
+     * 
+     * @param url - JDBC URL of the primary
+     * @param user - Database user (primary, replicas and shards)
+     * @param password - Database password (primary, replicas and shards)
+     * @param replicaUrls - JDBC URLs of the read replicas (may be empty)
+     * @param poolSize - Maximum connections per pool
+     * @param readYourWritesMs - How long reads for a written key stay on the primary
+     * @param sqlStatistics - Statistics to record statements into, or null for plain connections
+     * @param shardUrls - JDBC URLs of the message shards in ring order (empty = messages on the primary)
+     */
+    public DatabaseConnection(String url, String user, String password, List<String> replicaUrls,
+                              int poolSize, long readYourWritesMs, SqlStatistics sqlStatistics, List<String> shardUrls) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.replicaUrls = Collections.unmodifiableList(new ArrayList<>(replicaUrls));
+        this.poolSize = poolSize;
+        this.readYourWritesMs = readYourWritesMs;
+        this.recentWrites = new ConcurrentHashMap<>();
+        this.sqlStatistics = sqlStatistics;
+        List<DatabaseConnection> shardConnections = new ArrayList<>();
+        for (String shardUrl : shardUrls) {
+            shardConnections.add(shardUrl.equals(url) ? this : new DatabaseConnection(shardUrl, user, password,
+                    Collections.emptyList(), poolSize, readYourWritesMs, sqlStatistics));
         }
+        if (shardConnections.isEmpty()) {
+            shardConnections.add(this);
+        }
+        this.shards = Collections.unmodifiableList(shardConnections);
+        this.shardMap = new ShardMap(shards.size());
     }
 
     /**
-     * Get a database connection
+     * Get a connection to the primary database
      * 
      * @return Connection object if successful, null otherwise
      * @throws SQLException - If connection fails
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        HikariDataSource pool = primaryPool;
+        if (pool == null) {
+            pool = initializePools();
+        }
+        Span span = Tracer.clientSpan("jdbc.acquire").tag("db.pool", pool.getPoolName());
+        try {
+            return InstrumentedJdbc.wrap(pool.getConnection(), sqlStatistics);
+        } catch (SQLException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * Get a connection for a read that tolerates replication lag
+     * 
+     * @param affinityKeys - Keys whose own recent writes the read must see (e.g. usernames)
+     * @return Replica connection, or a primary connection if a key was written
+     *         recently or no replica is healthy
+     * @throws SQLException - If connection fails
+     */
+    public Connection getReadConnection(String... affinityKeys) throws SQLException {
+        if (replicaUrls.isEmpty() || wroteRecently(affinityKeys)) {
+            return getConnection();
+        }
+        if (replicaRouter == null) {
+            initializePools();
+        }
+        Connection replica;
+        try (Span span = Tracer.clientSpan("jdbc.acquire").tag("db.pool", "replica")) {
+            replica = replicaRouter.getConnection();
+        }
+        return replica != null ? InstrumentedJdbc.wrap(replica, sqlStatistics) : getConnection();
+    }
+
+    /**
+     * Record a write so reads for the given keys stay on the primary for the
+     * read-your-writes window
+     * 
+     * @param affinityKeys - Keys the write affects; none means it affects every reader
+     */
+    public void recordWrite(String... affinityKeys) {
+        if (replicaUrls.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (affinityKeys.length == 0) {
+            recentWrites.put(GLOBAL_WRITE, now);
+        }
+        for (String key : affinityKeys) {
+            recentWrites.put(key, now);
+        }
+    }
+
+    /**
+     * Get the database holding a conversation's messages
+     * 
+     * @param conversationKey - Canonical conversation key
+     * @return Shard database, or this database when messages are not sharded
+     */
+    public DatabaseConnection shardFor(long conversationKey) {
+        return shards.get(shardMap.shardOf(conversationKey));
+    }
+
+    /**
+     * Get all message shards, in ring order
+     * 
+     * @return Shard databases; just this database when messages are not sharded
+     */
+    public List<DatabaseConnection> getShards() {
+        return shards;
+    }
+
+    /**
+     * Check whether messages are spread over more than one database
+     * 
+     * @return true if messages are sharded
+     */
+    public boolean isSharded() {
+        return shards.size() > 1 || shards.get(0) != this;
+    }
+
+    /**
+     * Get the number of configured read replicas
+     * 
+     * @return Replica count
+     */
+    public int getReplicaCount() {
+        return replicaUrls.size();
+    }
+
+    /**
+     * Get the number of read replicas currently receiving reads
+     * 
+     * @return Healthy replica count (0 before the first connection)
+     */
+    public int getHealthyReplicaCount() {
+        ReplicaRouter router = replicaRouter;
+        return router != null ? router.getHealthyCount() : 0;
+    }
+
+    /**
+     * Get the outstanding request count of each replica
+     * 
+     * @return Checked-out connections per replica, in configuration order
+     */
+    public int[] getReplicaOutstanding() {
+        ReplicaRouter router = replicaRouter;
+        return router != null ? router.getOutstanding() : new int[0];
+    }
+
+    /**
+     * Close all pools and stop health checks
+     */
+    public synchronized void close() {
+        for (DatabaseConnection shard : shards) {
+            if (shard != this) {
+                shard.close();
+            }
+        }
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+        if (replicaRouter != null) {
+            replicaRouter.close();
+            replicaRouter = null;
+        }
+        if (primaryPool != null) {
+            primaryPool.close();
+            primaryPool = null;
+        }
+    }
+
+    /**
+     * Get the per-statement statistics
+     * 
+     * @return Statistics, or null if they are off
+     */
+    public SqlStatistics getSqlStatistics() {
+        return sqlStatistics;
+    }
+
+    /**
+     * Get the JDBC URL of this database
+     * 
+     * @return JDBC URL
+     */
+    public String getUrl() {
+        return url;
     }
 
     /**
@@ -57,12 +362,149 @@ public class DatabaseConnection {
             }
         } catch (SQLException e) {
             System.out.println("⚠️  Database connection failed: " + e.getMessage());
-            System.out.println("   Make sure PostgreSQL is running on " + DB_URL);
+            System.out.println("   Make sure PostgreSQL is running on " + url);
             System.out.println("   Or see BACKEND_SETUP.md for configuration details.");
         }
         return false;
     }
 
+    /**
+     * Check whether any of the keys, or everything, was written within the window
+     */
+    private boolean wroteRecently(String... affinityKeys) {
+        long since = System.currentTimeMillis() - readYourWritesMs;
+        Long global = recentWrites.get(GLOBAL_WRITE);
+        if (global != null && global > since) {
+            return true;
+        }
+        for (String key : affinityKeys) {
+            Long writtenAt = key != null ? recentWrites.get(key) : null;
+            if (writtenAt != null && writtenAt > since) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create the pools and, with replicas, start the health checker
+     * 
+     * @return Primary pool
+     */
+    private synchronized HikariDataSource initializePools() {
+        if (primaryPool != null) {
+            return primaryPool;
+        }
+        loadDriver();
+        if (!replicaUrls.isEmpty()) {
+            List<HikariDataSource> pools = new ArrayList<>(replicaUrls.size());
+            for (int i = 0; i < replicaUrls.size(); i++) {
+                pools.add(createPool("chatapp-replica-" + i, replicaUrls.get(i), REPLICA_CONNECTION_TIMEOUT_MS));
+            }
+            replicaRouter = new ReplicaRouter(pools);
+            healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "db-replica-health");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkReplicas,
+                    HEALTH_CHECK_INTERVAL_MS, HEALTH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        primaryPool = createPool("chatapp-primary", url, PRIMARY_CONNECTION_TIMEOUT_MS);
+        return primaryPool;
+    }
+
+    private HikariDataSource createPool(String name, String jdbcUrl, long connectionTimeoutMs) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(Math.min(2, poolSize));
+        config.setConnectionTimeout(connectionTimeoutMs);
+        // Do not connect while building the pool; startup must not wait on the network
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Health-check replicas and forget writes older than the window
+     */
+    void checkReplicas() {
+        ReplicaRouter router = replicaRouter;
+        if (router == null) {
+            return;
+        }
+        try {
+            router.checkHealth();
+            long since = System.currentTimeMillis() - readYourWritesMs;
+            recentWrites.values().removeIf(writtenAt -> writtenAt <= since);
+        } catch (RuntimeException e) {
+            System.err.println("Replica health check failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Split a comma-separated URL list, ignoring blanks
+     */
+    private static List<String> splitUrls(String urls) {
+        List<String> result = new ArrayList<>();
+        for (String part : Arrays.asList(urls.split(","))) {
+            if (!part.trim().isEmpty()) {
+                result.add(part.trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load the PostgreSQL driver once, on first use rather than at construction
+     */
+    private static void loadDriver() {
+        if (driverLoaded) {
+            return;
+        }
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            System.err.println("PostgreSQL JDBC Driver not found: " + e.getMessage());
+        }
+        driverLoaded = true;
+    }
+
+    /**
+     * Resolve a setting from system properties, then environment, then default
+     * 
+     * @param property - System property name
+     * @param env - Environment variable name
+     * @param defaultValue - Value used when neither is set
+     * @return Resolved value
+     */
+    public static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    /**
+     * Check whether an exception means the database could not be reached,
+     * as opposed to a statement being rejected
+     * 
+     * @param e - Exception from a JDBC call
+     * @return true for connection failures, timeouts and server shutdowns
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        // 08xxx connection exceptions; 57P01-57P03 admin/crash shutdown and "cannot connect now"
+        return state != null && (state.startsWith("08") || state.startsWith("57P"));
+    }
+
     /**
      * Close database connection
      * 
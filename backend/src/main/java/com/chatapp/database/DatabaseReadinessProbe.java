@@ -0,0 +1,125 @@
+package com.chatapp.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DatabaseReadinessProbe - Checks database availability in the background
+ *
+ * Startup no longer blocks on the first connection attempt. The probe
+ * runs on a daemon thread every retry interval for the life of the
+ * process, so readiness reported through {@link #isReady()} turns false
+ * again when the database goes away and true once it answers again.
+ */
+public class DatabaseReadinessProbe {
+    private static final long RETRY_INTERVAL_MS = 5_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DatabaseConnection dbConnection;
+    private final long intervalMs;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean ready;
+    private volatile String lastError;
+    private volatile long readyAtMs;
+    private volatile int attempts;
+
+    /**
+     * Constructor - Create a probe for a database
+     *
+     * @param dbConnection - Database to probe
+     */
+    public DatabaseReadinessProbe(DatabaseConnection dbConnection) {
+        this(dbConnection, RETRY_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Create a probe with an explicit interval
+     *
+     * @param dbConnection - Database to probe
+     * @param intervalMs - Time between probes
+     */
+    public DatabaseReadinessProbe(DatabaseConnection dbConnection, long intervalMs) {
+        this.dbConnection = dbConnection;
+        this.intervalMs = intervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-readiness-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start probing; returns immediately
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::probe, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop probing
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Run one probe and update readiness
+     *
+     * @return true if the database answered
+     */
+    boolean probe() {
+        attempts++;
+        String error;
+        try (Connection conn = dbConnection.getConnection()) {
+            if (conn.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                if (!ready) {
+                    ready = true;
+                    System.out.println(readyAtMs == 0 ? "✓ Database connection successful"
+                            : "✓ Database connection restored");
+                    readyAtMs = System.currentTimeMillis();
+                }
+                lastError = null;
+                return true;
+            }
+            error = "Connection not valid";
+        } catch (SQLException e) {
+            // The pool reports a timeout; the driver's reason is the cause
+            error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        }
+        if (ready) {
+            ready = false;
+            System.out.println("⚠️  WARNING: Database connection lost: " + error);
+            System.out.println("   Reporting not ready; retrying every " + (intervalMs / 1000) + "s.\n");
+        } else if (attempts == 1) {
+            System.out.println("⚠️  WARNING: Database connection failed: " + error);
+            System.out.println("   PostgreSQL may not be running on " + dbConnection.getUrl());
+            System.out.println("   Setup: See backend/BACKEND_SETUP.md");
+            System.out.println("   Retrying every " + (intervalMs / 1000) + "s in the background.\n");
+        }
+        lastError = error;
+        return false;
+    }
+
+    // Getters
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return Time the database last became reachable, 0 if it never was
+     */
+    public long getReadyAtMs() {
+        return readyAtMs;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+}
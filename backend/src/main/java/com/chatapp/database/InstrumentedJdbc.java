@@ -0,0 +1,232 @@
+package com.chatapp.database;
+
+import com.chatapp.tracing.Span;
+import com.chatapp.tracing.Tracer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * InstrumentedJdbc - Wraps JDBC connections to time statements for SqlStatistics and traces
+ *
+ * A wrapped connection hands out statements whose execute methods are
+ * timed and recorded per normalized SQL in SqlStatistics, and whose result
+ * sets count rows and the time spent in next(). On a traced thread each
+ * execute, commit and rollback also runs inside a "jdbc.*" client span
+ * tagged with the SQL text. Bind values are never recorded; the
+ * slow-query log shows only their setter types.
+ *
+ * Connections are returned untouched when statistics are off and the
+ * thread is not traced.
+ */
+final class InstrumentedJdbc {
+
+    private InstrumentedJdbc() {
+    }
+
+    /**
+     * Wrap a connection if statistics are on or the current thread is being traced
+     *
+     * @param connection - Pooled connection
+     * @param statistics - Statistics to record into, or null
+     * @return Instrumented wrapper, or the connection itself
+     */
+    static Connection wrap(Connection connection, SqlStatistics statistics) {
+        if (connection == null || (statistics == null && !Tracer.isActive())) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(connection, statistics));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Object traced(String spanName, String sql, Object target, Method method, Object[] args)
+            throws Throwable {
+        Span span = Tracer.clientSpan(spanName);
+        if (sql != null) {
+            span.tag("db.statement", sql);
+        }
+        try {
+            return invoke(target, method, args);
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.close();
+        }
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return Math.max(0, ((Number) result).longValue());
+        }
+        long rows = 0;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += Math.max(0, count);
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * ConnectionHandler - Wraps statements and traces transaction boundaries
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final SqlStatistics statistics;
+
+        ConnectionHandler(Connection connection, SqlStatistics statistics) {
+            this.connection = connection;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "prepareStatement":
+                case "prepareCall":
+                    return wrapStatement(InstrumentedJdbc.invoke(connection, method, args), (String) args[0]);
+                case "createStatement":
+                    return wrapStatement(InstrumentedJdbc.invoke(connection, method, args), null);
+                case "commit":
+                case "rollback":
+                    return traced("jdbc." + name, null, connection, method, args);
+                default:
+                    return InstrumentedJdbc.invoke(connection, method, args);
+            }
+        }
+
+        private Object wrapStatement(Object statement, String sql) {
+            Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {type},
+                    new StatementHandler((Statement) statement, sql, statistics));
+        }
+    }
+
+    /**
+     * StatementHandler - Times each execute call and remembers bind types for the slow-query log
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final SqlStatistics statistics;
+        private final List<String> bindTypes;
+        private SqlStatistics.StatementStats stats;
+
+        StatementHandler(Statement statement, String sql, SqlStatistics statistics) {
+            this.statement = statement;
+            this.sql = sql;
+            this.statistics = statistics;
+            this.bindTypes = new ArrayList<>();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(name, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.substring(3));
+            } else if (name.equals("clearParameters")) {
+                bindTypes.clear();
+            } else if (name.equals("getResultSet") && stats != null) {
+                return wrapResultSet((ResultSet) InstrumentedJdbc.invoke(statement, method, args), stats);
+            }
+            return InstrumentedJdbc.invoke(statement, method, args);
+        }
+
+        private Object execute(String name, Method method, Object[] args) throws Throwable {
+            String text = sql;
+            if (text == null && args != null && args.length > 0 && args[0] instanceof String) {
+                text = (String) args[0];
+            }
+            SqlStatistics.StatementStats target = null;
+            if (statistics != null && text != null) {
+                target = sql != null && stats != null ? stats : statistics.statement(text);
+                stats = target;
+            }
+            long start = System.nanoTime();
+            Object result = null;
+            boolean failed = true;
+            try {
+                result = traced("jdbc." + name, text, statement, method, args);
+                failed = false;
+            } finally {
+                if (target != null) {
+                    statistics.recordExecution(target, System.nanoTime() - start, affectedRows(result), failed,
+                            bindTypes.isEmpty() ? Collections.emptyList() : new ArrayList<>(bindTypes));
+                }
+            }
+            if (target != null && result instanceof ResultSet) {
+                return wrapResultSet((ResultSet) result, target);
+            }
+            return result;
+        }
+
+        private void bind(int index, String type) {
+            while (bindTypes.size() < index) {
+                bindTypes.add("?");
+            }
+            if (index >= 1) {
+                bindTypes.set(index - 1, type);
+            }
+        }
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, SqlStatistics.StatementStats stats) {
+        if (resultSet == null) {
+            return null;
+        }
+        return (ResultSet) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                new ResultSetHandler(resultSet, stats));
+    }
+
+    /**
+     * ResultSetHandler - Counts rows and the time spent fetching them
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final SqlStatistics.StatementStats stats;
+
+        ResultSetHandler(ResultSet resultSet, SqlStatistics.StatementStats stats) {
+            this.resultSet = resultSet;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().equals("next")) {
+                return InstrumentedJdbc.invoke(resultSet, method, args);
+            }
+            long start = System.nanoTime();
+            boolean row = (Boolean) InstrumentedJdbc.invoke(resultSet, method, args);
+            stats.recordFetch(System.nanoTime() - start, row);
+            return row;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.chatapp.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReplicaRouter - Least-outstanding-requests balancing over read replicas
+ *
+ * This router manages:
+ * - One connection pool per replica
+ * - Picking the healthy replica with the fewest checked-out connections
+ * - Ejecting a replica when it fails and re-admitting it once a health check passes
+ *
+ * A connection handed out counts as one outstanding request until it is
+ * closed. Ties are broken round-robin so idle replicas share load evenly.
+ */
+public class ReplicaRouter {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final List<Replica> replicas;
+    private final AtomicInteger nextStart;
+
+    /**
+     * Constructor - Create a router over replica pools
+     *
+     * @param pools - One pool per replica
+     */
+    public ReplicaRouter(List<HikariDataSource> pools) {
+        List<Replica> created = new ArrayList<>(pools.size());
+        for (HikariDataSource pool : pools) {
+            created.add(new Replica(pool));
+        }
+        this.replicas = Collections.unmodifiableList(created);
+        this.nextStart = new AtomicInteger();
+    }
+
+    /**
+     * Get a connection from the least loaded healthy replica
+     *
+     * Replicas that fail to hand out a connection are ejected and the
+     * next candidate is tried.
+     *
+     * @return Replica connection, or null if no replica is available
+     */
+    public Connection getConnection() {
+        List<Replica> tried = new ArrayList<>(replicas.size());
+        Replica replica;
+        while ((replica = pick(tried)) != null) {
+            tried.add(replica);
+            replica.outstanding.incrementAndGet();
+            try {
+                return track(replica, replica.pool.getConnection());
+            } catch (SQLException e) {
+                replica.outstanding.decrementAndGet();
+                eject(replica, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validate every replica, ejecting failing ones and re-admitting recovered ones
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean valid;
+            String error = null;
+            try (Connection conn = replica.pool.getConnection()) {
+                valid = conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                valid = false;
+                error = e.getMessage();
+            }
+            if (valid) {
+                if (!replica.healthy) {
+                    replica.healthy = true;
+                    System.out.println("✓ Read replica re-admitted: " + replica.pool.getJdbcUrl());
+                }
+            } else {
+                eject(replica, error != null ? error : "validation failed");
+            }
+        }
+    }
+
+    /**
+     * Get the number of healthy replicas
+     *
+     * @return Healthy replica count
+     */
+    public int getHealthyCount() {
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of configured replicas
+     *
+     * @return Replica count
+     */
+    public int size() {
+        return replicas.size();
+    }
+
+    /**
+     * Get the outstanding request count of each replica, in configuration order
+     *
+     * @return Outstanding counts
+     */
+    public int[] getOutstanding() {
+        int[] counts = new int[replicas.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = replicas.get(i).outstanding.get();
+        }
+        return counts;
+    }
+
+    /**
+     * Close every replica pool
+     */
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    /**
+     * Pick the healthy replica with the fewest outstanding requests, skipping already tried ones
+     */
+    private Replica pick(List<Replica> tried) {
+        int size = replicas.size();
+        int start = Math.floorMod(nextStart.getAndIncrement(), size);
+        Replica best = null;
+        for (int i = 0; i < size; i++) {
+            Replica candidate = replicas.get((start + i) % size);
+            if (!candidate.healthy || tried.contains(candidate)) {
+                continue;
+            }
+            if (best == null || candidate.outstanding.get() < best.outstanding.get()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private void eject(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            System.err.println("Read replica ejected: " + replica.pool.getJdbcUrl() + " (" + reason + ")");
+        }
+    }
+
+    /**
+     * Wrap a connection so closing it releases the replica's outstanding slot exactly once
+     */
+    private static Connection track(Replica replica, Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        replica.outstanding.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Replica - One read replica and its load and health state
+     */
+    private static final class Replica {
+        private final HikariDataSource pool;
+        private final AtomicInteger outstanding;
+        private volatile boolean healthy;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+            this.outstanding = new AtomicInteger();
+            this.healthy = true;
+        }
+    }
+}
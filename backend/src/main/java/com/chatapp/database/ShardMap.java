@@ -0,0 +1,108 @@
+package com.chatapp.database;
+
+import java.util.Arrays;
+
+/**
+ * ShardMap - Consistent-hash ring assigning conversation keys to message shards
+ *
+ * This class manages:
+ * - Placing each shard at many points (virtual nodes) on a 64-bit ring
+ * - Mapping a key to the shard owning the first point at or after its hash
+ *
+ * A shard's points depend only on its position in the shard list, so
+ * appending a shard moves roughly 1/(N+1) of the keys, all of them to the
+ * new shard; every other key keeps its shard. Shards must therefore only
+ * be appended, never reordered or removed. ShardRebalance moves the
+ * remapped keys' rows after an append.
+ */
+public class ShardMap {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int shardCount;
+    private final long[] points;
+    private final int[] owners;
+
+    /**
+     * Constructor - Create a ring with the default number of virtual nodes
+     *
+     * @param shardCount - Number of shards
+     */
+    public ShardMap(int shardCount) {
+        this(shardCount, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Constructor - Create a ring
+     *
+     * @param shardCount - Number of shards
+     * @param virtualNodes - Points per shard; more points give a more even spread
+     */
+    public ShardMap(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Need at least one shard and one virtual node");
+        }
+        this.shardCount = shardCount;
+        long[] ring = new long[shardCount * virtualNodes];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring[shard * virtualNodes + node] = mix(((long) shard << 32) | node);
+            }
+        }
+        // Sort the points as unsigned values, remembering which shard each belongs to
+        Integer[] order = new Integer[ring.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compareUnsigned(ring[a], ring[b]));
+        this.points = new long[ring.length];
+        this.owners = new int[ring.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = ring[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /**
+     * Get the shard that owns a key
+     *
+     * @param key - Conversation key
+     * @return Shard index between 0 and getShardCount() - 1
+     */
+    public int shardOf(long key) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        long hash = mix(key);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // Past the last point wraps around to the first
+        return owners[low == points.length ? 0 : low];
+    }
+
+    /**
+     * Get the number of shards
+     *
+     * @return Shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads nearby keys (consecutive user IDs) across the ring
+     */
+    static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,283 @@
+package com.chatapp.database;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * SqlStatistics - Execution statistics per normalized SQL statement
+ *
+ * This class manages:
+ * - Normalizing SQL text so one statement shape is counted once
+ * - Per-statement execution count, errors, rows, execute and fetch time
+ * - A latency histogram per statement (power-of-two microsecond buckets)
+ * - The slow-query log, with bind values replaced by their types
+ *
+ * Statements are recorded by the instrumented connections that
+ * DatabaseConnection hands out (see InstrumentedJdbc). Execute time is the
+ * execute call itself; fetch time and rows accumulate as result sets are
+ * read, so a query that returns quickly but streams many rows shows up in
+ * the fetch column rather than as slow. Counters are LongAdders so
+ * concurrent executions of the same statement do not contend.
+ */
+public class SqlStatistics {
+    public static final long DEFAULT_SLOW_QUERY_MS = 200;
+    public static final int MAX_STATEMENTS = 1_000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String OTHER = "(other statements)";
+
+    private final long slowQueryNanos;
+    private final Map<String, StatementStats> statements;
+    private final Map<String, String> normalized;
+    private final AtomicLong slowQueries;
+
+    /**
+     * Constructor - Create statistics with the default slow-query threshold
+     */
+    public SqlStatistics() {
+        this(DEFAULT_SLOW_QUERY_MS);
+    }
+
+    /**
+     * Constructor - Create statistics
+     *
+     * @param slowQueryMs - Executions at least this long are written to the slow-query log
+     */
+    public SqlStatistics(long slowQueryMs) {
+        this.slowQueryNanos = slowQueryMs * 1_000_000;
+        this.statements = new ConcurrentHashMap<>();
+        this.normalized = new ConcurrentHashMap<>();
+        this.slowQueries = new AtomicLong();
+    }
+
+    /**
+     * Reduce SQL to its shape: literals become ?, IN-lists collapse, whitespace is single spaces
+     *
+     * @param sql - SQL text
+     * @return Normalized SQL
+     */
+    public static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * Get the statistics entry for a statement, creating it on first use
+     *
+     * Normalization is cached per distinct SQL string. Past
+     * {@link #MAX_STATEMENTS} shapes, new ones are pooled into one entry so
+     * generated SQL cannot grow the map without bound.
+     *
+     * @param sql - SQL text as prepared
+     * @return Statistics entry
+     */
+    StatementStats statement(String sql) {
+        String shape = normalized.get(sql);
+        if (shape == null) {
+            shape = normalize(sql);
+            if (normalized.size() < MAX_STATEMENTS * 4) {
+                normalized.put(sql, shape);
+            }
+        }
+        StatementStats stats = statements.get(shape);
+        if (stats == null) {
+            String key = statements.size() < MAX_STATEMENTS ? shape : OTHER;
+            stats = statements.computeIfAbsent(key, StatementStats::new);
+        }
+        return stats;
+    }
+
+    /**
+     * Record one execution
+     *
+     * @param stats - Statement entry
+     * @param nanos - Time spent in the execute call
+     * @param rows - Rows affected (updates), or 0 for queries whose rows are counted as fetched
+     * @param failed - Whether the execution threw
+     * @param bindTypes - JDBC setter types of the bind parameters, logged in place of their values
+     */
+    void recordExecution(StatementStats stats, long nanos, long rows, boolean failed, List<String> bindTypes) {
+        stats.record(nanos, rows, failed);
+        if (nanos >= slowQueryNanos) {
+            slowQueries.incrementAndGet();
+            System.err.println("Slow query (" + (nanos / 1_000_000) + " ms" + (failed ? ", failed" : "") + "): "
+                    + stats.getSql() + (bindTypes.isEmpty() ? "" : " binds=" + bindTypes));
+        }
+    }
+
+    /**
+     * Get the statements with the highest total execute time
+     *
+     * @param limit - Maximum entries
+     * @return Statement summaries, most expensive first
+     */
+    public List<Map<String, Object>> top(int limit) {
+        List<StatementStats> sorted = new ArrayList<>(statements.values());
+        sorted.sort(Comparator.comparingLong(StatementStats::getTotalNanos).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (StatementStats stats : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            result.add(stats.toMap());
+        }
+        return result;
+    }
+
+    /**
+     * Forget all recorded statements
+     */
+    public void reset() {
+        statements.clear();
+        slowQueries.set(0);
+    }
+
+    /**
+     * Get the statistics of a statement
+     *
+     * @param sql - SQL text (normalized before lookup)
+     * @return Statistics, or null if it has not run
+     */
+    public StatementStats get(String sql) {
+        return statements.get(normalize(sql));
+    }
+
+    // Getters
+    public long getSlowQueryCount() {
+        return slowQueries.get();
+    }
+
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    /**
+     * StatementStats - Counters for one normalized statement
+     */
+    public static final class StatementStats {
+        private static final int BUCKETS = 32;
+
+        private final String sql;
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder fetchNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        void record(long nanos, long affectedRows, boolean failed) {
+            executions.increment();
+            totalNanos.add(nanos);
+            if (affectedRows > 0) {
+                rows.add(affectedRows);
+            }
+            if (failed) {
+                errors.increment();
+            }
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            histogram.incrementAndGet(bucket(nanos / 1_000));
+        }
+
+        void recordFetch(long nanos, boolean row) {
+            fetchNanos.add(nanos);
+            if (row) {
+                rows.increment();
+            }
+        }
+
+        /**
+         * Bucket i holds executions under 2^i microseconds
+         */
+        static int bucket(long micros) {
+            return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        }
+
+        /**
+         * Estimate a latency percentile from the histogram
+         *
+         * @param percentile - Percentile between 0 and 100
+         * @return Upper bound of the bucket holding the percentile, in microseconds
+         */
+        public long percentileMicros(double percentile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+
+        Map<String, Object> toMap() {
+            long count = executions.sum();
+            long total = totalNanos.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sql", sql);
+            map.put("executions", count);
+            map.put("errors", errors.sum());
+            map.put("totalMs", total / 1_000_000.0);
+            map.put("meanMs", count > 0 ? total / 1_000_000.0 / count : 0.0);
+            map.put("p50Ms", percentileMicros(50) / 1_000.0);
+            map.put("p99Ms", percentileMicros(99) / 1_000.0);
+            map.put("maxMs", maxNanos.get() / 1_000_000.0);
+            map.put("rows", rows.sum());
+            map.put("fetchMs", fetchNanos.sum() / 1_000_000.0);
+            return map;
+        }
+
+        // Getters
+        public String getSql() {
+            return sql;
+        }
+
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getFetchNanos() {
+            return fetchNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.chatapp.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ContentFilter - Checks message content against a dictionary of banned terms and links
+ *
+ * This service manages:
+ * - Scanning each message once with a FilterAutomaton, whatever the dictionary size
+ * - Rejecting, masking or flagging a message according to the terms it contains
+ * - Reloading the dictionary file when it changes
+ *
+ * The dictionary has one rule per line, an action followed by the term:
+ * {@code reject <term>}, {@code mask <term>} or {@code flag <term>}.
+ * Blank lines and lines starting with # are skipped. Terms match anywhere
+ * in the text regardless of case; include surrounding spaces or
+ * punctuation in a term to match only whole words.
+ *
+ * The file is polled for changes in the background. A new automaton is
+ * built off the send path and published with a single reference swap, so
+ * a send sees either the old or the new dictionary in full and never
+ * waits for a reload. A file that cannot be read or parsed leaves the
+ * current dictionary in place.
+ */
+public class ContentFilter {
+    public static final long DEFAULT_RELOAD_INTERVAL_MS = 2_000;
+
+    private static final char MASK_CHAR = '*';
+
+    private final Path dictionary;
+    private final long reloadIntervalMs;
+    private final AtomicReference<FilterAutomaton> automaton;
+    private final ScheduledExecutorService reloader;
+    private final LongAdder scanned;
+    private final LongAdder rejected;
+    private final LongAdder masked;
+    private final LongAdder flagged;
+    private volatile FileTime loadedModified;
+    private volatile long loadedSize = -1;
+    private volatile long loadedAtMillis;
+
+    /**
+     * Constructor - Create a filter without a dictionary that accepts every message
+     */
+    public ContentFilter() {
+        this(null, DEFAULT_RELOAD_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Create a filter and load its dictionary
+     *
+     * @param dictionary - Dictionary file; may not exist yet
+     */
+    public ContentFilter(Path dictionary) {
+        this(dictionary, DEFAULT_RELOAD_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Create a filter with an explicit reload interval and load its dictionary
+     *
+     * @param dictionary - Dictionary file, or null for none; may not exist yet
+     * @param reloadIntervalMs - Interval between checks of the file for changes
+     */
+    public ContentFilter(Path dictionary, long reloadIntervalMs) {
+        this.dictionary = dictionary;
+        this.reloadIntervalMs = reloadIntervalMs;
+        this.automaton = new AtomicReference<>(FilterAutomaton.empty());
+        this.scanned = new LongAdder();
+        this.rejected = new LongAdder();
+        this.masked = new LongAdder();
+        this.flagged = new LongAdder();
+        this.reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "content-filter-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (dictionary != null) {
+            reloadIfChanged();
+        }
+    }
+
+    /**
+     * Start watching the dictionary file for changes
+     */
+    public void start() {
+        if (dictionary != null) {
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadIntervalMs, reloadIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop watching the dictionary file
+     */
+    public void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    /**
+     * Check a message
+     *
+     * @param content - Message content
+     * @return Verdict with the content to store
+     */
+    public Result check(String content) {
+        scanned.increment();
+        List<FilterAutomaton.Match> matches = automaton.get().scan(content);
+        if (matches.isEmpty()) {
+            return new Result(null, content, Collections.emptyList(), false);
+        }
+
+        FilterAction action = FilterAction.FLAG;
+        Set<String> terms = new LinkedHashSet<>();
+        boolean[] maskedChars = null;
+        boolean anyFlag = false;
+        for (FilterAutomaton.Match match : matches) {
+            terms.add(match.getTerm());
+            if (match.getAction().compareTo(action) > 0) {
+                action = match.getAction();
+            }
+            if (match.getAction() == FilterAction.MASK) {
+                if (maskedChars == null) {
+                    maskedChars = new boolean[content.length()];
+                }
+                for (int i = match.getStart(); i < match.getEnd(); i++) {
+                    maskedChars[i] = true;
+                }
+            } else if (match.getAction() == FilterAction.FLAG) {
+                anyFlag = true;
+            }
+        }
+
+        if (action == FilterAction.REJECT) {
+            rejected.increment();
+            return new Result(action, content, new ArrayList<>(terms), false);
+        }
+        if (anyFlag) {
+            flagged.increment();
+        }
+        if (maskedChars != null) {
+            masked.increment();
+            content = mask(content, maskedChars);
+        }
+        return new Result(action, content, new ArrayList<>(terms), anyFlag);
+    }
+
+    /**
+     * Replace masked characters by one MASK_CHAR per code point
+     */
+    private static String mask(String content, boolean[] maskedChars) {
+        StringBuilder result = new StringBuilder(content.length());
+        int i = 0;
+        while (i < content.length()) {
+            int codePoint = content.codePointAt(i);
+            if (maskedChars[i]) {
+                result.append(MASK_CHAR);
+            } else {
+                result.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Reload the dictionary if the file's modification time or size changed
+     *
+     * @return true if a new dictionary was installed
+     */
+    public boolean reloadIfChanged() {
+        if (dictionary == null) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(dictionary, BasicFileAttributes.class);
+            if (attributes.lastModifiedTime().equals(loadedModified) && attributes.size() == loadedSize) {
+                return false;
+            }
+            Map<String, FilterAction> rules = parse(Files.readAllLines(dictionary, StandardCharsets.UTF_8));
+            FilterAutomaton built = FilterAutomaton.build(rules);
+            automaton.set(built);
+            loadedModified = attributes.lastModifiedTime();
+            loadedSize = attributes.size();
+            loadedAtMillis = System.currentTimeMillis();
+            System.out.println("✓ Content filter loaded " + built.getTermCount() + " terms from " + dictionary);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading content filter " + dictionary + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parse dictionary lines into rules
+     *
+     * @param lines - Lines of the dictionary file
+     * @return Action per term, in file order; malformed lines are skipped
+     */
+    static Map<String, FilterAction> parse(List<String> lines) {
+        Map<String, FilterAction> rules = new LinkedHashMap<>();
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            FilterAction action = null;
+            if (space > 0) {
+                try {
+                    action = FilterAction.valueOf(line.substring(0, space).toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    // Reported below
+                }
+            }
+            String term = space > 0 ? line.substring(space + 1).trim() : "";
+            if (action == null || term.isEmpty()) {
+                System.err.println("Ignoring content filter line " + (n + 1) + ": " + line);
+                continue;
+            }
+            rules.merge(term, action, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        }
+        return rules;
+    }
+
+    // Getters
+    public Path getDictionary() {
+        return dictionary;
+    }
+
+    public int getTermCount() {
+        return automaton.get().getTermCount();
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    public long getScannedCount() {
+        return scanned.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getMaskedCount() {
+        return masked.sum();
+    }
+
+    public long getFlaggedCount() {
+        return flagged.sum();
+    }
+
+    /**
+     * Result - Verdict on one message
+     */
+    public static final class Result {
+        private final FilterAction action;
+        private final String content;
+        private final List<String> terms;
+        private final boolean flagged;
+
+        Result(FilterAction action, String content, List<String> terms, boolean flagged) {
+            this.action = action;
+            this.content = content;
+            this.terms = terms;
+            this.flagged = flagged;
+        }
+
+        /**
+         * @return true if the message must not be stored
+         */
+        public boolean isRejected() {
+            return action == FilterAction.REJECT;
+        }
+
+        /**
+         * @return true if a stored message contains a term to flag for moderation
+         */
+        public boolean isFlagged() {
+            return flagged;
+        }
+
+        // Getters
+        /**
+         * @return Most severe action among the matched terms, or null if none matched
+         */
+        public FilterAction getAction() {
+            return action;
+        }
+
+        /**
+         * @return Content to store, with masked terms replaced
+         */
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * @return Distinct matched terms, case-folded
+         */
+        public List<String> getTerms() {
+            return terms;
+        }
+    }
+}
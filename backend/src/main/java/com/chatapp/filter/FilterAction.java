@@ -0,0 +1,16 @@
+package com.chatapp.filter;
+
+/**
+ * FilterAction - What the content filter does with a message containing a term
+ *
+ * Declared from least to most severe; when terms with different actions
+ * match one message, the most severe one decides whether it is stored.
+ */
+public enum FilterAction {
+    /** Store the message unchanged and report it for moderation */
+    FLAG,
+    /** Store the message with the term replaced by asterisks */
+    MASK,
+    /** Do not store the message */
+    REJECT
+}
@@ -0,0 +1,237 @@
+package com.chatapp.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * FilterAutomaton - Aho-Corasick automaton over the filter's terms
+ *
+ * This class manages:
+ * - A trie of the case-folded terms with failure links between nodes
+ * - Finding every occurrence of every term in one left-to-right pass
+ *
+ * A scan reads each character once and follows at most as many failure
+ * links as it has read characters, so its cost depends on the message
+ * length and the number of matches, not on how many terms there are.
+ * Each node's outgoing edges are a sorted char array searched by binary
+ * search, and each node lists every term ending at it, including those
+ * reached through its failure chain, so a match needs no extra walk.
+ *
+ * Terms and text are compared after per-character case folding, so
+ * "Spam", "SPAM" and "spam" are the same term and a match covers
+ * exactly the characters of the original text. Instances are immutable
+ * and safe to share between threads.
+ */
+public final class FilterAutomaton {
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final FilterAutomaton EMPTY = build(Collections.emptyMap());
+
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    private final int[][] outputs;
+    private final String[] terms;
+    private final FilterAction[] actions;
+
+    private FilterAutomaton(char[][] edgeChars, int[][] edgeTargets, int[] failure, int[][] outputs,
+                            String[] terms, FilterAction[] actions) {
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.failure = failure;
+        this.outputs = outputs;
+        this.terms = terms;
+        this.actions = actions;
+    }
+
+    /**
+     * Get an automaton without terms
+     *
+     * @return Automaton that never matches
+     */
+    public static FilterAutomaton empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build an automaton
+     *
+     * @param rules - Action per term; empty terms are ignored and a term listed twice after folding keeps the most severe action
+     * @return Automaton matching every term
+     */
+    public static FilterAutomaton build(Map<String, FilterAction> rules) {
+        Map<String, FilterAction> folded = new TreeMap<>();
+        for (Map.Entry<String, FilterAction> rule : rules.entrySet()) {
+            String term = fold(rule.getKey());
+            if (!term.isEmpty()) {
+                folded.merge(term, rule.getValue(), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            }
+        }
+
+        // Trie, with each node's edges in a char-sorted map while building
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        children.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+        String[] terms = folded.keySet().toArray(new String[0]);
+        FilterAction[] actions = folded.values().toArray(new FilterAction[0]);
+        for (int t = 0; t < terms.length; t++) {
+            int node = 0;
+            for (int i = 0; i < terms[t].length(); i++) {
+                Integer next = children.get(node).get(terms[t].charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.get(node).put(terms[t].charAt(i), next);
+                    children.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            ends.get(node).add(t);
+        }
+
+        int nodes = children.size();
+        char[][] edgeChars = new char[nodes][];
+        int[][] edgeTargets = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            TreeMap<Character, Integer> edges = children.get(node);
+            edgeChars[node] = edges.isEmpty() ? NO_CHARS : new char[edges.size()];
+            edgeTargets[node] = edges.isEmpty() ? NO_INTS : new int[edges.size()];
+            int e = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[node][e] = edge.getKey();
+                edgeTargets[node][e++] = edge.getValue();
+            }
+        }
+
+        // Failure links in breadth-first order, so a node's link is set before its children's
+        int[] failure = new int[nodes];
+        int[][] outputs = new int[nodes][];
+        outputs[0] = NO_INTS;
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int[] inherited = outputs[failure[node]];
+            List<Integer> own = ends.get(node);
+            // Own terms first: they are longer than any reached through the failure chain
+            int[] merged = new int[own.size() + inherited.length];
+            for (int i = 0; i < own.size(); i++) {
+                merged[i] = own.get(i);
+            }
+            System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+            outputs[node] = merged.length == 0 ? NO_INTS : merged;
+            for (int e = 0; e < edgeChars[node].length; e++) {
+                int child = edgeTargets[node][e];
+                int link = failure[node];
+                int next = step(edgeChars, edgeTargets, link, edgeChars[node][e]);
+                while (next < 0 && link != 0) {
+                    link = failure[link];
+                    next = step(edgeChars, edgeTargets, link, edgeChars[node][e]);
+                }
+                failure[child] = next >= 0 ? next : 0;
+                queue.add(child);
+            }
+        }
+        return new FilterAutomaton(edgeChars, edgeTargets, failure, outputs, terms, actions);
+    }
+
+    /**
+     * Find every occurrence of every term
+     *
+     * @param text - Text to scan
+     * @return Matches in order of their end position, longest first; overlapping matches are all reported
+     */
+    public List<Match> scan(CharSequence text) {
+        List<Match> matches = null;
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            int next = step(edgeChars, edgeTargets, node, c);
+            while (next < 0 && node != 0) {
+                node = failure[node];
+                next = step(edgeChars, edgeTargets, node, c);
+            }
+            node = next >= 0 ? next : 0;
+            for (int term : outputs[node]) {
+                if (matches == null) {
+                    matches = new ArrayList<>();
+                }
+                matches.add(new Match(i + 1 - terms[term].length(), i + 1, terms[term], actions[term]));
+            }
+        }
+        return matches != null ? matches : Collections.emptyList();
+    }
+
+    /**
+     * Get the number of distinct terms
+     *
+     * @return Term count after case folding
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    private static int step(char[][] edgeChars, int[][] edgeTargets, int node, char c) {
+        int index = Arrays.binarySearch(edgeChars[node], c);
+        return index >= 0 ? edgeTargets[node][index] : -1;
+    }
+
+    private static String fold(String term) {
+        StringBuilder folded = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            folded.append(fold(term.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Fold case one UTF-16 unit at a time (upper then lower, so e.g. the
+     * Kelvin sign matches k); keeps positions aligned with the original text
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Match - One occurrence of a term
+     */
+    public static final class Match {
+        private final int start;
+        private final int end;
+        private final String term;
+        private final FilterAction action;
+
+        Match(int start, int end, String term, FilterAction action) {
+            this.start = start;
+            this.end = end;
+            this.term = term;
+            this.action = action;
+        }
+
+        // Getters
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public FilterAction getAction() {
+            return action;
+        }
+    }
+}
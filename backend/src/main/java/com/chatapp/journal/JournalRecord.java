@@ -0,0 +1,111 @@
+package com.chatapp.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JournalRecord - One accepted message waiting in the MessageJournal
+ *
+ * Users are kept as usernames so a message can be accepted while the
+ * users table is unreachable; they are resolved when the record is
+ * replayed. The record carries the message ID the send was acknowledged
+ * with; the message is stored under a new ID, and the accepted one is
+ * kept as the key that makes replaying it twice insert it once.
+ */
+public final class JournalRecord {
+    private final long messageId;
+    private final long sentAtMillis;
+    private final String sender;
+    private final String recipient;
+    private final String content;
+
+    /**
+     * Constructor - Create a record
+     *
+     * @param messageId - ID assigned to the message when it was accepted
+     * @param sentAtMillis - Time the message was accepted
+     * @param sender - Sender username
+     * @param recipient - Recipient username, or ChatServer.BROADCAST_RECIPIENT
+     * @param content - Message text
+     */
+    public JournalRecord(long messageId, long sentAtMillis, String sender, String recipient, String content) {
+        this.messageId = messageId;
+        this.sentAtMillis = sentAtMillis;
+        this.sender = sender;
+        this.recipient = recipient;
+        this.content = content;
+    }
+
+    /**
+     * Serialize the record
+     *
+     * @return Encoded bytes
+     */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + content.length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(messageId);
+            out.writeLong(sentAtMillis);
+            writeString(out, sender);
+            writeString(out, recipient);
+            writeString(out, content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize a record
+     *
+     * @param payload - Bytes produced by {@link #encode()}
+     * @return Decoded record
+     * @throws IOException - If the payload is malformed
+     */
+    static JournalRecord decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return new JournalRecord(in.readLong(), in.readLong(), readString(in), readString(in), readString(in));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Getters
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public long getSentAtMillis() {
+        return sentAtMillis;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,495 @@
+package com.chatapp.journal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * MessageJournal - Local write-ahead journal for messages accepted while the database is down
+ *
+ * This journal manages:
+ * - Appending records to numbered segment files, rolling at a size limit
+ * - Group commit: one fsync covers every append made while the previous one ran
+ * - Reading records back in order from a persisted checkpoint
+ * - Deleting segments once every record in them has been replayed
+ *
+ * {@link #append(JournalRecord)} returns once the record is on disk, so a
+ * caller can acknowledge it. Each record is framed as length, CRC32 and
+ * payload; on open, a torn or corrupt tail left by a crash is truncated
+ * and appends continue in a fresh segment. Only records that have been
+ * fsynced are handed to readers. The checkpoint is written after a batch
+ * has been replayed, so a crash in between replays that batch again;
+ * record keys make that harmless.
+ */
+public class MessageJournal {
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 2;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 8 * 1024 * 1024;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long flushIntervalMs;
+    private final Thread flusher;
+
+    // Guarded by this
+    private final TreeMap<Long, Path> segments;
+    private FileChannel active;
+    private long activeId;
+    private long activeSize;
+    private long appended;
+    private long durable;
+    private long durableSegment;
+    private long durableOffset;
+    private long checkpointSegment;
+    private long checkpointOffset;
+    private long pending;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Constructor - Open a journal with default segment size and flush interval
+     *
+     * @param directory - Directory holding the segment files
+     * @throws IOException - If the directory cannot be read or written
+     */
+    public MessageJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Open a journal, recovering any records left by a previous run
+     *
+     * @param directory - Directory holding the segment files
+     * @param segmentBytes - Size at which the active segment is rolled
+     * @param flushIntervalMs - How long the flusher gathers appends before each fsync
+     * @throws IOException - If the directory cannot be read or written
+     */
+    public MessageJournal(Path directory, long segmentBytes, long flushIntervalMs) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.flushIntervalMs = flushIntervalMs;
+        this.segments = new TreeMap<>();
+
+        Files.createDirectories(directory);
+        recover();
+        // Always continue in a fresh segment, after the checkpoint's one
+        openSegment(Math.max(segments.isEmpty() ? 0 : segments.lastKey(), checkpointSegment) + 1);
+
+        this.flusher = new Thread(this::runFlusher, "message-journal-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Append a record and wait until it is durable
+     *
+     * @param record - Record to append
+     * @throws IOException - If the record could not be written or synced
+     */
+    public void append(JournalRecord record) throws IOException {
+        byte[] payload = record.encode();
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IOException("Journal record too large: " + payload.length + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        synchronized (this) {
+            checkWritable();
+            if (activeSize > 0 && activeSize + frame.remaining() > segmentBytes) {
+                roll();
+            }
+            try {
+                while (frame.hasRemaining()) {
+                    active.write(frame);
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            activeSize += frame.capacity();
+            long sequence = ++appended;
+            pending++;
+            notifyAll();
+            try {
+                while (durable < sequence) {
+                    checkWritable();
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for journal sync");
+            }
+        }
+    }
+
+    /**
+     * Read the oldest records not yet committed
+     *
+     * @param maxRecords - Maximum number of records to return
+     * @return Batch of records in append order, possibly empty
+     * @throws IOException - If a segment cannot be read
+     */
+    public Batch read(int maxRecords) throws IOException {
+        long segment;
+        long offset;
+        long limitSegment;
+        long limitOffset;
+        NavigableMap<Long, Path> candidates;
+        synchronized (this) {
+            segment = checkpointSegment;
+            offset = checkpointOffset;
+            limitSegment = durableSegment;
+            limitOffset = durableOffset;
+            candidates = new TreeMap<>(segments.tailMap(segment, true));
+        }
+
+        List<JournalRecord> records = new ArrayList<>();
+        for (Map.Entry<Long, Path> entry : candidates.entrySet()) {
+            long id = entry.getKey();
+            if (id > limitSegment || records.size() >= maxRecords) {
+                break;
+            }
+            if (id > segment) {
+                segment = id;
+                offset = 0;
+            }
+            long end = id == limitSegment ? limitOffset : Files.size(entry.getValue());
+            try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                while (offset < end && records.size() < maxRecords) {
+                    byte[] payload = readFrame(channel, offset, end);
+                    if (payload == null) {
+                        throw new IOException("Corrupt journal record in " + entry.getValue() + " at " + offset);
+                    }
+                    records.add(JournalRecord.decode(payload));
+                    offset += HEADER_BYTES + payload.length;
+                }
+            }
+            if (offset < end) {
+                break;
+            }
+        }
+        return new Batch(records, segment, offset);
+    }
+
+    /**
+     * Mark a batch as replayed: advance the checkpoint and delete finished segments
+     *
+     * @param batch - Batch returned by {@link #read(int)}, committed in read order
+     * @throws IOException - If the checkpoint cannot be written
+     */
+    public synchronized void commit(Batch batch) throws IOException {
+        writeCheckpoint(batch.segment, batch.offset);
+        checkpointSegment = batch.segment;
+        checkpointOffset = batch.offset;
+        pending -= batch.records.size();
+
+        Iterator<Map.Entry<Long, Path>> finished = segments.headMap(checkpointSegment, false).entrySet().iterator();
+        while (finished.hasNext()) {
+            Files.deleteIfExists(finished.next().getValue());
+            finished.remove();
+        }
+    }
+
+    /**
+     * Check whether records are waiting to be replayed
+     *
+     * @return true if at least one appended record is not committed
+     */
+    public synchronized boolean hasPending() {
+        return pending > 0;
+    }
+
+    /**
+     * Get the number of records waiting to be replayed
+     *
+     * @return Pending record count
+     */
+    public synchronized long getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Get the number of segment files on disk
+     *
+     * @return Segment count, including the active one
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Get the journal directory
+     *
+     * @return Directory path
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Sync outstanding appends and close the active segment
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                if (failure == null) {
+                    active.force(false);
+                    durable = appended;
+                }
+                active.close();
+            } catch (IOException e) {
+                System.err.println("Error closing message journal: " + e.getMessage());
+            }
+            closed = true;
+            notifyAll();
+        }
+        flusher.interrupt();
+    }
+
+    /**
+     * Group commit loop: wait for appends, gather more for the flush interval, fsync once
+     */
+    private void runFlusher() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (!closed && durable == appended) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+                if (flushIntervalMs > 0) {
+                    Thread.sleep(flushIntervalMs);
+                }
+                synchronized (this) {
+                    if (closed || failure != null) {
+                        continue;
+                    }
+                    try {
+                        active.force(false);
+                        markDurable();
+                    } catch (IOException e) {
+                        failure = e;
+                        System.err.println("Message journal sync failed: " + e.getMessage());
+                    }
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sync and close the active segment and continue in a new one; caller holds the lock
+     */
+    private void roll() throws IOException {
+        try {
+            active.force(false);
+            active.close();
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        openSegment(activeId + 1);
+        notifyAll();
+    }
+
+    private void openSegment(long id) throws IOException {
+        Path path = directory.resolve(segmentName(id));
+        active = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+        segments.put(id, path);
+        activeId = id;
+        activeSize = 0;
+        markDurable();
+    }
+
+    private void markDurable() {
+        durable = appended;
+        durableSegment = activeId;
+        durableOffset = activeSize;
+    }
+
+    private void checkWritable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Message journal failed: " + failure.getMessage(), failure);
+        }
+        if (closed) {
+            throw new IOException("Message journal is closed");
+        }
+    }
+
+    /**
+     * Load the segment list and checkpoint, count pending records and cut off torn tails
+     */
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    System.err.println("Ignoring unexpected file in message journal: " + name);
+                }
+            }
+        }
+        readCheckpoint();
+
+        Iterator<Map.Entry<Long, Path>> replayed = segments.headMap(checkpointSegment, false).entrySet().iterator();
+        while (replayed.hasNext()) {
+            Files.deleteIfExists(replayed.next().getValue());
+            replayed.remove();
+        }
+
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            long start = entry.getKey() == checkpointSegment ? checkpointOffset : 0;
+            try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                long offset = start;
+                byte[] payload;
+                while (offset < size && (payload = readFrame(channel, offset, size)) != null) {
+                    offset += HEADER_BYTES + payload.length;
+                    pending++;
+                }
+                if (offset < size) {
+                    System.err.println("Message journal: dropping " + (size - offset) + " torn bytes at the end of "
+                            + entry.getValue().getFileName());
+                    channel.truncate(offset);
+                    channel.force(true);
+                }
+            }
+        }
+        if (pending > 0) {
+            System.out.println("⚠️  Message journal holds " + pending + " messages not yet stored in the database");
+        }
+    }
+
+    /**
+     * Read the frame at an offset
+     *
+     * @return Payload, or null if the frame is incomplete or fails its checksum
+     */
+    private static byte[] readFrame(FileChannel channel, long offset, long end) throws IOException {
+        if (end - offset < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        int length = header.getInt(0);
+        int checksum = header.getInt(4);
+        if (length < 0 || length > MAX_RECORD_BYTES || end - offset - HEADER_BYTES < length) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, offset + HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        return (int) crc.getValue() == checksum ? payload.array() : null;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal segment");
+            }
+        }
+    }
+
+    private void readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        checkpointSegment = segments.isEmpty() ? 1 : segments.firstKey();
+        checkpointOffset = 0;
+        if (!Files.exists(file)) {
+            return;
+        }
+        String[] parts = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim().split(" ");
+        if (parts.length == 2) {
+            checkpointSegment = Long.parseLong(parts[0]);
+            checkpointOffset = Long.parseLong(parts[1]);
+        }
+    }
+
+    /**
+     * Replace the checkpoint file atomically
+     */
+    private void writeCheckpoint(long segment, long offset) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer content = ByteBuffer.wrap((segment + " " + offset + "\n").getBytes(StandardCharsets.US_ASCII));
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+
+    /**
+     * Make file creations and renames durable; not supported on every platform
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for sync on Windows; file data is still synced
+        }
+    }
+
+    private static String segmentName(long id) {
+        return String.format("%020d%s", id, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Batch - Records read together and the journal position after the last one
+     */
+    public static final class Batch {
+        private final List<JournalRecord> records;
+        private final long segment;
+        private final long offset;
+
+        private Batch(List<JournalRecord> records, long segment, long offset) {
+            this.records = Collections.unmodifiableList(records);
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        public List<JournalRecord> getRecords() {
+            return records;
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+}
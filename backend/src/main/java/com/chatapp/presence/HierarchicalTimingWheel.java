@@ -0,0 +1,259 @@
+package com.chatapp.presence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HierarchicalTimingWheel - Coarse-grained timer wheel for large numbers of timeouts
+ *
+ * The root wheel has {@code wheelSize} buckets of {@code tickMs} each.
+ * Deadlines beyond the root's span go to lazily created overflow wheels
+ * whose tick equals the span of the wheel below; their buckets cascade
+ * down as time reaches them. Scheduling and cancelling are O(1) and the
+ * only per-timeout memory is the intrusive {@link Timeout} node, so cost
+ * does not grow with the number of pending timeouts.
+ *
+ * Timeouts fire at most one tick late and never early.
+ *
+ * @param <T> - Type of item carried by each timeout
+ */
+public class HierarchicalTimingWheel<T> {
+    private final long tickMs;
+    private final int wheelSize;
+    private final Level root;
+    private long currentTime;
+    private int size;
+
+    /**
+     * Constructor - Create a timing wheel
+     *
+     * @param tickMs - Duration of a root bucket in milliseconds
+     * @param wheelSize - Number of buckets per level
+     * @param startMs - Current time in milliseconds
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize greater than 1");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMs - (startMs % tickMs);
+        this.root = new Level(tickMs);
+    }
+
+    /**
+     * Schedule a timeout. A timeout that is already scheduled is moved.
+     *
+     * @param timeout - Timeout node to schedule
+     * @param deadlineMs - Absolute deadline in milliseconds
+     * @return false if the deadline has already passed (timeout not scheduled)
+     */
+    public synchronized boolean schedule(Timeout<T> timeout, long deadlineMs) {
+        if (timeout.bucket != null) {
+            unlink(timeout);
+        }
+        timeout.deadline = deadlineMs;
+        return insert(timeout);
+    }
+
+    /**
+     * Cancel a scheduled timeout
+     *
+     * @param timeout - Timeout node to cancel
+     * @return true if the timeout was pending
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Advance the wheel to the given time and collect expired timeouts
+     *
+     * @param nowMs - Current time in milliseconds
+     * @return Items whose deadline has passed, in no particular order
+     */
+    public synchronized List<T> advance(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        while (currentTime + tickMs <= nowMs) {
+            // The root bucket that just ended holds deadlines in [currentTime, currentTime + tick)
+            Timeout<T> ended = detach(root.buckets[root.index(currentTime)]);
+            currentTime += tickMs;
+            for (Timeout<T> t = ended; t != null; ) {
+                Timeout<T> next = t.next;
+                t.next = null;
+                expired.add(t.item);
+                t = next;
+            }
+
+            // Cascade overflow buckets that start now, highest level first
+            cascade(root.overflow, expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Get the number of pending timeouts
+     *
+     * @return Pending timeout count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Cascade overflow buckets whose range starts at the current time
+     *
+     * @param level - Overflow level to cascade (may be null)
+     * @param expired - Collector for timeouts that expire while cascading
+     */
+    private void cascade(Level level, List<T> expired) {
+        if (level == null || currentTime % level.tickMs != 0) {
+            return;
+        }
+        cascade(level.overflow, expired);
+        Timeout<T> chain = detach(level.buckets[level.index(currentTime)]);
+        while (chain != null) {
+            Timeout<T> next = chain.next;
+            chain.next = null;
+            if (!insert(chain)) {
+                expired.add(chain.item);
+            }
+            chain = next;
+        }
+    }
+
+    /**
+     * Insert an unlinked timeout into the lowest level that spans its deadline
+     *
+     * @param timeout - Timeout with deadline set
+     * @return false if the deadline has already passed
+     */
+    private boolean insert(Timeout<T> timeout) {
+        long deadline = timeout.deadline;
+        if (deadline < currentTime) {
+            return false;
+        }
+        Level level = root;
+        while (true) {
+            long levelTime = currentTime - (currentTime % level.tickMs);
+            if (deadline < levelTime + level.tickMs * wheelSize) {
+                link(level.buckets[level.index(deadline)], timeout);
+                return true;
+            }
+            if (level.overflow == null) {
+                level.overflow = new Level(level.tickMs * wheelSize);
+            }
+            level = level.overflow;
+        }
+    }
+
+    /**
+     * Link a timeout at the head of a bucket
+     */
+    private void link(Bucket<T> bucket, Timeout<T> timeout) {
+        timeout.bucket = bucket;
+        timeout.prev = null;
+        timeout.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.prev = timeout;
+        }
+        bucket.head = timeout;
+        size++;
+    }
+
+    /**
+     * Unlink a timeout from its bucket
+     */
+    private void unlink(Timeout<T> timeout) {
+        Bucket<T> bucket = timeout.bucket;
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            bucket.head = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.bucket = null;
+        timeout.prev = null;
+        timeout.next = null;
+        size--;
+    }
+
+    /**
+     * Detach the whole chain of a bucket, leaving nodes linked through next only
+     */
+    private Timeout<T> detach(Bucket<T> bucket) {
+        Timeout<T> head = bucket.head;
+        bucket.head = null;
+        for (Timeout<T> t = head; t != null; t = t.next) {
+            t.bucket = null;
+            t.prev = null;
+            size--;
+        }
+        return head;
+    }
+
+    /**
+     * Level - One wheel in the hierarchy
+     */
+    private final class Level {
+        private final long tickMs;
+        private final Bucket<T>[] buckets;
+        private Level overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMs) {
+            this.tickMs = tickMs;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>();
+            }
+        }
+
+        private int index(long time) {
+            return (int) ((time / tickMs) % wheelSize);
+        }
+    }
+
+    /**
+     * Bucket - Head of an intrusive doubly linked list of timeouts
+     */
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+    }
+
+    /**
+     * Timeout - Intrusive timer node, reusable across reschedules
+     *
+     * @param <T> - Type of item carried by the timeout
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private long deadline;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        /**
+         * Constructor - Create an unscheduled timeout
+         *
+         * @param item - Item returned when the timeout expires
+         */
+        public Timeout(T item) {
+            this.item = item;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+}
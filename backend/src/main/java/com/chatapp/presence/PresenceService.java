@@ -0,0 +1,361 @@
+package com.chatapp.presence;
+
+import com.chatapp.push.PushRegistry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PresenceService - Tracks which users are online based on client heartbeats
+ *
+ * This service manages:
+ * - Heartbeat-driven liveness with expiry on a hierarchical timing wheel
+ * - Bulk presence lookups
+ * - Contact subscriptions and batched presence-change pushes
+ *
+ * A heartbeat only updates a timestamp on the user's entry. The wheel holds
+ * one timeout per online user; when it fires, the entry is either expired
+ * or rescheduled from its latest heartbeat, so steady heartbeats cost no
+ * wheel operations. Status changes are coalesced (latest wins) and pushed
+ * to watching contacts once per flush interval.
+ *
+ * Memory is bounded by the online users: a watcher may watch at most
+ * maxContacts users, setting contacts counts as a heartbeat, and a
+ * watcher's subscriptions are dropped when it expires or disconnects.
+ * Clients set their contacts again after coming back online.
+ */
+public class PresenceService {
+    public static final long DEFAULT_TTL_MS = 30_000;
+    public static final long DEFAULT_TICK_MS = 250;
+    public static final int DEFAULT_WHEEL_SIZE = 128;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 500;
+    public static final int DEFAULT_MAX_CONTACTS = 500;
+
+    private final PushRegistry pushRegistry;
+    private final long ttlMs;
+    private final long tickMs;
+    private final long flushIntervalMs;
+    private final int maxContacts;
+    private final HierarchicalTimingWheel<PresenceEntry> wheel;
+    private final Map<String, PresenceEntry> entries;
+    private final Map<String, Set<String>> watchersByUser;
+    private final Map<String, Set<String>> contactsByWatcher;
+    private final Map<String, Boolean> pendingChanges;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor - Initialize PresenceService with default timings
+     *
+     * @param pushRegistry - Registry used to push presence changes
+     */
+    public PresenceService(PushRegistry pushRegistry) {
+        this(pushRegistry, DEFAULT_TTL_MS, DEFAULT_TICK_MS, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Initialize PresenceService with explicit timings
+     *
+     * @param pushRegistry - Registry used to push presence changes
+     * @param ttlMs - Time without heartbeat after which a user goes offline
+     * @param tickMs - Timing wheel resolution
+     * @param flushIntervalMs - Interval between presence-change pushes
+     */
+    public PresenceService(PushRegistry pushRegistry, long ttlMs, long tickMs, long flushIntervalMs) {
+        this(pushRegistry, ttlMs, tickMs, flushIntervalMs, DEFAULT_MAX_CONTACTS);
+    }
+
+    /**
+     * Constructor - Initialize PresenceService with explicit timings and contact limit
+     *
+     * @param pushRegistry - Registry used to push presence changes
+     * @param ttlMs - Time without heartbeat after which a user goes offline
+     * @param tickMs - Timing wheel resolution
+     * @param flushIntervalMs - Interval between presence-change pushes
+     * @param maxContacts - Maximum number of users one watcher may watch
+     */
+    public PresenceService(PushRegistry pushRegistry, long ttlMs, long tickMs, long flushIntervalMs,
+                           int maxContacts) {
+        this.pushRegistry = pushRegistry;
+        this.ttlMs = ttlMs;
+        this.tickMs = tickMs;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxContacts = maxContacts;
+        this.wheel = new HierarchicalTimingWheel<>(tickMs, DEFAULT_WHEEL_SIZE, System.currentTimeMillis());
+        this.entries = new ConcurrentHashMap<>();
+        this.watchersByUser = new ConcurrentHashMap<>();
+        this.contactsByWatcher = new ConcurrentHashMap<>();
+        this.pendingChanges = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start the expiry ticker and the change flusher
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "presence-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> expire(System.currentTimeMillis()), tickMs, tickMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::flushChanges, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop background tasks
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Record a heartbeat from a connected client
+     *
+     * @param username - User sending the heartbeat
+     */
+    public void heartbeat(String username) {
+        long now = System.currentTimeMillis();
+        PresenceEntry entry = entries.get(username);
+        if (entry != null && entry.touch(now)) {
+            return;
+        }
+
+        PresenceEntry created = new PresenceEntry(username, now);
+        PresenceEntry existing = entries.putIfAbsent(username, created);
+        if (existing != null) {
+            if (existing.touch(now)) {
+                return;
+            }
+            // Entry expired between lookup and touch; replace it
+            if (!entries.replace(username, existing, created)) {
+                heartbeat(username);
+                return;
+            }
+        }
+        wheel.schedule(created.timeout, now + ttlMs);
+        pendingChanges.put(username, Boolean.TRUE);
+    }
+
+    /**
+     * Mark a user offline immediately (e.g. on logout)
+     *
+     * @param username - User going offline
+     */
+    public void disconnect(String username) {
+        PresenceEntry entry = entries.remove(username);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.expired = true;
+            }
+            wheel.cancel(entry.timeout);
+            pendingChanges.put(username, Boolean.FALSE);
+        }
+        clearContacts(username);
+    }
+
+    /**
+     * Check if a user is online
+     *
+     * @param username - User to check
+     * @return true if the user has heartbeated within the TTL
+     */
+    public boolean isOnline(String username) {
+        return entries.containsKey(username);
+    }
+
+    /**
+     * Bulk presence lookup
+     *
+     * @param usernames - Users to look up
+     * @return Map of username to online flag, in request order
+     */
+    public Map<String, Boolean> getPresence(Collection<String> usernames) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (String username : usernames) {
+            result.put(username, entries.containsKey(username));
+        }
+        return result;
+    }
+
+    /**
+     * Replace the set of contacts a user wants presence updates for
+     *
+     * Also counts as a heartbeat from the watcher; the subscriptions are
+     * dropped when the watcher's presence expires.
+     *
+     * @param watcher - User receiving updates
+     * @param contacts - Users to watch
+     * @return false if there are more than maxContacts contacts; nothing is changed then
+     */
+    public boolean setContacts(String watcher, Collection<String> contacts) {
+        if (contacts.size() > maxContacts) {
+            return false;
+        }
+        heartbeat(watcher);
+        Set<String> updated = ConcurrentHashMap.newKeySet();
+        updated.addAll(contacts);
+        Set<String> previous = contactsByWatcher.put(watcher, updated);
+
+        if (previous != null) {
+            for (String contact : previous) {
+                if (!updated.contains(contact)) {
+                    removeWatcher(contact, watcher);
+                }
+            }
+        }
+        for (String contact : updated) {
+            watchersByUser.compute(contact, (k, watchers) -> {
+                Set<String> result = watchers != null ? watchers : ConcurrentHashMap.newKeySet();
+                result.add(watcher);
+                return result;
+            });
+        }
+        if (!entries.containsKey(watcher)) {
+            // Expired while subscribing; do not leave the subscriptions behind
+            clearContacts(watcher);
+        }
+        return true;
+    }
+
+    /**
+     * Remove all contact subscriptions of a user
+     *
+     * @param watcher - User to unsubscribe
+     */
+    public void clearContacts(String watcher) {
+        Set<String> previous = contactsByWatcher.remove(watcher);
+        if (previous != null) {
+            for (String contact : previous) {
+                removeWatcher(contact, watcher);
+            }
+        }
+    }
+
+    /**
+     * Get the number of online users
+     *
+     * @return Online user count
+     */
+    public int getOnlineCount() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of users watched by at least one watcher
+     *
+     * @return Watched user count
+     */
+    public int getWatchedCount() {
+        return watchersByUser.size();
+    }
+
+    public int getMaxContacts() {
+        return maxContacts;
+    }
+
+    /**
+     * Expire entries whose timeout fired, rescheduling those with newer heartbeats
+     *
+     * @param now - Current time in milliseconds
+     */
+    void expire(long now) {
+        List<PresenceEntry> fired = wheel.advance(now);
+        for (PresenceEntry entry : fired) {
+            long deadline;
+            boolean expired;
+            synchronized (entry) {
+                if (entry.expired) {
+                    continue;
+                }
+                deadline = entry.lastHeartbeat + ttlMs;
+                expired = deadline <= now;
+                entry.expired = expired;
+            }
+            if (expired) {
+                if (entries.remove(entry.username, entry)) {
+                    pendingChanges.put(entry.username, Boolean.FALSE);
+                    clearContacts(entry.username);
+                }
+            } else if (!wheel.schedule(entry.timeout, deadline)) {
+                // Deadline fell behind the wheel; check again on the next tick
+                wheel.schedule(entry.timeout, now + tickMs);
+            }
+        }
+    }
+
+    /**
+     * Push coalesced presence changes to watching contacts, one frame per watcher
+     */
+    void flushChanges() {
+        if (pendingChanges.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Boolean>> batches = new HashMap<>();
+        for (String username : pendingChanges.keySet()) {
+            Boolean online = pendingChanges.remove(username);
+            if (online == null) {
+                continue;
+            }
+            Set<String> watchers = watchersByUser.getOrDefault(username, Collections.emptySet());
+            for (String watcher : watchers) {
+                batches.computeIfAbsent(watcher, k -> new HashMap<>()).put(username, online);
+            }
+        }
+        for (Map.Entry<String, Map<String, Boolean>> batch : batches.entrySet()) {
+            pushRegistry.push(batch.getKey(), "presence", batch.getValue());
+        }
+    }
+
+    /**
+     * Remove a watcher from a contact's reverse index
+     */
+    private void removeWatcher(String contact, String watcher) {
+        watchersByUser.computeIfPresent(contact, (k, watchers) -> {
+            watchers.remove(watcher);
+            return watchers.isEmpty() ? null : watchers;
+        });
+    }
+
+    /**
+     * PresenceEntry - Liveness state of one online user
+     */
+    private static final class PresenceEntry {
+        private final String username;
+        private final HierarchicalTimingWheel.Timeout<PresenceEntry> timeout;
+        private long lastHeartbeat;
+        private boolean expired;
+
+        private PresenceEntry(String username, long now) {
+            this.username = username;
+            this.lastHeartbeat = now;
+            this.timeout = new HierarchicalTimingWheel.Timeout<>(this);
+        }
+
+        /**
+         * Refresh the heartbeat unless the entry already expired
+         *
+         * @return false if the entry expired and must be replaced
+         */
+        private synchronized boolean touch(long now) {
+            if (expired) {
+                return false;
+            }
+            lastHeartbeat = now;
+            return true;
+        }
+    }
+}
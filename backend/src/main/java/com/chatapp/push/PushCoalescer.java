@@ -0,0 +1,380 @@
+package com.chatapp.push;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PushCoalescer - Batches pushes to the same recipient into fewer frames
+ *
+ * This class manages:
+ * - A pending queue of events per connected recipient
+ * - Flushing a recipient's queue as one frame per event type on a bounded thread pool
+ * - Fan-out of broadcast events to every connected user off the caller's thread
+ * - Frame and message counters with per-second rates
+ *
+ * Callers never write to a connection: push() only queues the event, so a
+ * slow or stalled client cannot hold up the request that produced it. The
+ * window adapts to load. An event for a recipient who has not been sent a
+ * frame within the last window is handed to the flush pool at once, so an
+ * idle conversation sees no added delay. Events arriving within the window
+ * after a frame are held and flushed together when it ends, or as soon as
+ * {@code maxBatch} are pending. A recipient has at most one flush queued or
+ * running, which keeps frames in order; events arriving during a flush go
+ * out in the next one. If the pool's queue is full the flush is retried
+ * after a window (at least 1ms) rather than run on the caller's thread, and
+ * the events stay pending meanwhile. A frame never holds more than
+ * {@code maxBatch} events. A flush of one event is sent unchanged;
+ * several events of the same type are sent as one frame named with an "s" suffix ("message" becomes "messages") whose
+ * payload is the list of events, oldest first. A window of 0 turns
+ * batching off.
+ */
+public class PushCoalescer implements PushRegistry.ConnectionListener {
+    public static final long DEFAULT_WINDOW_MS = 5;
+    public static final int DEFAULT_MAX_BATCH = 64;
+    public static final int FLUSH_THREADS = 4;
+    public static final int MAX_QUEUED_FLUSHES = 10_000;
+
+    private final PushRegistry pushRegistry;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final Map<String, Recipient> recipients;
+    private final List<DeliveryListener> listeners;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor flushExecutor;
+    private final long retryNanos;
+    private final LongAdder frames;
+    private final LongAdder messages;
+    private volatile long lastFrames;
+    private volatile long lastMessages;
+    private volatile long framesPerSecond;
+    private volatile long messagesPerSecond;
+
+    /**
+     * Constructor - Coalesce with the default window and batch cap
+     *
+     * @param pushRegistry - Connections to deliver to
+     */
+    public PushCoalescer(PushRegistry pushRegistry) {
+        this(pushRegistry, DEFAULT_WINDOW_MS, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * Constructor - Coalesce and register for disconnect events
+     *
+     * @param pushRegistry - Connections to deliver to
+     * @param windowMs - Longest an event is held after a frame to the same recipient (0 = never)
+     * @param maxBatch - Pending events that trigger an immediate flush
+     */
+    public PushCoalescer(PushRegistry pushRegistry, long windowMs, int maxBatch) {
+        this.pushRegistry = pushRegistry;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.recipients = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.frames = new LongAdder();
+        this.messages = new LongAdder();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "push-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        this.flushExecutor = new ThreadPoolExecutor(FLUSH_THREADS, FLUSH_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_FLUSHES), r -> {
+                    Thread thread = new Thread(r, "push-flush-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.retryNanos = Math.max(windowNanos, TimeUnit.MILLISECONDS.toNanos(1));
+        pushRegistry.addListener(this);
+    }
+
+    /**
+     * Start computing per-second rates
+     */
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::sampleRates, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Flush everything pending and stop
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                flushExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flushExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (Map.Entry<String, Recipient> entry : recipients.entrySet()) {
+            send(entry.getKey(), take(entry.getValue()));
+        }
+    }
+
+    /**
+     * Queue an event for every open connection of a user, possibly batched with others
+     *
+     * @param username - Target user
+     * @param eventType - Event name
+     * @param payload - Event payload
+     * @return false if the user has no open connection, true if the event was queued
+     */
+    public boolean push(String username, String eventType, Object payload) {
+        if (!pushRegistry.isConnected(username)) {
+            return false;
+        }
+        Recipient recipient = recipients.computeIfAbsent(username, k -> new Recipient(windowNanos));
+        synchronized (recipient) {
+            recipient.types.add(eventType);
+            recipient.payloads.add(payload);
+            if (!recipient.scheduled) {
+                recipient.scheduled = true;
+                long delay = recipient.payloads.size() >= maxBatch
+                        ? 0 : windowNanos - (System.nanoTime() - recipient.lastFlushNanos);
+                scheduleFlush(username, recipient, delay);
+            } else if (recipient.payloads.size() == maxBatch && !recipient.flushing) {
+                // Cap reached while waiting for the window: replace the timer with an immediate flush
+                scheduleFlush(username, recipient, 0);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queue an event for every connected user except one, fanned out on the flush pool
+     *
+     * Recipients are the users connected when the fan-out runs, which may
+     * include someone who connected just after the call.
+     *
+     * @param eventType - Event name
+     * @param payload - Event payload
+     * @param excludedUser - User to skip, usually the sender (null = nobody)
+     */
+    public void pushToAll(String eventType, Object payload, String excludedUser) {
+        schedule(() -> {
+            for (String username : pushRegistry.getConnectedUsers()) {
+                if (!username.equals(excludedUser)) {
+                    push(username, eventType, payload);
+                }
+            }
+        }, 0);
+    }
+
+    /**
+     * Add a listener told about every delivered frame
+     *
+     * @param listener - DeliveryListener implementation
+     */
+    public void addListener(DeliveryListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void onConnected(PushConnection connection) {
+        // State is created on the first push
+    }
+
+    @Override
+    public void onDisconnected(PushConnection connection) {
+        String username = connection.getUsername();
+        if (!pushRegistry.isConnected(username)) {
+            recipients.remove(username);
+        }
+    }
+
+    /**
+     * Get the average number of events per frame since startup
+     *
+     * @return Events per frame, 0 before the first frame
+     */
+    public double getMessagesPerFrame() {
+        long frameCount = frames.sum();
+        return frameCount > 0 ? (double) messages.sum() / frameCount : 0;
+    }
+
+    /**
+     * Flush a recipient after a delay, superseding any flush scheduled before; caller holds the recipient lock
+     */
+    private void scheduleFlush(String username, Recipient recipient, long delayNanos) {
+        long token = ++recipient.token;
+        schedule(() -> flushScheduled(username, recipient, token), delayNanos);
+    }
+
+    /**
+     * Run a task on the flush pool after a delay, retrying later while the pool's queue is full
+     */
+    private void schedule(Runnable task, long delayNanos) {
+        try {
+            if (delayNanos > 0) {
+                scheduler.schedule(() -> schedule(task, 0), delayNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+            try {
+                flushExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (flushExecutor.isShutdown()) {
+                    throw e;
+                }
+                scheduler.schedule(() -> schedule(task, 0), retryNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Shutting down: send now rather than hold the events forever
+            task.run();
+        }
+    }
+
+    /**
+     * Send a recipient's pending events, then schedule the next flush if more arrived meanwhile
+     */
+    private void flushScheduled(String username, Recipient recipient, long token) {
+        Map<String, List<Object>> byType;
+        synchronized (recipient) {
+            if (token != recipient.token) {
+                return;
+            }
+            recipient.flushing = true;
+            byType = take(recipient);
+        }
+        try {
+            send(username, byType);
+        } finally {
+            synchronized (recipient) {
+                recipient.flushing = false;
+                recipient.lastFlushNanos = System.nanoTime();
+                if (recipient.payloads.isEmpty()) {
+                    recipient.scheduled = false;
+                } else {
+                    scheduleFlush(username, recipient,
+                            recipient.payloads.size() >= maxBatch ? 0 : windowNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a recipient's pending events, grouped by event type in order of first appearance
+     */
+    private static Map<String, List<Object>> take(Recipient recipient) {
+        Map<String, List<Object>> byType = new LinkedHashMap<>();
+        synchronized (recipient) {
+            for (int i = 0; i < recipient.payloads.size(); i++) {
+                byType.computeIfAbsent(recipient.types.get(i), k -> new ArrayList<>()).add(recipient.payloads.get(i));
+            }
+            recipient.types.clear();
+            recipient.payloads.clear();
+        }
+        return byType;
+    }
+
+    /**
+     * Send grouped events to every open connection of a user, one frame per event type and batch cap
+     */
+    private void send(String username, Map<String, List<Object>> byType) {
+        int frameSize = windowNanos == 0 ? 1 : maxBatch;
+        for (Map.Entry<String, List<Object>> batch : byType.entrySet()) {
+            List<Object> events = batch.getValue();
+            for (int i = 0; i < events.size(); i += frameSize) {
+                sendFrame(username, batch.getKey(), events.subList(i, Math.min(i + frameSize, events.size())));
+            }
+        }
+    }
+
+    /**
+     * Send one frame of events of the same type and tell the listeners if it reached a connection
+     */
+    private void sendFrame(String username, String eventType, List<Object> payloads) {
+        int delivered = payloads.size() == 1
+                ? pushRegistry.push(username, eventType, payloads.get(0))
+                : pushRegistry.push(username, eventType + "s", payloads);
+        if (delivered == 0) {
+            return;
+        }
+        frames.increment();
+        messages.add(payloads.size());
+        for (DeliveryListener listener : listeners) {
+            listener.onDelivered(username, eventType, payloads);
+        }
+    }
+
+    private void sampleRates() {
+        long frameCount = frames.sum();
+        long messageCount = messages.sum();
+        framesPerSecond = frameCount - lastFrames;
+        messagesPerSecond = messageCount - lastMessages;
+        lastFrames = frameCount;
+        lastMessages = messageCount;
+    }
+
+    // Getters
+    public long getFrameCount() {
+        return frames.sum();
+    }
+
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    public long getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public long getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public long getWindowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(windowNanos);
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    /**
+     * Recipient - Pending events of one user
+     */
+    private static final class Recipient {
+        private final List<String> types = new ArrayList<>();
+        private final List<Object> payloads = new ArrayList<>();
+        private long lastFlushNanos;
+        // A flush is queued or running; token identifies the current one
+        private boolean scheduled;
+        private boolean flushing;
+        private long token;
+
+        Recipient(long windowNanos) {
+            // Start idle so the first event is sent at once
+            this.lastFlushNanos = System.nanoTime() - windowNanos;
+        }
+    }
+
+    /**
+     * Interface for listeners to delivered frames
+     */
+    public interface DeliveryListener {
+        /**
+         * Called after a frame reached at least one connection
+         *
+         * @param username - Recipient
+         * @param eventType - Type of the events in the frame (singular form)
+         * @param payloads - Events in the frame, oldest first
+         */
+        void onDelivered(String username, String eventType, List<Object> payloads);
+    }
+}
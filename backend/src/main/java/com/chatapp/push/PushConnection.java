@@ -0,0 +1,33 @@
+package com.chatapp.push;
+
+/**
+ * PushConnection - A server-to-client push channel for one connected user
+ *
+ * Implementations wrap a concrete transport (e.g. Server-Sent Events) and
+ * deliver named events with a JSON-serializable payload.
+ */
+public interface PushConnection {
+
+    /**
+     * Get the username this connection belongs to
+     *
+     * @return Username of the connected user
+     */
+    String getUsername();
+
+    /**
+     * Send an event to the client
+     *
+     * @param eventType - Event name (e.g. "message", "presence")
+     * @param payload - Event payload, serialized as JSON by the transport
+     * @return true if the event was written, false if the connection is closed
+     */
+    boolean send(String eventType, Object payload);
+
+    /**
+     * Check if the connection is still open
+     *
+     * @return true if events can still be delivered
+     */
+    boolean isOpen();
+}
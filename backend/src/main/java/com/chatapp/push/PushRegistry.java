@@ -0,0 +1,132 @@
+package com.chatapp.push;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * PushRegistry - Tracks open push connections per user
+ *
+ * This registry manages:
+ * - Registration of push connections (a user may have several devices)
+ * - Event delivery to all connections of a user
+ * - Connect/disconnect notifications to interested services
+ */
+public class PushRegistry {
+    private final Map<String, List<PushConnection>> connections;
+    private final List<ConnectionListener> listeners;
+
+    /**
+     * Constructor - Initialize PushRegistry
+     */
+    public PushRegistry() {
+        this.connections = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Register a newly opened connection
+     *
+     * @param connection - Connection to register
+     */
+    public void register(PushConnection connection) {
+        // Add inside compute so a concurrent unregister cannot drop the list in between
+        connections.compute(connection.getUsername(), (username, userConnections) -> {
+            List<PushConnection> list = userConnections != null ? userConnections : new CopyOnWriteArrayList<>();
+            list.add(connection);
+            return list;
+        });
+        for (ConnectionListener listener : listeners) {
+            listener.onConnected(connection);
+        }
+    }
+
+    /**
+     * Remove a closed connection
+     *
+     * @param connection - Connection to remove
+     */
+    public void unregister(PushConnection connection) {
+        boolean[] removed = new boolean[1];
+        connections.computeIfPresent(connection.getUsername(), (username, userConnections) -> {
+            removed[0] = userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+        if (removed[0]) {
+            for (ConnectionListener listener : listeners) {
+                listener.onDisconnected(connection);
+            }
+        }
+    }
+
+    /**
+     * Push an event to every open connection of a user
+     *
+     * @param username - Target user
+     * @param eventType - Event name
+     * @param payload - Event payload
+     * @return Number of connections the event was delivered to
+     */
+    public int push(String username, String eventType, Object payload) {
+        List<PushConnection> userConnections = connections.get(username);
+        if (userConnections == null) {
+            return 0;
+        }
+        int delivered = 0;
+        for (PushConnection connection : userConnections) {
+            if (connection.send(eventType, payload)) {
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Check if a user has at least one open connection
+     *
+     * @param username - User to check
+     * @return true if the user is connected
+     */
+    public boolean isConnected(String username) {
+        List<PushConnection> userConnections = connections.get(username);
+        return userConnections != null && !userConnections.isEmpty();
+    }
+
+    /**
+     * Get the users with at least one open connection
+     *
+     * @return Live view of connected usernames
+     */
+    public Set<String> getConnectedUsers() {
+        return connections.keySet();
+    }
+
+    /**
+     * Get the number of users with an open connection
+     *
+     * @return Connected user count
+     */
+    public int getConnectedUserCount() {
+        return connections.size();
+    }
+
+    /**
+     * Add listener for connection events
+     *
+     * @param listener - ConnectionListener implementation
+     */
+    public void addListener(ConnectionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Interface for connection lifecycle listeners
+     */
+    public interface ConnectionListener {
+        void onConnected(PushConnection connection);
+
+        void onDisconnected(PushConnection connection);
+    }
+}
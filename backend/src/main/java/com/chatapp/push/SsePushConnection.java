@@ -0,0 +1,81 @@
+package com.chatapp.push;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * SsePushConnection - PushConnection backed by a Server-Sent Events stream
+ *
+ * SseEmitter is not safe for concurrent sends, so writes are serialized
+ * per connection. A failed write marks the connection closed and removes
+ * it from the registry.
+ */
+public class SsePushConnection implements PushConnection {
+    private final String username;
+    private final SseEmitter emitter;
+    private final PushRegistry registry;
+    private volatile boolean open;
+
+    /**
+     * Constructor - Wrap an emitter and register it
+     *
+     * @param username - Connected user
+     * @param timeoutMs - Emitter timeout in milliseconds (0 = no timeout)
+     * @param registry - Registry the connection belongs to
+     */
+    public SsePushConnection(String username, long timeoutMs, PushRegistry registry) {
+        this.username = username;
+        this.emitter = new SseEmitter(timeoutMs);
+        this.registry = registry;
+        this.open = true;
+
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(e -> close());
+    }
+
+    /**
+     * Get the underlying emitter to return from a controller
+     *
+     * @return SseEmitter for this connection
+     */
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public synchronized boolean send(String eventType, Object payload) {
+        if (!open) {
+            return false;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(eventType).data(payload, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            close();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Mark connection closed and unregister it
+     */
+    private void close() {
+        if (open) {
+            open = false;
+            registry.unregister(this);
+        }
+    }
+}
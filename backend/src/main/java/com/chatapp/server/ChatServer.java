@@ -1,12 +1,33 @@
 package com.chatapp.server;
 
+import com.chatapp.auth.UserDictionary;
 import com.chatapp.database.DatabaseConnection;
+import com.chatapp.filter.ContentFilter;
+import com.chatapp.journal.JournalRecord;
+import com.chatapp.journal.MessageJournal;
+import com.chatapp.tracing.Span;
+import com.chatapp.tracing.Tracer;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * ChatServer - Handles message sending, receiving, and delivery
@@ -15,17 +36,158 @@ import java.util.List;
  * - Message storage in database
  * - Message delivery to recipients
  * - Message history retrieval
+ * - Delta sync by message ID
+ * - Streaming a user's full history for export
+ * 
+ * Rows reference users by user_id (a NULL recipient_id is a broadcast);
+ * the UserDictionary translates so callers keep using usernames. Each
+ * row also carries a conversation_key, so history reads are one range
+ * scan on (conversation_key, message_id). The
+ * newest history page of active conversations is served from a
+ * RecentMessageCache of compact messages. History and sync reads may be
+ * served by a read replica; a write keeps both participants' reads on the
+ * primary for the read-your-writes window.
+ * 
+ * When the database has message shards, a message is stored on the shard
+ * of its conversation key and history reads go to that shard only. Sync
+ * and mailbox reads cover all of a user's conversations, so they query
+ * every shard in parallel and merge the results by message ID.
+ * 
+ * Message IDs are assigned here, right before the insert, by a
+ * MessageIdGenerator: they are unique across nodes and shards and
+ * ordered by send time, so the insert needs no generated keys and
+ * caches, pushes and client deduplication all use the ID the send
+ * returned. The exception is a journaled send: it returns JOURNALED
+ * instead of an ID and gets its ID when replayed, since sync and mailbox
+ * cursors may have moved past any ID issued at acceptance by then.
+ * 
+ * Each direct message also updates the sender's and recipient's rows in
+ * the conversations table, in the same transaction as the insert, so an
+ * inbox is one indexed read of the user's rows (cached per user in an
+ * InboxCache) rather than a GROUP BY over their history. The rows live
+ * on the conversation's shard.
+ * 
+ * Content passes a ContentFilter before an ID is assigned: a rejected
+ * message is not stored or journaled, masked terms are stored masked
+ * and flagged messages are logged with their ID for moderation.
+ * 
+ * With a MessageJournal, a send that fails because the database is
+ * unreachable is appended to the journal and acknowledged instead. While
+ * journaled messages are pending, new sends go to the journal too, so a
+ * JournalReplayer stores them in the order they were accepted; listeners
+ * are notified when a message reaches the database.
  */
 public class ChatServer {
+    public static final String BROADCAST_RECIPIENT = "broadcast";
+    public static final long REJECTED = -2;
+    public static final long JOURNALED = -3;
+    public static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final String MESSAGE_COLUMNS = "message_id, sender_id, recipient_id, content, sent_at, is_read";
+    private static final String INSERT_MESSAGE = "INSERT INTO messages"
+            + " (message_id, sender_id, recipient_id, content, sent_at, conversation_key) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_CONVERSATION = "UPDATE conversations SET unread_count = unread_count + ?,"
+            + " last_sender_id = CASE WHEN last_message_id < ? THEN ? ELSE last_sender_id END,"
+            + " preview = CASE WHEN last_message_id < ? THEN ? ELSE preview END,"
+            + " last_sent_at = CASE WHEN last_message_id < ? THEN ? ELSE last_sent_at END,"
+            + " last_message_id = GREATEST(last_message_id, ?)"
+            + " WHERE user_id = ? AND peer_id = ?";
+    static final String INSERT_CONVERSATION = "INSERT INTO conversations (user_id, peer_id, conversation_key,"
+            + " last_message_id, last_sender_id, preview, last_sent_at, unread_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String EXPORT_QUERY = "SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE sender_id = ?"
+            + " UNION ALL SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE recipient_id = ? AND sender_id <> ?"
+            + " ORDER BY message_id ASC";
+    private static final String CONVERSATION_COLUMNS = "peer_id, last_message_id, last_sender_id, preview, last_sent_at, unread_count";
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String JOURNALED_EXISTS = "SELECT 1 FROM journaled_messages WHERE accepted_id = ?"
+            + " UNION ALL SELECT 1 FROM messages WHERE message_id = ?";
+    private static final String INSERT_JOURNALED = "INSERT INTO journaled_messages (accepted_id, message_id)"
+            + " VALUES (?, ?)";
+    private static final String MARK_READ = "UPDATE conversations SET unread_count ="
+            + " (SELECT COUNT(*) FROM messages WHERE conversation_key = ? AND sender_id = ? AND message_id > ?)"
+            + " WHERE user_id = ? AND peer_id = ?";
+    private static final int MARK_READ_CHUNK = 500;
+    private static final Comparator<Message> OLDEST_FIRST = Comparator.comparingLong(Message::getMessageId);
+
     private DatabaseConnection dbConnection;
     private List<ChatListener> listeners;
+    private final UserDictionary userDictionary;
+    private final RecentMessageCache recentCache;
+    private final MessageJournal journal;
+    private final InboxCache inboxCache;
+    private final MessageIdGenerator idGenerator;
+    private final ContentFilter contentFilter;
+    private volatile ExecutorService shardQueries;
 
     /**
      * Constructor - Initialize ChatServer
      */
     public ChatServer() {
-        this.dbConnection = new DatabaseConnection();
+        this(new DatabaseConnection());
+    }
+
+    /**
+     * Constructor - Initialize ChatServer with a shared database connection
+     * 
+     * @param dbConnection - Database used for message storage
+     */
+    public ChatServer(DatabaseConnection dbConnection) {
+        this(dbConnection, new UserDictionary(dbConnection));
+    }
+
+    /**
+     * Constructor - Initialize ChatServer with a shared database connection and user dictionary
+     * 
+     * @param dbConnection - Database used for message storage
+     * @param userDictionary - Username to user_id dictionary over the same database
+     */
+    public ChatServer(DatabaseConnection dbConnection, UserDictionary userDictionary) {
+        this(dbConnection, userDictionary, null);
+    }
+
+    /**
+     * Constructor - Initialize ChatServer that journals sends while the database is unreachable
+     * 
+     * @param dbConnection - Database used for message storage
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param journal - Journal for messages accepted during an outage, or null to fail those sends
+     */
+    public ChatServer(DatabaseConnection dbConnection, UserDictionary userDictionary, MessageJournal journal) {
+        this(dbConnection, userDictionary, journal, new MessageIdGenerator(0));
+    }
+
+    /**
+     * Constructor - Initialize ChatServer with this node's message ID generator
+     * 
+     * @param dbConnection - Database used for message storage
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param journal - Journal for messages accepted during an outage, or null to fail those sends
+     * @param idGenerator - Generator with a node ID no other running node uses
+     */
+    public ChatServer(DatabaseConnection dbConnection, UserDictionary userDictionary, MessageJournal journal,
+                      MessageIdGenerator idGenerator) {
+        this(dbConnection, userDictionary, journal, idGenerator, new ContentFilter());
+    }
+
+    /**
+     * Constructor - Initialize ChatServer that filters message content before storing it
+     * 
+     * @param dbConnection - Database used for message storage
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param journal - Journal for messages accepted during an outage, or null to fail those sends
+     * @param idGenerator - Generator with a node ID no other running node uses
+     * @param contentFilter - Filter applied to every message sent through this server
+     */
+    public ChatServer(DatabaseConnection dbConnection, UserDictionary userDictionary, MessageJournal journal,
+                      MessageIdGenerator idGenerator, ContentFilter contentFilter) {
+        this.dbConnection = dbConnection;
         this.listeners = new ArrayList<>();
+        this.userDictionary = userDictionary;
+        this.recentCache = new RecentMessageCache(userDictionary);
+        this.inboxCache = new InboxCache();
+        this.journal = journal;
+        this.idGenerator = idGenerator;
+        this.contentFilter = contentFilter;
     }
 
     /**
@@ -34,38 +196,384 @@ public class ChatServer {
      * @param senderUsername - Username of sender
      * @param recipientUsername - Username of recipient
      * @param messageContent - Content of the message
-     * @return true if message sent successfully, false otherwise
+     * @return true if message was stored or journaled, false otherwise
      */
     public boolean sendMessage(String senderUsername, String recipientUsername, String messageContent) {
-        try (Connection conn = dbConnection.getConnection()) {
-            String query = "INSERT INTO messages (sender, recipient, content, sent_at) VALUES (?, ?, ?, ?)";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setString(1, senderUsername);
-            stmt.setString(2, recipientUsername);
-            stmt.setString(3, messageContent);
-            stmt.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+        long messageId = storeMessage(senderUsername, recipientUsername, messageContent);
+        return messageId >= 0 || messageId == JOURNALED;
+    }
 
-            stmt.executeUpdate();
+    /**
+     * Store message in database and notify listeners
+     * 
+     * @param sender - Sender username
+     * @param recipient - Recipient username
+     * @param messageContent - Content of message
+     * @return Message ID if stored, JOURNALED if journaled for later storage (the message has no ID
+     *         until it is replayed), REJECTED if the content filter
+     *         rejected it, -1 otherwise
+     */
+    public long storeMessage(String sender, String recipient, String messageContent) {
+        try (Span span = Tracer.span("ChatServer.storeMessage")) {
+            ContentFilter.Result verdict = contentFilter.check(messageContent);
+            if (verdict.getAction() != null) {
+                span.tag("filter", verdict.getAction().name());
+            }
+            if (verdict.isRejected()) {
+                return REJECTED;
+            }
+            messageContent = verdict.getContent();
+            long messageId = storeFiltered(span, sender, recipient, messageContent);
+            if (verdict.isFlagged() && (messageId > 0 || messageId == JOURNALED)) {
+                System.err.println("Flagged message " + (messageId > 0 ? messageId : "(journaled)") + " from "
+                        + sender + ": " + verdict.getTerms());
+            }
+            return messageId;
+        }
+    }
 
-            // Notify listeners about new message
-            notifyListeners(senderUsername, messageContent);
-            return true;
+    /**
+     * Store a message that passed the content filter, or journal it if the database is unavailable
+     * 
+     * The ID is taken right before the INSERT, after the user lookups and
+     * the connection checkout, so an ID is committed shortly after it is
+     * issued. Readers re-read a commit window below their cursors for the
+     * rest, see MessageIdGenerator.DEFAULT_COMMIT_WINDOW_MS.
+     * 
+     * @return Message ID if stored, JOURNALED if journaled, -1 otherwise
+     */
+    private long storeFiltered(Span span, String sender, String recipient, String messageContent) {
+        Timestamp sentAt = new Timestamp(System.currentTimeMillis());
+        if (journal != null && journal.hasPending()) {
+            // Queue behind messages accepted during the outage to keep their order
+            span.tag("journaled", "true");
+            return journalMessage(idGenerator.nextId(), sentAt, sender, recipient, messageContent);
+        }
+
+        try {
+            int senderId = userDictionary.lookupId(sender);
+            boolean broadcast = BROADCAST_RECIPIENT.equals(recipient);
+            int recipientId = broadcast ? 0 : userDictionary.lookupId(recipient);
+            if (senderId == 0 || (!broadcast && recipientId == 0)) {
+                System.err.println("Error sending message: unknown user " + (senderId == 0 ? sender : recipient));
+                return -1;
+            }
+
+            DatabaseConnection shard = dbConnection.shardFor(conversationKey(senderId, recipientId));
+            Message message = insertDirect(shard, senderId, recipientId, sender, recipient, messageContent, sentAt);
+            stored(message);
+            return message.getMessageId();
         } catch (SQLException e) {
+            span.error(e);
+            if (journal != null && DatabaseConnection.isConnectionFailure(e)) {
+                System.err.println("Database unavailable, journaling message: " + e.getMessage());
+                span.tag("journaled", "true");
+                return journalMessage(idGenerator.nextId(), sentAt, sender, recipient, messageContent);
+            }
             System.err.println("Error sending message: " + e.getMessage());
-            return false;
+            return -1;
         }
     }
 
     /**
-     * Store message in database
+     * Insert a message and update both participants' conversations rows in one transaction
      * 
-     * @param sender - Sender username
-     * @param recipient - Recipient username
-     * @param messageContent - Content of message
-     * @return Message ID if successful, -1 otherwise
+     * Two first messages between the same pair racing each other can both
+     * try to create the conversations rows; the loser is retried once and
+     * then finds the rows to update. Each attempt takes a new ID once it
+     * holds a connection.
+     * 
+     * @return Stored message
      */
-    public long storeMessage(String sender, String recipient, String messageContent) {
-        return sendMessage(sender, recipient, messageContent) ? 1 : -1;
+    private Message insertDirect(DatabaseConnection shard, int senderId, int recipientId, String sender,
+                                 String recipient, String content, Timestamp sentAt) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = shard.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    long messageId = idGenerator.nextId();
+                    PreparedStatement insert = conn.prepareStatement(INSERT_MESSAGE);
+                    Message message = bindMessage(insert, messageId, senderId, recipientId, sender, recipient,
+                            content, sentAt);
+                    insert.executeUpdate();
+                    updateConversations(conn.prepareStatement(UPDATE_CONVERSATION),
+                            conn.prepareStatement(INSERT_CONVERSATION), message, senderId, recipientId);
+                    conn.commit();
+                    return message;
+                } catch (SQLException e) {
+                    try {
+                        conn.rollback();
+                    } catch (SQLException rollbackError) {
+                        e.addSuppressed(rollbackError);
+                    }
+                    if (attempt > 1 || !UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Upsert the sender's and recipient's conversations rows for a stored message
+     * 
+     * Rows are updated first and only missing ones inserted. A row keeps
+     * the newest message even if an older one commits after it; the
+     * recipient's unread count goes up by one. Broadcasts have no
+     * conversation.
+     */
+    private static void updateConversations(PreparedStatement update, PreparedStatement insert, Message message,
+                                            int senderId, int recipientId) throws SQLException {
+        if (recipientId == 0) {
+            return;
+        }
+        int[][] sides = senderId == recipientId ? new int[][] {{senderId, senderId, 0}}
+                : new int[][] {{senderId, recipientId, 0}, {recipientId, senderId, 1}};
+        for (int[] side : sides) {
+            bindConversationUpdate(update, message, senderId, side[0], side[1], side[2]);
+            update.addBatch();
+        }
+        int[] updated = update.executeBatch();
+        boolean inserts = false;
+        for (int i = 0; i < sides.length; i++) {
+            if (updated[i] == 0) {
+                bindConversationInsert(insert, message, senderId, recipientId, sides[i][0], sides[i][1], sides[i][2]);
+                insert.addBatch();
+                inserts = true;
+            }
+        }
+        if (inserts) {
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Bind a prepared UPDATE_CONVERSATION for one side of a conversation
+     * 
+     * @param message - Newest message of the conversation, with its ID and time
+     * @param senderId - Sender of that message
+     * @param userId - Owner of the row
+     * @param peerId - Other participant
+     * @param unread - Amount to add to the row's unread count
+     */
+    static void bindConversationUpdate(PreparedStatement update, Message message, int senderId,
+                                       int userId, int peerId, int unread) throws SQLException {
+        update.setInt(1, unread);
+        update.setLong(2, message.getMessageId());
+        update.setInt(3, senderId);
+        update.setLong(4, message.getMessageId());
+        update.setString(5, ConversationSummary.preview(message.getContent()));
+        update.setLong(6, message.getMessageId());
+        update.setTimestamp(7, message.getSentAt());
+        update.setLong(8, message.getMessageId());
+        update.setInt(9, userId);
+        update.setInt(10, peerId);
+    }
+
+    /**
+     * Bind a prepared INSERT_CONVERSATION for one side of a conversation
+     * 
+     * @param message - Newest message of the conversation, with its ID and time
+     * @param senderId - Sender of that message
+     * @param recipientId - Recipient of that message
+     * @param userId - Owner of the row
+     * @param peerId - Other participant
+     * @param unread - Initial unread count
+     */
+    static void bindConversationInsert(PreparedStatement insert, Message message, int senderId, int recipientId,
+                                       int userId, int peerId, int unread) throws SQLException {
+        insert.setInt(1, userId);
+        insert.setInt(2, peerId);
+        insert.setLong(3, conversationKey(senderId, recipientId));
+        insert.setLong(4, message.getMessageId());
+        insert.setInt(5, senderId);
+        insert.setString(6, ConversationSummary.preview(message.getContent()));
+        insert.setTimestamp(7, message.getSentAt());
+        insert.setInt(8, unread);
+    }
+
+    /**
+     * Store journaled messages, one transaction per shard, skipping records already stored
+     * 
+     * Users are resolved on the primary first, so an outage fails the
+     * batch rather than making a user look unknown. Records whose users
+     * do not exist are dropped. Each message gets its ID here, newer than
+     * any cursor that other shards or nodes have advanced while it waited;
+     * the record's own ID is recorded in journaled_messages, so a record
+     * already stored is found by that key.
+     * 
+     * @param records - Journal records in acceptance order
+     * @return Number of messages inserted
+     * @throws SQLException - If a shard's batch fails; none of that shard's part is stored
+     */
+    int storeJournaled(List<JournalRecord> records) throws SQLException {
+        Map<DatabaseConnection, List<PendingInsert>> byShard = new LinkedHashMap<>();
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement lookup = conn.prepareStatement("SELECT user_id FROM users WHERE username = ?");
+            Map<String, Integer> ids = new HashMap<>();
+            for (JournalRecord record : records) {
+                boolean broadcast = BROADCAST_RECIPIENT.equals(record.getRecipient());
+                int senderId = resolveUser(lookup, ids, record.getSender());
+                int recipientId = broadcast ? 0 : resolveUser(lookup, ids, record.getRecipient());
+                if (senderId == 0 || (!broadcast && recipientId == 0)) {
+                    System.err.println("Dropping journaled message: unknown user "
+                            + (senderId == 0 ? record.getSender() : record.getRecipient()));
+                    continue;
+                }
+                byShard.computeIfAbsent(dbConnection.shardFor(conversationKey(senderId, recipientId)),
+                        k -> new ArrayList<>()).add(new PendingInsert(record, senderId, recipientId));
+            }
+        }
+
+        List<Message> inserted = new ArrayList<>();
+        for (Map.Entry<DatabaseConnection, List<PendingInsert>> shard : byShard.entrySet()) {
+            inserted.addAll(insertJournaled(shard.getKey(), shard.getValue()));
+        }
+        inserted.sort(Comparator.comparingLong(Message::getMessageId));
+        for (Message message : inserted) {
+            stored(message);
+        }
+        return inserted.size();
+    }
+
+    /**
+     * Insert one shard's part of a journal batch in a single transaction
+     * 
+     * The messages and their journaled_messages rows go in as JDBC
+     * batches; conversations rows are upserted per message in the same
+     * transaction. A record stored before accepted IDs were recorded is
+     * still found under its accepted ID in messages.
+     */
+    private List<Message> insertJournaled(DatabaseConnection shard, List<PendingInsert> pending) throws SQLException {
+        List<Message> inserted = new ArrayList<>();
+        try (Connection conn = shard.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement exists = conn.prepareStatement(JOURNALED_EXISTS);
+                PreparedStatement insert = conn.prepareStatement(INSERT_MESSAGE);
+                PreparedStatement insertAccepted = conn.prepareStatement(INSERT_JOURNALED);
+                PreparedStatement updateConversation = conn.prepareStatement(UPDATE_CONVERSATION);
+                PreparedStatement insertConversation = conn.prepareStatement(INSERT_CONVERSATION);
+                Set<Long> batched = new HashSet<>();
+                for (PendingInsert item : pending) {
+                    JournalRecord record = item.record;
+                    exists.setLong(1, record.getMessageId());
+                    exists.setLong(2, record.getMessageId());
+                    if (!batched.add(record.getMessageId()) || exists.executeQuery().next()) {
+                        continue;
+                    }
+                    long messageId = idGenerator.nextId();
+                    Message message = bindMessage(insert, messageId, item.senderId, item.recipientId,
+                            record.getSender(), record.getRecipient(), record.getContent(),
+                            new Timestamp(record.getSentAtMillis()));
+                    insert.addBatch();
+                    insertAccepted.setLong(1, record.getMessageId());
+                    insertAccepted.setLong(2, messageId);
+                    insertAccepted.addBatch();
+                    updateConversations(updateConversation, insertConversation, message, item.senderId, item.recipientId);
+                    inserted.add(message);
+                }
+                if (!inserted.isEmpty()) {
+                    insert.executeBatch();
+                    insertAccepted.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Get the number of journaled messages not yet stored in the database
+     * 
+     * @return Pending count, 0 without a journal
+     */
+    public long getJournalPendingCount() {
+        return journal != null ? journal.getPendingCount() : 0;
+    }
+
+    /**
+     * Bind the parameters of a prepared INSERT_MESSAGE for one message
+     * 
+     * @return Message as it will be stored
+     */
+    private static Message bindMessage(PreparedStatement stmt, long messageId, int senderId, int recipientId,
+                                       String sender, String recipient, String content, Timestamp sentAt)
+            throws SQLException {
+        stmt.setLong(1, messageId);
+        stmt.setInt(2, senderId);
+        if (recipientId == 0) {
+            stmt.setNull(3, Types.INTEGER);
+        } else {
+            stmt.setInt(3, recipientId);
+        }
+        stmt.setString(4, content);
+        stmt.setTimestamp(5, sentAt);
+        stmt.setLong(6, conversationKey(senderId, recipientId));
+
+        Message message = new Message(sender, recipient, content, sentAt);
+        message.setMessageId(messageId);
+        return message;
+    }
+
+    /**
+     * Publish a message that reached the database
+     */
+    private void stored(Message message) {
+        if (BROADCAST_RECIPIENT.equals(message.getRecipient())) {
+            dbConnection.recordWrite();
+        } else {
+            dbConnection.recordWrite(message.getSender(), message.getRecipient());
+        }
+        recentCache.append(message);
+        if (!BROADCAST_RECIPIENT.equals(message.getRecipient())) {
+            inboxCache.messageStored(message.getSender(), message.getRecipient(), message, 0);
+            if (!message.getSender().equals(message.getRecipient())) {
+                inboxCache.messageStored(message.getRecipient(), message.getSender(), message, 1);
+            }
+        }
+
+        // Notify listeners about new message
+        notifyListeners(message);
+    }
+
+    /**
+     * Append a message to the journal
+     * 
+     * @param messageId - Key of the journal record, used to deduplicate replays; never returned to the client
+     * @return JOURNALED once the record is durable, -1 if the journal failed
+     */
+    private long journalMessage(long messageId, Timestamp sentAt, String sender, String recipient,
+                                String messageContent) {
+        try {
+            journal.append(new JournalRecord(messageId, sentAt.getTime(), sender, recipient, messageContent));
+            return JOURNALED;
+        } catch (IOException e) {
+            System.err.println("Error journaling message: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Resolve a username on a replay connection, caching per batch
+     */
+    private int resolveUser(PreparedStatement lookup, Map<String, Integer> ids, String username) throws SQLException {
+        Integer id = ids.get(username);
+        if (id == null) {
+            lookup.setString(1, username);
+            ResultSet rs = lookup.executeQuery();
+            id = rs.next() ? rs.getInt(1) : 0;
+            ids.put(username, id);
+            userDictionary.register(id, username);
+        }
+        return id;
     }
 
     /**
@@ -77,22 +585,618 @@ public class ChatServer {
      */
     public List<Message> getConversationHistory(String user1, String user2) {
         List<Message> messages = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection()) {
-            String query = "SELECT * FROM messages WHERE (sender = ? AND recipient = ?) OR (sender = ? AND recipient = ?) ORDER BY sent_at ASC";
-            PreparedStatement stmt = conn.prepareStatement(query);
-            stmt.setString(1, user1);
-            stmt.setString(2, user2);
-            stmt.setString(3, user2);
-            stmt.setString(4, user1);
+        try {
+            long conversationKey = conversationKey(user1, user2);
+            if (conversationKey == 0) {
+                return messages;
+            }
+            try (Connection conn = dbConnection.shardFor(conversationKey).getReadConnection(user1, user2)) {
+                String query = "SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE conversation_key = ? ORDER BY message_id ASC";
+                PreparedStatement stmt = conn.prepareStatement(query);
+                stmt.setLong(1, conversationKey);
 
-            // Execute query and populate messages list
-            // Note: ResultSet processing would be implemented here
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
         } catch (SQLException e) {
             System.err.println("Error retrieving conversation history: " + e.getMessage());
         }
         return messages;
     }
 
+    /**
+     * Get one page of conversation history between two users
+     * 
+     * @param user1 - First user
+     * @param user2 - Second user
+     * @param beforeMessageId - Only return messages older than this ID (Long.MAX_VALUE for the newest page)
+     * @param limit - Maximum number of messages to return
+     * @return Up to limit messages, oldest first
+     */
+    public List<Message> getConversationHistory(String user1, String user2, long beforeMessageId, int limit) {
+        try (Span span = Tracer.span("ChatServer.getConversationHistory")) {
+            if (beforeMessageId != Long.MAX_VALUE || limit > RecentMessageCache.DEFAULT_MESSAGES_PER_CONVERSATION) {
+                return queryConversationPage(user1, user2, beforeMessageId, limit);
+            }
+            List<Message> cached = recentCache.getRecent(user1, user2, limit);
+            span.tag("cache", cached != null ? "hit" : "miss");
+            if (cached != null) {
+                return cached;
+            }
+
+            // Load the full cache page so later requests with any limit can hit
+            int pageSize = RecentMessageCache.DEFAULT_MESSAGES_PER_CONVERSATION;
+            Object load = recentCache.beginLoad(user1, user2);
+            List<Message> newest = queryConversationPage(user1, user2, Long.MAX_VALUE, pageSize);
+            if (newest == null) {
+                recentCache.abandonLoad(user1, user2, load);
+                return new ArrayList<>();
+            }
+            recentCache.completeLoad(load, newest, newest.size() < pageSize);
+            return new ArrayList<>(newest.subList(Math.max(0, newest.size() - limit), newest.size()));
+        }
+    }
+
+    /**
+     * Query one page of conversation history from the database
+     * 
+     * @return Up to limit messages oldest first, or null if the query failed
+     */
+    private List<Message> queryConversationPage(String user1, String user2, long beforeMessageId, int limit) {
+        List<Message> messages = new ArrayList<>();
+        try {
+            long conversationKey = conversationKey(user1, user2);
+            if (conversationKey == 0) {
+                return messages;
+            }
+            try (Connection conn = dbConnection.shardFor(conversationKey).getReadConnection(user1, user2)) {
+                String query = "SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE conversation_key = ?"
+                        + " AND message_id < ? ORDER BY message_id DESC LIMIT ?";
+                PreparedStatement stmt = conn.prepareStatement(query);
+                stmt.setLong(1, conversationKey);
+                stmt.setLong(2, beforeMessageId);
+                stmt.setInt(3, limit);
+
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving conversation history: " + e.getMessage());
+            return null;
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    /**
+     * Get messages newer than a given message ID across all of a user's conversations
+     * 
+     * Each branch of the UNION is a range scan on a (column, message_id)
+     * index, so the cost depends on the number of new rows, not on the
+     * size of the user's history.
+     * 
+     * @param username - User to sync
+     * @param sinceMessageId - Last message ID the client has seen
+     * @param limit - Maximum number of messages to return
+     * @return Messages with message_id greater than sinceMessageId, oldest first
+     */
+    public List<Message> getMessagesSince(String username, long sinceMessageId, int limit) {
+        try (Span span = Tracer.span("ChatServer.getMessagesSince")) {
+            try {
+                int userId = userDictionary.lookupId(username);
+                if (userId == 0) {
+                    return new ArrayList<>();
+                }
+                return fanOut(shard -> querySince(shard, username, userId, sinceMessageId, limit), OLDEST_FIRST, limit);
+            } catch (SQLException e) {
+                System.err.println("Error retrieving messages for sync: " + e.getMessage());
+                return new ArrayList<>();
+            }
+        }
+    }
+
+    private List<Message> querySince(DatabaseConnection shard, String username, int userId, long sinceMessageId,
+                                     int limit) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        try (Connection conn = shard.getReadConnection(username)) {
+            // recipient_id <> ? also excludes broadcasts (NULL), which the third branch returns
+            String query = "SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE recipient_id = ? AND message_id > ?"
+                    + " UNION ALL SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE sender_id = ? AND message_id > ? AND recipient_id <> ?"
+                    + " UNION ALL SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE recipient_id IS NULL AND message_id > ?"
+                    + " ORDER BY message_id ASC LIMIT ?";
+            PreparedStatement stmt = conn.prepareStatement(query);
+            stmt.setInt(1, userId);
+            stmt.setLong(2, sinceMessageId);
+            stmt.setInt(3, userId);
+            stmt.setLong(4, sinceMessageId);
+            stmt.setInt(5, userId);
+            stmt.setLong(6, sinceMessageId);
+            stmt.setInt(7, limit);
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                messages.add(mapMessage(rs));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Stream every message a user sent, and every direct message they received
+     * 
+     * Rows are read through a forward-only cursor fetching EXPORT_FETCH_SIZE
+     * rows per round trip and handed to the sink one at a time, so memory
+     * use does not depend on the size of the history; a sink that blocks,
+     * e.g. on a slow client, leaves the cursor where it is. Each branch of
+     * the UNION is a range scan on a (column, message_id) index, which the
+     * database merges in message_id order without a sort. With message
+     * shards, one cursor per shard is open at once and their rows are
+     * merged by message ID, holding one row per shard. Broadcasts from
+     * other users are not included.
+     * 
+     * @param username - User whose messages to export
+     * @param sink - Receives the messages, oldest first
+     * @return Number of messages exported
+     * @throws SQLException - If a query fails; the sink may already have received part of the export
+     * @throws IOException - If the sink fails
+     */
+    public long exportMessages(String username, MessageSink sink) throws SQLException, IOException {
+        try (Span span = Tracer.span("ChatServer.exportMessages")) {
+            int userId = userDictionary.lookupId(username);
+            if (userId == 0) {
+                return 0;
+            }
+            List<ExportCursor> cursors = new ArrayList<>();
+            PriorityQueue<ExportCursor> next = new PriorityQueue<>(
+                    Comparator.comparingLong(cursor -> cursor.current.getMessageId()));
+            long exported = 0;
+            try {
+                for (DatabaseConnection shard : dbConnection.getShards()) {
+                    ExportCursor cursor = new ExportCursor(shard.getReadConnection(username), userId);
+                    cursors.add(cursor);
+                    if (cursor.advance()) {
+                        next.add(cursor);
+                    }
+                }
+                while (!next.isEmpty()) {
+                    ExportCursor cursor = next.poll();
+                    sink.accept(cursor.current);
+                    exported++;
+                    if (cursor.advance()) {
+                        next.add(cursor);
+                    }
+                }
+            } finally {
+                span.tag("rows", String.valueOf(exported));
+                for (ExportCursor cursor : cursors) {
+                    cursor.close();
+                }
+            }
+            return exported;
+        }
+    }
+
+    /**
+     * Get messages delivered to a user after their mailbox cursor
+     * 
+     * One ranged query: the cursor is the larger of the caller's value and
+     * the persisted mailbox_cursors row, and each branch is a range scan on
+     * (recipient_id, message_id). The user's own broadcasts are left out.
+     * Reads the primary so a message that just woke the drain is seen.
+     * With message shards the cursor is read from the primary first and
+     * each shard's primary is queried in parallel.
+     * 
+     * @param username - Recipient
+     * @param knownCursor - Newest message ID known to be delivered (0 if unknown)
+     * @param limit - Maximum number of messages to return
+     * @return Undelivered messages oldest first, or null if the query failed
+     */
+    public List<Message> getMailbox(String username, long knownCursor, int limit) {
+        try (Span span = Tracer.span("ChatServer.getMailbox")) {
+            List<Message> messages = new ArrayList<>();
+            int userId;
+            try {
+                userId = userDictionary.lookupId(username);
+            } catch (SQLException e) {
+                System.err.println("Error reading mailbox: " + e.getMessage());
+                return null;
+            }
+            if (userId == 0) {
+                return messages;
+            }
+            if (dbConnection.isSharded()) {
+                try {
+                    long since = Math.max(knownCursor, readMailboxCursor(userId));
+                    return fanOut(shard -> queryMailbox(shard, userId, since, limit), OLDEST_FIRST, limit);
+                } catch (SQLException e) {
+                    System.err.println("Error reading mailbox: " + e.getMessage());
+                    return null;
+                }
+            }
+            try (Connection conn = dbConnection.getConnection()) {
+                String query = "WITH mailbox AS (SELECT GREATEST(?, COALESCE(MAX(delivered_message_id), 0)) AS since"
+                        + " FROM mailbox_cursors WHERE user_id = ?)"
+                        + " SELECT " + MESSAGE_COLUMNS + " FROM messages, mailbox"
+                        + " WHERE recipient_id = ? AND message_id > mailbox.since"
+                        + " UNION ALL SELECT " + MESSAGE_COLUMNS + " FROM messages, mailbox"
+                        + " WHERE recipient_id IS NULL AND message_id > mailbox.since AND sender_id <> ?"
+                        + " ORDER BY message_id ASC LIMIT ?";
+                PreparedStatement stmt = conn.prepareStatement(query);
+                stmt.setLong(1, knownCursor);
+                stmt.setInt(2, userId);
+                stmt.setInt(3, userId);
+                stmt.setInt(4, userId);
+                stmt.setInt(5, limit);
+
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                }
+            } catch (SQLException e) {
+                System.err.println("Error reading mailbox: " + e.getMessage());
+                return null;
+            }
+            return messages;
+        }
+    }
+
+    private long readMailboxCursor(int userId) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT delivered_message_id FROM mailbox_cursors WHERE user_id = ?");
+            stmt.setInt(1, userId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private List<Message> queryMailbox(DatabaseConnection shard, int userId, long since, int limit) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        try (Connection conn = shard.getConnection()) {
+            String query = "SELECT " + MESSAGE_COLUMNS + " FROM messages WHERE recipient_id = ? AND message_id > ?"
+                    + " UNION ALL SELECT " + MESSAGE_COLUMNS + " FROM messages"
+                    + " WHERE recipient_id IS NULL AND message_id > ? AND sender_id <> ?"
+                    + " ORDER BY message_id ASC LIMIT ?";
+            PreparedStatement stmt = conn.prepareStatement(query);
+            stmt.setInt(1, userId);
+            stmt.setLong(2, since);
+            stmt.setLong(3, since);
+            stmt.setInt(4, userId);
+            stmt.setInt(5, limit);
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                messages.add(mapMessage(rs));
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Run a query on every message shard and merge the results
+     * 
+     * With one shard the query runs on the calling thread. Otherwise the
+     * shards are queried in parallel and their results, each already
+     * sorted, are merged up to the limit. If any shard fails the whole
+     * read fails, so a sync cursor never skips past a shard's messages.
+     * 
+     * @param query - Query returning up to limit rows in the given order
+     * @param order - Order of each shard's rows and of the merged result
+     * @param limit - Maximum number of merged rows
+     * @return Up to limit rows in order
+     * @throws SQLException - If any shard's query fails
+     */
+    private <T> List<T> fanOut(ShardQuery<T> query, Comparator<? super T> order, int limit) throws SQLException {
+        List<DatabaseConnection> shards = dbConnection.getShards();
+        if (shards.size() == 1) {
+            return query.run(shards.get(0));
+        }
+        ExecutorService executor = shardQueryExecutor();
+        List<Future<List<T>>> futures = new ArrayList<>(shards.size());
+        for (DatabaseConnection shard : shards) {
+            futures.add(executor.submit(() -> query.run(shard)));
+        }
+        List<List<T>> results = new ArrayList<>(shards.size());
+        try {
+            for (Future<List<T>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while querying message shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Message shard query failed", e.getCause());
+        } finally {
+            for (Future<List<T>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return merge(results, order, limit);
+    }
+
+    /**
+     * Merge sorted lists into one sorted list of at most limit elements
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        List<T> merged = new ArrayList<>();
+        int[] positions = new int[sorted.size()];
+        while (merged.size() < limit) {
+            int next = -1;
+            for (int i = 0; i < sorted.size(); i++) {
+                List<T> list = sorted.get(i);
+                if (positions[i] < list.size() && (next < 0
+                        || order.compare(list.get(positions[i]), sorted.get(next).get(positions[next])) < 0)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            merged.add(sorted.get(next).get(positions[next]++));
+        }
+        return merged;
+    }
+
+    private ExecutorService shardQueryExecutor() {
+        ExecutorService executor = shardQueries;
+        if (executor == null) {
+            synchronized (this) {
+                if (shardQueries == null) {
+                    shardQueries = Executors.newCachedThreadPool(r -> {
+                        Thread thread = new Thread(r, "message-shard-query");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                executor = shardQueries;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Get a user's most recently active direct conversations
+     * 
+     * Served from the InboxCache when possible; otherwise one indexed read
+     * of the user's conversations rows per shard, newest first.
+     * 
+     * @param username - Inbox owner
+     * @param limit - Maximum number of conversations
+     * @return Up to limit summaries, most recent first (empty if the read failed)
+     */
+    public List<ConversationSummary> getInbox(String username, int limit) {
+        try (Span span = Tracer.span("ChatServer.getInbox")) {
+            if (limit > InboxCache.DEFAULT_CONVERSATIONS_PER_USER) {
+                List<ConversationSummary> rows = queryInbox(username, limit);
+                return rows != null ? rows : new ArrayList<>();
+            }
+            List<ConversationSummary> cached = inboxCache.getInbox(username, limit);
+            span.tag("cache", cached != null ? "hit" : "miss");
+            if (cached != null) {
+                return cached;
+            }
+
+            // Load the full cached inbox so later requests with any limit can hit
+            int pageSize = InboxCache.DEFAULT_CONVERSATIONS_PER_USER;
+            Object load = inboxCache.beginLoad(username);
+            List<ConversationSummary> newest = queryInbox(username, pageSize);
+            if (newest == null) {
+                inboxCache.abandonLoad(username, load);
+                return new ArrayList<>();
+            }
+            inboxCache.completeLoad(username, load, newest, newest.size() < pageSize);
+            return new ArrayList<>(newest.subList(0, Math.min(limit, newest.size())));
+        }
+    }
+
+    /**
+     * Read a user's newest conversations rows from every shard
+     * 
+     * @return Up to limit summaries most recent first, or null if the query failed
+     */
+    private List<ConversationSummary> queryInbox(String username, int limit) {
+        try {
+            int userId = userDictionary.lookupId(username);
+            if (userId == 0) {
+                return new ArrayList<>();
+            }
+            return fanOut(shard -> {
+                List<ConversationSummary> rows = new ArrayList<>();
+                try (Connection conn = shard.getReadConnection(username)) {
+                    PreparedStatement stmt = conn.prepareStatement("SELECT " + CONVERSATION_COLUMNS
+                            + " FROM conversations WHERE user_id = ? ORDER BY last_message_id DESC LIMIT ?");
+                    stmt.setInt(1, userId);
+                    stmt.setInt(2, limit);
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        rows.add(new ConversationSummary(userDictionary.lookupName(rs.getInt("peer_id")),
+                                rs.getLong("last_message_id"), userDictionary.lookupName(rs.getInt("last_sender_id")),
+                                rs.getString("preview"), rs.getTimestamp("last_sent_at"), rs.getInt("unread_count")));
+                    }
+                }
+                return rows;
+            }, InboxCache.MOST_RECENT_FIRST, limit);
+        } catch (SQLException e) {
+            System.err.println("Error reading inbox: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Record that a user has read a conversation up to a message
+     * 
+     * The unread count becomes the number of the peer's messages newer
+     * than the one read, counted with a range scan of the conversation.
+     * Read receipts from clients go through a ReadReceiptBuffer, which
+     * calls {@link #markConversationsRead} off the request thread.
+     * 
+     * @param reader - User who read the messages
+     * @param peer - Other participant
+     * @param lastSeenMessageId - ID of the newest message seen
+     * @return true if the conversation exists and was updated
+     */
+    public boolean markConversationRead(String reader, String peer, long lastSeenMessageId) {
+        try {
+            return markConversationsRead(Collections.singletonMap(List.of(reader, peer), lastSeenMessageId)) > 0;
+        } catch (SQLException e) {
+            System.err.println("Error marking conversation read: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Record read positions of many conversations, one transaction per shard
+     * 
+     * Each shard gets one batch of unread-count resets, then one read of
+     * the new counts per MARK_READ_CHUNK rows to update cached inboxes.
+     * Resetting is idempotent, so a failed call can simply be repeated.
+     * 
+     * @param lastSeen - Newest message ID seen, per (reader, peer) username pair
+     * @return Number of conversations rows updated
+     * @throws SQLException - If a shard fails; shards before it stay updated
+     */
+    public int markConversationsRead(Map<List<String>, Long> lastSeen) throws SQLException {
+        Map<DatabaseConnection, List<ReadMark>> byShard = new LinkedHashMap<>();
+        for (Map.Entry<List<String>, Long> entry : lastSeen.entrySet()) {
+            String reader = entry.getKey().get(0);
+            String peer = entry.getKey().get(1);
+            int readerId = userDictionary.lookupId(reader);
+            int peerId = userDictionary.lookupId(peer);
+            if (readerId == 0 || peerId == 0) {
+                continue;
+            }
+            ReadMark mark = new ReadMark(reader, peer, readerId, peerId, entry.getValue());
+            byShard.computeIfAbsent(dbConnection.shardFor(mark.key), k -> new ArrayList<>()).add(mark);
+        }
+        int updated = 0;
+        for (Map.Entry<DatabaseConnection, List<ReadMark>> shard : byShard.entrySet()) {
+            updated += markRead(shard.getKey(), shard.getValue());
+        }
+        return updated;
+    }
+
+    /**
+     * Reset unread counts on one shard and apply the new counts to cached inboxes
+     */
+    private int markRead(DatabaseConnection shard, List<ReadMark> marks) throws SQLException {
+        try (Connection conn = shard.getConnection()) {
+            conn.setAutoCommit(false);
+            int[] rows;
+            try {
+                PreparedStatement update = conn.prepareStatement(MARK_READ);
+                for (ReadMark mark : marks) {
+                    update.setLong(1, mark.key);
+                    update.setInt(2, mark.peerId);
+                    update.setLong(3, mark.lastSeenMessageId);
+                    update.setInt(4, mark.readerId);
+                    update.setInt(5, mark.peerId);
+                    update.addBatch();
+                }
+                rows = update.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+            conn.setAutoCommit(true);
+
+            Map<List<Integer>, ReadMark> updated = new HashMap<>();
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] != 0) {
+                    updated.put(List.of(marks.get(i).readerId, marks.get(i).peerId), marks.get(i));
+                }
+            }
+            List<ReadMark> pending = new ArrayList<>(updated.values());
+            for (int from = 0; from < pending.size(); from += MARK_READ_CHUNK) {
+                List<ReadMark> chunk = pending.subList(from, Math.min(from + MARK_READ_CHUNK, pending.size()));
+                StringBuilder sql = new StringBuilder(
+                        "SELECT user_id, peer_id, unread_count FROM conversations WHERE (user_id, peer_id) IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+                }
+                PreparedStatement select = conn.prepareStatement(sql.append(')').toString());
+                int index = 1;
+                for (ReadMark mark : chunk) {
+                    select.setInt(index++, mark.readerId);
+                    select.setInt(index++, mark.peerId);
+                }
+                ResultSet rs = select.executeQuery();
+                while (rs.next()) {
+                    ReadMark mark = updated.get(List.of(rs.getInt("user_id"), rs.getInt("peer_id")));
+                    if (mark != null) {
+                        inboxCache.markedRead(mark.reader, mark.peer, rs.getInt("unread_count"));
+                    }
+                }
+            }
+            return updated.size();
+        }
+    }
+
+    /**
+     * Get the dictionary used to intern usernames
+     * 
+     * @return Shared user dictionary
+     */
+    public UserDictionary getUserDictionary() {
+        return userDictionary;
+    }
+
+    /**
+     * Canonical key of the conversation between two user IDs: the ordered
+     * pair packed as (smaller << 32) | larger. A broadcast (recipient ID 0)
+     * gets the sender's ID as key.
+     * 
+     * @param userId1 - One side of the conversation
+     * @param userId2 - Other side, or 0 for a broadcast
+     * @return Conversation key
+     */
+    public static long conversationKey(int userId1, int userId2) {
+        return ((long) Math.min(userId1, userId2) << 32) | Math.max(userId1, userId2);
+    }
+
+    /**
+     * Resolve two usernames to their conversation key
+     * 
+     * @return Conversation key, or 0 if a user is unknown
+     * @throws SQLException - If a user cannot be looked up
+     */
+    private long conversationKey(String user1, String user2) throws SQLException {
+        int id1 = BROADCAST_RECIPIENT.equals(user1) ? 0 : userDictionary.lookupId(user1);
+        int id2 = BROADCAST_RECIPIENT.equals(user2) ? 0 : userDictionary.lookupId(user2);
+        if ((id1 == 0 && !BROADCAST_RECIPIENT.equals(user1)) || (id2 == 0 && !BROADCAST_RECIPIENT.equals(user2))) {
+            return 0;
+        }
+        return conversationKey(id1, id2);
+    }
+
+    /**
+     * Map the current result set row to a Message
+     * 
+     * @param rs - Result set positioned on a messages row
+     * @return Message populated from the row
+     * @throws SQLException - If a column cannot be read
+     */
+    private Message mapMessage(ResultSet rs) throws SQLException {
+        int recipientId = rs.getInt("recipient_id");
+        String recipient = rs.wasNull() ? BROADCAST_RECIPIENT : userDictionary.lookupName(recipientId);
+        Message message = new Message(userDictionary.lookupName(rs.getInt("sender_id")), recipient,
+                rs.getString("content"), rs.getTimestamp("sent_at"));
+        message.setMessageId(rs.getLong("message_id"));
+        message.setRead(rs.getBoolean("is_read"));
+        return message;
+    }
+
     /**
      * Add listener for message events
      * 
@@ -105,19 +1209,130 @@ public class ChatServer {
     /**
      * Notify all listeners about new message
      * 
-     * @param sender - Sender username
-     * @param message - Message content
+     * @param message - Stored message
+     */
+    private void notifyListeners(Message message) {
+        try (Span span = Tracer.span("ChatServer.notifyListeners")) {
+            for (ChatListener listener : listeners) {
+                listener.onMessageStored(message);
+            }
+        }
+    }
+
+    /**
+     * ShardQuery - A read run against one message shard
      */
-    private void notifyListeners(String sender, String message) {
-        for (ChatListener listener : listeners) {
-            listener.onMessageReceived(sender, message);
+    private interface ShardQuery<T> {
+        List<T> run(DatabaseConnection shard) throws SQLException;
+    }
+
+    /**
+     * ExportCursor - One shard's export query, read a fetch at a time
+     * 
+     * Runs in a read-only transaction, which PostgreSQL needs to honour the
+     * fetch size instead of reading the whole result at once.
+     */
+    private final class ExportCursor {
+        private final Connection conn;
+        private PreparedStatement stmt;
+        private ResultSet rs;
+        private Message current;
+
+        ExportCursor(Connection conn, int userId) throws SQLException {
+            this.conn = conn;
+            try {
+                conn.setAutoCommit(false);
+                stmt = conn.prepareStatement(EXPORT_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                stmt.setFetchSize(EXPORT_FETCH_SIZE);
+                stmt.setInt(1, userId);
+                stmt.setInt(2, userId);
+                stmt.setInt(3, userId);
+                rs = stmt.executeQuery();
+            } catch (SQLException e) {
+                close();
+                throw e;
+            }
+        }
+
+        boolean advance() throws SQLException {
+            current = rs.next() ? mapMessage(rs) : null;
+            return current != null;
+        }
+
+        void close() {
+            try {
+                if (stmt != null) {
+                    stmt.close();
+                }
+                conn.rollback();
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Error closing export cursor: " + e.getMessage());
+            }
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing export connection: " + e.getMessage());
+            }
         }
     }
 
+    /**
+     * PendingInsert - A journal record with its resolved users
+     */
+    private static final class PendingInsert {
+        private final JournalRecord record;
+        private final int senderId;
+        private final int recipientId;
+
+        PendingInsert(JournalRecord record, int senderId, int recipientId) {
+            this.record = record;
+            this.senderId = senderId;
+            this.recipientId = recipientId;
+        }
+    }
+
+    /**
+     * ReadMark - A read position with its resolved users and conversation key
+     */
+    private static final class ReadMark {
+        private final String reader;
+        private final String peer;
+        private final int readerId;
+        private final int peerId;
+        private final long key;
+        private final long lastSeenMessageId;
+
+        ReadMark(String reader, String peer, int readerId, int peerId, long lastSeenMessageId) {
+            this.reader = reader;
+            this.peer = peer;
+            this.readerId = readerId;
+            this.peerId = peerId;
+            this.key = conversationKey(readerId, peerId);
+            this.lastSeenMessageId = lastSeenMessageId;
+        }
+    }
+
+    /**
+     * MessageSink - Receives exported messages one at a time
+     */
+    public interface MessageSink {
+        void accept(Message message) throws IOException;
+    }
+
     /**
      * Interface for chat event listeners
      */
     public interface ChatListener {
         void onMessageReceived(String sender, String message);
+
+        /**
+         * Called once a message has been stored, with its ID and recipient
+         * 
+         * @param message - Stored message
+         */
+        default void onMessageStored(Message message) {
+            onMessageReceived(message.getSender(), message.getContent());
+        }
     }
 }
@@ -0,0 +1,118 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+/**
+ * CompactMessage - Memory-efficient message form for caches and queues
+ *
+ * Compared to {@link Message}, users are int IDs from a shared
+ * {@link UserDictionary} (recipient 0 is a broadcast), the timestamp is epoch millis and the content is
+ * UTF-8 bytes. Instances are immutable; they are converted to Message only
+ * at the API edge via {@link #toMessage(UserDictionary)}.
+ *
+ * Approximate retained size with compressed oops: 48 bytes for the object
+ * plus 16 + UTF-8 length for the content, against roughly 225 bytes plus
+ * content for a Message read from the database (three Strings and a
+ * Timestamp per row). See MessageFootprintBenchmark.
+ */
+public final class CompactMessage {
+    private final long messageId;
+    private final long sentAtMillis;
+    private final int senderId;
+    private final int recipientId;
+    private final boolean read;
+    private final byte[] content;
+
+    /**
+     * Constructor - Create a compact message
+     *
+     * @param messageId - Message ID
+     * @param senderId - Sender ID from the user dictionary
+     * @param recipientId - Recipient ID from the user dictionary
+     * @param sentAtMillis - Send time in epoch milliseconds
+     * @param read - Read flag
+     * @param content - UTF-8 encoded content (not copied)
+     */
+    public CompactMessage(long messageId, int senderId, int recipientId, long sentAtMillis, boolean read, byte[] content) {
+        this.messageId = messageId;
+        this.senderId = senderId;
+        this.recipientId = recipientId;
+        this.sentAtMillis = sentAtMillis;
+        this.read = read;
+        this.content = content;
+    }
+
+    /**
+     * Convert a Message to compact form
+     *
+     * @param message - Message to convert
+     * @param dictionary - Dictionary used to intern usernames
+     * @return Compact copy of the message
+     */
+    public static CompactMessage from(Message message, UserDictionary dictionary) {
+        return new CompactMessage(
+                message.getMessageId(),
+                dictionary.idOf(message.getSender()),
+                ChatServer.BROADCAST_RECIPIENT.equals(message.getRecipient()) ? 0 : dictionary.idOf(message.getRecipient()),
+                message.getSentAt() != null ? message.getSentAt().getTime() : 0L,
+                message.isRead(),
+                message.getContent().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Expand to a Message for the API
+     *
+     * @param dictionary - Dictionary the IDs were assigned from
+     * @return New Message instance
+     */
+    public Message toMessage(UserDictionary dictionary) {
+        String recipient = recipientId == 0 ? ChatServer.BROADCAST_RECIPIENT : dictionary.nameOf(recipientId);
+        Message message = new Message(dictionary.nameOf(senderId), recipient,
+                getContent(), new Timestamp(sentAtMillis));
+        message.setMessageId(messageId);
+        message.setRead(read);
+        return message;
+    }
+
+    // Getters
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public int getSenderId() {
+        return senderId;
+    }
+
+    public int getRecipientId() {
+        return recipientId;
+    }
+
+    public long getSentAtMillis() {
+        return sentAtMillis;
+    }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    /**
+     * Decode the content
+     *
+     * @return Content as a String
+     */
+    public String getContent() {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the content size in bytes
+     *
+     * @return UTF-8 length of the content
+     */
+    public int getContentLength() {
+        return content.length;
+    }
+}
@@ -0,0 +1,121 @@
+package com.chatapp.server;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ConversationSummary - One entry of a user's inbox
+ *
+ * Mirrors a row of the conversations table: the newest message exchanged
+ * with a peer and how many of the peer's messages the user has not read.
+ * Instances are immutable; a new message or read receipt produces a new
+ * summary.
+ */
+public final class ConversationSummary {
+    public static final int PREVIEW_LENGTH = 100;
+
+    private final String peer;
+    private final long lastMessageId;
+    private final String lastSender;
+    private final String preview;
+    private final Timestamp lastSentAt;
+    private final int unreadCount;
+
+    /**
+     * Constructor - Create a summary
+     *
+     * @param peer - Other participant
+     * @param lastMessageId - ID of the newest message in the conversation
+     * @param lastSender - Sender of that message
+     * @param preview - Start of that message's content
+     * @param lastSentAt - Send time of that message
+     * @param unreadCount - Messages from the peer the user has not read
+     */
+    public ConversationSummary(String peer, long lastMessageId, String lastSender, String preview,
+                               Timestamp lastSentAt, int unreadCount) {
+        this.peer = peer;
+        this.lastMessageId = lastMessageId;
+        this.lastSender = lastSender;
+        this.preview = preview;
+        this.lastSentAt = lastSentAt;
+        this.unreadCount = unreadCount;
+    }
+
+    /**
+     * Cut message content to the stored preview length without splitting a surrogate pair
+     *
+     * @param content - Message content
+     * @return At most PREVIEW_LENGTH characters
+     */
+    public static String preview(String content) {
+        if (content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        int end = Character.isHighSurrogate(content.charAt(PREVIEW_LENGTH - 1)) ? PREVIEW_LENGTH - 1 : PREVIEW_LENGTH;
+        return content.substring(0, end);
+    }
+
+    /**
+     * Summary after a newer message in the conversation
+     *
+     * @param message - Stored message, newer than lastMessageId
+     * @param unreadDelta - 1 if the message is unread for this user, 0 otherwise
+     * @return Updated summary
+     */
+    public ConversationSummary withMessage(Message message, int unreadDelta) {
+        return new ConversationSummary(peer, message.getMessageId(), message.getSender(),
+                preview(message.getContent()), message.getSentAt(), unreadCount + unreadDelta);
+    }
+
+    /**
+     * Summary with a new unread count
+     *
+     * @param unread - Unread messages after a read receipt
+     * @return Updated summary
+     */
+    public ConversationSummary withUnreadCount(int unread) {
+        return new ConversationSummary(peer, lastMessageId, lastSender, preview, lastSentAt, unread);
+    }
+
+    /**
+     * Convert to the API response form
+     *
+     * @return Map of the summary's fields
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("peer", peer);
+        map.put("lastMessageId", String.valueOf(lastMessageId));
+        map.put("lastSender", lastSender);
+        map.put("preview", preview);
+        map.put("lastSentAt", lastSentAt);
+        map.put("unreadCount", unreadCount);
+        return map;
+    }
+
+    // Getters
+    public String getPeer() {
+        return peer;
+    }
+
+    public long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public String getLastSender() {
+        return lastSender;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public Timestamp getLastSentAt() {
+        return lastSentAt;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+}
@@ -0,0 +1,285 @@
+package com.chatapp.server;
+
+import com.chatapp.push.PushRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EphemeralEventChannel - Memory-only lane for typing indicators and read receipts
+ *
+ * This channel manages:
+ * - Per-conversation coalescing of high-frequency UI signals (latest typing
+ *   state wins; for read receipts the highest message ID wins)
+ * - Throttled delivery, at most one event per key per flush interval
+ * - Delivery to EphemeralListeners, by default over the push connection
+ *
+ * Events never touch the database. If the recipient is not connected the
+ * event is dropped, and when the pending set is full new keys are dropped
+ * rather than buffered, since a stale typing indicator is worthless.
+ */
+public class EphemeralEventChannel {
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 250;
+    public static final int DEFAULT_MAX_PENDING = 100_000;
+
+    private final long flushIntervalMs;
+    private final int maxPending;
+    private final Map<List<Object>, EphemeralEvent> pending;
+    private final List<EphemeralListener> listeners;
+    private volatile ScheduledExecutorService scheduler;
+    private final AtomicLong droppedCount;
+
+    /**
+     * Constructor - Initialize channel with default settings
+     */
+    public EphemeralEventChannel() {
+        this(DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * Constructor - Initialize channel with explicit settings
+     *
+     * @param flushIntervalMs - Throttle window; pending events are delivered once per window
+     * @param maxPending - Maximum number of distinct pending keys
+     */
+    public EphemeralEventChannel(long flushIntervalMs, int maxPending) {
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxPending = maxPending;
+        this.pending = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.droppedCount = new AtomicLong();
+    }
+
+    /**
+     * Start the periodic flusher (also started on first publish)
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ephemeral-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic flusher
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Publish a typing indicator
+     *
+     * @param sender - User who is typing
+     * @param recipient - Conversation peer
+     * @param typing - true when typing started, false when it stopped
+     */
+    public void publishTyping(String sender, String recipient, boolean typing) {
+        publish(new EphemeralEvent(EventType.TYPING, sender, recipient, typing ? 1 : 0));
+    }
+
+    /**
+     * Publish a read receipt
+     *
+     * @param reader - User who read the messages
+     * @param sender - Peer whose messages were read
+     * @param lastSeenMessageId - ID of the newest message seen
+     */
+    public void publishSeen(String reader, String sender, long lastSeenMessageId) {
+        publish(new EphemeralEvent(EventType.SEEN, reader, sender, lastSeenMessageId));
+    }
+
+    /**
+     * Queue an event, replacing any pending event with the same key
+     *
+     * @param event - Event to queue
+     */
+    public void publish(EphemeralEvent event) {
+        if (scheduler == null) {
+            start();
+        }
+        List<Object> key = event.key();
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        pending.merge(key, event, EphemeralEventChannel::newer);
+    }
+
+    /**
+     * Deliver all pending events to listeners
+     */
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, List<EphemeralEvent>> byRecipient = new HashMap<>();
+        for (List<Object> key : pending.keySet()) {
+            EphemeralEvent event = pending.remove(key);
+            if (event == null) {
+                continue;
+            }
+            byRecipient.computeIfAbsent(event.getRecipient(), k -> new ArrayList<>()).add(event);
+        }
+        for (Map.Entry<String, List<EphemeralEvent>> batch : byRecipient.entrySet()) {
+            for (EphemeralListener listener : listeners) {
+                listener.onEphemeralEvents(batch.getKey(), batch.getValue());
+            }
+        }
+    }
+
+    /**
+     * Add listener for ephemeral events
+     *
+     * @param listener - EphemeralListener implementation
+     */
+    public void addListener(EphemeralListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Get number of events dropped because the pending set was full
+     *
+     * @return Dropped event count
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Create a listener that pushes events to the recipient's push connections
+     *
+     * @param pushRegistry - Registry of open push connections
+     * @return Listener delivering one "ephemeral" frame per recipient per flush
+     */
+    public static EphemeralListener pushDelivery(PushRegistry pushRegistry) {
+        return (recipient, events) -> {
+            if (!pushRegistry.isConnected(recipient)) {
+                return;
+            }
+            List<Map<String, Object>> payload = new ArrayList<>(events.size());
+            for (EphemeralEvent event : events) {
+                payload.add(event.toPayload());
+            }
+            pushRegistry.push(recipient, "ephemeral", payload);
+        };
+    }
+
+    /**
+     * Pick the newer of two events with the same key
+     *
+     * A read receipt is newer if it covers a higher message ID, so a late
+     * receipt for an older message never replaces a pending newer one.
+     */
+    private static EphemeralEvent newer(EphemeralEvent current, EphemeralEvent incoming) {
+        if (incoming.getType() == EventType.SEEN) {
+            return incoming.getValue() >= current.getValue() ? incoming : current;
+        }
+        return incoming.getCreatedAt() >= current.getCreatedAt() ? incoming : current;
+    }
+
+    /**
+     * Kinds of ephemeral event
+     */
+    public enum EventType {
+        TYPING,
+        SEEN
+    }
+
+    /**
+     * EphemeralEvent - A single typing or read-receipt signal
+     */
+    public static final class EphemeralEvent {
+        private final EventType type;
+        private final String sender;
+        private final String recipient;
+        private final long value;
+        private final long createdAt;
+
+        /**
+         * Constructor - Create an event stamped with the current time
+         *
+         * @param type - Event type
+         * @param sender - User the signal originates from
+         * @param recipient - User the signal is delivered to
+         * @param value - 1/0 for typing, last seen message ID for receipts
+         */
+        public EphemeralEvent(EventType type, String sender, String recipient, long value) {
+            this.type = type;
+            this.sender = sender;
+            this.recipient = recipient;
+            this.value = value;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        // Getters
+        public EventType getType() {
+            return type;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getRecipient() {
+            return recipient;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        /**
+         * Coalescing key: one pending event per type, sender and recipient
+         */
+        List<Object> key() {
+            return Arrays.asList(type, sender, recipient);
+        }
+
+        /**
+         * Convert to a JSON-friendly map
+         *
+         * @return Event payload
+         */
+        public Map<String, Object> toPayload() {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("type", type.name().toLowerCase());
+            payload.put("from", sender);
+            if (type == EventType.TYPING) {
+                payload.put("typing", value != 0);
+            } else {
+                payload.put("lastSeenMessageId", String.valueOf(value));
+            }
+            payload.put("at", createdAt);
+            return payload;
+        }
+    }
+
+    /**
+     * Interface for ephemeral event listeners
+     */
+    public interface EphemeralListener {
+        void onEphemeralEvents(String recipient, List<EphemeralEvent> events);
+    }
+}
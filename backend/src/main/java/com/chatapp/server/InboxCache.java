@@ -0,0 +1,255 @@
+package com.chatapp.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * InboxCache - In-memory inbox of each active user
+ *
+ * This cache manages:
+ * - Up to {@code conversationsPerUser} most recent conversation summaries per user
+ * - LRU eviction of whole inboxes beyond {@code maxUsers}
+ * - Applying stored messages and read receipts to cached inboxes
+ *
+ * An inbox is cached by a load, as in RecentMessageCache: the caller
+ * opens it with {@link #beginLoad}, reads the conversations table and
+ * hands the rows to {@link #completeLoad}. An update that arrives while
+ * the load is in flight makes the load stale and it is discarded, so the
+ * next request reads the table again. A message from a peer outside a
+ * cached, truncated inbox evicts the inbox, since its unread count is
+ * only known to the database. Only messages stored through this node's
+ * ChatServer are applied.
+ */
+public class InboxCache {
+    public static final int DEFAULT_CONVERSATIONS_PER_USER = 50;
+    public static final int DEFAULT_MAX_USERS = 10_000;
+
+    static final Comparator<ConversationSummary> MOST_RECENT_FIRST =
+            Comparator.comparingLong(ConversationSummary::getLastMessageId).reversed();
+
+    private final int conversationsPerUser;
+    private final Map<String, Inbox> inboxes;
+
+    /**
+     * Constructor - Initialize cache with default sizes
+     */
+    public InboxCache() {
+        this(DEFAULT_CONVERSATIONS_PER_USER, DEFAULT_MAX_USERS);
+    }
+
+    /**
+     * Constructor - Initialize cache with explicit sizes
+     *
+     * @param conversationsPerUser - Most recent conversations kept per user
+     * @param maxUsers - Inboxes kept before the least recently used is evicted
+     */
+    public InboxCache(int conversationsPerUser, int maxUsers) {
+        this.conversationsPerUser = conversationsPerUser;
+        this.inboxes = new LinkedHashMap<String, Inbox>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Inbox> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Get a user's most recent conversations if the cache can answer
+     *
+     * @param username - Inbox owner
+     * @param limit - Maximum number of conversations
+     * @return Up to limit summaries, most recent first, or null if the caller must query the database
+     */
+    public List<ConversationSummary> getInbox(String username, int limit) {
+        Inbox inbox;
+        synchronized (inboxes) {
+            inbox = inboxes.get(username);
+        }
+        return inbox != null ? inbox.newest(limit) : null;
+    }
+
+    /**
+     * Open a load for a user's inbox, replacing any cached copy
+     *
+     * @param username - Inbox owner
+     * @return Token to pass to completeLoad once the rows are read
+     */
+    public Object beginLoad(String username) {
+        Inbox inbox = new Inbox();
+        synchronized (inboxes) {
+            inboxes.put(username, inbox);
+        }
+        return inbox;
+    }
+
+    /**
+     * Finish a load with the rows read from the database
+     *
+     * @param username - Inbox owner
+     * @param token - Token returned by beginLoad
+     * @param newest - Most recent conversations, most recent first
+     * @param complete - true if the user has no other conversations
+     */
+    public void completeLoad(String username, Object token, List<ConversationSummary> newest, boolean complete) {
+        Inbox inbox = (Inbox) token;
+        if (!inbox.complete(newest, complete)) {
+            abandonLoad(username, token);
+        }
+    }
+
+    /**
+     * Drop a load that failed or went stale
+     *
+     * @param username - Inbox owner
+     * @param token - Token returned by beginLoad
+     */
+    public void abandonLoad(String username, Object token) {
+        synchronized (inboxes) {
+            inboxes.remove(username, token);
+        }
+    }
+
+    /**
+     * Apply a newly stored message to one participant's cached inbox
+     *
+     * @param username - Inbox owner
+     * @param peer - Other participant
+     * @param message - Stored message with its ID set
+     * @param unreadDelta - 1 if the message is unread for the owner, 0 otherwise
+     */
+    public void messageStored(String username, String peer, Message message, int unreadDelta) {
+        Inbox inbox;
+        synchronized (inboxes) {
+            inbox = inboxes.get(username);
+        }
+        if (inbox != null && !inbox.messageStored(peer, message, unreadDelta)) {
+            abandonLoad(username, inbox);
+        }
+    }
+
+    /**
+     * Apply a read receipt to a cached inbox
+     *
+     * @param username - Inbox owner who read the messages
+     * @param peer - Other participant
+     * @param unreadCount - Unread messages left in the conversation
+     */
+    public void markedRead(String username, String peer, int unreadCount) {
+        Inbox inbox;
+        synchronized (inboxes) {
+            inbox = inboxes.get(username);
+        }
+        if (inbox != null) {
+            inbox.markedRead(peer, unreadCount);
+        }
+    }
+
+    /**
+     * Get the number of cached inboxes
+     *
+     * @return Cached inbox count
+     */
+    public int size() {
+        synchronized (inboxes) {
+            return inboxes.size();
+        }
+    }
+
+    /**
+     * Inbox - Most recent conversations of one user, most recent first
+     */
+    private final class Inbox {
+        private final List<ConversationSummary> entries = new ArrayList<>();
+        private boolean loaded;
+        private boolean stale;
+        private boolean complete;
+
+        /**
+         * Get the newest entries, or null if not loaded or the cache holds fewer
+         * than requested and the database may have more
+         */
+        private synchronized List<ConversationSummary> newest(int limit) {
+            if (!loaded || (limit > entries.size() && !complete)) {
+                return null;
+            }
+            return new ArrayList<>(entries.subList(0, Math.min(limit, entries.size())));
+        }
+
+        /**
+         * @return false if an update raced the load and the rows are out of date
+         */
+        private synchronized boolean complete(List<ConversationSummary> rows, boolean noOthers) {
+            if (stale) {
+                return false;
+            }
+            entries.addAll(rows.subList(0, Math.min(rows.size(), conversationsPerUser)));
+            complete = noOthers && rows.size() <= conversationsPerUser;
+            loaded = true;
+            return true;
+        }
+
+        /**
+         * @return false if the inbox can no longer be kept up to date and must be dropped
+         */
+        private synchronized boolean messageStored(String peer, Message message, int unreadDelta) {
+            if (!loaded) {
+                stale = true;
+                return true;
+            }
+            int index = indexOf(peer);
+            if (index >= 0) {
+                ConversationSummary current = entries.get(index);
+                if (current.getLastMessageId() >= message.getMessageId()) {
+                    return true;
+                }
+                entries.remove(index);
+                insert(current.withMessage(message, unreadDelta));
+                return true;
+            }
+            if (!complete) {
+                return false;
+            }
+            insert(new ConversationSummary(peer, message.getMessageId(), message.getSender(),
+                    ConversationSummary.preview(message.getContent()), message.getSentAt(), unreadDelta));
+            if (entries.size() > conversationsPerUser) {
+                entries.remove(entries.size() - 1);
+                complete = false;
+            }
+            return true;
+        }
+
+        private synchronized void markedRead(String peer, int unreadCount) {
+            if (!loaded) {
+                stale = true;
+                return;
+            }
+            int index = indexOf(peer);
+            if (index >= 0) {
+                entries.set(index, entries.get(index).withUnreadCount(unreadCount));
+            }
+        }
+
+        private int indexOf(String peer) {
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).getPeer().equals(peer)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Insert keeping most recent first
+         */
+        private void insert(ConversationSummary summary) {
+            int position = 0;
+            while (position < entries.size() && MOST_RECENT_FIRST.compare(entries.get(position), summary) < 0) {
+                position++;
+            }
+            entries.add(position, summary);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.chatapp.server;
+
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.journal.JournalRecord;
+import com.chatapp.journal.MessageJournal;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JournalReplayer - Drains the MessageJournal into the database once it is reachable
+ *
+ * This service manages:
+ * - Polling the journal on a background thread
+ * - Storing records in order, one transaction per batch
+ * - Advancing the journal checkpoint after each stored batch
+ *
+ * A batch that fails because the database is unreachable is retried on
+ * the next poll. A batch rejected for another reason is replayed one
+ * record at a time so a single bad record is dropped instead of blocking
+ * the journal. Records already in the database are skipped by key, so a
+ * batch replayed again after a crash is stored once.
+ */
+public class JournalReplayer {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_INTERVAL_MS = 500;
+
+    private final ChatServer chatServer;
+    private final MessageJournal journal;
+    private final int batchSize;
+    private final long intervalMs;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong replayed;
+    private final AtomicLong dropped;
+    private volatile boolean waitingForDatabase;
+
+    /**
+     * Constructor - Create a replayer with default batch size and poll interval
+     *
+     * @param chatServer - Server that stores and publishes replayed messages
+     * @param journal - Journal to drain
+     */
+    public JournalReplayer(ChatServer chatServer, MessageJournal journal) {
+        this(chatServer, journal, DEFAULT_BATCH_SIZE, DEFAULT_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Create a replayer
+     *
+     * @param chatServer - Server that stores and publishes replayed messages
+     * @param journal - Journal to drain
+     * @param batchSize - Records stored per transaction
+     * @param intervalMs - Delay between polls
+     */
+    public JournalReplayer(ChatServer chatServer, MessageJournal journal, int batchSize, long intervalMs) {
+        this.chatServer = chatServer;
+        this.journal = journal;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.replayed = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start polling the journal
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::drain, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop polling; records left in the journal are replayed after restart
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Replay pending records until the journal is empty or the database fails
+     *
+     * @return Number of messages stored
+     */
+    synchronized int drain() {
+        int stored = 0;
+        try {
+            while (journal.hasPending()) {
+                MessageJournal.Batch batch = journal.read(batchSize);
+                if (batch.isEmpty()) {
+                    // Appended but not yet synced
+                    break;
+                }
+                stored += replay(batch.getRecords());
+                journal.commit(batch);
+            }
+            if (waitingForDatabase) {
+                waitingForDatabase = false;
+                System.out.println("✓ Database available again, journal drained");
+            }
+        } catch (SQLException e) {
+            if (!waitingForDatabase) {
+                waitingForDatabase = true;
+                System.err.println("Journal replay waiting for database (" + journal.getPendingCount()
+                        + " messages pending): " + e.getMessage());
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading message journal: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Journal replay failed: " + e.getMessage());
+        }
+        if (stored > 0) {
+            replayed.addAndGet(stored);
+            System.out.println("✓ Replayed " + stored + " journaled messages");
+        }
+        return stored;
+    }
+
+    /**
+     * Store records, isolating any record the database rejects
+     *
+     * @throws SQLException - If the database is unreachable
+     */
+    private int replay(List<JournalRecord> records) throws SQLException {
+        try {
+            return chatServer.storeJournaled(records);
+        } catch (SQLException e) {
+            if (DatabaseConnection.isConnectionFailure(e)) {
+                throw e;
+            }
+            if (records.size() == 1) {
+                dropped.incrementAndGet();
+                System.err.println("Dropping journaled message " + records.get(0).getMessageId() + ": " + e.getMessage());
+                return 0;
+            }
+            int stored = 0;
+            for (JournalRecord record : records) {
+                stored += replay(Collections.singletonList(record));
+            }
+            return stored;
+        }
+    }
+
+    // Getters
+    public long getReplayedCount() {
+        return replayed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public boolean isWaitingForDatabase() {
+        return waitingForDatabase;
+    }
+}
@@ -0,0 +1,420 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.push.PushCoalescer;
+import com.chatapp.push.PushConnection;
+import com.chatapp.push.PushRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MailboxService - Delivers messages stored while their recipient was offline
+ *
+ * This service manages:
+ * - Live push of direct messages and broadcasts to connected recipients
+ * - One delivery cursor per user (newest message_id delivered) instead of a row per pending message
+ * - Draining everything past the cursor with one ranged query on login or push connect
+ * - Coalescing drain requests per user and batching cursor writes
+ * - Moving cursors past live pushes only through a drain that read the same range
+ *
+ * Live messages go through a PushCoalescer, so a busy recipient gets
+ * several messages per frame and the storing request only queues them.
+ * Live pushes only cover messages stored
+ * through this node, so they never move the cursor themselves: their IDs
+ * are remembered, and once per flush interval users with live deliveries
+ * are drained again. That drain skips the remembered IDs, pushes anything
+ * else past the cursor (e.g. messages stored through other nodes) and
+ * moves the cursor over the whole range it read.
+ * A drain pushes up to {@code drainLimit} messages as a single "mailbox"
+ * frame and only queries again after a full frame. Drains run on a small
+ * fixed pool, so a reconnect storm after an outage costs one query per
+ * user over a bounded number of connections; a request for a user whose
+ * drain is queued or running folds into it. Cursors advance only for
+ * messages a connection accepted and are written to mailbox_cursors in one
+ * batch per flush interval. Message IDs may commit out of order by up to
+ * a commit window, so a cursor never passes IDs issued within that window
+ * before the delivery; the next drain reads them again. Delivery is at
+ * least once: messages pushed live during a drain, delivered shortly
+ * before a reconnect, or delivered just before a crash may arrive again,
+ * and clients deduplicate by message ID.
+ */
+public class MailboxService implements ChatServer.ChatListener, PushRegistry.ConnectionListener,
+        PushCoalescer.DeliveryListener {
+    public static final int DEFAULT_DRAIN_LIMIT = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1_000;
+
+    private static final int DRAIN_THREADS = 4;
+    private static final String LIVE_EVENT = "message";
+    private static final String UPDATE_CURSOR = "UPDATE mailbox_cursors"
+            + " SET delivered_message_id = GREATEST(delivered_message_id, ?) WHERE user_id = ?";
+    private static final String INSERT_CURSOR = "INSERT INTO mailbox_cursors (user_id, delivered_message_id) VALUES (?, ?)";
+
+    private final ChatServer chatServer;
+    private final DatabaseConnection dbConnection;
+    private final PushRegistry pushRegistry;
+    private final PushCoalescer pushCoalescer;
+    private final UserDictionary userDictionary;
+    private final int drainLimit;
+    private final long flushIntervalMs;
+    private final long commitWindowMs;
+    private final Map<String, Mailbox> mailboxes;
+    private final Map<String, Boolean> drainRequests;
+    private final Map<String, Long> dirtyCursors;
+    private final ExecutorService drainExecutor;
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong drainQueries;
+
+    /**
+     * Constructor - Initialize MailboxService with default settings
+     *
+     * @param chatServer - Chat server providing storage and message events
+     * @param dbConnection - Database holding mailbox_cursors
+     * @param pushRegistry - Open push connections
+     */
+    public MailboxService(ChatServer chatServer, DatabaseConnection dbConnection, PushRegistry pushRegistry) {
+        this(chatServer, dbConnection, pushRegistry, DEFAULT_DRAIN_LIMIT, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Initialize MailboxService, pushing each live message as its own frame
+     *
+     * @param chatServer - Chat server providing storage and message events
+     * @param dbConnection - Database holding mailbox_cursors
+     * @param pushRegistry - Open push connections
+     * @param drainLimit - Maximum messages per mailbox frame
+     * @param flushIntervalMs - Interval between cursor writes
+     */
+    public MailboxService(ChatServer chatServer, DatabaseConnection dbConnection, PushRegistry pushRegistry,
+                          int drainLimit, long flushIntervalMs) {
+        this(chatServer, dbConnection, pushRegistry, new PushCoalescer(pushRegistry, 0, 1), drainLimit, flushIntervalMs);
+    }
+
+    /**
+     * Constructor - Initialize MailboxService with the default commit window
+     *
+     * @param chatServer - Chat server providing storage and message events
+     * @param dbConnection - Database holding mailbox_cursors
+     * @param pushRegistry - Open push connections
+     * @param pushCoalescer - Coalescer for live pushes over the same registry
+     * @param drainLimit - Maximum messages per mailbox frame
+     * @param flushIntervalMs - Interval between cursor writes
+     */
+    public MailboxService(ChatServer chatServer, DatabaseConnection dbConnection, PushRegistry pushRegistry,
+                          PushCoalescer pushCoalescer, int drainLimit, long flushIntervalMs) {
+        this(chatServer, dbConnection, pushRegistry, pushCoalescer, drainLimit, flushIntervalMs,
+                MessageIdGenerator.DEFAULT_COMMIT_WINDOW_MS);
+    }
+
+    /**
+     * Constructor - Initialize MailboxService and register it for message, connection and delivery events
+     *
+     * @param chatServer - Chat server providing storage and message events
+     * @param dbConnection - Database holding mailbox_cursors
+     * @param pushRegistry - Open push connections
+     * @param pushCoalescer - Coalescer for live pushes over the same registry
+     * @param drainLimit - Maximum messages per mailbox frame
+     * @param flushIntervalMs - Interval between cursor writes
+     * @param commitWindowMs - How long after its ID was issued a message may still commit
+     */
+    public MailboxService(ChatServer chatServer, DatabaseConnection dbConnection, PushRegistry pushRegistry,
+                          PushCoalescer pushCoalescer, int drainLimit, long flushIntervalMs, long commitWindowMs) {
+        this.chatServer = chatServer;
+        this.dbConnection = dbConnection;
+        this.pushRegistry = pushRegistry;
+        this.pushCoalescer = pushCoalescer;
+        this.userDictionary = chatServer.getUserDictionary();
+        this.drainLimit = drainLimit;
+        this.flushIntervalMs = flushIntervalMs;
+        this.commitWindowMs = commitWindowMs;
+        this.mailboxes = new ConcurrentHashMap<>();
+        this.drainRequests = new ConcurrentHashMap<>();
+        this.dirtyCursors = new ConcurrentHashMap<>();
+        this.drainQueries = new AtomicLong();
+        this.drainExecutor = Executors.newFixedThreadPool(DRAIN_THREADS, r -> {
+            Thread thread = new Thread(r, "mailbox-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mailbox-cursor-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        chatServer.addListener(this);
+        pushRegistry.addListener(this);
+        pushCoalescer.addListener(this);
+    }
+
+    /**
+     * Start writing cursors in the background
+     */
+    public void start() {
+        flusher.scheduleWithFixedDelay(this::reconcile, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop draining and write outstanding cursors
+     */
+    public void shutdown() {
+        drainExecutor.shutdownNow();
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Request a drain of a user's mailbox to their open connections
+     *
+     * Returns immediately. If a drain for the user is already queued or
+     * running, it runs once more afterwards instead of in parallel.
+     *
+     * @param username - User who logged in or connected
+     */
+    public void requestDrain(String username) {
+        boolean[] schedule = new boolean[1];
+        drainRequests.compute(username, (key, again) -> {
+            schedule[0] = again == null;
+            return again == null ? Boolean.FALSE : Boolean.TRUE;
+        });
+        if (schedule[0]) {
+            drainExecutor.execute(() -> runDrains(username));
+        }
+    }
+
+    /**
+     * Get the number of mailbox queries issued
+     *
+     * @return Drain query count
+     */
+    public long getDrainQueryCount() {
+        return drainQueries.get();
+    }
+
+    /**
+     * Check whether a drain for a user is queued or running
+     *
+     * @param username - User to look up
+     * @return true until the user's requested drains have finished
+     */
+    boolean isDrainPending(String username) {
+        return drainRequests.containsKey(username);
+    }
+
+    /**
+     * Get the delivery cursor of a user on this node
+     *
+     * @param username - User to look up
+     * @return Newest delivered message ID short of the commit window, or 0 if the user has not been drained here
+     */
+    public long getCursor(String username) {
+        Mailbox mailbox = mailboxes.get(username);
+        return mailbox != null ? mailbox.cursor : 0;
+    }
+
+    @Override
+    public void onMessageReceived(String sender, String message) {
+        // Delivery needs message IDs; handled in onMessageStored
+    }
+
+    @Override
+    public void onMessageStored(Message message) {
+        // Only queues the pushes; connections are written on the coalescer's flush pool
+        if (ChatServer.BROADCAST_RECIPIENT.equals(message.getRecipient())) {
+            pushCoalescer.pushToAll(LIVE_EVENT, message, message.getSender());
+        } else {
+            pushCoalescer.push(message.getRecipient(), LIVE_EVENT, message);
+        }
+    }
+
+    @Override
+    public void onConnected(PushConnection connection) {
+        // The new connection missed earlier live pushes, so the drain pushes everything past the cursor
+        Mailbox mailbox = mailboxes.get(connection.getUsername());
+        if (mailbox != null) {
+            mailbox.delivered.clear();
+        }
+        requestDrain(connection.getUsername());
+    }
+
+    @Override
+    public void onDisconnected(PushConnection connection) {
+        String username = connection.getUsername();
+        Mailbox mailbox = mailboxes.get(username);
+        if (mailbox != null && !pushRegistry.isConnected(username)) {
+            mailbox.delivered.clear();
+        }
+    }
+
+    /**
+     * Run the requested drain, and again for every request that arrived meanwhile
+     */
+    private void runDrains(String username) {
+        do {
+            try {
+                drain(username);
+            } catch (RuntimeException e) {
+                System.err.println("Error draining mailbox: " + e.getMessage());
+            }
+        } while (!drainRequests.remove(username, Boolean.FALSE)
+                && drainRequests.replace(username, Boolean.TRUE, Boolean.FALSE));
+    }
+
+    /**
+     * Push everything past the user's cursor to their open connections
+     *
+     * @param username - User to drain
+     * @return Number of messages delivered
+     */
+    int drain(String username) {
+        if (!pushRegistry.isConnected(username)) {
+            // Nowhere to deliver; the cursor stays so a later connect drains it
+            return 0;
+        }
+        Mailbox mailbox = mailboxes.computeIfAbsent(username, k -> new Mailbox());
+        int delivered = 0;
+        long since = mailbox.cursor;
+        while (true) {
+            drainQueries.incrementAndGet();
+            List<Message> batch = chatServer.getMailbox(username, since, drainLimit);
+            if (batch == null) {
+                return delivered;
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Message> missed = new ArrayList<>();
+            for (Message message : batch) {
+                if (!mailbox.delivered.contains(message.getMessageId())) {
+                    missed.add(message);
+                }
+            }
+            if (!missed.isEmpty()) {
+                if (pushRegistry.push(username, "mailbox", missed) == 0) {
+                    return delivered;
+                }
+                for (Message message : missed) {
+                    mailbox.delivered.add(message.getMessageId());
+                }
+                delivered += missed.size();
+            }
+            since = batch.get(batch.size() - 1).getMessageId();
+            advance(username, mailbox, since);
+            if (batch.size() < drainLimit) {
+                break;
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Request a drain for every connected user with live deliveries the cursor has not passed
+     */
+    void reconcile() {
+        for (Map.Entry<String, Mailbox> entry : mailboxes.entrySet()) {
+            if (!entry.getValue().delivered.isEmpty() && pushRegistry.isConnected(entry.getKey())) {
+                requestDrain(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Write changed cursors to mailbox_cursors in one batch
+     */
+    void flush() {
+        if (dirtyCursors.isEmpty()) {
+            return;
+        }
+        Map<String, Long> pending = new HashMap<>(dirtyCursors);
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement update = conn.prepareStatement(UPDATE_CURSOR);
+            List<Long> cursors = new ArrayList<>();
+            List<Integer> userIds = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                int userId = userDictionary.idOf(entry.getKey());
+                if (userId == 0) {
+                    continue;
+                }
+                update.setLong(1, entry.getValue());
+                update.setInt(2, userId);
+                update.addBatch();
+                userIds.add(userId);
+                cursors.add(entry.getValue());
+            }
+            int[] updated = update.executeBatch();
+
+            PreparedStatement insert = conn.prepareStatement(INSERT_CURSOR);
+            boolean inserts = false;
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    insert.setInt(1, userIds.get(i));
+                    insert.setLong(2, cursors.get(i));
+                    insert.addBatch();
+                    inserts = true;
+                }
+            }
+            if (inserts) {
+                insert.executeBatch();
+            }
+            for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                dirtyCursors.remove(entry.getKey(), entry.getValue());
+            }
+        } catch (SQLException e) {
+            System.err.println("Error saving mailbox cursors: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remember delivered live messages so the next drain skips them instead of pushing them again
+     */
+    @Override
+    public void onDelivered(String username, String eventType, List<Object> payloads) {
+        if (!LIVE_EVENT.equals(eventType)) {
+            return;
+        }
+        Mailbox mailbox = mailboxes.computeIfAbsent(username, k -> new Mailbox());
+        for (Object payload : payloads) {
+            long messageId = ((Message) payload).getMessageId();
+            if (messageId > mailbox.cursor) {
+                mailbox.delivered.add(messageId);
+            }
+        }
+    }
+
+    /**
+     * Move the cursor up to a delivered message, short of IDs that may still commit below it
+     */
+    private void advance(String username, Mailbox mailbox, long deliveredId) {
+        long messageId = Math.min(deliveredId,
+                MessageIdGenerator.maxIdAt(System.currentTimeMillis() - commitWindowMs));
+        synchronized (mailbox) {
+            if (messageId > mailbox.cursor) {
+                mailbox.cursor = messageId;
+                dirtyCursors.put(username, messageId);
+                mailbox.delivered.removeIf(id -> id <= messageId);
+            }
+        }
+    }
+
+    /**
+     * Mailbox - Delivery state of one user on this node
+     */
+    private static final class Mailbox {
+        private volatile long cursor;
+        /** IDs past the cursor already pushed to the user's open connections */
+        private final Set<Long> delivered = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -1,11 +1,16 @@
 package com.chatapp.server;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
 import java.sql.Timestamp;
 
 /**
  * Message - Data model for chat messages
  * 
- * Represents a message with sender, recipient, content, and timestamp
+ * Represents a message with sender, recipient, content, and timestamp.
+ * Room messages carry a non-zero roomId and "room:<id>" as recipient.
+ * The message ID is written to JSON as a string, since it exceeds 2^53.
  */
 public class Message {
     private long messageId;
@@ -14,6 +19,7 @@ public class Message {
     private String content;
     private Timestamp sentAt;
     private boolean isRead;
+    private long roomId;
 
     /**
      * Constructor - Create a new message
@@ -32,6 +38,7 @@ public class Message {
     }
 
     // Getters
+    @JsonSerialize(using = ToStringSerializer.class)
     public long getMessageId() {
         return messageId;
     }
@@ -56,6 +63,10 @@ public class Message {
         return isRead;
     }
 
+    public long getRoomId() {
+        return roomId;
+    }
+
     // Setters
     public void setMessageId(long messageId) {
         this.messageId = messageId;
@@ -65,6 +76,10 @@ public class Message {
         isRead = read;
     }
 
+    public void setRoomId(long roomId) {
+        this.roomId = roomId;
+    }
+
     /**
      * String representation of message
      */
@@ -0,0 +1,162 @@
+package com.chatapp.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * MessageIdGenerator - Time-ordered 64-bit message IDs assigned by the application
+ *
+ * This class manages:
+ * - Composing IDs from milliseconds since EPOCH_MILLIS, a node ID and a per-millisecond sequence
+ * - Handing out strictly increasing IDs from one node without locking
+ *
+ * Layout, from the most significant bit: 1 unused sign bit, 41 bits of
+ * milliseconds (about 69 years), 10 bits of node ID and 12 bits of
+ * sequence, so a node issues up to 4096 IDs per millisecond. IDs from
+ * different nodes never collide as long as each node has its own node ID,
+ * and sort by creation time up to clock skew between nodes.
+ *
+ * The last issued ID is kept in an AtomicLong and advanced with
+ * compare-and-set. When a millisecond's sequence is used up, or the clock
+ * steps backwards, the next ID continues from the last one instead of
+ * waiting, borrowing from the following millisecond; IDs therefore never
+ * repeat or decrease while the process runs.
+ *
+ * IDs do not commit in order: an ID taken on a node whose clock lags, or
+ * by a transaction that commits slowly, can become visible after a
+ * greater one. Readers that keep a cursor treat everything within
+ * DEFAULT_COMMIT_WINDOW_MS below it as possibly still arriving.
+ */
+public class MessageIdGenerator {
+    /** 2026-01-01T00:00:00Z */
+    public static final long EPOCH_MILLIS = 1_767_225_600_000L;
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    /** Clock skew between nodes plus the time from taking an ID to committing it */
+    public static final long DEFAULT_COMMIT_WINDOW_MS = 2_000;
+
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    private final AtomicLong last;
+
+    /**
+     * Constructor - Create a generator using the system clock
+     *
+     * @param nodeId - ID of this node, between 0 and MAX_NODE_ID, unique among running nodes
+     */
+    public MessageIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor - Create a generator with an explicit clock
+     *
+     * @param nodeId - ID of this node, between 0 and MAX_NODE_ID
+     * @param clock - Source of the current time in epoch milliseconds
+     */
+    MessageIdGenerator(int nodeId, LongSupplier clock) {
+        // As if millisecond 0's sequence were used up, so every ID carries the node bits
+        this(nodeId, clock, ((long) nodeId << SEQUENCE_BITS) | MAX_SEQUENCE);
+    }
+
+    /**
+     * Constructor - Continue after an ID this node issued before
+     *
+     * @param nodeId - ID of this node, between 0 and MAX_NODE_ID
+     * @param clock - Source of the current time in epoch milliseconds
+     * @param lastId - Last ID issued, as returned by getLastId()
+     */
+    MessageIdGenerator(int nodeId, LongSupplier clock, long lastId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        if (nodeOf(lastId) != nodeId) {
+            throw new IllegalArgumentException("ID " + lastId + " was not issued by node " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+        this.last = new AtomicLong(lastId);
+    }
+
+    /**
+     * Issue the next ID
+     *
+     * @return ID greater than every ID this generator returned before
+     */
+    public long nextId() {
+        while (true) {
+            long previous = last.get();
+            long millis = Math.max(clock.getAsLong() - EPOCH_MILLIS, 0);
+            long previousMillis = previous >>> TIME_SHIFT;
+            long next;
+            if (millis > previousMillis) {
+                next = (millis << TIME_SHIFT) | nodeBits;
+            } else if ((previous & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = previous + 1;
+            } else {
+                next = ((previousMillis + 1) << TIME_SHIFT) | nodeBits;
+            }
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Get the last ID issued
+     *
+     * @return Last ID, from which a new generator can continue
+     */
+    long getLastId() {
+        return last.get();
+    }
+
+    /**
+     * Get the largest ID any node can issue within a millisecond
+     *
+     * IDs issued later than that millisecond are greater, whatever node
+     * issued them, so this serves as a cursor that skips everything sent
+     * up to that time.
+     *
+     * @param epochMillis - Time in epoch milliseconds
+     * @return Largest ID with that timestamp
+     */
+    public static long maxIdAt(long epochMillis) {
+        return ((Math.max(epochMillis - EPOCH_MILLIS, 0) + 1) << TIME_SHIFT) - 1;
+    }
+
+    /**
+     * Get the start of the window of IDs that may still commit below an ID
+     *
+     * @param id - Cursor or other issued ID
+     * @param windowMillis - Width of the window in milliseconds
+     * @return id moved windowMillis back in time, at least 0
+     */
+    public static long rewind(long id, long windowMillis) {
+        return Math.max(id - (windowMillis << TIME_SHIFT), 0);
+    }
+
+    /**
+     * Get the creation time encoded in an ID
+     *
+     * @param id - ID issued by a generator
+     * @return Epoch milliseconds
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIME_SHIFT) + EPOCH_MILLIS;
+    }
+
+    /**
+     * Get the node ID encoded in an ID
+     *
+     * @param id - ID issued by a generator
+     * @return Node ID of the issuing generator
+     */
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
@@ -0,0 +1,1000 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.database.DatabaseConnection;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * MessageImporter - Bulk load of messages from another system
+ *
+ * This service manages:
+ * - Reading an NDJSON file of messages (the format GET /api/chat/export writes)
+ * - Assigning message IDs and routing each message to its shard
+ * - Writing each shard's messages with PostgreSQL COPY on its own thread,
+ *   or with batched INSERTs on databases without COPY (H2 in tests)
+ * - Keeping the conversations (inbox) rows up to date
+ * - Checkpointing, so an interrupted import resumes where it stopped
+ * - Dropping and rebuilding secondary indexes around a load into an empty table
+ *
+ * Each input line is an object with sender, recipient (omitted, null or
+ * "broadcast" for a broadcast), content, sentAt (ISO-8601 or epoch
+ * milliseconds) and optionally read (default true); other fields are
+ * ignored. Lines that cannot be parsed and messages whose users do not
+ * exist are counted and skipped.
+ *
+ * The input is read in blocks of {@code blockSize} lines. Each block is
+ * split by shard and every part is written in one transaction together
+ * with the conversations rows it affects. Message IDs come from a
+ * MessageIdGenerator whose clock is the message's sentAt, on a node ID
+ * reserved for imports, so history sorted by time gets time-ordered IDs;
+ * messages older than MessageIdGenerator.EPOCH_MILLIS get consecutive IDs
+ * at the start of the epoch. The checkpoint file records the end of the
+ * last block committed on every shard with the generator's state there,
+ * so a resumed import assigns the same IDs to the same lines, and a part
+ * that was committed after the last checkpoint write is recognised by its
+ * first message ID and skipped.
+ *
+ * Run with:
+ *
+ * <pre>
+ *   mvn compile exec:java -Dexec.mainClass=com.chatapp.server.MessageImporter \
+ *       -Dexec.args="messages.ndjson"
+ * </pre>
+ */
+public class MessageImporter {
+    public static final int DEFAULT_BLOCK_SIZE = 50_000;
+    public static final int DEFAULT_NODE_ID = MessageIdGenerator.MAX_NODE_ID;
+    public static final long PROGRESS_INTERVAL_MS = 10_000;
+
+    private static final int QUEUED_PARTS_PER_SHARD = 2;
+    private static final int MAX_LOGGED_ERRORS = 10;
+    private static final String MESSAGE_COLUMNS = "message_id, sender_id, recipient_id, content, sent_at, conversation_key, is_read";
+    private static final String COPY_MESSAGES = "COPY messages (" + MESSAGE_COLUMNS + ") FROM STDIN";
+    private static final String INSERT_MESSAGE = "INSERT INTO messages (" + MESSAGE_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SECONDARY_INDEXES = "SELECT indexname, indexdef FROM pg_indexes"
+            + " WHERE schemaname = current_schema() AND tablename = 'messages' AND indexname NOT IN"
+            + " (SELECT conname FROM pg_constraint WHERE conrelid = 'messages'::regclass)";
+    private static final Part END = new Part(null, null);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final DatabaseConnection dbConnection;
+    private final UserDictionary userDictionary;
+    private final Path checkpointFile;
+    private final int blockSize;
+    private final int nodeId;
+    private final AtomicLong imported;
+    private final AtomicLong alreadyPresent;
+    private final AtomicLong invalid;
+    private final AtomicLong unknownUser;
+    private final AtomicInteger loggedErrors;
+    private final AtomicReference<Exception> failure;
+    private final ArrayDeque<Block> inFlight;
+    private final Set<String> unknownUsers;
+    private Checkpoint checkpoint;
+    private long sentAtMillis;
+    private long startedAt;
+
+    /**
+     * Constructor - Create an importer with the default block size and node ID
+     *
+     * @param dbConnection - Database to import into (its shards receive the messages)
+     * @param checkpointFile - File recording progress; resumed from if it exists
+     */
+    public MessageImporter(DatabaseConnection dbConnection, Path checkpointFile) {
+        this(dbConnection, new UserDictionary(dbConnection), checkpointFile, DEFAULT_BLOCK_SIZE, DEFAULT_NODE_ID);
+    }
+
+    /**
+     * Constructor - Create an importer
+     *
+     * @param dbConnection - Database to import into (its shards receive the messages)
+     * @param userDictionary - Dictionary resolving senders and recipients
+     * @param checkpointFile - File recording progress; resumed from if it exists
+     * @param blockSize - Input lines per block, the unit of commit and checkpoint
+     * @param nodeId - Message ID node ID no running node uses
+     */
+    public MessageImporter(DatabaseConnection dbConnection, UserDictionary userDictionary, Path checkpointFile,
+                           int blockSize, int nodeId) {
+        this.dbConnection = dbConnection;
+        this.userDictionary = userDictionary;
+        this.checkpointFile = checkpointFile;
+        this.blockSize = blockSize;
+        this.nodeId = nodeId;
+        this.imported = new AtomicLong();
+        this.alreadyPresent = new AtomicLong();
+        this.invalid = new AtomicLong();
+        this.unknownUser = new AtomicLong();
+        this.loggedErrors = new AtomicInteger();
+        this.failure = new AtomicReference<>();
+        this.inFlight = new ArrayDeque<>();
+        this.unknownUsers = new HashSet<>();
+    }
+
+    /**
+     * Import a file, resuming from the checkpoint if there is one
+     *
+     * The checkpoint file is deleted once the import completes.
+     *
+     * @param input - NDJSON file of messages
+     * @return Number of messages written by this run
+     * @throws IOException - If the input or checkpoint cannot be read or written
+     * @throws SQLException - If a shard fails; rerun to resume from the checkpoint
+     * @throws InterruptedException - If interrupted while waiting for the shard writers
+     */
+    public long run(Path input) throws IOException, SQLException, InterruptedException {
+        startedAt = System.currentTimeMillis();
+        checkpoint = Checkpoint.load(checkpointFile, input, blockSize, nodeId);
+        List<DatabaseConnection> shards = dbConnection.getShards();
+        List<ShardWriter> writers = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            writers.add(new ShardWriter(i, shards.get(i)));
+        }
+        for (ShardWriter writer : writers) {
+            writer.prepare();
+        }
+        checkpoint.save();
+
+        ExecutorService pool = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread thread = new Thread(r, "message-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (ShardWriter writer : writers) {
+                running.add(pool.submit(writer::drain));
+            }
+            try {
+                readBlocks(input, writers);
+            } finally {
+                for (ShardWriter writer : writers) {
+                    writer.queue.put(END);
+                }
+                await(running);
+            }
+            throwFailure();
+
+            running.clear();
+            for (ShardWriter writer : writers) {
+                running.add(pool.submit(() -> {
+                    writer.rebuildIndexes();
+                    return null;
+                }));
+            }
+            await(running);
+            throwFailure();
+        } finally {
+            pool.shutdownNow();
+        }
+        Files.deleteIfExists(checkpointFile);
+        return imported.get();
+    }
+
+    /**
+     * Read the input from the checkpoint and hand each block's parts to the shard writers
+     */
+    private void readBlocks(Path input, List<ShardWriter> writers) throws IOException, InterruptedException {
+        MessageIdGenerator ids = new MessageIdGenerator(nodeId, () -> sentAtMillis, checkpoint.lastId);
+        long lastReport = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            channel.position(checkpoint.offset);
+            LineReader reader = new LineReader(Channels.newInputStream(channel), checkpoint.offset);
+            long line = checkpoint.line;
+            while (failure.get() == null) {
+                List<List<Row>> parts = new ArrayList<>();
+                for (int i = 0; i < writers.size(); i++) {
+                    parts.add(new ArrayList<>());
+                }
+                int lines = 0;
+                while (lines < blockSize && reader.next()) {
+                    lines++;
+                    line++;
+                    Row row = parse(reader, line, ids);
+                    if (row != null) {
+                        parts.get(shardIndex(row)).add(row);
+                    }
+                }
+                if (lines == 0) {
+                    break;
+                }
+                Block block = new Block(reader.offset, line, ids.getLastId());
+                for (List<Row> part : parts) {
+                    if (!part.isEmpty()) {
+                        block.pending++;
+                    }
+                }
+                synchronized (inFlight) {
+                    inFlight.addLast(block);
+                }
+                if (block.pending == 0) {
+                    completed(block);
+                }
+                for (int i = 0; i < writers.size(); i++) {
+                    if (!parts.get(i).isEmpty()) {
+                        dispatch(writers.get(i), new Part(block, parts.get(i)));
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= PROGRESS_INTERVAL_MS) {
+                    lastReport = now;
+                    System.out.println("✓ Imported " + imported.get() + " messages, read " + line + " lines ("
+                            + getRowsPerSecond() + " rows/s)");
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue a part for its writer, giving up if a writer has failed
+     */
+    private void dispatch(ShardWriter writer, Part part) throws InterruptedException {
+        while (!writer.queue.offer(part, 100, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                return;
+            }
+        }
+    }
+
+    private int shardIndex(Row row) {
+        List<DatabaseConnection> shards = dbConnection.getShards();
+        return shards.size() == 1 ? 0 : shards.indexOf(dbConnection.shardFor(row.conversationKey));
+    }
+
+    /**
+     * Parse one line into a row with its users resolved and its ID assigned
+     *
+     * @return Row, or null if the line is blank, malformed or names an unknown user
+     */
+    private Row parse(LineReader reader, long line, MessageIdGenerator ids) {
+        if (reader.isBlank()) {
+            return null;
+        }
+        String sender = null;
+        String recipient = null;
+        String content = null;
+        Timestamp sentAt = null;
+        boolean read = true;
+        try (JsonParser parser = JSON.createParser(reader.buffer, reader.start, reader.length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "sender":
+                        sender = parser.getValueAsString();
+                        break;
+                    case "recipient":
+                        recipient = parser.getValueAsString();
+                        break;
+                    case "content":
+                        content = parser.getValueAsString();
+                        break;
+                    case "sentAt":
+                        sentAt = value == JsonToken.VALUE_NUMBER_INT ? new Timestamp(parser.getLongValue())
+                                : parseTime(parser.getValueAsString());
+                        break;
+                    case "read":
+                        read = parser.getValueAsBoolean(true);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } catch (IOException | DateTimeParseException | IllegalArgumentException e) {
+            rejected(invalid, line, e.getMessage());
+            return null;
+        }
+        if (sender == null || content == null || sentAt == null) {
+            rejected(invalid, line, "sender, content and sentAt are required");
+            return null;
+        }
+
+        boolean broadcast = recipient == null || ChatServer.BROADCAST_RECIPIENT.equals(recipient);
+        int senderId = resolve(sender);
+        int recipientId = broadcast ? 0 : resolve(recipient);
+        if (senderId == 0 || (!broadcast && recipientId == 0)) {
+            rejected(unknownUser, line, "unknown user " + (senderId == 0 ? sender : recipient));
+            return null;
+        }
+        sentAtMillis = sentAt.getTime();
+        return new Row(ids.nextId(), senderId, recipientId, content, sentAt, read);
+    }
+
+    private static Timestamp parseTime(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.indexOf('T') < 0) {
+            return Timestamp.valueOf(value);
+        }
+        try {
+            return Timestamp.from(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeParseException e) {
+            return Timestamp.valueOf(LocalDateTime.parse(value));
+        }
+    }
+
+    /**
+     * Resolve a username, remembering unknown ones so they are looked up once
+     */
+    private int resolve(String username) {
+        if (unknownUsers.contains(username)) {
+            return 0;
+        }
+        int id = userDictionary.idOf(username);
+        if (id == 0) {
+            unknownUsers.add(username);
+        }
+        return id;
+    }
+
+    private void rejected(AtomicLong counter, long line, String reason) {
+        counter.incrementAndGet();
+        if (loggedErrors.incrementAndGet() <= MAX_LOGGED_ERRORS) {
+            System.err.println("Skipping line " + line + ": " + reason);
+        }
+    }
+
+    /**
+     * Retire finished blocks in order and move the checkpoint past them
+     */
+    private void completed(Block block) {
+        synchronized (inFlight) {
+            Block done = null;
+            while (!inFlight.isEmpty() && inFlight.peekFirst().pending == 0) {
+                done = inFlight.pollFirst();
+            }
+            if (done == null) {
+                return;
+            }
+            checkpoint.offset = done.endOffset;
+            checkpoint.line = done.endLine;
+            checkpoint.lastId = done.endLastId;
+            try {
+                checkpoint.save();
+            } catch (IOException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static void await(List<Future<?>> running) throws InterruptedException {
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                System.err.println("Import worker failed: " + e.getCause());
+            }
+        }
+    }
+
+    private void throwFailure() throws IOException, SQLException {
+        Exception error = failure.get();
+        if (error instanceof SQLException) {
+            throw (SQLException) error;
+        }
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error != null) {
+            throw new IllegalStateException("Import failed", error);
+        }
+    }
+
+    /**
+     * Get the import rate since run() started
+     *
+     * @return Messages written per second
+     */
+    public long getRowsPerSecond() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startedAt);
+        return imported.get() * 1000 / elapsed;
+    }
+
+    // Getters
+    public long getImportedCount() {
+        return imported.get();
+    }
+
+    /**
+     * @return Messages skipped because an earlier, interrupted run already wrote them
+     */
+    public long getAlreadyPresentCount() {
+        return alreadyPresent.get();
+    }
+
+    public long getInvalidCount() {
+        return invalid.get();
+    }
+
+    public long getUnknownUserCount() {
+        return unknownUser.get();
+    }
+
+    /**
+     * ShardWriter - Writes one shard's parts, one transaction each
+     */
+    private final class ShardWriter {
+        private final int index;
+        private final DatabaseConnection shard;
+        private final BlockingQueue<Part> queue;
+        private boolean copy;
+
+        ShardWriter(int index, DatabaseConnection shard) {
+            this.index = index;
+            this.shard = shard;
+            this.queue = new ArrayBlockingQueue<>(QUEUED_PARTS_PER_SHARD);
+        }
+
+        /**
+         * Choose COPY or INSERT, and drop secondary indexes if the table is empty
+         *
+         * Index definitions are saved in the checkpoint before they are
+         * dropped, so an interrupted import still rebuilds them.
+         */
+        void prepare() throws SQLException {
+            try (Connection conn = shard.getConnection()) {
+                copy = conn.isWrapperFor(PGConnection.class);
+                if (!copy || checkpoint.indexes.containsKey(index)) {
+                    return;
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    ResultSet rs = stmt.executeQuery("SELECT 1 FROM messages LIMIT 1");
+                    if (rs.next()) {
+                        return;
+                    }
+                    Map<String, String> definitions = new LinkedHashMap<>();
+                    rs = stmt.executeQuery(SECONDARY_INDEXES);
+                    while (rs.next()) {
+                        definitions.put(rs.getString(1), rs.getString(2));
+                    }
+                    if (definitions.isEmpty()) {
+                        return;
+                    }
+                    checkpoint.indexes.put(index, new ArrayList<>(definitions.values()));
+                    try {
+                        checkpoint.save();
+                    } catch (IOException e) {
+                        throw new SQLException("Could not save index definitions", e);
+                    }
+                    for (String name : definitions.keySet()) {
+                        stmt.execute("DROP INDEX IF EXISTS " + name);
+                    }
+                    System.out.println("✓ Shard " + index + ": deferred " + definitions.size() + " indexes until the load completes");
+                }
+            }
+        }
+
+        /**
+         * Write parts until the end marker, recording the first failure
+         */
+        void drain() {
+            try {
+                while (true) {
+                    Part part = queue.take();
+                    if (part == END) {
+                        return;
+                    }
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    try {
+                        write(part.rows);
+                        synchronized (inFlight) {
+                            part.block.pending--;
+                        }
+                        completed(part.block);
+                    } catch (SQLException | RuntimeException e) {
+                        System.err.println("Import into shard " + index + " failed: " + e.getMessage());
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Write one part and its conversations rows in a single transaction
+         *
+         * Skipped if its first message is already stored: IDs are assigned
+         * the same way on every run, and a part commits as a whole.
+         */
+        private void write(List<Row> rows) throws SQLException {
+            try (Connection conn = shard.getConnection()) {
+                PreparedStatement exists = conn.prepareStatement("SELECT 1 FROM messages WHERE message_id = ?");
+                exists.setLong(1, rows.get(0).messageId);
+                if (exists.executeQuery().next()) {
+                    alreadyPresent.addAndGet(rows.size());
+                    return;
+                }
+                conn.setAutoCommit(false);
+                try {
+                    if (copy) {
+                        copyRows(conn, rows);
+                    } else {
+                        insertRows(conn, rows);
+                    }
+                    updateConversations(conn, rows);
+                    conn.commit();
+                } catch (SQLException e) {
+                    try {
+                        conn.rollback();
+                    } catch (SQLException rollbackError) {
+                        e.addSuppressed(rollbackError);
+                    }
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+            imported.addAndGet(rows.size());
+        }
+
+        private void copyRows(Connection conn, List<Row> rows) throws SQLException {
+            PGCopyOutputStream out = new PGCopyOutputStream(conn.unwrap(PGConnection.class), COPY_MESSAGES, 1 << 16);
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+                for (Row row : rows) {
+                    writer.write(Long.toString(row.messageId));
+                    writer.write('\t');
+                    writer.write(Integer.toString(row.senderId));
+                    writer.write('\t');
+                    writer.write(row.recipientId == 0 ? "\\N" : Integer.toString(row.recipientId));
+                    writer.write('\t');
+                    writeCopyText(writer, row.content);
+                    writer.write('\t');
+                    writer.write(row.sentAt.toString());
+                    writer.write('\t');
+                    writer.write(Long.toString(row.conversationKey));
+                    writer.write('\t');
+                    writer.write(row.read ? 't' : 'f');
+                    writer.write('\n');
+                }
+                writer.close();
+            } catch (IOException e) {
+                if (out.isActive()) {
+                    out.cancelCopy();
+                }
+                throw new SQLException("COPY into shard " + index + " failed", e);
+            }
+        }
+
+        private void insertRows(Connection conn, List<Row> rows) throws SQLException {
+            PreparedStatement insert = conn.prepareStatement(INSERT_MESSAGE);
+            for (Row row : rows) {
+                insert.setLong(1, row.messageId);
+                insert.setInt(2, row.senderId);
+                if (row.recipientId == 0) {
+                    insert.setNull(3, Types.INTEGER);
+                } else {
+                    insert.setInt(3, row.recipientId);
+                }
+                insert.setString(4, row.content);
+                insert.setTimestamp(5, row.sentAt);
+                insert.setLong(6, row.conversationKey);
+                insert.setBoolean(7, row.read);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        /**
+         * Upsert both sides of every conversation in the part from its newest message
+         *
+         * All updates go as one batch, then the rows that did not exist
+         * are inserted as another.
+         */
+        private void updateConversations(Connection conn, List<Row> rows) throws SQLException {
+            Map<Long, ConversationDelta> deltas = new HashMap<>();
+            for (Row row : rows) {
+                if (row.recipientId == 0) {
+                    continue;
+                }
+                ConversationDelta delta = deltas.computeIfAbsent(row.conversationKey, k -> new ConversationDelta());
+                if (delta.newest == null || row.messageId > delta.newest.messageId) {
+                    delta.newest = row;
+                }
+                if (!row.read && row.senderId != row.recipientId) {
+                    delta.unread.merge(row.recipientId, 1, Integer::sum);
+                }
+            }
+
+            List<int[]> sides = new ArrayList<>();
+            List<Message> messages = new ArrayList<>();
+            PreparedStatement update = conn.prepareStatement(ChatServer.UPDATE_CONVERSATION);
+            for (ConversationDelta delta : deltas.values()) {
+                Row newest = delta.newest;
+                Message message = new Message(null, null, newest.content, newest.sentAt);
+                message.setMessageId(newest.messageId);
+                int low = Math.min(newest.senderId, newest.recipientId);
+                int high = Math.max(newest.senderId, newest.recipientId);
+                for (int[] side : low == high ? new int[][] {{low, low}} : new int[][] {{low, high}, {high, low}}) {
+                    int unread = delta.unread.getOrDefault(side[0], 0);
+                    ChatServer.bindConversationUpdate(update, message, newest.senderId, side[0], side[1], unread);
+                    update.addBatch();
+                    sides.add(new int[] {side[0], side[1], unread, newest.senderId, newest.recipientId});
+                    messages.add(message);
+                }
+            }
+            if (sides.isEmpty()) {
+                return;
+            }
+            int[] updated = update.executeBatch();
+            PreparedStatement insert = null;
+            for (int i = 0; i < sides.size(); i++) {
+                if (updated[i] == 0) {
+                    int[] side = sides.get(i);
+                    if (insert == null) {
+                        insert = conn.prepareStatement(ChatServer.INSERT_CONVERSATION);
+                    }
+                    ChatServer.bindConversationInsert(insert, messages.get(i), side[3], side[4], side[0], side[1], side[2]);
+                    insert.addBatch();
+                }
+            }
+            if (insert != null) {
+                insert.executeBatch();
+            }
+        }
+
+        /**
+         * Recreate indexes dropped by prepare() and refresh planner statistics
+         */
+        void rebuildIndexes() throws SQLException, IOException {
+            List<String> definitions = checkpoint.indexes.get(index);
+            if (definitions == null) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            try (Connection conn = shard.getConnection(); Statement stmt = conn.createStatement()) {
+                for (String definition : definitions) {
+                    stmt.execute(definition.replaceFirst("^CREATE (UNIQUE )?INDEX ", "CREATE $1INDEX IF NOT EXISTS "));
+                }
+                stmt.execute("ANALYZE messages");
+            } catch (SQLException e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            }
+            synchronized (inFlight) {
+                checkpoint.indexes.remove(index);
+                checkpoint.save();
+            }
+            System.out.println("✓ Shard " + index + ": rebuilt " + definitions.size() + " indexes in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /**
+     * Write a value in COPY text format, escaping the delimiter, line breaks and backslashes
+     */
+    static void writeCopyText(Writer writer, String value) throws IOException {
+        int from = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape;
+            switch (c) {
+                case '\\':
+                    escape = "\\\\";
+                    break;
+                case '\t':
+                    escape = "\\t";
+                    break;
+                case '\n':
+                    escape = "\\n";
+                    break;
+                case '\r':
+                    escape = "\\r";
+                    break;
+                default:
+                    continue;
+            }
+            writer.write(value, from, i - from);
+            writer.write(escape);
+            from = i + 1;
+        }
+        writer.write(value, from, value.length() - from);
+    }
+
+    /**
+     * Row - One message ready to be written
+     */
+    private static final class Row {
+        final long messageId;
+        final int senderId;
+        final int recipientId;
+        final String content;
+        final Timestamp sentAt;
+        final boolean read;
+        final long conversationKey;
+
+        Row(long messageId, int senderId, int recipientId, String content, Timestamp sentAt, boolean read) {
+            this.messageId = messageId;
+            this.senderId = senderId;
+            this.recipientId = recipientId;
+            this.content = content;
+            this.sentAt = sentAt;
+            this.read = read;
+            this.conversationKey = ChatServer.conversationKey(senderId, recipientId);
+        }
+    }
+
+    /**
+     * ConversationDelta - A part's newest message and unread messages per recipient in one conversation
+     */
+    private static final class ConversationDelta {
+        Row newest;
+        final Map<Integer, Integer> unread = new HashMap<>(4);
+    }
+
+    /**
+     * Block - A run of input lines, complete once every shard has committed its part
+     */
+    private static final class Block {
+        final long endOffset;
+        final long endLine;
+        final long endLastId;
+        int pending;
+
+        Block(long endOffset, long endLine, long endLastId) {
+            this.endOffset = endOffset;
+            this.endLine = endLine;
+            this.endLastId = endLastId;
+        }
+    }
+
+    /**
+     * Part - A block's rows for one shard
+     */
+    private static final class Part {
+        final Block block;
+        final List<Row> rows;
+
+        Part(Block block, List<Row> rows) {
+            this.block = block;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * LineReader - Reads lines as byte ranges and tracks the byte offset after each
+     */
+    private static final class LineReader {
+        private final InputStream in;
+        private byte[] buffer = new byte[1 << 20];
+        private int start;
+        private int length;
+        private int position;
+        private int limit;
+        private long offset;
+
+        LineReader(InputStream in, long offset) {
+            this.in = in;
+            this.offset = offset;
+        }
+
+        /**
+         * Advance to the next line
+         *
+         * @return false at the end of the input
+         */
+        boolean next() throws IOException {
+            int scan = position;
+            while (true) {
+                for (; scan < limit; scan++) {
+                    if (buffer[scan] == '\n') {
+                        start = position;
+                        length = scan - position;
+                        position = scan + 1;
+                        offset += length + 1;
+                        return true;
+                    }
+                }
+                int scanned = limit - position;
+                if (!fill()) {
+                    start = position;
+                    length = limit - position;
+                    position = limit;
+                    offset += length;
+                    return length > 0;
+                }
+                scan = scanned;
+            }
+        }
+
+        /**
+         * Move the unread bytes to the front of the buffer, growing it for long lines, and read more
+         */
+        private boolean fill() throws IOException {
+            int partial = limit - position;
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, partial);
+            } else if (partial == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            position = 0;
+            limit = partial;
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read <= 0) {
+                return false;
+            }
+            limit += read;
+            return true;
+        }
+
+        boolean isBlank() {
+            for (int i = start; i < start + length; i++) {
+                if (buffer[i] > ' ') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Checkpoint - Import progress, saved by replacing the checkpoint file
+     */
+    private static final class Checkpoint {
+        private final Path file;
+        private final String input;
+        private final int blockSize;
+        private final int nodeId;
+        private final Map<Integer, List<String>> indexes;
+        private long offset;
+        private long line;
+        private long lastId;
+
+        private Checkpoint(Path file, String input, int blockSize, int nodeId, long lastId) {
+            this.file = file;
+            this.input = input;
+            this.blockSize = blockSize;
+            this.nodeId = nodeId;
+            this.lastId = lastId;
+            this.indexes = new HashMap<>();
+        }
+
+        /**
+         * Load the checkpoint for an input, or start a new one
+         */
+        static Checkpoint load(Path file, Path input, int blockSize, int nodeId) throws IOException {
+            String inputPath = input.toAbsolutePath().toString();
+            long firstId = ((long) nodeId << MessageIdGenerator.SEQUENCE_BITS) | ((1L << MessageIdGenerator.SEQUENCE_BITS) - 1);
+            if (!Files.exists(file)) {
+                return new Checkpoint(file, inputPath, blockSize, nodeId, firstId);
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            if (!inputPath.equals(properties.getProperty("input"))) {
+                throw new IllegalStateException("Checkpoint " + file + " belongs to " + properties.getProperty("input"));
+            }
+            if (blockSize != Integer.parseInt(properties.getProperty("blockSize"))
+                    || nodeId != Integer.parseInt(properties.getProperty("nodeId"))) {
+                throw new IllegalStateException("Checkpoint " + file + " was written with block size "
+                        + properties.getProperty("blockSize") + " and node ID " + properties.getProperty("nodeId"));
+            }
+            Checkpoint checkpoint = new Checkpoint(file, inputPath, blockSize, nodeId,
+                    Long.parseLong(properties.getProperty("lastId")));
+            checkpoint.offset = Long.parseLong(properties.getProperty("offset"));
+            checkpoint.line = Long.parseLong(properties.getProperty("line"));
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith("shard.") && name.endsWith(".indexes")) {
+                    int shard = Integer.parseInt(name.substring("shard.".length(), name.length() - ".indexes".length()));
+                    checkpoint.indexes.put(shard, new ArrayList<>(Arrays.asList(properties.getProperty(name).split("\n"))));
+                }
+            }
+            System.out.println("✓ Resuming import of " + inputPath + " at line " + checkpoint.line);
+            return checkpoint;
+        }
+
+        synchronized void save() throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("input", input);
+            properties.setProperty("blockSize", Integer.toString(blockSize));
+            properties.setProperty("nodeId", Integer.toString(nodeId));
+            properties.setProperty("offset", Long.toString(offset));
+            properties.setProperty("line", Long.toString(line));
+            properties.setProperty("lastId", Long.toString(lastId));
+            for (Map.Entry<Integer, List<String>> shard : indexes.entrySet()) {
+                properties.setProperty("shard." + shard.getKey() + ".indexes", String.join("\n", shard.getValue()));
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Message import checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Main method - Import a file into the configured database
+     *
+     * @param args - Input file, then optionally the checkpoint file (default: input + ".checkpoint") and block size
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: MessageImporter <messages.ndjson> [checkpoint file] [block size]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path checkpointFile = args.length > 1 ? Paths.get(args[1]) : Paths.get(args[0] + ".checkpoint");
+        int blockSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BLOCK_SIZE;
+        int nodeId = Integer.parseInt(DatabaseConnection.setting("chatapp.import.node.id", "CHATAPP_IMPORT_NODE_ID",
+                String.valueOf(DEFAULT_NODE_ID)));
+        DatabaseConnection dbConnection = new DatabaseConnection();
+        MessageImporter importer = new MessageImporter(dbConnection, new UserDictionary(dbConnection),
+                checkpointFile, blockSize, nodeId);
+
+        long start = System.currentTimeMillis();
+        try {
+            long imported = importer.run(input);
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            System.out.println("✓ Imported " + imported + " messages in " + elapsed + " ms ("
+                    + imported * 1000 / elapsed + " rows/s)");
+        } catch (SQLException e) {
+            System.err.println("Import stopped: " + e.getMessage() + "; run again to resume from " + checkpointFile);
+            System.exit(1);
+        } finally {
+            dbConnection.close();
+        }
+        if (importer.getAlreadyPresentCount() > 0) {
+            System.out.println("✓ " + importer.getAlreadyPresentCount() + " messages were already imported");
+        }
+        if (importer.getInvalidCount() + importer.getUnknownUserCount() > 0) {
+            System.out.println("⚠ Skipped " + importer.getInvalidCount() + " malformed lines and "
+                    + importer.getUnknownUserCount() + " messages from or to unknown users");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.chatapp.server;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import java.util.Map;
+
+/**
+ * ReactionCounts - Current reaction counts of one message
+ *
+ * Sent as the payload of "reaction" push events and returned by the
+ * reaction endpoints. Counts are ordered most used first; emojis nobody
+ * currently uses are left out.
+ */
+public final class ReactionCounts {
+    private final long messageId;
+    private final Map<String, Long> counts;
+
+    /**
+     * Constructor - Counts of one message
+     *
+     * @param messageId - Message the reactions are on
+     * @param counts - Count per emoji, most used first
+     */
+    public ReactionCounts(long messageId, Map<String, Long> counts) {
+        this.messageId = messageId;
+        this.counts = counts;
+    }
+
+    // Getters
+    @JsonSerialize(using = ToStringSerializer.class)
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+}
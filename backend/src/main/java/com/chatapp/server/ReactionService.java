@@ -0,0 +1,702 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.push.PushCoalescer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReactionService - Emoji reactions on messages, counted in memory and written in batches
+ *
+ * This service manages:
+ * - A LongAdder count per message and emoji, and the set of users behind it
+ * - Rejecting a second reaction with the same emoji from the same user
+ * - Writing reactions to message_reaction_users and count deltas to
+ *   message_reactions in one transaction per flush interval
+ * - Serving current counts from memory
+ * - Publishing changed counts to listeners at most once per push interval
+ *
+ * A reaction never touches the database on the request path once the
+ * message is loaded: it adds the user to a concurrent set, bumps a
+ * LongAdder and queues the change, so a popular broadcast does not turn
+ * into a hot row locked by every reacting user. The flusher folds the
+ * queued changes per user and emoji and writes them as batches; the count
+ * rows see one UPDATE per message and emoji per flush.
+ *
+ * The user sets only hold reactions made since the message was loaded on
+ * this node. A repeat of a reaction stored earlier, or made on another
+ * node, is counted at once and taken back at the next flush, when the
+ * insert into message_reaction_users finds the row already there; what
+ * the flush actually changed is what is added to message_reactions. A
+ * failed flush keeps its changes and retries them on the next one.
+ * Reactions are on direct messages and broadcasts; a direct message is
+ * only visible to its sender and recipient.
+ */
+public class ReactionService {
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1_000;
+    public static final long DEFAULT_PUSH_INTERVAL_MS = 250;
+    public static final int DEFAULT_MAX_TRACKED_MESSAGES = 100_000;
+    public static final int MAX_EMOJI_LENGTH = 32;
+    public static final int MAX_EMOJIS_PER_MESSAGE = 50;
+
+    private static final long IDLE_MS = 10 * 60_000L;
+    private static final long TOUCH_GRANULARITY_MS = 1_000;
+    private static final String PUSH_EVENT = "reaction";
+    private static final String FIND_MESSAGE = "SELECT sender_id, recipient_id FROM messages WHERE message_id = ?";
+    private static final String LOAD_COUNTS = "SELECT emoji, reaction_count FROM message_reactions WHERE message_id = ?";
+    private static final String INSERT_USER = "INSERT INTO message_reaction_users (message_id, user_id, emoji)"
+            + " SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM message_reaction_users"
+            + " WHERE message_id = ? AND user_id = ? AND emoji = ?)";
+    private static final String DELETE_USER = "DELETE FROM message_reaction_users"
+            + " WHERE message_id = ? AND user_id = ? AND emoji = ?";
+    private static final String UPDATE_COUNT = "UPDATE message_reactions SET reaction_count = reaction_count + ?"
+            + " WHERE message_id = ? AND emoji = ?";
+    private static final String INSERT_COUNT = "INSERT INTO message_reactions (message_id, emoji, reaction_count)"
+            + " VALUES (?, ?, ?)";
+
+    private final DatabaseConnection dbConnection;
+    private final UserDictionary userDictionary;
+    private final long flushIntervalMs;
+    private final long pushIntervalMs;
+    private final int maxTrackedMessages;
+    private final Map<Long, Tracked> tracked;
+    private final ConcurrentLinkedQueue<Change> changes;
+    private final Set<Long> dirty;
+    private final List<ReactionListener> listeners;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder queued;
+    private final AtomicLong flushedChanges;
+    private final AtomicLong flushes;
+    private final AtomicLong corrections;
+    private final AtomicLong published;
+    private List<Change> retry;
+
+    /**
+     * Constructor - Initialize ReactionService with default settings
+     *
+     * @param dbConnection - Database holding messages and the reaction tables
+     * @param userDictionary - Username to user_id dictionary over the same database
+     */
+    public ReactionService(DatabaseConnection dbConnection, UserDictionary userDictionary) {
+        this(dbConnection, userDictionary, DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_PUSH_INTERVAL_MS,
+                DEFAULT_MAX_TRACKED_MESSAGES);
+    }
+
+    /**
+     * Constructor - Initialize ReactionService with explicit settings
+     *
+     * @param dbConnection - Database holding messages and the reaction tables
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param flushIntervalMs - Interval between database writes
+     * @param pushIntervalMs - Interval between publications of changed counts
+     * @param maxTrackedMessages - Messages kept in memory before idle ones are dropped
+     */
+    public ReactionService(DatabaseConnection dbConnection, UserDictionary userDictionary, long flushIntervalMs,
+                           long pushIntervalMs, int maxTrackedMessages) {
+        this.dbConnection = dbConnection;
+        this.userDictionary = userDictionary;
+        this.flushIntervalMs = flushIntervalMs;
+        this.pushIntervalMs = pushIntervalMs;
+        this.maxTrackedMessages = maxTrackedMessages;
+        this.tracked = new ConcurrentHashMap<>();
+        this.changes = new ConcurrentLinkedQueue<>();
+        this.dirty = ConcurrentHashMap.newKeySet();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.queued = new LongAdder();
+        this.flushedChanges = new AtomicLong();
+        this.flushes = new AtomicLong();
+        this.corrections = new AtomicLong();
+        this.published = new AtomicLong();
+        this.retry = new ArrayList<>();
+        this.scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "reactions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start flushing and publishing in the background
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::publish, pushIntervalMs, pushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop and write outstanding reactions
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Add a user's reaction to a message
+     *
+     * Reacting again with the same emoji changes nothing.
+     *
+     * @param username - Reacting user
+     * @param messageId - Message to react to
+     * @param emoji - Emoji or shortcode, at most MAX_EMOJI_LENGTH characters without whitespace
+     * @return Counts after the reaction, or null if the message does not exist, is not
+     *         visible to the user, the emoji is invalid or the message has too many distinct emojis
+     */
+    public ReactionCounts react(String username, long messageId, String emoji) {
+        return change(username, messageId, emoji, true);
+    }
+
+    /**
+     * Remove a user's reaction from a message
+     *
+     * @param username - User taking the reaction back
+     * @param messageId - Message reacted to
+     * @param emoji - Emoji of the reaction
+     * @return Counts after the removal, or null if the message does not exist,
+     *         is not visible to the user or the emoji is invalid
+     */
+    public ReactionCounts unreact(String username, long messageId, String emoji) {
+        return change(username, messageId, emoji, false);
+    }
+
+    /**
+     * Get a message's current reaction counts
+     *
+     * @param username - Requesting user
+     * @param messageId - Message to look up
+     * @return Counts, or null if the message does not exist or is not visible to the user
+     */
+    public ReactionCounts getCounts(String username, long messageId) {
+        int userId = userDictionary.idOf(username);
+        Tracked message = track(messageId);
+        if (userId == 0 || message == null || !message.visibleTo(userId)) {
+            return null;
+        }
+        return message.counts(messageId);
+    }
+
+    private ReactionCounts change(String username, long messageId, String emoji, boolean add) {
+        int userId = userDictionary.idOf(username);
+        if (userId == 0 || !isValidEmoji(emoji)) {
+            return null;
+        }
+        Tracked message = track(messageId);
+        if (message == null || !message.visibleTo(userId)) {
+            return null;
+        }
+        Reaction reaction = message.emojis.get(emoji);
+        if (reaction == null) {
+            if (!add) {
+                queue(new Change(messageId, userId, emoji, false, 0));
+                return message.counts(messageId);
+            }
+            if (message.emojis.size() >= MAX_EMOJIS_PER_MESSAGE) {
+                return null;
+            }
+            reaction = message.emojis.computeIfAbsent(emoji, k -> new Reaction());
+        }
+
+        if (add) {
+            if (!reaction.users.add(userId)) {
+                return message.counts(messageId);
+            }
+            reaction.count.increment();
+            queue(new Change(messageId, userId, emoji, true, 1));
+        } else if (reaction.users.remove(userId)) {
+            reaction.count.decrement();
+            queue(new Change(messageId, userId, emoji, false, -1));
+        } else {
+            // Possibly stored before this node loaded the message; the flush finds out
+            queue(new Change(messageId, userId, emoji, false, 0));
+        }
+        markDirty(messageId, message);
+        return message.counts(messageId);
+    }
+
+    /**
+     * Check that a reaction is a short token without whitespace
+     *
+     * @param emoji - Emoji or shortcode
+     * @return true if it can be stored
+     */
+    public static boolean isValidEmoji(String emoji) {
+        if (emoji == null || emoji.isEmpty() || emoji.length() > MAX_EMOJI_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < emoji.length(); i++) {
+            char c = emoji.charAt(i);
+            if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void queue(Change change) {
+        changes.add(change);
+        queued.increment();
+    }
+
+    private void markDirty(long messageId, Tracked message) {
+        // Read before writing, so reactions to a hot message do not all write the same flag
+        if (!message.dirty.get() && message.dirty.compareAndSet(false, true)) {
+            dirty.add(messageId);
+        }
+    }
+
+    /**
+     * Get a message's in-memory state, loading its counts on first use
+     *
+     * @return State, or null if the message does not exist or cannot be read
+     */
+    private Tracked track(long messageId) {
+        long now = System.currentTimeMillis();
+        Tracked message = tracked.get(messageId);
+        if (message != null) {
+            if (now - message.lastTouched > TOUCH_GRANULARITY_MS) {
+                message.lastTouched = now;
+            }
+            return message;
+        }
+        try {
+            message = load(messageId);
+        } catch (SQLException e) {
+            System.err.println("Error loading reactions for message " + messageId + ": " + e.getMessage());
+            return null;
+        }
+        if (message == null) {
+            return null;
+        }
+        Tracked existing = tracked.putIfAbsent(messageId, message);
+        return existing != null ? existing : message;
+    }
+
+    /**
+     * Find a message on its shard and read its stored counts
+     */
+    private Tracked load(long messageId) throws SQLException {
+        Tracked message = null;
+        for (DatabaseConnection shard : dbConnection.getShards()) {
+            try (Connection conn = shard.getConnection()) {
+                PreparedStatement stmt = conn.prepareStatement(FIND_MESSAGE);
+                stmt.setLong(1, messageId);
+                ResultSet rs = stmt.executeQuery();
+                if (rs.next()) {
+                    message = new Tracked(rs.getInt("sender_id"), rs.getInt("recipient_id"));
+                    break;
+                }
+            }
+        }
+        if (message == null) {
+            return null;
+        }
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(LOAD_COUNTS);
+            stmt.setLong(1, messageId);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Reaction reaction = new Reaction();
+                reaction.count.add(rs.getLong("reaction_count"));
+                message.emojis.put(rs.getString("emoji"), reaction);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Write queued reactions and count deltas in one transaction
+     *
+     * Changes are folded per message, user and emoji to their last state.
+     * In-memory counts are then corrected by whatever the database did
+     * differently from what was assumed when each reaction was counted.
+     *
+     * @return Number of user reactions written, 0 if the flush failed and will be retried
+     */
+    synchronized int flush() {
+        List<Change> batch = retry;
+        retry = new ArrayList<>();
+        Change next;
+        while ((next = changes.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            evictIdle();
+            return 0;
+        }
+
+        Map<Change, Change> folded = new LinkedHashMap<>();
+        for (Change change : batch) {
+            Change previous = folded.remove(change);
+            if (previous != null) {
+                change = change.after(previous);
+            }
+            folded.put(change, change);
+        }
+        List<Change> pending = new ArrayList<>(folded.values());
+        int[] applied;
+        try {
+            applied = write(pending);
+        } catch (SQLException e) {
+            System.err.println("Error flushing reactions (will retry): " + e.getMessage());
+            retry = batch;
+            return 0;
+        }
+        queued.add(-batch.size());
+
+        for (int i = 0; i < pending.size(); i++) {
+            Change change = pending.get(i);
+            int correction = applied[i] - change.assumed;
+            if (correction == 0) {
+                continue;
+            }
+            corrections.incrementAndGet();
+            Tracked message = tracked.get(change.messageId);
+            Reaction reaction = message != null ? message.emojis.get(change.emoji) : null;
+            if (reaction != null) {
+                reaction.count.add(correction);
+                markDirty(change.messageId, message);
+            }
+        }
+        flushedChanges.addAndGet(pending.size());
+        flushes.incrementAndGet();
+        evictIdle();
+        return pending.size();
+    }
+
+    /**
+     * Apply folded changes and add their effect to the count rows
+     *
+     * @return Per change, how much it changed its count: 1, -1 or 0
+     */
+    private int[] write(List<Change> pending) throws SQLException {
+        int[] applied = new int[pending.size()];
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement insertUser = conn.prepareStatement(INSERT_USER);
+                PreparedStatement deleteUser = conn.prepareStatement(DELETE_USER);
+                List<Integer> inserts = new ArrayList<>();
+                List<Integer> deletes = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    Change change = pending.get(i);
+                    PreparedStatement stmt = change.add ? insertUser : deleteUser;
+                    stmt.setLong(1, change.messageId);
+                    stmt.setInt(2, change.userId);
+                    stmt.setString(3, change.emoji);
+                    if (change.add) {
+                        stmt.setLong(4, change.messageId);
+                        stmt.setInt(5, change.userId);
+                        stmt.setString(6, change.emoji);
+                        inserts.add(i);
+                    } else {
+                        deletes.add(i);
+                    }
+                    stmt.addBatch();
+                }
+                if (!inserts.isEmpty()) {
+                    int[] rows = insertUser.executeBatch();
+                    for (int j = 0; j < rows.length; j++) {
+                        applied[inserts.get(j)] = rows[j] > 0 ? 1 : 0;
+                    }
+                }
+                if (!deletes.isEmpty()) {
+                    int[] rows = deleteUser.executeBatch();
+                    for (int j = 0; j < rows.length; j++) {
+                        applied[deletes.get(j)] = rows[j] > 0 ? -1 : 0;
+                    }
+                }
+
+                Map<List<Object>, Long> deltas = new LinkedHashMap<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    if (applied[i] != 0) {
+                        Change change = pending.get(i);
+                        deltas.merge(List.of(change.messageId, change.emoji), (long) applied[i], Long::sum);
+                    }
+                }
+                deltas.values().removeIf(delta -> delta == 0);
+                writeCounts(conn, deltas);
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Add deltas to existing count rows in one batch and insert the missing rows in another
+     */
+    private static void writeCounts(Connection conn, Map<List<Object>, Long> deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        PreparedStatement update = conn.prepareStatement(UPDATE_COUNT);
+        for (Map.Entry<List<Object>, Long> delta : deltas.entrySet()) {
+            update.setLong(1, delta.getValue());
+            update.setLong(2, (Long) delta.getKey().get(0));
+            update.setString(3, (String) delta.getKey().get(1));
+            update.addBatch();
+        }
+        int[] updated = update.executeBatch();
+        PreparedStatement insert = null;
+        int i = 0;
+        for (Map.Entry<List<Object>, Long> delta : deltas.entrySet()) {
+            if (updated[i++] == 0) {
+                if (insert == null) {
+                    insert = conn.prepareStatement(INSERT_COUNT);
+                }
+                insert.setLong(1, (Long) delta.getKey().get(0));
+                insert.setString(2, (String) delta.getKey().get(1));
+                insert.setLong(3, delta.getValue());
+                insert.addBatch();
+            }
+        }
+        if (insert != null) {
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Drop messages nobody has reacted to or read counts of for a while
+     *
+     * Above maxTrackedMessages, every message without changes waiting to
+     * be published goes, regardless of age.
+     */
+    private void evictIdle() {
+        if (!retry.isEmpty() || !changes.isEmpty()) {
+            return;
+        }
+        long idleBefore = tracked.size() > maxTrackedMessages ? Long.MAX_VALUE : System.currentTimeMillis() - IDLE_MS;
+        Iterator<Map.Entry<Long, Tracked>> entries = tracked.entrySet().iterator();
+        while (entries.hasNext()) {
+            Tracked message = entries.next().getValue();
+            if (message.lastTouched < idleBefore && !message.dirty.get()) {
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Publish the counts of every message that changed since the last call
+     *
+     * @return Number of messages published
+     */
+    int publish() {
+        int count = 0;
+        Iterator<Long> ids = dirty.iterator();
+        while (ids.hasNext()) {
+            long messageId = ids.next();
+            ids.remove();
+            Tracked message = tracked.get(messageId);
+            if (message == null) {
+                continue;
+            }
+            message.dirty.set(false);
+            ReactionCounts counts = message.counts(messageId);
+            String sender = userDictionary.nameOf(message.senderId);
+            String recipient = message.recipientId == 0 ? ChatServer.BROADCAST_RECIPIENT
+                    : userDictionary.nameOf(message.recipientId);
+            for (ReactionListener listener : listeners) {
+                try {
+                    listener.onReactionsChanged(counts, sender, recipient);
+                } catch (RuntimeException e) {
+                    System.err.println("Error in reaction listener: " + e.getMessage());
+                }
+            }
+            count++;
+        }
+        published.addAndGet(count);
+        return count;
+    }
+
+    /**
+     * Add a listener for changed counts
+     *
+     * @param listener - ReactionListener implementation
+     */
+    public void addListener(ReactionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Create a listener that pushes changed counts to everyone who can see the message
+     *
+     * Direct messages go to their sender and recipient, broadcasts to every
+     * connected user. Counts of several messages changing within the push
+     * coalescer's window reach a user as one "reactions" frame.
+     *
+     * @param pushCoalescer - Coalescer over the registry of open push connections
+     * @return Listener pushing "reaction" events
+     */
+    public static ReactionListener pushDelivery(PushCoalescer pushCoalescer) {
+        return (counts, sender, recipient) -> {
+            if (ChatServer.BROADCAST_RECIPIENT.equals(recipient)) {
+                pushCoalescer.pushToAll(PUSH_EVENT, counts, null);
+                return;
+            }
+            pushCoalescer.push(sender, PUSH_EVENT, counts);
+            if (!recipient.equals(sender)) {
+                pushCoalescer.push(recipient, PUSH_EVENT, counts);
+            }
+        };
+    }
+
+    // Getters
+    public int getTrackedMessageCount() {
+        return tracked.size();
+    }
+
+    /**
+     * @return Reactions and removals counted in memory but not yet written
+     */
+    public long getPendingCount() {
+        return queued.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushedChanges.get();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * @return Counted reactions the database showed were repeats, or removals of stored ones
+     */
+    public long getCorrectionCount() {
+        return corrections.get();
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * Tracked - In-memory reactions of one message
+     */
+    private static final class Tracked {
+        final int senderId;
+        final int recipientId;
+        final Map<String, Reaction> emojis = new ConcurrentHashMap<>();
+        final AtomicBoolean dirty = new AtomicBoolean();
+        volatile long lastTouched = System.currentTimeMillis();
+
+        Tracked(int senderId, int recipientId) {
+            this.senderId = senderId;
+            this.recipientId = recipientId;
+        }
+
+        boolean visibleTo(int userId) {
+            return recipientId == 0 || userId == senderId || userId == recipientId;
+        }
+
+        /**
+         * Snapshot the non-zero counts, most used first
+         */
+        ReactionCounts counts(long messageId) {
+            List<Map.Entry<String, Long>> entries = new ArrayList<>();
+            for (Map.Entry<String, Reaction> emoji : emojis.entrySet()) {
+                long count = emoji.getValue().count.sum();
+                if (count > 0) {
+                    entries.add(Map.entry(emoji.getKey(), count));
+                }
+            }
+            entries.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> entry : entries) {
+                counts.put(entry.getKey(), entry.getValue());
+            }
+            return new ReactionCounts(messageId, counts);
+        }
+    }
+
+    /**
+     * Reaction - Count of one emoji on one message and the users counted here
+     */
+    private static final class Reaction {
+        final LongAdder count = new LongAdder();
+        final Set<Integer> users = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Change - A queued reaction or removal; equal when for the same message, user and emoji
+     */
+    private static final class Change {
+        final long messageId;
+        final int userId;
+        final String emoji;
+        final boolean add;
+        final int assumed;
+
+        Change(long messageId, int userId, String emoji, boolean add, int assumed) {
+            this.messageId = messageId;
+            this.userId = userId;
+            this.emoji = emoji;
+            this.add = add;
+            this.assumed = assumed;
+        }
+
+        /**
+         * Fold an earlier change of the same reaction into this one
+         *
+         * @return Change with this one's final state and both changes' assumed effect
+         */
+        Change after(Change earlier) {
+            return new Change(messageId, userId, emoji, add, earlier.assumed + assumed);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Change)) {
+                return false;
+            }
+            Change change = (Change) other;
+            return messageId == change.messageId && userId == change.userId && emoji.equals(change.emoji);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(messageId, userId, emoji);
+        }
+    }
+
+    /**
+     * Interface for listeners to changed reaction counts
+     */
+    public interface ReactionListener {
+        /**
+         * Called at most once per push interval for each message whose counts changed
+         *
+         * @param counts - Current counts
+         * @param sender - Sender of the message
+         * @param recipient - Recipient, or ChatServer.BROADCAST_RECIPIENT
+         */
+        void onReactionsChanged(ReactionCounts counts, String sender, String recipient);
+    }
+}
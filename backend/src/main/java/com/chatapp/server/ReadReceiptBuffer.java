@@ -0,0 +1,143 @@
+package com.chatapp.server;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReadReceiptBuffer - Read positions kept in memory and written in batches
+ *
+ * This service manages:
+ * - The newest message ID each user has seen in each conversation
+ * - Resetting unread counts for all of them in one batch per flush interval
+ * - Retrying positions whose flush failed
+ *
+ * A read receipt never touches the database on the request path: it only
+ * raises the stored position of the (reader, peer) pair, so a client
+ * acknowledging every message of a busy conversation costs one unread
+ * count reset per interval instead of a COUNT(*) and a SELECT per receipt.
+ * Cached inboxes show the new unread count once the flush has run.
+ */
+public class ReadReceiptBuffer {
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1_000;
+
+    private final ChatServer chatServer;
+    private final long flushIntervalMs;
+    private final ConcurrentHashMap<List<String>, Long> pending;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong receipts;
+    private final AtomicLong flushedRows;
+    private final AtomicLong flushes;
+
+    /**
+     * Constructor - Initialize ReadReceiptBuffer with the default interval
+     *
+     * @param chatServer - Server whose conversations rows are updated
+     */
+    public ReadReceiptBuffer(ChatServer chatServer) {
+        this(chatServer, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor - Initialize ReadReceiptBuffer
+     *
+     * @param chatServer - Server whose conversations rows are updated
+     * @param flushIntervalMs - Interval between database writes
+     */
+    public ReadReceiptBuffer(ChatServer chatServer, long flushIntervalMs) {
+        this.chatServer = chatServer;
+        this.flushIntervalMs = flushIntervalMs;
+        this.pending = new ConcurrentHashMap<>();
+        this.receipts = new AtomicLong();
+        this.flushedRows = new AtomicLong();
+        this.flushes = new AtomicLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "read-receipts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start flushing in the background
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop and write outstanding read positions
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Record that a user has read a conversation up to a message
+     *
+     * @param reader - User who read the messages
+     * @param peer - Other participant
+     * @param lastSeenMessageId - ID of the newest message seen
+     */
+    public void markRead(String reader, String peer, long lastSeenMessageId) {
+        pending.merge(Arrays.asList(reader, peer), lastSeenMessageId, Math::max);
+        receipts.incrementAndGet();
+    }
+
+    /**
+     * Write all pending read positions
+     *
+     * @return Number of conversations rows updated, 0 if the flush failed and will be retried
+     */
+    synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<List<String>, Long> batch = new HashMap<>();
+        for (List<String> key : pending.keySet()) {
+            Long id = pending.remove(key);
+            if (id != null) {
+                batch.put(key, id);
+            }
+        }
+        try {
+            int rows = chatServer.markConversationsRead(batch);
+            flushedRows.addAndGet(rows);
+            flushes.incrementAndGet();
+            return rows;
+        } catch (SQLException e) {
+            System.err.println("Error flushing read receipts (will retry): " + e.getMessage());
+            batch.forEach((key, id) -> pending.merge(key, id, Math::max));
+            return 0;
+        }
+    }
+
+    // Getters
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getReceiptCount() {
+        return receipts.get();
+    }
+
+    public long getFlushedRowCount() {
+        return flushedRows.get();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+}
@@ -0,0 +1,272 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RecentMessageCache - In-memory newest page of each active direct conversation
+ *
+ * This cache manages:
+ * - Up to {@code messagesPerConversation} newest messages per conversation
+ * - LRU eviction of whole conversations beyond {@code maxConversations}
+ * - Appending newly stored messages to already cached conversations
+ *
+ * Messages are held as {@link CompactMessage}s keyed by a pair of
+ * {@link UserDictionary} IDs and only expanded to {@link Message} when a
+ * page is served. A conversation is cached by a load: the caller opens it
+ * with {@link #beginLoad}, queries the database and hands the rows to
+ * {@link #completeLoad}. Messages appended while the load is in flight are
+ * merged in, so a message committed concurrently with the query is not
+ * lost. Only messages stored through this node's ChatServer are appended;
+ * broadcasts and unknown users are never cached.
+ */
+public class RecentMessageCache {
+    public static final int DEFAULT_MESSAGES_PER_CONVERSATION = 100;
+    public static final int DEFAULT_MAX_CONVERSATIONS = 10_000;
+
+    private static final long NO_KEY = -1L;
+    private static final Comparator<CompactMessage> BY_ID = Comparator.comparingLong(CompactMessage::getMessageId);
+
+    private final UserDictionary dictionary;
+    private final int messagesPerConversation;
+    private final Map<Long, Conversation> conversations;
+
+    /**
+     * Constructor - Initialize cache with default sizes
+     *
+     * @param dictionary - Dictionary used to intern usernames
+     */
+    public RecentMessageCache(UserDictionary dictionary) {
+        this(dictionary, DEFAULT_MESSAGES_PER_CONVERSATION, DEFAULT_MAX_CONVERSATIONS);
+    }
+
+    /**
+     * Constructor - Initialize cache with explicit sizes
+     *
+     * @param dictionary - Dictionary used to intern usernames
+     * @param messagesPerConversation - Newest messages kept per conversation
+     * @param maxConversations - Conversations kept before the least recently used is evicted
+     */
+    public RecentMessageCache(UserDictionary dictionary, int messagesPerConversation, int maxConversations) {
+        this.dictionary = dictionary;
+        this.messagesPerConversation = messagesPerConversation;
+        this.conversations = new LinkedHashMap<Long, Conversation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Conversation> eldest) {
+                return size() > maxConversations;
+            }
+        };
+    }
+
+    /**
+     * Get the newest messages of a conversation if the cache can answer
+     *
+     * @param user1 - First user
+     * @param user2 - Second user
+     * @param limit - Maximum number of messages to return
+     * @return Up to limit messages oldest first, or null if the caller must query the database
+     */
+    public List<Message> getRecent(String user1, String user2, int limit) {
+        long key = key(user1, user2);
+        if (key == NO_KEY) {
+            return null;
+        }
+        Conversation conversation;
+        synchronized (conversations) {
+            conversation = conversations.get(key);
+        }
+        if (conversation == null) {
+            return null;
+        }
+        CompactMessage[] page = conversation.newest(limit);
+        if (page == null) {
+            return null;
+        }
+        List<Message> messages = new ArrayList<>(page.length);
+        for (CompactMessage message : page) {
+            messages.add(message.toMessage(dictionary));
+        }
+        return messages;
+    }
+
+    /**
+     * Open a load for a conversation, replacing any cached copy
+     *
+     * @param user1 - First user
+     * @param user2 - Second user
+     * @return Token to pass to completeLoad once the database rows are read (null if not cacheable)
+     */
+    public Object beginLoad(String user1, String user2) {
+        long key = key(user1, user2);
+        if (key == NO_KEY) {
+            return null;
+        }
+        Conversation conversation = new Conversation(messagesPerConversation);
+        synchronized (conversations) {
+            conversations.put(key, conversation);
+        }
+        return conversation;
+    }
+
+    /**
+     * Finish a load with the rows read from the database
+     *
+     * @param token - Token returned by beginLoad
+     * @param newest - Newest messages of the conversation, in any order
+     * @param complete - true if the conversation has no older messages than these
+     */
+    public void completeLoad(Object token, List<Message> newest, boolean complete) {
+        if (token == null) {
+            return;
+        }
+        List<CompactMessage> loaded = new ArrayList<>(newest.size());
+        for (Message message : newest) {
+            loaded.add(CompactMessage.from(message, dictionary));
+        }
+        ((Conversation) token).complete(loaded, complete);
+    }
+
+    /**
+     * Drop a load that failed
+     *
+     * @param user1 - First user
+     * @param user2 - Second user
+     * @param token - Token returned by beginLoad
+     */
+    public void abandonLoad(String user1, String user2, Object token) {
+        if (token == null) {
+            return;
+        }
+        synchronized (conversations) {
+            conversations.remove(key(user1, user2), token);
+        }
+    }
+
+    /**
+     * Append a newly stored direct message to its conversation if cached
+     *
+     * @param message - Stored message with its ID set
+     */
+    public void append(Message message) {
+        long key = key(message.getSender(), message.getRecipient());
+        if (key == NO_KEY) {
+            return;
+        }
+        Conversation conversation;
+        synchronized (conversations) {
+            conversation = conversations.get(key);
+        }
+        if (conversation != null) {
+            conversation.append(CompactMessage.from(message, dictionary));
+        }
+    }
+
+    /**
+     * Get the number of cached conversations
+     *
+     * @return Cached conversation count
+     */
+    public int size() {
+        synchronized (conversations) {
+            return conversations.size();
+        }
+    }
+
+    /**
+     * Build the conversation key from the two users' dictionary IDs, smaller ID first
+     *
+     * @return Key, or NO_KEY if either side is not a known user (e.g. a broadcast)
+     */
+    private long key(String user1, String user2) {
+        if (ChatServer.BROADCAST_RECIPIENT.equals(user1) || ChatServer.BROADCAST_RECIPIENT.equals(user2)) {
+            return NO_KEY;
+        }
+        int id1 = dictionary.idOf(user1);
+        int id2 = dictionary.idOf(user2);
+        if (id1 <= 0 || id2 <= 0) {
+            return NO_KEY;
+        }
+        return ChatServer.conversationKey(id1, id2);
+    }
+
+    /**
+     * Conversation - Newest messages of one conversation, sorted by message ID
+     */
+    private static final class Conversation {
+        private final CompactMessage[] messages;
+        private int count;
+        private boolean loaded;
+        private boolean complete;
+        private List<CompactMessage> appendedDuringLoad;
+
+        private Conversation(int capacity) {
+            this.messages = new CompactMessage[capacity];
+            this.appendedDuringLoad = new ArrayList<>();
+        }
+
+        /**
+         * Get the newest messages, or null if the cache holds fewer than requested
+         * and the database may have more
+         */
+        private synchronized CompactMessage[] newest(int limit) {
+            if (!loaded || (limit > count && !complete)) {
+                return null;
+            }
+            int size = Math.min(limit, count);
+            return Arrays.copyOfRange(messages, count - size, count);
+        }
+
+        private synchronized void complete(List<CompactMessage> loadedMessages, boolean noOlder) {
+            List<CompactMessage> merged = new ArrayList<>(loadedMessages);
+            merged.addAll(appendedDuringLoad);
+            merged.sort(BY_ID);
+            appendedDuringLoad = null;
+            complete = noOlder;
+            for (CompactMessage message : merged) {
+                insert(message);
+            }
+            loaded = true;
+        }
+
+        private synchronized void append(CompactMessage message) {
+            if (!loaded) {
+                appendedDuringLoad.add(message);
+            } else {
+                insert(message);
+            }
+        }
+
+        /**
+         * Insert in ID order, ignoring duplicates and evicting the oldest when full
+         */
+        private void insert(CompactMessage message) {
+            int position = count;
+            while (position > 0 && messages[position - 1].getMessageId() > message.getMessageId()) {
+                position--;
+            }
+            if (position > 0 && messages[position - 1].getMessageId() == message.getMessageId()) {
+                return;
+            }
+            if (count == messages.length) {
+                if (position == 0) {
+                    // Older than everything kept
+                    complete = false;
+                    return;
+                }
+                System.arraycopy(messages, 1, messages, 0, position - 1);
+                position--;
+                complete = false;
+            } else {
+                System.arraycopy(messages, position, messages, position + 1, count - position);
+                count++;
+            }
+            messages[position] = message;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.filter.ContentFilter;
+import com.chatapp.push.PushCoalescer;
+import com.chatapp.push.PushRegistry;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * RoomService - Group chat rooms with cached membership and batched fan-out
+ *
+ * This service manages:
+ * - Room creation, join and leave
+ * - Room messages, stored once per room regardless of member count
+ * - An in-memory membership cache, updated incrementally on join/leave
+ * - Fan-out of each room message to members in fixed-size batches
+ * - Passing room messages through the same ContentFilter as direct messages
+ *
+ * Once a room's membership is cached, sending costs one INSERT and no
+ * membership query. Rows reference users by user_id, translated through
+ * the shared UserDictionary. History and membership loads may be served
+ * by a read replica, except within the read-your-writes window after a
+ * write to the same room. The cache is node-local: joins and leaves made
+ * through another node are only seen after the room is evicted.
+ */
+public class RoomService {
+    public static final int DEFAULT_FANOUT_BATCH_SIZE = 256;
+    public static final int DEFAULT_MAX_CACHED_ROOMS = 10_000;
+    public static final String ROOM_RECIPIENT_PREFIX = "room:";
+
+    private final DatabaseConnection dbConnection;
+    private final UserDictionary userDictionary;
+    private final int fanoutBatchSize;
+    private final int maxCachedRooms;
+    private final Map<Long, Set<String>> membershipCache;
+    private final List<RoomListener> listeners;
+    private final ExecutorService fanoutExecutor;
+    private final ContentFilter contentFilter;
+
+    /**
+     * Constructor - Initialize RoomService with default settings
+     *
+     * @param dbConnection - Database holding rooms and room messages
+     */
+    public RoomService(DatabaseConnection dbConnection) {
+        this(dbConnection, DEFAULT_FANOUT_BATCH_SIZE, DEFAULT_MAX_CACHED_ROOMS);
+    }
+
+    /**
+     * Constructor - Initialize RoomService with default settings and a shared user dictionary
+     *
+     * @param dbConnection - Database holding rooms and room messages
+     * @param userDictionary - Username to user_id dictionary over the same database
+     */
+    public RoomService(DatabaseConnection dbConnection, UserDictionary userDictionary) {
+        this(dbConnection, userDictionary, DEFAULT_FANOUT_BATCH_SIZE, DEFAULT_MAX_CACHED_ROOMS);
+    }
+
+    /**
+     * Constructor - Initialize RoomService with explicit settings
+     *
+     * @param dbConnection - Database holding rooms and room messages
+     * @param fanoutBatchSize - Number of members per fan-out batch
+     * @param maxCachedRooms - Maximum number of rooms with cached membership
+     */
+    public RoomService(DatabaseConnection dbConnection, int fanoutBatchSize, int maxCachedRooms) {
+        this(dbConnection, new UserDictionary(dbConnection), fanoutBatchSize, maxCachedRooms);
+    }
+
+    /**
+     * Constructor - Initialize RoomService with a shared user dictionary
+     *
+     * @param dbConnection - Database holding rooms and room messages
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param fanoutBatchSize - Number of members per fan-out batch
+     * @param maxCachedRooms - Maximum number of rooms with cached membership
+     */
+    public RoomService(DatabaseConnection dbConnection, UserDictionary userDictionary, int fanoutBatchSize, int maxCachedRooms) {
+        this(dbConnection, userDictionary, fanoutBatchSize, maxCachedRooms, new ContentFilter());
+    }
+
+    /**
+     * Constructor - Initialize RoomService that filters message content before storing it
+     *
+     * @param dbConnection - Database holding rooms and room messages
+     * @param userDictionary - Username to user_id dictionary over the same database
+     * @param fanoutBatchSize - Number of members per fan-out batch
+     * @param maxCachedRooms - Maximum number of rooms with cached membership
+     * @param contentFilter - Filter applied to every room message
+     */
+    public RoomService(DatabaseConnection dbConnection, UserDictionary userDictionary, int fanoutBatchSize,
+                       int maxCachedRooms, ContentFilter contentFilter) {
+        this.dbConnection = dbConnection;
+        this.userDictionary = userDictionary;
+        this.fanoutBatchSize = fanoutBatchSize;
+        this.maxCachedRooms = maxCachedRooms;
+        this.contentFilter = contentFilter;
+        this.membershipCache = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.fanoutExecutor = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread thread = new Thread(r, "room-fanout");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Create a room; the creator becomes its first member
+     *
+     * @param name - Room name
+     * @param creator - Username of the creator
+     * @return Room ID if successful, -1 otherwise
+     */
+    public long createRoom(String name, String creator) {
+        int creatorId = userDictionary.idOf(creator);
+        if (creatorId == 0) {
+            return -1;
+        }
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement room = conn.prepareStatement(
+                        "INSERT INTO rooms (name, created_by) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS);
+                room.setString(1, name);
+                room.setInt(2, creatorId);
+                room.executeUpdate();
+                ResultSet keys = room.getGeneratedKeys();
+                if (!keys.next()) {
+                    conn.rollback();
+                    return -1;
+                }
+                long roomId = keys.getLong(1);
+
+                PreparedStatement member = conn.prepareStatement("INSERT INTO room_members (room_id, user_id) VALUES (?, ?)");
+                member.setLong(1, roomId);
+                member.setInt(2, creatorId);
+                member.executeUpdate();
+                conn.commit();
+                dbConnection.recordWrite(ROOM_RECIPIENT_PREFIX + roomId);
+
+                Set<String> members = ConcurrentHashMap.newKeySet();
+                members.add(creator);
+                cacheMembers(roomId, members);
+                return roomId;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating room: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Add a user to a room
+     *
+     * @param roomId - Room to join
+     * @param username - Joining user
+     * @return true if the user is a member afterwards
+     */
+    public boolean joinRoom(long roomId, String username) {
+        if (isMember(roomId, username)) {
+            return true;
+        }
+        int userId = userDictionary.idOf(username);
+        if (userId == 0) {
+            return false;
+        }
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("INSERT INTO room_members (room_id, user_id) VALUES (?, ?)");
+            stmt.setLong(1, roomId);
+            stmt.setInt(2, userId);
+            stmt.executeUpdate();
+            dbConnection.recordWrite(ROOM_RECIPIENT_PREFIX + roomId);
+        } catch (SQLException e) {
+            System.err.println("Error joining room: " + e.getMessage());
+            return false;
+        }
+        membershipCache.computeIfPresent(roomId, (id, members) -> {
+            members.add(username);
+            return members;
+        });
+        return true;
+    }
+
+    /**
+     * Remove a user from a room
+     *
+     * @param roomId - Room to leave
+     * @param username - Leaving user
+     * @return true if the membership row was removed
+     */
+    public boolean leaveRoom(long roomId, String username) {
+        int userId = userDictionary.idOf(username);
+        if (userId == 0) {
+            return false;
+        }
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("DELETE FROM room_members WHERE room_id = ? AND user_id = ?");
+            stmt.setLong(1, roomId);
+            stmt.setInt(2, userId);
+            int removed = stmt.executeUpdate();
+            dbConnection.recordWrite(ROOM_RECIPIENT_PREFIX + roomId);
+            membershipCache.computeIfPresent(roomId, (id, members) -> {
+                members.remove(username);
+                return members;
+            });
+            return removed > 0;
+        } catch (SQLException e) {
+            System.err.println("Error leaving room: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Check room membership (served from cache once loaded)
+     *
+     * @param roomId - Room to check
+     * @param username - User to check
+     * @return true if the user is a member
+     */
+    public boolean isMember(long roomId, String username) {
+        return getMembers(roomId).contains(username);
+    }
+
+    /**
+     * Get the members of a room, loading them into the cache on first access
+     *
+     * @param roomId - Room to look up
+     * @return Unmodifiable view of the member set (empty if the room does not exist)
+     */
+    public Set<String> getMembers(long roomId) {
+        Set<String> members = membershipCache.get(roomId);
+        if (members == null) {
+            members = loadMembers(roomId);
+            if (members == null) {
+                return Collections.emptySet();
+            }
+            Set<String> existing = membershipCache.putIfAbsent(roomId, members);
+            if (existing != null) {
+                members = existing;
+            } else {
+                evictIfNeeded();
+            }
+        }
+        return Collections.unmodifiableSet(members);
+    }
+
+    /**
+     * Send a message to a room: one INSERT, then batched fan-out to members
+     *
+     * @param roomId - Target room
+     * @param sender - Sending member
+     * @param content - Message content
+     * @return Message ID if successful, ChatServer.REJECTED if the content filter rejected it,
+     *         -1 if the sender is not a member or storage failed
+     */
+    public long sendRoomMessage(long roomId, String sender, String content) {
+        Set<String> members = membershipCache.get(roomId);
+        if (members == null) {
+            getMembers(roomId);
+            members = membershipCache.get(roomId);
+        }
+        if (members == null || !members.contains(sender)) {
+            return -1;
+        }
+        ContentFilter.Result verdict = contentFilter.check(content);
+        if (verdict.isRejected()) {
+            return ChatServer.REJECTED;
+        }
+        content = verdict.getContent();
+
+        Message message;
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO room_messages (room_id, sender_id, content, sent_at) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            Timestamp sentAt = new Timestamp(System.currentTimeMillis());
+            stmt.setLong(1, roomId);
+            stmt.setInt(2, userDictionary.idOf(sender));
+            stmt.setString(3, content);
+            stmt.setTimestamp(4, sentAt);
+            stmt.executeUpdate();
+            dbConnection.recordWrite(ROOM_RECIPIENT_PREFIX + roomId);
+
+            message = new Message(sender, ROOM_RECIPIENT_PREFIX + roomId, content, sentAt);
+            message.setRoomId(roomId);
+            ResultSet keys = stmt.getGeneratedKeys();
+            if (keys.next()) {
+                message.setMessageId(keys.getLong(1));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error sending room message: " + e.getMessage());
+            return -1;
+        }
+
+        if (verdict.isFlagged()) {
+            System.err.println("Flagged room message " + message.getMessageId() + " from " + sender + ": "
+                    + verdict.getTerms());
+        }
+        fanOut(message, members);
+        return message.getMessageId();
+    }
+
+    /**
+     * Get one page of room history
+     *
+     * @param roomId - Room to read
+     * @param beforeMessageId - Only return messages older than this ID
+     * @param limit - Maximum number of messages
+     * @return Up to limit messages, oldest first
+     */
+    public List<Message> getRoomHistory(long roomId, long beforeMessageId, int limit) {
+        List<Message> messages = new ArrayList<>();
+        try (Connection conn = dbConnection.getReadConnection(ROOM_RECIPIENT_PREFIX + roomId)) {
+            PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT message_id, sender_id, content, sent_at FROM room_messages"
+                            + " WHERE room_id = ? AND message_id < ? ORDER BY message_id DESC LIMIT ?");
+            stmt.setLong(1, roomId);
+            stmt.setLong(2, beforeMessageId);
+            stmt.setInt(3, limit);
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Message message = new Message(userDictionary.nameOf(rs.getInt("sender_id")), ROOM_RECIPIENT_PREFIX + roomId,
+                        rs.getString("content"), rs.getTimestamp("sent_at"));
+                message.setMessageId(rs.getLong("message_id"));
+                message.setRoomId(roomId);
+                messages.add(message);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving room history: " + e.getMessage());
+        }
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    /**
+     * Add listener for room message batches
+     *
+     * @param listener - RoomListener implementation
+     */
+    public void addListener(RoomListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop the fan-out executor
+     */
+    public void shutdown() {
+        fanoutExecutor.shutdownNow();
+    }
+
+    /**
+     * Create a listener that pushes room messages to connected members
+     *
+     * @param pushRegistry - Registry of open push connections
+     * @return Listener that skips members without a push connection
+     */
+    public static RoomListener pushDelivery(PushRegistry pushRegistry) {
+        return (message, recipients) -> {
+            for (String recipient : recipients) {
+                if (pushRegistry.isConnected(recipient)) {
+                    pushRegistry.push(recipient, "room_message", message);
+                }
+            }
+        };
+    }
+
+    /**
+     * Create a listener that pushes room messages through a coalescer
+     *
+     * In a busy room each member then receives several messages per frame
+     * ("room_messages") instead of one frame per message.
+     *
+     * @param pushCoalescer - Coalescer over the registry of open push connections
+     * @return Listener that skips members without a push connection
+     */
+    public static RoomListener pushDelivery(PushCoalescer pushCoalescer) {
+        return (message, recipients) -> {
+            for (String recipient : recipients) {
+                pushCoalescer.push(recipient, "room_message", message);
+            }
+        };
+    }
+
+    /**
+     * Split the member snapshot into batches and deliver each on the fan-out executor
+     */
+    private void fanOut(Message message, Set<String> members) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        List<String> batch = new ArrayList<>(Math.min(fanoutBatchSize, members.size()));
+        for (String member : members) {
+            if (member.equals(message.getSender())) {
+                continue;
+            }
+            batch.add(member);
+            if (batch.size() == fanoutBatchSize) {
+                submitBatch(message, batch);
+                batch = new ArrayList<>(fanoutBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitBatch(message, batch);
+        }
+    }
+
+    private void submitBatch(Message message, List<String> recipients) {
+        List<String> batch = Collections.unmodifiableList(recipients);
+        fanoutExecutor.execute(() -> {
+            for (RoomListener listener : listeners) {
+                listener.onRoomMessage(message, batch);
+            }
+        });
+    }
+
+    /**
+     * Load a room's member set from the database
+     *
+     * @return Member set, or null if the room does not exist or the query failed
+     */
+    private Set<String> loadMembers(long roomId) {
+        try (Connection conn = dbConnection.getReadConnection(ROOM_RECIPIENT_PREFIX + roomId)) {
+            PreparedStatement exists = conn.prepareStatement("SELECT 1 FROM rooms WHERE room_id = ?");
+            exists.setLong(1, roomId);
+            if (!exists.executeQuery().next()) {
+                return null;
+            }
+
+            // Join once so a cold dictionary does not cost a lookup per member
+            PreparedStatement stmt = conn.prepareStatement("SELECT u.user_id, u.username FROM room_members m"
+                    + " JOIN users u ON u.user_id = m.user_id WHERE m.room_id = ?");
+            stmt.setLong(1, roomId);
+            ResultSet rs = stmt.executeQuery();
+            Set<String> members = ConcurrentHashMap.newKeySet();
+            while (rs.next()) {
+                String username = rs.getString("username");
+                userDictionary.register(rs.getInt("user_id"), username);
+                members.add(username);
+            }
+            return members;
+        } catch (SQLException e) {
+            System.err.println("Error loading room members: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void cacheMembers(long roomId, Set<String> members) {
+        membershipCache.put(roomId, members);
+        evictIfNeeded();
+    }
+
+    /**
+     * Drop arbitrary rooms once the cache exceeds its bound
+     */
+    private void evictIfNeeded() {
+        Iterator<Long> it = membershipCache.keySet().iterator();
+        while (membershipCache.size() > maxCachedRooms && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Interface for room message listeners; called once per batch of recipients
+     */
+    public interface RoomListener {
+        void onRoomMessage(Message message, List<String> recipients);
+    }
+}
@@ -0,0 +1,257 @@
+package com.chatapp.server;
+
+import com.chatapp.database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ShardRebalance - Moves conversations to the shard that owns them after shards are appended
+ *
+ * Appending a shard to chatapp.db.shards remaps about 1/(N+1) of the
+ * conversation keys to it, while their older messages and conversations
+ * rows stay where they were written. Until they are moved, history of a
+ * remapped conversation starts at the append and its inbox row may show
+ * twice. This finds, on every shard, the keys the current ring assigns
+ * elsewhere and moves them: messages in message_id order, {@code batchSize}
+ * at a time, each batch committed on the owner before it is deleted from
+ * the old shard, then the conversations rows, merged into any row the
+ * owner already has (newest message wins, unread counts are added).
+ *
+ * Run it with the new shard list right after appending, while the
+ * application serves traffic. Re-running is safe: messages already on the
+ * owner are skipped, and a finished run finds nothing to move. A run
+ * stopped between committing a conversations row on the owner and
+ * deleting it from the old shard adds that row's unread count twice on
+ * the next run.
+ *
+ * Run with:
+ *
+ * <pre>
+ *   mvn compile exec:java -Dexec.mainClass=com.chatapp.server.ShardRebalance \
+ *       -Dexec.args="5000 50"
+ * </pre>
+ */
+public class ShardRebalance {
+    public static final int DEFAULT_BATCH_SIZE = 5_000;
+    public static final long DEFAULT_PAUSE_MS = 50;
+
+    private static final String FIND_KEYS = "SELECT DISTINCT conversation_key FROM messages"
+            + " UNION SELECT DISTINCT conversation_key FROM conversations";
+    private static final String SELECT_BATCH = "SELECT message_id, sender_id, recipient_id, content, sent_at, is_read"
+            + " FROM messages WHERE conversation_key = ? ORDER BY message_id LIMIT ?";
+    private static final String COPY_MESSAGE = "INSERT INTO messages"
+            + " (message_id, sender_id, recipient_id, content, sent_at, is_read, conversation_key)"
+            + " SELECT ?, ?, ?, ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM messages WHERE message_id = ?)";
+    private static final String DELETE_BATCH = "DELETE FROM messages WHERE conversation_key = ? AND message_id <= ?";
+    private static final String SELECT_CONVERSATIONS = "SELECT user_id, peer_id, last_message_id, last_sender_id,"
+            + " preview, last_sent_at, unread_count FROM conversations WHERE conversation_key = ?";
+    private static final String DELETE_CONVERSATIONS = "DELETE FROM conversations WHERE conversation_key = ?";
+
+    private final DatabaseConnection dbConnection;
+    private final int batchSize;
+    private final long pauseMs;
+    private long movedMessages;
+    private long movedConversations;
+    private int movedKeys;
+
+    /**
+     * Constructor - Create a rebalance
+     *
+     * @param dbConnection - Primary with the new shard list
+     * @param batchSize - Messages moved per transaction
+     * @param pauseMs - Pause between batches
+     */
+    public ShardRebalance(DatabaseConnection dbConnection, int batchSize, long pauseMs) {
+        this.dbConnection = dbConnection;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+    }
+
+    /**
+     * Move every conversation stored on a shard that no longer owns it
+     *
+     * @return Number of messages moved
+     * @throws SQLException - If a batch fails; batches moved before it stay moved
+     * @throws InterruptedException - If interrupted while pausing
+     */
+    public long run() throws SQLException, InterruptedException {
+        for (DatabaseConnection source : dbConnection.getShards()) {
+            for (long key : misplacedKeys(source)) {
+                moveConversation(source, dbConnection.shardFor(key), key);
+                movedKeys++;
+            }
+        }
+        return movedMessages;
+    }
+
+    /**
+     * Find the conversation keys on a shard that the ring assigns to another shard
+     */
+    private List<Long> misplacedKeys(DatabaseConnection source) throws SQLException {
+        List<Long> keys = new ArrayList<>();
+        try (Connection conn = source.getConnection()) {
+            ResultSet rs = conn.prepareStatement(FIND_KEYS).executeQuery();
+            while (rs.next()) {
+                long key = rs.getLong(1);
+                if (dbConnection.shardFor(key) != source) {
+                    keys.add(key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Move one conversation's messages, oldest first, then its conversations rows
+     */
+    private void moveConversation(DatabaseConnection source, DatabaseConnection target, long key)
+            throws SQLException, InterruptedException {
+        while (true) {
+            long lastId = copyBatch(source, target, key);
+            if (lastId < 0) {
+                break;
+            }
+            try (Connection conn = source.getConnection()) {
+                PreparedStatement delete = conn.prepareStatement(DELETE_BATCH);
+                delete.setLong(1, key);
+                delete.setLong(2, lastId);
+                movedMessages += delete.executeUpdate();
+            }
+            if (pauseMs > 0) {
+                Thread.sleep(pauseMs);
+            }
+        }
+        moveConversationRows(source, target, key);
+    }
+
+    /**
+     * Copy the oldest batch of a conversation to its owner in one transaction
+     *
+     * @return message_id of the last message copied, or -1 if none are left
+     */
+    private long copyBatch(DatabaseConnection source, DatabaseConnection target, long key) throws SQLException {
+        try (Connection from = source.getConnection(); Connection to = target.getConnection()) {
+            PreparedStatement select = from.prepareStatement(SELECT_BATCH);
+            select.setLong(1, key);
+            select.setInt(2, batchSize);
+            ResultSet rs = select.executeQuery();
+            to.setAutoCommit(false);
+            PreparedStatement insert = to.prepareStatement(COPY_MESSAGE);
+            long lastId = -1;
+            while (rs.next()) {
+                lastId = rs.getLong("message_id");
+                insert.setLong(1, lastId);
+                insert.setInt(2, rs.getInt("sender_id"));
+                int recipientId = rs.getInt("recipient_id");
+                if (rs.wasNull()) {
+                    insert.setNull(3, Types.INTEGER);
+                } else {
+                    insert.setInt(3, recipientId);
+                }
+                insert.setString(4, rs.getString("content"));
+                insert.setTimestamp(5, rs.getTimestamp("sent_at"));
+                insert.setBoolean(6, rs.getBoolean("is_read"));
+                insert.setLong(7, key);
+                insert.setLong(8, lastId);
+                insert.addBatch();
+            }
+            if (lastId >= 0) {
+                insert.executeBatch();
+                to.commit();
+            }
+            return lastId;
+        }
+    }
+
+    /**
+     * Merge a conversation's rows into the owner's and delete them from the old shard
+     */
+    private void moveConversationRows(DatabaseConnection source, DatabaseConnection target, long key)
+            throws SQLException {
+        try (Connection from = source.getConnection(); Connection to = target.getConnection()) {
+            PreparedStatement select = from.prepareStatement(SELECT_CONVERSATIONS);
+            select.setLong(1, key);
+            ResultSet rs = select.executeQuery();
+            to.setAutoCommit(false);
+            PreparedStatement update = to.prepareStatement(ChatServer.UPDATE_CONVERSATION);
+            PreparedStatement insert = to.prepareStatement(ChatServer.INSERT_CONVERSATION);
+            int rows = 0;
+            while (rs.next()) {
+                long lastMessageId = rs.getLong("last_message_id");
+                update.setInt(1, rs.getInt("unread_count"));
+                update.setLong(2, lastMessageId);
+                update.setInt(3, rs.getInt("last_sender_id"));
+                update.setLong(4, lastMessageId);
+                update.setString(5, rs.getString("preview"));
+                update.setLong(6, lastMessageId);
+                update.setTimestamp(7, rs.getTimestamp("last_sent_at"));
+                update.setLong(8, lastMessageId);
+                update.setInt(9, rs.getInt("user_id"));
+                update.setInt(10, rs.getInt("peer_id"));
+                if (update.executeUpdate() == 0) {
+                    insert.setInt(1, rs.getInt("user_id"));
+                    insert.setInt(2, rs.getInt("peer_id"));
+                    insert.setLong(3, key);
+                    insert.setLong(4, lastMessageId);
+                    insert.setInt(5, rs.getInt("last_sender_id"));
+                    insert.setString(6, rs.getString("preview"));
+                    insert.setTimestamp(7, rs.getTimestamp("last_sent_at"));
+                    insert.setInt(8, rs.getInt("unread_count"));
+                    insert.executeUpdate();
+                }
+                rows++;
+            }
+            to.commit();
+            if (rows > 0) {
+                PreparedStatement delete = from.prepareStatement(DELETE_CONVERSATIONS);
+                delete.setLong(1, key);
+                delete.executeUpdate();
+                movedConversations += rows;
+            }
+        }
+    }
+
+    // Getters
+    public long getMovedMessageCount() {
+        return movedMessages;
+    }
+
+    public long getMovedConversationCount() {
+        return movedConversations;
+    }
+
+    public int getMovedKeyCount() {
+        return movedKeys;
+    }
+
+    /**
+     * Main method - Rebalance the configured shards
+     *
+     * @param args - Optional batch size and pause in milliseconds
+     */
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BATCH_SIZE;
+        long pauseMs = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_PAUSE_MS;
+        DatabaseConnection dbConnection = new DatabaseConnection();
+        ShardRebalance rebalance = new ShardRebalance(dbConnection, batchSize, pauseMs);
+
+        long start = System.currentTimeMillis();
+        try {
+            rebalance.run();
+            System.out.println("✓ Moved " + rebalance.getMovedKeyCount() + " conversations ("
+                    + rebalance.getMovedMessageCount() + " messages, " + rebalance.getMovedConversationCount()
+                    + " inbox rows) in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (SQLException e) {
+            System.err.println("Rebalance stopped: " + e.getMessage() + "; run again to continue");
+            System.exit(1);
+        } finally {
+            dbConnection.close();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.chatapp.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SyncService - Delta sync and long-poll for reconnecting clients
+ *
+ * This service manages:
+ * - Returning messages newer than a client's last seen message ID
+ * - Parking sync requests until a new message arrives or a timeout passes
+ *
+ * Every request queries once before it parks, since messages stored
+ * through other nodes raise no event here. A parked request is only a
+ * CompletableFuture in a map: it holds no thread and issues no query
+ * until a ChatListener event for that user arrives or it times out, and
+ * it is registered before that first query so an event arriving during
+ * the query is not missed. A message stored on another node while a
+ * request is parked is returned when the request times out.
+ *
+ * Message IDs may commit out of order by up to a commit window, so every
+ * query also re-reads the window below the client's ID and responses may
+ * repeat messages the client already has; clients deduplicate by message
+ * ID. A request returns at once only for messages newer than the
+ * client's ID, and a timed-out request re-reads once, so a message that
+ * committed late under a lower ID arrives with the next response.
+ */
+public class SyncService implements ChatServer.ChatListener {
+    public static final int DEFAULT_LIMIT = 200;
+    public static final int MAX_LIMIT = 1000;
+
+    private final ChatServer chatServer;
+    private final long commitWindowMs;
+    private final Map<String, Set<Waiter>> waiters;
+    private final ExecutorService wakeExecutor;
+
+    /**
+     * Constructor - Initialize SyncService with the default commit window
+     *
+     * @param chatServer - Chat server providing storage and message events
+     */
+    public SyncService(ChatServer chatServer) {
+        this(chatServer, MessageIdGenerator.DEFAULT_COMMIT_WINDOW_MS);
+    }
+
+    /**
+     * Constructor - Initialize SyncService and register it with the chat server
+     *
+     * @param chatServer - Chat server providing storage and message events
+     * @param commitWindowMs - How far below a client's ID messages may still commit
+     */
+    public SyncService(ChatServer chatServer, long commitWindowMs) {
+        this.chatServer = chatServer;
+        this.commitWindowMs = commitWindowMs;
+        this.waiters = new ConcurrentHashMap<>();
+        this.wakeExecutor = Executors.newFixedThreadPool(2, r -> {
+            Thread thread = new Thread(r, "sync-wake");
+            thread.setDaemon(true);
+            return thread;
+        });
+        chatServer.addListener(this);
+    }
+
+    /**
+     * Return messages newer than sinceMessageId, waiting up to timeoutMs if there are none
+     *
+     * @param username - User to sync
+     * @param sinceMessageId - Last message ID the client has seen
+     * @param limit - Maximum number of messages to return
+     * @param timeoutMs - Maximum time to wait for new messages (0 = do not wait)
+     * @return Future completed with new messages and the commit window below sinceMessageId,
+     *         possibly empty on timeout
+     */
+    public CompletableFuture<List<Message>> sync(String username, long sinceMessageId, int limit, long timeoutMs) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        if (timeoutMs <= 0) {
+            return CompletableFuture.completedFuture(fetch(username, sinceMessageId, boundedLimit));
+        }
+
+        Waiter waiter = new Waiter(username, sinceMessageId, boundedLimit);
+        waiters.computeIfAbsent(username, k -> ConcurrentHashMap.newKeySet()).add(waiter);
+        waiter.future.whenComplete((result, error) -> removeWaiter(waiter));
+        CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS).execute(() -> wake(waiter));
+
+        try {
+            List<Message> messages = fetch(username, sinceMessageId, boundedLimit);
+            if (newestId(messages) > sinceMessageId && waiter.claim()) {
+                waiter.future.complete(messages);
+            }
+        } catch (RuntimeException e) {
+            if (waiter.claim()) {
+                waiter.future.completeExceptionally(e);
+            }
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Get the number of parked sync requests
+     *
+     * @return Parked request count
+     */
+    public int getWaiterCount() {
+        int count = 0;
+        for (Set<Waiter> userWaiters : waiters.values()) {
+            count += userWaiters.size();
+        }
+        return count;
+    }
+
+    /**
+     * Stop the wake executor
+     */
+    public void shutdown() {
+        wakeExecutor.shutdownNow();
+    }
+
+    @Override
+    public void onMessageReceived(String sender, String message) {
+        // Sync needs message IDs; handled in onMessageStored
+    }
+
+    @Override
+    public void onMessageStored(Message message) {
+        if (ChatServer.BROADCAST_RECIPIENT.equals(message.getRecipient())) {
+            for (String username : waiters.keySet()) {
+                wakeAll(username);
+            }
+            return;
+        }
+        wakeAll(message.getSender());
+        if (!message.getRecipient().equals(message.getSender())) {
+            wakeAll(message.getRecipient());
+        }
+    }
+
+    /**
+     * Query the database from the commit window below sinceMessageId
+     */
+    private List<Message> fetch(String username, long sinceMessageId, int limit) {
+        long from = MessageIdGenerator.rewind(sinceMessageId, commitWindowMs);
+        List<Message> messages = chatServer.getMessagesSince(username, from, limit);
+        if (messages.size() == limit && from < sinceMessageId && newestId(messages) <= sinceMessageId) {
+            // The window alone fills the page; skip it so the client still moves forward
+            messages = chatServer.getMessagesSince(username, sinceMessageId, limit);
+        }
+        return messages;
+    }
+
+    private static long newestId(List<Message> messages) {
+        return messages.isEmpty() ? 0 : messages.get(messages.size() - 1).getMessageId();
+    }
+
+    /**
+     * Wake every parked request of a user
+     */
+    private void wakeAll(String username) {
+        Set<Waiter> userWaiters = waiters.get(username);
+        if (userWaiters != null) {
+            for (Waiter waiter : userWaiters) {
+                wake(waiter);
+            }
+        }
+    }
+
+    /**
+     * Complete a parked request off the sending thread
+     */
+    private void wake(Waiter waiter) {
+        if (!waiter.claim()) {
+            return;
+        }
+        wakeExecutor.execute(() -> {
+            try {
+                waiter.future.complete(fetch(waiter.username, waiter.sinceMessageId, waiter.limit));
+            } catch (RuntimeException e) {
+                waiter.future.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Remove a completed request from the waiter map
+     */
+    private void removeWaiter(Waiter waiter) {
+        waiters.computeIfPresent(waiter.username, (k, userWaiters) -> {
+            userWaiters.remove(waiter);
+            return userWaiters.isEmpty() ? null : userWaiters;
+        });
+    }
+
+    /**
+     * Waiter - A parked sync request
+     */
+    private static final class Waiter {
+        private final String username;
+        private final long sinceMessageId;
+        private final int limit;
+        private final CompletableFuture<List<Message>> future;
+        private boolean claimed;
+
+        private Waiter(String username, long sinceMessageId, int limit) {
+            this.username = username;
+            this.sinceMessageId = sinceMessageId;
+            this.limit = limit;
+            this.future = new CompletableFuture<>();
+        }
+
+        /**
+         * Claim the waiter for a wake-up so it is queried at most once
+         */
+        private synchronized boolean claim() {
+            if (claimed || future.isDone()) {
+                return false;
+            }
+            claimed = true;
+            return true;
+        }
+    }
+}
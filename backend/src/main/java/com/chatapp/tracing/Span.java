@@ -0,0 +1,119 @@
+package com.chatapp.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Span - One timed operation within a Trace
+ *
+ * Spans are opened with {@link Tracer#span(String)} and closed with
+ * try-with-resources. When no trace is active on the thread the tracer
+ * hands out {@link #NOOP}, whose methods do nothing, so instrumented code
+ * costs a thread-local lookup when tracing is off.
+ */
+public class Span implements AutoCloseable {
+    public static final String KIND_SERVER = "SERVER";
+    public static final String KIND_CLIENT = "CLIENT";
+
+    static final Span NOOP = new Span(null, null, 0, null, null, 0);
+
+    private final Trace trace;
+    private final Span parent;
+    private final long id;
+    private final String name;
+    private final String kind;
+    private final long startNanos;
+    private Map<String, String> tags;
+    private long durationNanos = -1;
+
+    Span(Trace trace, Span parent, long id, String name, String kind, long startNanos) {
+        this.trace = trace;
+        this.parent = parent;
+        this.id = id;
+        this.name = name;
+        this.kind = kind;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Attach a tag
+     *
+     * @param key - Tag name
+     * @param value - Tag value
+     * @return This span
+     */
+    public Span tag(String key, String value) {
+        if (trace != null && value != null) {
+            if (tags == null) {
+                tags = new LinkedHashMap<>();
+            }
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Mark the span and its trace as failed, which always keeps the trace
+     *
+     * @param error - Failure to record
+     * @return This span
+     */
+    public Span error(Throwable error) {
+        if (trace != null) {
+            tag("error", error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+            trace.markError();
+        }
+        return this;
+    }
+
+    /**
+     * End the span; ending the root span finishes the trace
+     */
+    @Override
+    public void close() {
+        if (trace == null || durationNanos >= 0) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        trace.closed(this);
+    }
+
+    /**
+     * Check whether the span is recorded
+     *
+     * @return false for the no-op span
+     */
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    // Getters
+    public long getId() {
+        return id;
+    }
+
+    public Span getParent() {
+        return parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, String> getTags() {
+        return tags != null ? tags : Collections.emptyMap();
+    }
+}
@@ -0,0 +1,63 @@
+package com.chatapp.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TailSampler - Decides after a trace finishes whether it is worth keeping
+ *
+ * Keeps every trace that failed or took at least the slow threshold, plus
+ * a random fraction of the rest as a baseline for comparison.
+ */
+public class TailSampler {
+    public static final long DEFAULT_SLOW_MS = 250;
+    public static final double DEFAULT_SAMPLE_RATE = 0.01;
+
+    private final long slowMicros;
+    private final double sampleRate;
+    private final AtomicLong kept;
+    private final AtomicLong dropped;
+
+    /**
+     * Constructor - Create a sampler with the default threshold and rate
+     */
+    public TailSampler() {
+        this(DEFAULT_SLOW_MS, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Constructor - Create a sampler
+     *
+     * @param slowMs - Traces at least this long are always kept
+     * @param sampleRate - Fraction of other traces kept, 0 to 1
+     */
+    public TailSampler(long slowMs, double sampleRate) {
+        this.slowMicros = slowMs * 1_000;
+        this.sampleRate = sampleRate;
+        this.kept = new AtomicLong();
+        this.dropped = new AtomicLong();
+    }
+
+    /**
+     * Decide whether to report a finished trace
+     *
+     * @param trace - Finished trace
+     * @return true to keep it
+     */
+    public boolean keep(Trace trace) {
+        boolean keep = trace.isError()
+                || trace.getDurationMicros() >= slowMicros
+                || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        (keep ? kept : dropped).incrementAndGet();
+        return keep;
+    }
+
+    // Getters
+    public long getKeptCount() {
+        return kept.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
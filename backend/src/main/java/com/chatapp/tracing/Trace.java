@@ -0,0 +1,120 @@
+package com.chatapp.tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace - The spans recorded for one request on one thread
+ *
+ * Spans nest by the order they are opened: a span opened while another is
+ * open becomes its child. A trace records at most {@link #MAX_SPANS}
+ * spans; later ones are counted but not kept, so a request looping over
+ * many statements cannot grow it without bound. Timestamps come from
+ * {@link System#nanoTime()} relative to the trace start and are converted
+ * to wall-clock microseconds only when the trace is reported.
+ */
+public final class Trace {
+    public static final int MAX_SPANS = 256;
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private final List<Span> spans;
+    private final Tracer tracer;
+    private Span root;
+    private Span current;
+    private int droppedSpans;
+    private boolean error;
+
+    Trace(Tracer tracer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.tracer = tracer;
+        this.traceIdHigh = random.nextLong();
+        this.traceIdLow = random.nextLong() | 1;
+        this.startEpochMicros = System.currentTimeMillis() * 1_000;
+        this.startNanos = System.nanoTime();
+        this.spans = new ArrayList<>();
+    }
+
+    /**
+     * Open a span as a child of the innermost open span
+     */
+    Span open(String name, String kind) {
+        if (spans.size() >= MAX_SPANS) {
+            droppedSpans++;
+            return Span.NOOP;
+        }
+        long id = spans.isEmpty() ? traceIdLow : ThreadLocalRandom.current().nextLong() | 1;
+        Span span = new Span(this, current, id, name, kind, System.nanoTime());
+        spans.add(span);
+        if (root == null) {
+            root = span;
+        }
+        current = span;
+        return span;
+    }
+
+    /**
+     * Pop a closed span; closing the root finishes the trace
+     */
+    void closed(Span span) {
+        if (current == span) {
+            current = span.getParent();
+        }
+        if (span == root) {
+            tracer.finish(this);
+        }
+    }
+
+    void markError() {
+        error = true;
+    }
+
+    /**
+     * Get the trace ID in the 32-character hex form used by Zipkin
+     *
+     * @return Trace ID
+     */
+    public String getTraceId() {
+        return String.format("%016x%016x", traceIdHigh, traceIdLow);
+    }
+
+    /**
+     * Convert a span's start to wall-clock microseconds
+     *
+     * @param span - Span of this trace
+     * @return Epoch microseconds
+     */
+    public long epochMicros(Span span) {
+        return startEpochMicros + (span.getStartNanos() - startNanos) / 1_000;
+    }
+
+    /**
+     * Get the duration of the root span
+     *
+     * @return Microseconds, or -1 while the root is open
+     */
+    public long getDurationMicros() {
+        return root != null && root.getDurationNanos() >= 0 ? root.getDurationNanos() / 1_000 : -1;
+    }
+
+    // Getters
+    public List<Span> getSpans() {
+        return Collections.unmodifiableList(spans);
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    public int getDroppedSpans() {
+        return droppedSpans;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+}
@@ -0,0 +1,22 @@
+package com.chatapp.tracing;
+
+/**
+ * TraceReporter - Receives traces the sampler kept
+ *
+ * Reporters are called on the request thread and must not block it.
+ */
+public interface TraceReporter {
+
+    /**
+     * Report a finished trace
+     *
+     * @param trace - Finished trace; it is no longer modified
+     */
+    void report(Trace trace);
+
+    /**
+     * Flush and release resources
+     */
+    default void close() {
+    }
+}
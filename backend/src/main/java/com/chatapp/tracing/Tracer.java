@@ -0,0 +1,152 @@
+package com.chatapp.tracing;
+
+/**
+ * Tracer - Request-scoped tracing with tail-based sampling
+ *
+ * This class manages:
+ * - The trace bound to the current thread
+ * - Opening spans as children of the innermost open span
+ * - Deciding, once a trace has finished, whether to report it
+ *
+ * Every span of a traced request is recorded in memory; the sampler looks
+ * at the finished trace and keeps it if it was slow, failed, or falls in
+ * the baseline sample. Dropped traces are never serialized, so their cost
+ * is a few small objects and clock reads per span. Until a tracer is
+ * installed, and on threads without a trace, {@link #span(String)}
+ * returns a shared no-op span.
+ *
+ * Traces do not follow work handed to other threads; listeners and
+ * background services running elsewhere are not part of the request.
+ */
+public class Tracer {
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+    private static volatile Tracer installed;
+
+    private final TailSampler sampler;
+    private final TraceReporter reporter;
+
+    /**
+     * Constructor - Create a tracer
+     *
+     * @param sampler - Decides which finished traces are reported
+     * @param reporter - Receives kept traces
+     */
+    public Tracer(TailSampler sampler, TraceReporter reporter) {
+        this.sampler = sampler;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Make a tracer the one used by {@link #startTrace(String)}
+     *
+     * @param tracer - Tracer to install, or null to turn tracing off
+     */
+    public static void install(Tracer tracer) {
+        installed = tracer;
+    }
+
+    /**
+     * Get the installed tracer
+     *
+     * @return Tracer, or null if tracing is off
+     */
+    public static Tracer getInstalled() {
+        return installed;
+    }
+
+    /**
+     * Start a trace on this thread and open its root span
+     *
+     * Any trace left bound to the thread is discarded.
+     *
+     * @param name - Root span name, e.g. "POST /api/chat/send"
+     * @return Root span; closing it finishes the trace
+     */
+    public static Span startTrace(String name) {
+        Tracer tracer = installed;
+        if (tracer == null) {
+            return Span.NOOP;
+        }
+        Trace trace = new Trace(tracer);
+        CURRENT.set(trace);
+        return trace.open(name, Span.KIND_SERVER);
+    }
+
+    /**
+     * Open a span in the current trace
+     *
+     * @param name - Span name, e.g. "ChatServer.storeMessage"
+     * @return Open span, or the no-op span without a trace
+     */
+    public static Span span(String name) {
+        Trace trace = CURRENT.get();
+        return trace != null ? trace.open(name, null) : Span.NOOP;
+    }
+
+    /**
+     * Open a span for a call to another system, such as a database
+     *
+     * @param name - Span name, e.g. "jdbc.execute"
+     * @return Open span, or the no-op span without a trace
+     */
+    public static Span clientSpan(String name) {
+        Trace trace = CURRENT.get();
+        return trace != null ? trace.open(name, Span.KIND_CLIENT) : Span.NOOP;
+    }
+
+    /**
+     * Check whether the current thread is being traced
+     *
+     * @return true inside a trace
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Get the ID of the current thread's trace
+     *
+     * @return Trace ID, or null outside a trace
+     */
+    public static String currentTraceId() {
+        Trace trace = CURRENT.get();
+        return trace != null ? trace.getTraceId() : null;
+    }
+
+    /**
+     * Unbind the current trace without reporting it
+     *
+     * Used when a request ends without its root span being closed.
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Sample and report a finished trace
+     */
+    void finish(Trace trace) {
+        if (CURRENT.get() == trace) {
+            CURRENT.remove();
+        }
+        if (sampler.keep(trace)) {
+            reporter.report(trace);
+        }
+    }
+
+    /**
+     * Stop the reporter
+     */
+    public void close() {
+        reporter.close();
+    }
+
+    // Getters
+    public TailSampler getSampler() {
+        return sampler;
+    }
+
+    public TraceReporter getReporter() {
+        return reporter;
+    }
+}
@@ -0,0 +1,249 @@
+package com.chatapp.tracing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ZipkinFileReporter - Writes kept traces to a rotating local file in Zipkin v2 JSON
+ *
+ * This reporter manages:
+ * - Handing traces from request threads to a single writer thread
+ * - Encoding each trace as one line holding a Zipkin v2 span array
+ * - Rotating the file by size, keeping a fixed number of old files
+ *
+ * Each line is a valid body for Zipkin's POST /api/v2/spans, so a file can
+ * be loaded into Zipkin or Jaeger line by line. Rotated files are named
+ * traces.json.1 (newest) up to traces.json.N. If the writer falls behind,
+ * traces are dropped and counted rather than blocking requests.
+ */
+public class ZipkinFileReporter implements TraceReporter {
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final byte NEWLINE = '\n';
+
+    private final Path file;
+    private final String serviceName;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final BlockingQueue<Trace> queue;
+    private final JsonFactory jsonFactory;
+    private final Thread writer;
+    private final AtomicLong written;
+    private final AtomicLong dropped;
+    private OutputStream out;
+    private long fileBytes;
+    private volatile boolean closed;
+
+    /**
+     * Constructor - Report to a file with default rotation settings
+     *
+     * @param file - Current trace file
+     * @param serviceName - Service name recorded as each span's local endpoint
+     * @throws IOException - If the file cannot be opened
+     */
+    public ZipkinFileReporter(Path file, String serviceName) throws IOException {
+        this(file, serviceName, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * Constructor - Report to a file and start the writer thread
+     *
+     * @param file - Current trace file
+     * @param serviceName - Service name recorded as each span's local endpoint
+     * @param maxFileBytes - Size at which the file is rotated
+     * @param maxFiles - Number of rotated files kept
+     * @throws IOException - If the file cannot be opened
+     */
+    public ZipkinFileReporter(Path file, String serviceName, long maxFileBytes, int maxFiles) throws IOException {
+        this.file = file;
+        this.serviceName = serviceName;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.jsonFactory = new JsonFactory();
+        this.written = new AtomicLong();
+        this.dropped = new AtomicLong();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+        this.writer = new Thread(this::run, "trace-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void report(Trace trace) {
+        if (closed || !queue.offer(trace)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Write queued traces and stop the writer thread
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encode a trace as a Zipkin v2 JSON span array
+     *
+     * @param trace - Finished trace
+     * @return UTF-8 JSON without a trailing newline
+     */
+    byte[] encode(Trace trace) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * trace.getSpans().size());
+        String traceId = trace.getTraceId();
+        try (JsonGenerator json = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (Span span : trace.getSpans()) {
+                json.writeStartObject();
+                json.writeStringField("traceId", traceId);
+                json.writeStringField("id", String.format("%016x", span.getId()));
+                if (span.getParent() != null) {
+                    json.writeStringField("parentId", String.format("%016x", span.getParent().getId()));
+                }
+                json.writeStringField("name", span.getName());
+                if (span.getKind() != null) {
+                    json.writeStringField("kind", span.getKind());
+                }
+                json.writeNumberField("timestamp", trace.epochMicros(span));
+                if (span.getDurationNanos() >= 0) {
+                    // Zipkin treats a missing or zero duration as unfinished
+                    json.writeNumberField("duration", Math.max(1, span.getDurationNanos() / 1_000));
+                }
+                json.writeObjectFieldStart("localEndpoint");
+                json.writeStringField("serviceName", serviceName);
+                json.writeEndObject();
+                Map<String, String> tags = span.getTags();
+                boolean rootDrops = span == trace.getRoot() && trace.getDroppedSpans() > 0;
+                if (!tags.isEmpty() || rootDrops) {
+                    json.writeObjectFieldStart("tags");
+                    for (Map.Entry<String, String> tag : tags.entrySet()) {
+                        json.writeStringField(tag.getKey(), tag.getValue());
+                    }
+                    if (rootDrops) {
+                        json.writeStringField("droppedSpans", String.valueOf(trace.getDroppedSpans()));
+                    }
+                    json.writeEndObject();
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        return bytes.toByteArray();
+    }
+
+    private void run() {
+        while (true) {
+            Trace trace;
+            try {
+                trace = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                if (!closed) {
+                    continue;
+                }
+                trace = null;
+            }
+            try {
+                if (trace != null) {
+                    write(trace);
+                    if (!queue.isEmpty()) {
+                        continue;
+                    }
+                }
+                if (closed) {
+                    Trace pending;
+                    while ((pending = queue.poll()) != null) {
+                        write(pending);
+                    }
+                    out.close();
+                    return;
+                }
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Error writing trace file: " + e.getMessage());
+                if (closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void write(Trace trace) throws IOException {
+        byte[] line = encode(trace);
+        if (fileBytes > 0 && fileBytes + line.length + 1 > maxFileBytes) {
+            rotate();
+        }
+        out.write(line);
+        out.write(NEWLINE);
+        fileBytes += line.length + 1;
+        written.incrementAndGet();
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        Files.deleteIfExists(rotated(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = rotated(i);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE));
+        fileBytes = Files.size(file);
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    // Getters
+    public Path getFile() {
+        return file;
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
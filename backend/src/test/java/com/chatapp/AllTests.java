@@ -4,9 +4,43 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import com.chatapp.auth.AuthServiceTest;
 import com.chatapp.auth.UserTest;
+import com.chatapp.auth.LoginThrottleTest;
+import com.chatapp.auth.SessionTokenServiceTest;
+import com.chatapp.auth.UserDictionaryTest;
 import com.chatapp.server.ChatServerTest;
+import com.chatapp.server.EphemeralEventChannelTest;
+import com.chatapp.server.InboxCacheTest;
+import com.chatapp.server.MessageIdGeneratorTest;
+import com.chatapp.server.MessageImporterTest;
+import com.chatapp.server.ReactionServiceTest;
+import com.chatapp.server.ReadReceiptBufferTest;
+import com.chatapp.api.AdminInterceptorTest;
+import com.chatapp.push.PushRegistryTest;
+import com.chatapp.server.ShardRebalanceTest;
+import com.chatapp.filter.ContentFilterTest;
+import com.chatapp.filter.FilterAutomatonTest;
+import com.chatapp.server.JournalReplayerTest;
+import com.chatapp.server.MailboxServiceTest;
 import com.chatapp.server.MessageTest;
+import com.chatapp.server.RecentMessageCacheTest;
+import com.chatapp.server.RoomServiceTest;
+import com.chatapp.server.ShardedChatServerTest;
+import com.chatapp.server.SyncServiceTest;
+import com.chatapp.api.CborMessageConverterTest;
+import com.chatapp.database.ConversationKeyBackfillTest;
+import com.chatapp.database.DatabaseConnectionTest;
+import com.chatapp.database.DatabaseReadinessProbeTest;
+import com.chatapp.database.ShardMapTest;
+import com.chatapp.database.SqlStatisticsTest;
+import com.chatapp.journal.MessageJournalTest;
+import com.chatapp.loadgen.LatencyHistogramTest;
+import com.chatapp.loadgen.LoadGeneratorTest;
 import com.chatapp.api.ChatControllerTest;
+import com.chatapp.presence.HierarchicalTimingWheelTest;
+import com.chatapp.presence.PresenceServiceTest;
+import com.chatapp.push.PushCoalescerTest;
+import com.chatapp.tracing.TracerTest;
+import com.chatapp.tracing.ZipkinFileReporterTest;
 
 /**
  * AllTests - Test suite runner for all unit tests
@@ -17,6 +51,40 @@ import com.chatapp.api.ChatControllerTest;
  * - ChatServerTest
  * - MessageTest
  * - ChatControllerTest
+ * - HierarchicalTimingWheelTest
+ * - PresenceServiceTest
+ * - EphemeralEventChannelTest
+ * - SyncServiceTest
+ * - CborMessageConverterTest
+ * - RoomServiceTest
+ * - UserDictionaryTest
+ * - LoginThrottleTest
+ * - SessionTokenServiceTest
+ * - RecentMessageCacheTest
+ * - ConversationKeyBackfillTest
+ * - DatabaseConnectionTest
+ * - DatabaseReadinessProbeTest
+ * - MessageJournalTest
+ * - JournalReplayerTest
+ * - MailboxServiceTest
+ * - LatencyHistogramTest
+ * - LoadGeneratorTest
+ * - TracerTest
+ * - ZipkinFileReporterTest
+ * - SqlStatisticsTest
+ * - PushCoalescerTest
+ * - ShardMapTest
+ * - ShardedChatServerTest
+ * - InboxCacheTest
+ * - MessageIdGeneratorTest
+ * - FilterAutomatonTest
+ * - ContentFilterTest
+ * - MessageImporterTest
+ * - ReactionServiceTest
+ * - ShardRebalanceTest
+ * - ReadReceiptBufferTest
+ * - AdminInterceptorTest
+ * - PushRegistryTest
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
@@ -24,7 +92,41 @@ import com.chatapp.api.ChatControllerTest;
     UserTest.class,
     ChatServerTest.class,
     MessageTest.class,
-    ChatControllerTest.class
+    ChatControllerTest.class,
+    HierarchicalTimingWheelTest.class,
+    PresenceServiceTest.class,
+    EphemeralEventChannelTest.class,
+    SyncServiceTest.class,
+    CborMessageConverterTest.class,
+    RoomServiceTest.class,
+    UserDictionaryTest.class,
+    LoginThrottleTest.class,
+    SessionTokenServiceTest.class,
+    RecentMessageCacheTest.class,
+    ConversationKeyBackfillTest.class,
+    DatabaseConnectionTest.class,
+    DatabaseReadinessProbeTest.class,
+    MessageJournalTest.class,
+    JournalReplayerTest.class,
+    MailboxServiceTest.class,
+    LatencyHistogramTest.class,
+    LoadGeneratorTest.class,
+    TracerTest.class,
+    ZipkinFileReporterTest.class,
+    SqlStatisticsTest.class,
+    PushCoalescerTest.class,
+    ShardMapTest.class,
+    ShardedChatServerTest.class,
+    InboxCacheTest.class,
+    MessageIdGeneratorTest.class,
+    FilterAutomatonTest.class,
+    ContentFilterTest.class,
+    MessageImporterTest.class,
+    ReactionServiceTest.class,
+    ShardRebalanceTest.class,
+    ReadReceiptBufferTest.class,
+    AdminInterceptorTest.class,
+    PushRegistryTest.class
 })
 public class AllTests {
 }
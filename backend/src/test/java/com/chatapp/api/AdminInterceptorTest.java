@@ -0,0 +1,80 @@
+package com.chatapp.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * AdminInterceptorTest - Unit tests for AdminInterceptor
+ *
+ * Tests cover:
+ * - Requests with the configured secret pass
+ * - Requests without it, or with a wrong one, get a 403 JSON body
+ * - Every request is refused when no secret is configured
+ */
+public class AdminInterceptorTest {
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private StringWriter body;
+
+    /**
+     * Setup - Mock request and a response that captures its body
+     */
+    @Before
+    public void setUp() throws Exception {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(body));
+    }
+
+    /**
+     * Test the configured secret is accepted and nothing is written
+     */
+    @Test
+    public void testSecretAccepted() throws Exception {
+        when(request.getHeader(AdminInterceptor.ADMIN_SECRET_HEADER)).thenReturn("s3cret");
+
+        assertTrue(new AdminInterceptor("s3cret").preHandle(request, response, null));
+        verify(response, never()).setStatus(HttpServletResponse.SC_FORBIDDEN);
+    }
+
+    /**
+     * Test a missing or wrong secret is refused with 403
+     */
+    @Test
+    public void testWrongSecretRefused() throws Exception {
+        AdminInterceptor interceptor = new AdminInterceptor("s3cret");
+
+        assertFalse(interceptor.preHandle(request, response, null));
+        when(request.getHeader(AdminInterceptor.ADMIN_SECRET_HEADER)).thenReturn("s3cre");
+        assertFalse(interceptor.preHandle(request, response, null));
+
+        verify(response, times(2)).setStatus(HttpServletResponse.SC_FORBIDDEN);
+        assertTrue(body.toString().contains("\"success\":false"));
+    }
+
+    /**
+     * Test nothing gets in when no secret is configured
+     */
+    @Test
+    public void testDisabledWithoutSecret() throws Exception {
+        AdminInterceptor interceptor = new AdminInterceptor("");
+        when(request.getHeader(AdminInterceptor.ADMIN_SECRET_HEADER)).thenReturn("");
+
+        assertFalse(interceptor.isEnabled());
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertFalse(new AdminInterceptor(null).isAdmin(null));
+    }
+}
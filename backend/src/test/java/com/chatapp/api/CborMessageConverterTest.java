@@ -0,0 +1,94 @@
+package com.chatapp.api;
+
+import com.chatapp.server.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * CborMessageConverterTest - Unit tests for the CBOR response encoding
+ *
+ * Tests cover:
+ * - CBOR integer and string heads
+ * - Per-response username table
+ * - Size compared to JSON for a history page
+ */
+public class CborMessageConverterTest {
+
+    /**
+     * Build a history page alternating between two participants
+     */
+    static Map<String, Object> historyPage(int count) {
+        List<Message> messages = new ArrayList<>();
+        long start = 1_760_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            String sender = i % 2 == 0 ? "alice" : "bob";
+            String recipient = i % 2 == 0 ? "bob" : "alice";
+            Message message = new Message(sender, recipient, "Message number " + i + ", see you later?",
+                    new Timestamp(start + i * 1000L));
+            message.setMessageId(1_000_000 + i);
+            messages.add(message);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("messages", messages);
+        return response;
+    }
+
+    /**
+     * Test small integers and short strings use single-byte heads
+     */
+    @Test
+    public void testWriterHeads() {
+        CborWriter writer = new CborWriter(16);
+        writer.writeLong(10);
+        writer.writeLong(-1);
+        writer.writeLong(500);
+        writer.writeString("a");
+
+        byte[] bytes = writer.toByteArray();
+        assertArrayEquals(new byte[] {0x0A, 0x20, 0x19, 0x01, (byte) 0xF4, 0x61, 'a'}, bytes);
+    }
+
+    /**
+     * Test usernames are written once in the table
+     */
+    @Test
+    public void testUserTableWrittenOnce() {
+        Map<String, Object> page = historyPage(10);
+        byte[] encoded = CborMessageConverter.encode(page);
+
+        String text = new String(encoded, java.nio.charset.StandardCharsets.ISO_8859_1);
+        assertEquals("alice should appear once", text.indexOf("alice"), text.lastIndexOf("alice"));
+        assertTrue("Should contain user table key", text.contains(CborMessageConverter.USER_TABLE_KEY));
+    }
+
+    /**
+     * Test an empty response still encodes as a map
+     */
+    @Test
+    public void testEmptyMap() {
+        byte[] encoded = CborMessageConverter.encode(Collections.emptyMap());
+        assertArrayEquals(new byte[] {(byte) 0xA0}, encoded);
+    }
+
+    /**
+     * Test CBOR is smaller than JSON for a realistic history page
+     */
+    @Test
+    public void testSmallerThanJson() throws Exception {
+        Map<String, Object> page = historyPage(50);
+        byte[] json = new ObjectMapper().writeValueAsBytes(page);
+        byte[] cbor = CborMessageConverter.encode(page);
+
+        assertTrue("CBOR should be at least 40% smaller than JSON", cbor.length < json.length * 0.6);
+    }
+}
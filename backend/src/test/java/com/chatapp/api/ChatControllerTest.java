@@ -1,28 +1,71 @@
 package com.chatapp.api;
 
 import com.chatapp.auth.AuthService;
+import com.chatapp.auth.LoginThrottle;
+import com.chatapp.database.DatabaseReadinessProbe;
+import com.chatapp.database.SqlStatistics;
+import com.chatapp.filter.ContentFilter;
+import com.chatapp.presence.PresenceService;
+import com.chatapp.push.PushCoalescer;
+import com.chatapp.push.PushRegistry;
 import com.chatapp.server.ChatServer;
+import com.chatapp.server.ConversationSummary;
+import com.chatapp.server.EphemeralEventChannel;
+import com.chatapp.server.MailboxService;
+import com.chatapp.server.Message;
+import com.chatapp.server.ReactionCounts;
+import com.chatapp.server.ReactionService;
+import com.chatapp.server.ReadReceiptBuffer;
+import com.chatapp.server.RoomService;
+import com.chatapp.server.SyncService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.ResponseEntity;
 
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 /** 
  * ChatControllerTest - Unit tests for REST API endpoints
  * 
  * Tests cover:
- * - Login endpoint
- * - Logout endpoint
- * - Message sending endpoint
+ * - Login endpoint, including lockouts
+ * - Logout endpoint, including session token revocation
+ * - Message sending endpoint, with the sender taken from a session token
  * - Health check endpoint
+ * - SQL, push, content filter and login throttle statistics endpoints
+ * - Presence lookups and contact limits
+ * - Inbox endpoint and read receipts
+ * - Reaction endpoints and statistics
+ * - NDJSON export endpoint
  */
 @RunWith(MockitoJUnitRunner.class)
 public class ChatControllerTest {
@@ -31,6 +74,51 @@ public class ChatControllerTest {
     
     @Mock
     private ChatServer chatServer;
+
+    @Mock
+    private PushRegistry pushRegistry;
+
+    @Mock
+    private PushCoalescer pushCoalescer;
+
+    @Mock
+    private PresenceService presenceService;
+
+    @Mock
+    private EphemeralEventChannel ephemeralChannel;
+
+    @Mock
+    private SyncService syncService;
+
+    @Mock
+    private DatabaseReadinessProbe readinessProbe;
+
+    @Mock
+    private RoomService roomService;
+
+    @Mock
+    private MailboxService mailboxService;
+
+    @Mock
+    private SqlStatistics sqlStatistics;
+
+    @Mock
+    private ContentFilter contentFilter;
+
+    @Mock
+    private LoginThrottle loginThrottle;
+
+    @Mock
+    private ReactionService reactionService;
+
+    @Mock
+    private ReadReceiptBuffer readReceipts;
+
+    @Mock
+    private HttpServletRequest request;
+
+    @Mock
+    private HttpServletResponse response;
     
     @InjectMocks
     private ChatController chatController;
@@ -57,6 +145,235 @@ public class ChatControllerTest {
         assertEquals("Service should be Chat Application API", "Chat Application API", response.get("service"));
     }
 
+    /**
+     * Test readiness reports 503 until the database is reachable
+     */
+    @Test
+    public void testReadyEndpoint() {
+        when(readinessProbe.isReady()).thenReturn(false);
+        ResponseEntity<Map<String, Object>> starting = chatController.ready();
+        assertEquals("Should be unavailable before database is ready", 503, starting.getStatusCode().value());
+        assertEquals("starting", starting.getBody().get("status"));
+
+        when(readinessProbe.isReady()).thenReturn(true);
+        ResponseEntity<Map<String, Object>> ready = chatController.ready();
+        assertEquals("Should be OK once database is ready", 200, ready.getStatusCode().value());
+        assertEquals("ready", ready.getBody().get("status"));
+
+        when(readinessProbe.isReady()).thenReturn(false);
+        when(readinessProbe.getReadyAtMs()).thenReturn(1L);
+        ResponseEntity<Map<String, Object>> lost = chatController.ready();
+        assertEquals("Should be unavailable again once the database is lost", 503, lost.getStatusCode().value());
+        assertEquals("unavailable", lost.getBody().get("status"));
+    }
+
+    /**
+     * Test the SQL statistics endpoint caps the number of statements returned
+     */
+    @Test
+    public void testSqlStatsEndpoint() {
+        Map<String, Object> statement = new HashMap<>();
+        statement.put("sql", "SELECT 1");
+        when(sqlStatistics.top(100)).thenReturn(Collections.singletonList(statement));
+        when(sqlStatistics.getSlowQueryCount()).thenReturn(2L);
+
+        Map<String, Object> response = chatController.sqlStats(10_000);
+        assertEquals(true, response.get("success"));
+        assertEquals(Collections.singletonList(statement), response.get("statements"));
+        assertEquals(2L, response.get("slowQueries"));
+        verify(sqlStatistics).top(100);
+    }
+
+    /**
+     * Test the push statistics endpoint reports coalescer counters
+     */
+    @Test
+    public void testPushStatsEndpoint() {
+        when(pushCoalescer.getFrameCount()).thenReturn(10L);
+        when(pushCoalescer.getMessageCount()).thenReturn(40L);
+        when(pushCoalescer.getMessagesPerFrame()).thenReturn(4.0);
+
+        Map<String, Object> response = chatController.pushStats();
+        assertEquals(10L, response.get("frames"));
+        assertEquals(40L, response.get("messages"));
+        assertEquals(4.0, response.get("messagesPerFrame"));
+    }
+
+    /**
+     * Test the content filter statistics endpoint reports the filter's counters
+     */
+    @Test
+    public void testFilterStatsEndpoint() {
+        when(contentFilter.getTermCount()).thenReturn(12);
+        when(contentFilter.getScannedCount()).thenReturn(100L);
+        when(contentFilter.getRejectedCount()).thenReturn(3L);
+
+        Map<String, Object> response = chatController.filterStats();
+        assertTrue((Boolean) response.get("success"));
+        assertEquals(12, response.get("terms"));
+        assertEquals(100L, response.get("scanned"));
+        assertEquals(3L, response.get("rejected"));
+    }
+
+    /**
+     * Test the login statistics endpoint reports counters and offenders as maps
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLoginStatsEndpoint() {
+        when(loginThrottle.getLockoutCount()).thenReturn(4L);
+        when(loginThrottle.getTopOffenders(100)).thenReturn(Collections.emptyList());
+
+        Map<String, Object> response = chatController.loginStats(10_000);
+        assertTrue((Boolean) response.get("success"));
+        assertEquals(4L, response.get("lockouts"));
+        assertTrue(((List<Map<String, Object>>) response.get("topOffenders")).isEmpty());
+    }
+
+    /**
+     * Test the inbox endpoint requires login and returns summaries as maps
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInboxEndpoint() {
+        Map<String, Object> rejected = chatController.inbox("alice", 20);
+        assertFalse((Boolean) rejected.get("success"));
+        verify(chatServer, never()).getInbox("alice", 20);
+
+        when(authService.isLoggedIn("alice")).thenReturn(true);
+        when(chatServer.getInbox("alice", 200)).thenReturn(Collections.singletonList(
+                new ConversationSummary("bob", 42L, "bob", "hi", null, 3)));
+        Map<String, Object> response = chatController.inbox("alice", 10_000);
+        assertTrue((Boolean) response.get("success"));
+        List<Map<String, Object>> conversations = (List<Map<String, Object>>) response.get("conversations");
+        assertEquals(1, conversations.size());
+        assertEquals("bob", conversations.get(0).get("peer"));
+        assertEquals(3, conversations.get(0).get("unreadCount"));
+    }
+
+    /**
+     * Test presence lookups require a logged-in caller
+     */
+    @Test
+    public void testPresenceLookupRequiresLogin() {
+        assertFalse((Boolean) chatController.getPresence("mallory", "alice,bob").get("success"));
+        verify(presenceService, never()).getPresence(any());
+
+        when(authService.isLoggedIn("alice")).thenReturn(true);
+        when(presenceService.getPresence(List.of("bob"))).thenReturn(Collections.singletonMap("bob", true));
+        Map<String, Object> response = chatController.getPresence("alice", " bob ,");
+        assertTrue((Boolean) response.get("success"));
+        assertEquals(Collections.singletonMap("bob", true), response.get("presence"));
+    }
+
+    /**
+     * Test a contact list over the limit is refused
+     */
+    @Test
+    public void testSetContactsOverLimit() {
+        when(authService.isLoggedIn("alice")).thenReturn(true);
+        when(presenceService.setContacts(eq("alice"), any())).thenReturn(false);
+        when(presenceService.getMaxContacts()).thenReturn(500);
+        Map<String, Object> contactsRequest = new HashMap<>();
+        contactsRequest.put("username", "alice");
+        contactsRequest.put("contacts", List.of("bob"));
+
+        Map<String, Object> response = chatController.setContacts(contactsRequest);
+        assertFalse((Boolean) response.get("success"));
+        assertEquals("At most 500 contacts can be watched", response.get("message"));
+    }
+
+    /**
+     * Test a read receipt queues the unread count reset instead of writing it
+     */
+    @Test
+    public void testSeenMarksConversationRead() {
+        when(authService.isLoggedIn("alice")).thenReturn(true);
+        Map<String, String> seenRequest = new HashMap<>();
+        seenRequest.put("reader", "alice");
+        seenRequest.put("sender", "bob");
+        seenRequest.put("messageId", "42");
+
+        assertTrue((Boolean) chatController.seen(seenRequest).get("success"));
+        verify(ephemeralChannel).publishSeen("alice", "bob", 42L);
+        verify(readReceipts).markRead("alice", "bob", 42L);
+        verify(chatServer, never()).markConversationRead(anyString(), anyString(), anyLong());
+    }
+
+    /**
+     * Test a reaction takes the user from the session token and returns the counts
+     */
+    @Test
+    public void testReactWithSessionToken() {
+        when(authService.verifySessionToken("token-a")).thenReturn("alice");
+        when(reactionService.react("alice", 42L, "+1"))
+                .thenReturn(new ReactionCounts(42L, Collections.singletonMap("+1", 3L)));
+        Map<String, String> reactionRequest = new HashMap<>();
+        reactionRequest.put("messageId", "42");
+        reactionRequest.put("emoji", "+1");
+
+        Map<String, Object> response = chatController.react(reactionRequest, "Bearer token-a");
+        assertTrue((Boolean) response.get("success"));
+        assertEquals(Collections.singletonMap("+1", 3L), response.get("reactions"));
+
+        reactionRequest.put("remove", "true");
+        when(reactionService.unreact("alice", 42L, "+1"))
+                .thenReturn(new ReactionCounts(42L, Collections.emptyMap()));
+        assertTrue((Boolean) chatController.react(reactionRequest, "Bearer token-a").get("success"));
+        verify(reactionService).unreact("alice", 42L, "+1");
+    }
+
+    /**
+     * Test reactions without a login, with a bad messageId or on an unknown message are refused
+     */
+    @Test
+    public void testReactRejected() {
+        Map<String, String> reactionRequest = new HashMap<>();
+        reactionRequest.put("username", "alice");
+        reactionRequest.put("messageId", "42");
+        reactionRequest.put("emoji", "+1");
+        assertEquals("User is not logged in", chatController.react(reactionRequest, null).get("message"));
+
+        when(authService.isLoggedIn("alice")).thenReturn(true);
+        Map<String, Object> unknown = chatController.react(reactionRequest, null);
+        assertFalse((Boolean) unknown.get("success"));
+        assertEquals("Message not found or reaction not allowed", unknown.get("message"));
+
+        reactionRequest.put("messageId", "forty-two");
+        assertEquals("Invalid messageId", chatController.react(reactionRequest, null).get("message"));
+        verify(reactionService, never()).react(eq("alice"), eq(0L), any());
+    }
+
+    /**
+     * Test the reaction counts endpoint requires login
+     */
+    @Test
+    public void testReactionsEndpoint() {
+        assertFalse((Boolean) chatController.reactions("alice", 42L).get("success"));
+        verify(reactionService, never()).getCounts("alice", 42L);
+
+        when(authService.isLoggedIn("alice")).thenReturn(true);
+        when(reactionService.getCounts("alice", 42L))
+                .thenReturn(new ReactionCounts(42L, Collections.singletonMap("+1", 1L)));
+        Map<String, Object> response = chatController.reactions("alice", 42L);
+        assertTrue((Boolean) response.get("success"));
+        assertEquals(Collections.singletonMap("+1", 1L), response.get("reactions"));
+    }
+
+    /**
+     * Test the reaction statistics endpoint reports the service's counters
+     */
+    @Test
+    public void testReactionStatsEndpoint() {
+        when(reactionService.getPendingCount()).thenReturn(5L);
+        when(reactionService.getCorrectionCount()).thenReturn(1L);
+
+        Map<String, Object> response = chatController.reactionStats();
+        assertTrue((Boolean) response.get("success"));
+        assertEquals(5L, response.get("pending"));
+        assertEquals(1L, response.get("corrections"));
+    }
+
     /**
      * Test login with valid credentials
      */
@@ -66,13 +383,63 @@ public class ChatControllerTest {
         loginRequest.put("username", "alice");
         loginRequest.put("password", "password123");
 
-        Map<String, Object> response = chatController.login(loginRequest);
+        Map<String, Object> response = chatController.login(loginRequest, request);
         
         assertNotNull("Response should not be null", response);
         assertFalse("Response should indicate result", (Boolean) response.get("success"));
         assertNotNull("Response should contain message", response.get("message"));
     }
 
+    /**
+     * Test a successful login drains the user's mailbox
+     */
+    @Test
+    public void testLoginDrainsMailbox() {
+        when(authService.authenticate("alice", "password123", null)).thenReturn(true);
+        when(authService.issueSessionToken("alice")).thenReturn("token-a");
+        Map<String, String> loginRequest = new HashMap<>();
+        loginRequest.put("username", "alice");
+        loginRequest.put("password", "password123");
+
+        Map<String, Object> response = chatController.login(loginRequest, request);
+        assertTrue((Boolean) response.get("success"));
+        assertEquals("token-a", response.get("token"));
+        verify(mailboxService).requestDrain("alice");
+    }
+
+    /**
+     * Test a failed login does not touch the mailbox
+     */
+    @Test
+    public void testFailedLoginDoesNotDrainMailbox() {
+        Map<String, String> loginRequest = new HashMap<>();
+        loginRequest.put("username", "alice");
+        loginRequest.put("password", "wrong");
+
+        chatController.login(loginRequest, request);
+        verify(mailboxService, never()).requestDrain("alice");
+    }
+
+    /**
+     * Test a locked-out login reports when to retry instead of invalid credentials
+     */
+    @Test
+    public void testLoginLockedOut() {
+        when(request.getRemoteAddr()).thenReturn("203.0.113.7");
+        when(authService.getLoginRetryAfterMillis("alice", "203.0.113.7")).thenReturn(1_500L);
+        Map<String, String> loginRequest = new HashMap<>();
+        loginRequest.put("username", "alice");
+        loginRequest.put("password", "password123");
+
+        Map<String, Object> response = chatController.login(loginRequest, request);
+
+        assertFalse((Boolean) response.get("success"));
+        assertEquals(2L, response.get("retryAfterSeconds"));
+        assertTrue(response.get("message").toString().contains("Too many failed login attempts"));
+        verify(authService).authenticate("alice", "password123", "203.0.113.7");
+        verify(mailboxService, never()).requestDrain("alice");
+    }
+
     /**
      * Test login with missing password
      */
@@ -82,7 +449,7 @@ public class ChatControllerTest {
         loginRequest.put("username", "alice");
         // password is null
 
-        Map<String, Object> response = chatController.login(loginRequest);
+        Map<String, Object> response = chatController.login(loginRequest, request);
         
         assertFalse("Login should fail", (Boolean) response.get("success"));
         assertTrue("Should contain error message", response.get("message").toString().contains("required"));
@@ -97,7 +464,7 @@ public class ChatControllerTest {
         loginRequest.put("password", "password123");
         // username is null
 
-        Map<String, Object> response = chatController.login(loginRequest);
+        Map<String, Object> response = chatController.login(loginRequest, request);
         
         assertFalse("Login should fail", (Boolean) response.get("success"));
         assertTrue("Should contain error message", response.get("message").toString().contains("required"));
@@ -111,13 +478,27 @@ public class ChatControllerTest {
         Map<String, String> logoutRequest = new HashMap<>();
         logoutRequest.put("username", "alice");
 
-        Map<String, Object> response = chatController.logout(logoutRequest);
+        Map<String, Object> response = chatController.logout(logoutRequest, null);
         
         assertNotNull("Response should not be null", response);
         assertTrue("Logout should succeed", (Boolean) response.get("success"));
         assertEquals("Should contain success message", "Logged out successfully", response.get("message"));
     }
 
+    /**
+     * Test logout with a session token revokes it and needs no username
+     */
+    @Test
+    public void testLogoutWithSessionToken() {
+        when(authService.logoutSession("token-a")).thenReturn("alice");
+
+        Map<String, Object> response = chatController.logout(new HashMap<>(), "Bearer token-a");
+
+        assertTrue((Boolean) response.get("success"));
+        verify(presenceService).disconnect("alice");
+        assertFalse((Boolean) chatController.logout(new HashMap<>(), "Bearer forged").get("success"));
+    }
+
     /**
      * Test logout with missing username
      */
@@ -126,7 +507,7 @@ public class ChatControllerTest {
         Map<String, String> logoutRequest = new HashMap<>();
         // username is null
 
-        Map<String, Object> response = chatController.logout(logoutRequest);
+        Map<String, Object> response = chatController.logout(logoutRequest, null);
         
         assertFalse("Logout should fail", (Boolean) response.get("success"));
         assertTrue("Should contain error message", response.get("message").toString().contains("required"));
@@ -173,12 +554,122 @@ public class ChatControllerTest {
         messageRequest.put("recipient", "bob");
         messageRequest.put("message", "Hello Bob!");
 
-        Map<String, Object> response = chatController.sendMessage(messageRequest);
+        Map<String, Object> response = chatController.sendMessage(messageRequest, null);
         
         assertNotNull("Response should not be null", response);
         assertNotNull("Response should contain result", response.get("success"));
     }
 
+    /**
+     * Test a send without a session token is refused, whoever is logged in
+     */
+    @Test
+    public void testSendMessageRequiresSessionToken() {
+        Map<String, String> messageRequest = new HashMap<>();
+        messageRequest.put("sender", "alice");
+        messageRequest.put("recipient", "bob");
+        messageRequest.put("message", "Hello Bob!");
+
+        Map<String, Object> response = chatController.sendMessage(messageRequest, null);
+
+        assertFalse((Boolean) response.get("success"));
+        assertEquals("Session token required", response.get("message"));
+        verify(authService, never()).isLoggedIn(anyString());
+        verify(chatServer, never()).storeMessage(anyString(), anyString(), anyString());
+    }
+
+    /**
+     * Test the tokenless compatibility mode sends as a user logged in on this node and returns the ID
+     */
+    @Test
+    public void testSendMessageReturnsMessageId() {
+        chatController.setTokenlessSend(true);
+        when(authService.isLoggedIn("alice")).thenReturn(true);
+        when(chatServer.storeMessage("alice", "bob", "Hello Bob!")).thenReturn(1234567890123L);
+        Map<String, String> messageRequest = new HashMap<>();
+        messageRequest.put("sender", "alice");
+        messageRequest.put("recipient", "bob");
+        messageRequest.put("message", "Hello Bob!");
+
+        Map<String, Object> response = chatController.sendMessage(messageRequest, null);
+
+        assertTrue((Boolean) response.get("success"));
+        assertEquals("1234567890123", response.get("messageId"));
+    }
+
+    /**
+     * Test a send with a session token is stored as the token's user, on any node
+     */
+    @Test
+    public void testSendMessageWithSessionToken() {
+        when(authService.verifySessionToken("token-a")).thenReturn("alice");
+        when(chatServer.storeMessage("alice", "bob", "Hello Bob!")).thenReturn(7L);
+        Map<String, String> messageRequest = new HashMap<>();
+        messageRequest.put("recipient", "bob");
+        messageRequest.put("message", "Hello Bob!");
+
+        Map<String, Object> response = chatController.sendMessage(messageRequest, "Bearer token-a");
+
+        assertTrue((Boolean) response.get("success"));
+        assertEquals("7", response.get("messageId"));
+        verify(authService, never()).isLoggedIn("alice");
+    }
+
+    /**
+     * Test a send whose token is invalid or names another user is refused
+     */
+    @Test
+    public void testSendMessageRejectsBadSessionToken() {
+        when(authService.verifySessionToken("token-a")).thenReturn("alice");
+        Map<String, String> messageRequest = new HashMap<>();
+        messageRequest.put("sender", "mallory");
+        messageRequest.put("message", "Hello!");
+
+        Map<String, Object> spoofed = chatController.sendMessage(messageRequest, "Bearer token-a");
+        assertFalse((Boolean) spoofed.get("success"));
+        assertEquals("Sender does not match session", spoofed.get("message"));
+
+        Map<String, Object> forged = chatController.sendMessage(messageRequest, "Bearer forged");
+        assertFalse((Boolean) forged.get("success"));
+        assertEquals("Invalid or expired session", forged.get("message"));
+        verify(chatServer, never()).storeMessage("mallory", "broadcast", "Hello!");
+    }
+
+    /**
+     * Test a send rejected by the content filter reports why
+     */
+    @Test
+    public void testSendMessageRejectedByFilter() {
+        when(authService.verifySessionToken("token-a")).thenReturn("alice");
+        when(chatServer.storeMessage("alice", "bob", "spam")).thenReturn(ChatServer.REJECTED);
+        Map<String, String> messageRequest = new HashMap<>();
+        messageRequest.put("recipient", "bob");
+        messageRequest.put("message", "spam");
+
+        Map<String, Object> response = chatController.sendMessage(messageRequest, "Bearer token-a");
+
+        assertFalse((Boolean) response.get("success"));
+        assertEquals("Message rejected by content filter", response.get("message"));
+    }
+
+    /**
+     * Test a send journaled during an outage reports pending instead of an ID
+     */
+    @Test
+    public void testSendMessageJournaledIsPending() {
+        when(authService.verifySessionToken("token-a")).thenReturn("alice");
+        when(chatServer.storeMessage("alice", "bob", "Hello Bob!")).thenReturn(ChatServer.JOURNALED);
+        Map<String, String> messageRequest = new HashMap<>();
+        messageRequest.put("recipient", "bob");
+        messageRequest.put("message", "Hello Bob!");
+
+        Map<String, Object> response = chatController.sendMessage(messageRequest, "Bearer token-a");
+
+        assertTrue((Boolean) response.get("success"));
+        assertEquals(Boolean.TRUE, response.get("pending"));
+        assertFalse(response.containsKey("messageId"));
+    }
+
     /**
      * Test send message with missing sender
      */
@@ -187,7 +678,7 @@ public class ChatControllerTest {
         Map<String, String> messageRequest = new HashMap<>();
         messageRequest.put("message", "Hello!");
 
-        Map<String, Object> response = chatController.sendMessage(messageRequest);
+        Map<String, Object> response = chatController.sendMessage(messageRequest, null);
         
         assertFalse("Send should fail", (Boolean) response.get("success"));
         assertTrue("Should contain error message", response.get("message").toString().contains("required"));
@@ -202,7 +693,7 @@ public class ChatControllerTest {
         messageRequest.put("sender", "alice");
         messageRequest.put("recipient", "bob");
 
-        Map<String, Object> response = chatController.sendMessage(messageRequest);
+        Map<String, Object> response = chatController.sendMessage(messageRequest, null);
         
         assertFalse("Send should fail", (Boolean) response.get("success"));
         assertTrue("Should contain error message", response.get("message").toString().contains("required"));
@@ -217,9 +708,89 @@ public class ChatControllerTest {
         messageRequest.put("sender", "alice");
         messageRequest.put("message", "Broadcast message");
 
-        Map<String, Object> response = chatController.sendMessage(messageRequest);
+        Map<String, Object> response = chatController.sendMessage(messageRequest, null);
         
         assertNotNull("Response should not be null", response);
         assertNotNull("Response should contain result", response.get("success"));
     }
+
+    /**
+     * Test the export endpoint streams one JSON message per line
+     */
+    @Test
+    public void testExportStreamsNdjson() throws Exception {
+        ByteArrayOutputStream body = streamBody();
+        when(authService.verifySessionToken("token-a")).thenReturn("alice");
+        doAnswer(invocation -> {
+            ChatServer.MessageSink sink = invocation.getArgument(1);
+            Message first = new Message("alice", "bob", "line one", new Timestamp(0));
+            first.setMessageId(1);
+            Message second = new Message("bob", "alice", "line\ntwo", new Timestamp(0));
+            second.setMessageId(2);
+            sink.accept(first);
+            sink.accept(second);
+            return 2L;
+        }).when(chatServer).exportMessages(eq("alice"), any());
+
+        chatController.export("alice", "Bearer token-a", response);
+
+        String[] lines = body.toString(StandardCharsets.UTF_8.name()).split("\n", -1);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"messageId\":\"1\""));
+        assertTrue(lines[1].contains("\"content\":\"line\\ntwo\""));
+        assertEquals("", lines[2]);
+        verify(response).setContentType(NdjsonMessageWriter.MEDIA_TYPE);
+    }
+
+    /**
+     * Test quotes and line breaks in a username cannot break the Content-Disposition header
+     */
+    @Test
+    public void testExportFilenameEscaped() throws Exception {
+        streamBody();
+        String username = "eve\"\r\nSet-Cookie: x=1";
+        when(authService.verifySessionToken("token-e")).thenReturn(username);
+
+        chatController.export(username, "Bearer token-e", response);
+
+        ArgumentCaptor<String> header = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("Content-Disposition"), header.capture());
+        assertTrue(header.getValue().startsWith("attachment; filename"));
+        assertFalse(header.getValue().contains("\r") || header.getValue().contains("\n"));
+        assertFalse(header.getValue().contains("eve\""));
+    }
+
+    private ByteArrayOutputStream streamBody() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        });
+        return body;
+    }
+
+    /**
+     * Test an export for another user's name or without a login is refused
+     */
+    @Test
+    public void testExportRequiresSession() throws Exception {
+        when(authService.verifySessionToken("token-a")).thenReturn("alice");
+
+        chatController.export("bob", "Bearer token-a", response);
+        chatController.export("bob", null, response);
+
+        verify(response, times(2)).setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        verify(chatServer, never()).exportMessages(any(), any());
+    }
 }
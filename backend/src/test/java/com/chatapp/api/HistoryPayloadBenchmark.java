@@ -0,0 +1,67 @@
+package com.chatapp.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HistoryPayloadBenchmark - Compares JSON and CBOR history page encodings
+ *
+ * Reports encoded size (raw and gzip) and encode time per page for
+ * several page sizes. Run with:
+ *
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.chatapp.api.HistoryPayloadBenchmark
+ * </pre>
+ */
+public class HistoryPayloadBenchmark {
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 5_000;
+
+    /**
+     * Main method - Run the benchmark
+     *
+     * @param args - Command line arguments (unused)
+     */
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        System.out.printf("%-6s %10s %10s %10s %10s %12s %12s%n",
+                "page", "json B", "json gz B", "cbor B", "cbor gz B", "json us/op", "cbor us/op");
+
+        for (int pageSize : new int[] {20, 50, 200}) {
+            Map<String, Object> page = CborMessageConverterTest.historyPage(pageSize);
+            byte[] json = mapper.writeValueAsBytes(page);
+            byte[] cbor = CborMessageConverter.encode(page);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                mapper.writeValueAsBytes(page);
+                CborMessageConverter.encode(page);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                mapper.writeValueAsBytes(page);
+            }
+            double jsonMicros = (System.nanoTime() - start) / 1000.0 / MEASURED_ITERATIONS;
+            start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                CborMessageConverter.encode(page);
+            }
+            double cborMicros = (System.nanoTime() - start) / 1000.0 / MEASURED_ITERATIONS;
+
+            System.out.printf("%-6d %10d %10d %10d %10d %12.1f %12.1f%n",
+                    pageSize, json.length, gzip(json).length, cbor.length, gzip(cbor).length, jsonMicros, cborMicros);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
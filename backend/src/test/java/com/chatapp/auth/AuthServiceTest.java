@@ -1,9 +1,19 @@
 package com.chatapp.auth;
 
 import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.server.ChatServer;
+import com.chatapp.server.Message;
 import org.junit.Before;
 import org.junit.Test;
+
+import java.util.List;
+
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * AuthServiceTest - Unit tests for AuthService
@@ -13,6 +23,8 @@ import static org.junit.Assert.*;
  * - Session management
  * - User registration
  * - Login/logout functionality
+ * - Locked-out logins refused without a database query
+ * - Session tokens naming the user, and revoked at logout
  */
 public class AuthServiceTest {
     private AuthService authService;
@@ -143,4 +155,70 @@ public class AuthServiceTest {
         assertFalse("User1 should be logged out", authService.isLoggedIn("user1"));
         assertTrue("User2 should still be logged in", authService.isLoggedIn("user2"));
     }
+
+    /**
+     * Test a new user's mailbox skips earlier broadcasts when messages live on shards
+     */
+    @Test
+    public void testNewUserMailboxStartsNowWithShards() throws Exception {
+        DatabaseConnection database = TestConfig.createShardedTestDatabase(2);
+        ChatServer chatServer = new ChatServer(database);
+        chatServer.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "before signup");
+
+        assertTrue(new AuthService(database).registerUser("newbie", "password123"));
+        assertEquals(0, chatServer.getMailbox("newbie", 0, 10).size());
+
+        Thread.sleep(2);
+        chatServer.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "after signup");
+        List<Message> mailbox = chatServer.getMailbox("newbie", 0, 10);
+        assertEquals(1, mailbox.size());
+        assertEquals("after signup", mailbox.get(0).getContent());
+        database.close();
+    }
+
+    /**
+     * Test repeated failures lock the username out, even with the right password
+     */
+    @Test
+    public void testLockoutAfterRepeatedFailures() {
+        authService.registerUser("erin", "password123");
+        for (int i = 0; i < LoginThrottle.DEFAULT_MAX_USER_FAILURES; i++) {
+            assertFalse(authService.authenticate("erin", "guess" + i, "198.51.100.4"));
+        }
+        assertTrue(authService.getLoginRetryAfterMillis("erin", null) > 0);
+        assertFalse("Locked out despite the right password", authService.authenticate("erin", "password123"));
+        assertFalse(authService.isLoggedIn("erin"));
+        assertEquals(1, authService.getLoginThrottle().getBlockedCount());
+    }
+
+    /**
+     * Test a locked-out attempt never reaches the database
+     */
+    @Test
+    public void testLockedOutLoginSkipsDatabase() throws Exception {
+        DatabaseConnection database = mock(DatabaseConnection.class);
+        LoginThrottle throttle = new LoginThrottle(60_000, 1, 100);
+        throttle.recordFailure("frank", "198.51.100.5");
+        AuthService service = new AuthService(database, mock(UserDictionary.class), throttle);
+
+        assertFalse(service.authenticate("frank", "password123", "198.51.100.5"));
+        verify(database, never()).getReadConnection(any());
+        verify(database, never()).getConnection();
+    }
+
+    /**
+     * Test a session token names its user until the session is logged out
+     */
+    @Test
+    public void testSessionTokenLogout() {
+        authService.registerUser("grace", "password123");
+        assertTrue(authService.authenticate("grace", "password123"));
+        String token = authService.issueSessionToken("grace");
+        assertEquals("grace", authService.verifySessionToken(token));
+
+        assertEquals("grace", authService.logoutSession(token));
+        assertNull(authService.verifySessionToken(token));
+        assertFalse(authService.isLoggedIn("grace"));
+        assertNull("A revoked token cannot log out again", authService.logoutSession(token));
+    }
 }
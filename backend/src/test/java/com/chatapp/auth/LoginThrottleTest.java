@@ -0,0 +1,155 @@
+package com.chatapp.auth;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * LoginThrottleTest - Unit tests for LoginThrottle
+ *
+ * Tests cover:
+ * - Lockout once a username reaches its failure limit, and clearing on success
+ * - Lockouts doubling up to the maximum, and refused attempts not extending them
+ * - Limits per client IP across usernames
+ * - The previous window's failures fading out of the sliding count
+ * - Bounded key tables and eviction of idle keys
+ * - Top offenders and counters
+ */
+public class LoginThrottleTest {
+    private static final long WINDOW_MS = 60_000;
+
+    private AtomicLong now;
+    private LoginThrottle throttle;
+
+    /**
+     * Setup - Throttle locking a username after 3 failures and an IP after 10, on a manual clock
+     */
+    @Before
+    public void setUp() {
+        now = new AtomicLong(1_000_000_020_000L);
+        throttle = new LoginThrottle(WINDOW_MS, 3, 10, 1_000, 8_000, 1_024, now::get);
+    }
+
+    private void fail(String username, String clientIp, int times) {
+        for (int i = 0; i < times; i++) {
+            assertEquals(0, throttle.checkAttempt(username, clientIp));
+            throttle.recordFailure(username, clientIp);
+        }
+    }
+
+    /**
+     * Test a username is locked at its limit and a successful login clears it
+     */
+    @Test
+    public void testUserLockout() {
+        fail("alice", null, 2);
+        assertEquals(0, throttle.getRetryAfterMillis("alice", null));
+
+        fail("alice", null, 1);
+        assertEquals(1_000, throttle.getRetryAfterMillis("alice", null));
+        assertEquals(1_000, throttle.checkAttempt("alice", "198.51.100.1"));
+        assertEquals("Other users are not affected", 0, throttle.getRetryAfterMillis("bob", null));
+
+        now.addAndGet(1_000);
+        assertEquals(0, throttle.checkAttempt("alice", null));
+        throttle.recordSuccess("alice");
+        fail("alice", null, 2);
+        assertEquals("Success cleared the earlier failures", 0, throttle.getRetryAfterMillis("alice", null));
+        assertEquals(1, throttle.getBlockedCount());
+    }
+
+    /**
+     * Test each lockout doubles the next one up to the maximum, and refused attempts do not extend it
+     */
+    @Test
+    public void testEscalatingLockout() {
+        fail("alice", null, 3);
+        long[] expected = {1_000, 2_000, 4_000, 8_000, 8_000};
+        for (long lockout : expected) {
+            assertEquals(lockout, throttle.getRetryAfterMillis("alice", null));
+            now.addAndGet(lockout / 2);
+            assertEquals(lockout / 2, throttle.checkAttempt("alice", null));
+            now.addAndGet(lockout / 2);
+            fail("alice", null, 1);
+        }
+        assertEquals(6, throttle.getLockoutCount());
+        assertEquals(5, throttle.getBlockedCount());
+    }
+
+    /**
+     * Test an address is locked after failures spread over many usernames
+     */
+    @Test
+    public void testIpLockout() {
+        for (int i = 0; i < 10; i++) {
+            fail("user" + i, "203.0.113.9", 1);
+        }
+        assertTrue(throttle.getRetryAfterMillis("fresh", "203.0.113.9") > 0);
+        assertEquals(0, throttle.getRetryAfterMillis("fresh", "203.0.113.10"));
+
+        throttle.recordSuccess("user0");
+        assertTrue("Success does not clear the address", throttle.getRetryAfterMillis("fresh", "203.0.113.9") > 0);
+    }
+
+    /**
+     * Test failures from the previous window count in proportion to their remaining overlap
+     */
+    @Test
+    public void testSlidingWindow() {
+        now.set(10 * WINDOW_MS + WINDOW_MS - 1);
+        fail("alice", null, 2);
+        assertEquals(2.0, throttle.getTopOffenders(1).get(0).getWindowFailures(), 0.01);
+
+        // A quarter into the next window: 2 * 0.75 + 1 = 2.5, below the limit of 3
+        now.set(11 * WINDOW_MS + WINDOW_MS / 4);
+        fail("alice", null, 1);
+        assertEquals(2.5, throttle.getTopOffenders(1).get(0).getWindowFailures(), 0.01);
+        assertEquals(0, throttle.getRetryAfterMillis("alice", null));
+
+        fail("alice", null, 1);
+        assertTrue(throttle.getRetryAfterMillis("alice", null) > 0);
+
+        now.set(13 * WINDOW_MS);
+        assertEquals(0.0, throttle.getTopOffenders(1).get(0).getWindowFailures(), 0.01);
+    }
+
+    /**
+     * Test key tables stay within their bound and idle keys are dropped
+     */
+    @Test
+    public void testBoundedAndIdleEviction() {
+        for (int i = 0; i < 10_000; i++) {
+            throttle.recordFailure("spray" + i, null);
+        }
+        assertTrue(throttle.getTrackedUserCount() <= 1_024);
+
+        now.addAndGet(2 * WINDOW_MS + 8_000);
+        for (int i = 0; i < 200; i++) {
+            throttle.recordFailure("later" + i, null);
+        }
+        assertEquals(200, throttle.getTrackedUserCount());
+    }
+
+    /**
+     * Test offenders are listed by failures across usernames and addresses
+     */
+    @Test
+    public void testTopOffenders() {
+        fail("alice", "203.0.113.9", 2);
+        fail("bob", "203.0.113.9", 1);
+
+        List<LoginThrottle.Offender> offenders = throttle.getTopOffenders(2);
+        assertEquals(2, offenders.size());
+        assertEquals("ip", offenders.get(0).getKind());
+        assertEquals("203.0.113.9", offenders.get(0).getKey());
+        assertEquals(3, offenders.get(0).getTotalFailures());
+        assertEquals("alice", offenders.get(1).getKey());
+        assertEquals(3, throttle.getFailureCount());
+        assertEquals(2, throttle.getTrackedUserCount());
+        assertEquals(1, throttle.getTrackedIpCount());
+    }
+}
@@ -0,0 +1,141 @@
+package com.chatapp.auth;
+
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * SessionTokenServiceTest - Unit tests for SessionTokenService
+ *
+ * Tests cover:
+ * - Tokens issued by one node verified by another with the same secret
+ * - Tampered, truncated and foreign-secret tokens rejected
+ * - Expiry, and caching of verified tokens
+ * - Revocations replicated between nodes through the revoked_sessions table
+ * - Expired revocations dropped from memory and the table
+ */
+public class SessionTokenServiceTest {
+    private static final long TTL_MS = 60_000;
+
+    private final byte[] secret = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private DatabaseConnection database;
+    private AtomicLong now;
+    private SessionTokenService nodeA;
+    private SessionTokenService nodeB;
+
+    /**
+     * Setup - Two nodes sharing a secret and a database, on a manual clock
+     */
+    @Before
+    public void setUp() {
+        database = TestConfig.createTestDatabase();
+        now = new AtomicLong(1_800_000_000_000L);
+        nodeA = new SessionTokenService(secret, TTL_MS, database, 1_000, 100, now::get);
+        nodeB = new SessionTokenService(secret, TTL_MS, database, 1_000, 100, now::get);
+    }
+
+    /**
+     * Teardown - Close the database
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Test a token issued on one node is accepted on another
+     */
+    @Test
+    public void testVerifyOnAnotherNode() {
+        String token = nodeA.issue("alice.smith");
+        SessionToken session = nodeB.verify(token);
+        assertNotNull(session);
+        assertEquals("alice.smith", session.getUsername());
+        assertEquals(now.get() + TTL_MS, session.getExpiresAtMillis());
+        assertNotEquals("Each token has its own ID", nodeA.verify(nodeA.issue("alice.smith")).getTokenId(),
+                session.getTokenId());
+    }
+
+    /**
+     * Test altered tokens and tokens signed with another secret are rejected
+     */
+    @Test
+    public void testRejectsForgedTokens() {
+        String token = nodeA.issue("alice");
+        int dot = token.indexOf('.');
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+        String renamed = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                payload.replace("alice", "admin").getBytes(StandardCharsets.UTF_8)) + token.substring(dot);
+
+        assertNull(nodeB.verify(renamed));
+        assertNull(nodeB.verify(token.substring(0, token.length() - 2)));
+        assertNull(nodeB.verify(token.substring(0, dot)));
+        assertNull(nodeB.verify("not a token"));
+        assertNull(nodeB.verify(null));
+
+        byte[] otherSecret = Arrays.copyOf(secret, secret.length);
+        otherSecret[0] ^= 1;
+        SessionTokenService other = new SessionTokenService(otherSecret, TTL_MS, null, 1_000);
+        assertNull(other.verify(token));
+        assertEquals(4, nodeB.getInvalidCount());
+    }
+
+    /**
+     * Test a token stops verifying at its expiry and verified tokens are served from the cache
+     */
+    @Test
+    public void testExpiryAndCache() {
+        String token = nodeA.issue("alice");
+        assertNotNull(nodeB.verify(token));
+        assertNotNull(nodeB.verify(token));
+        assertEquals(1, nodeB.getCachedCount());
+        assertEquals(1, nodeB.getCacheHitCount());
+
+        now.addAndGet(TTL_MS);
+        assertNull(nodeB.verify(token));
+        assertEquals("Expired tokens leave the cache", 0, nodeB.getCachedCount());
+    }
+
+    /**
+     * Test a logout on one node is seen by another after it polls
+     */
+    @Test
+    public void testRevocationReplicates() {
+        String token = nodeA.issue("alice");
+        String other = nodeA.issue("alice");
+        assertNotNull(nodeB.verify(token));
+
+        assertTrue(nodeA.revoke(token));
+        assertNull("Revoked at once where it was revoked", nodeA.verify(token));
+        assertNotNull("Not yet seen by the other node", nodeB.verify(token));
+
+        assertEquals(1, nodeB.refreshRevocations());
+        assertNull(nodeB.verify(token));
+        assertNotNull("Other sessions of the user stay valid", nodeB.verify(other));
+        assertFalse("Revoking twice does nothing", nodeA.revoke(token));
+    }
+
+    /**
+     * Test revocations are forgotten once their tokens expire
+     */
+    @Test
+    public void testExpiredRevocationsDropped() {
+        nodeA.revoke(nodeA.issue("alice"));
+        nodeB.refreshRevocations();
+        assertEquals(1, nodeB.getRevokedCount());
+
+        now.addAndGet(TTL_MS);
+        nodeB.refreshRevocations();
+        assertEquals(0, nodeB.getRevokedCount());
+        assertEquals(1, nodeA.deleteExpiredRevocations());
+    }
+}
@@ -0,0 +1,106 @@
+package com.chatapp.auth;
+
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * UserDictionaryTest - Unit tests for UserDictionary
+ *
+ * Tests cover:
+ * - Stable, dense ID assignment
+ * - Reverse lookup and growth past the initial capacity
+ * - Concurrent interning of the same names
+ * - Database-backed lookups of users.user_id
+ */
+public class UserDictionaryTest {
+
+    /**
+     * Test the same name always gets the same ID
+     */
+    @Test
+    public void testIdsAreStable() {
+        UserDictionary dictionary = new UserDictionary();
+        int alice = dictionary.idOf("alice");
+        int bob = dictionary.idOf("bob");
+
+        assertEquals(1, alice);
+        assertEquals(2, bob);
+        assertEquals(alice, dictionary.idOf("alice"));
+        assertEquals(2, dictionary.size());
+    }
+
+    /**
+     * Test reverse lookup, including after the name table grows
+     */
+    @Test
+    public void testNameOf() {
+        UserDictionary dictionary = new UserDictionary();
+        for (int i = 0; i < 5000; i++) {
+            dictionary.idOf("user" + i);
+        }
+        assertEquals("user0", dictionary.nameOf(1));
+        assertEquals("user4999", dictionary.nameOf(5000));
+        assertNull(dictionary.nameOf(0));
+        assertNull(dictionary.nameOf(5001));
+    }
+
+    /**
+     * Test concurrent interning assigns one ID per name
+     */
+    @Test
+    public void testConcurrentInterning() throws Exception {
+        UserDictionary dictionary = new UserDictionary();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Set<Integer>>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    Set<Integer> ids = new HashSet<>();
+                    for (int i = 0; i < 2000; i++) {
+                        ids.add(dictionary.idOf("user" + i));
+                    }
+                    return ids;
+                }));
+            }
+            Set<Integer> first = results.get(0).get();
+            for (Future<Set<Integer>> result : results) {
+                assertEquals(first, result.get());
+            }
+            assertEquals(2000, dictionary.size());
+            assertEquals(2000, first.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test a database-backed dictionary returns user_id and does not cache unknown users
+     */
+    @Test
+    public void testDatabaseBacked() {
+        DatabaseConnection db = TestConfig.createTestDatabase();
+        UserDictionary dictionary = new UserDictionary(db);
+        AuthService authService = new AuthService(db, dictionary);
+
+        int alice = dictionary.idOf("alice");
+        assertTrue(alice > 0);
+        assertEquals("alice", new UserDictionary(db).nameOf(alice));
+        assertEquals(0, dictionary.idOf("dave"));
+
+        assertTrue(authService.registerUser("dave", "secret"));
+        int dave = dictionary.idOf("dave");
+        assertTrue(dave > alice);
+        assertEquals("dave", dictionary.nameOf(dave));
+    }
+}
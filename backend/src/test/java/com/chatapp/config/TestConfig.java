@@ -1,21 +1,91 @@
 package com.chatapp.config;
 
 import com.chatapp.auth.AuthService;
+import com.chatapp.database.DatabaseConnection;
 import com.chatapp.server.ChatServer;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * TestConfig - Configuration for unit tests
  * 
- * Provides test instances of services without database dependencies
+ * Provides test instances of services backed by a fresh in-memory H2
+ * database (PostgreSQL mode) per instance, so tests need no running
+ * PostgreSQL server and do not share state.
  */
 public class TestConfig {
-    
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+
+    /**
+     * Create a fresh in-memory database with the test schema loaded
+     * @return DatabaseConnection to the new database
+     */
+    public static DatabaseConnection createTestDatabase() {
+        String url = "jdbc:h2:mem:chatapp_test_" + DATABASE_COUNTER.incrementAndGet()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        DatabaseConnection dbConnection = new DatabaseConnection(url, "sa", "");
+        try (Connection conn = dbConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM 'classpath:/schema-h2.sql'");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create test database", e);
+        }
+        return dbConnection;
+    }
+
+    /**
+     * Create a fresh primary database whose messages are split over fresh shard databases
+     * @param shardCount - Number of message shards
+     * @return DatabaseConnection to the new primary, with its shards
+     */
+    public static DatabaseConnection createShardedTestDatabase(int shardCount) {
+        DatabaseConnection primary = createTestDatabase();
+        List<String> shardUrls = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shardUrls.add(createTestShard());
+        }
+        primary.close();
+        return withShards(primary.getUrl(), shardUrls);
+    }
+
+    /**
+     * Create a fresh, empty message shard database
+     * @return JDBC URL of the new shard
+     */
+    public static String createTestShard() {
+        String url = "jdbc:h2:mem:chatapp_shard_" + DATABASE_COUNTER.incrementAndGet()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        DatabaseConnection shard = new DatabaseConnection(url, "sa", "");
+        try (Connection conn = shard.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("RUNSCRIPT FROM 'classpath:/shard-schema-h2.sql'");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create test shard", e);
+        }
+        shard.close();
+        return url;
+    }
+
+    /**
+     * Connect to an existing test primary with a given shard list
+     * @param primaryUrl - JDBC URL of the primary
+     * @param shardUrls - JDBC URLs of the message shards in ring order
+     * @return DatabaseConnection to the primary, with those shards
+     */
+    public static DatabaseConnection withShards(String primaryUrl, List<String> shardUrls) {
+        return new DatabaseConnection(primaryUrl, "sa", "", Collections.emptyList(), 10, 5_000, null, shardUrls);
+    }
+
     /**
      * Create a test instance of AuthService
      * @return AuthService configured for testing
      */
     public static AuthService createTestAuthService() {
-        return new AuthService();
+        return new AuthService(createTestDatabase());
     }
 
     /**
@@ -23,6 +93,6 @@ public class TestConfig {
      * @return ChatServer configured for testing
      */
     public static ChatServer createTestChatServer() {
-        return new ChatServer();
+        return new ChatServer(createTestDatabase());
     }
 }
@@ -0,0 +1,106 @@
+package com.chatapp.database;
+
+import com.chatapp.config.TestConfig;
+import com.chatapp.server.ChatServer;
+import com.chatapp.server.Message;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ConversationKeyBackfillTest - Unit tests for ConversationKeyBackfill
+ *
+ * Tests cover:
+ * - Keys computed in SQL match ChatServer.conversationKey
+ * - Batching across ranges, broadcasts, and re-running
+ * - History reads seeing backfilled rows
+ */
+public class ConversationKeyBackfillTest {
+    private DatabaseConnection db;
+
+    /**
+     * Setup - Database in the pre-migration state: nullable key and 25 rows without one
+     */
+    @Before
+    public void setUp() throws SQLException {
+        db = TestConfig.createTestDatabase();
+        try (Connection conn = db.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE messages ALTER COLUMN conversation_key SET NULL");
+            PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO messages (message_id, sender_id, recipient_id, content) VALUES (?, ?, ?, ?)");
+            for (int i = 0; i < 25; i++) {
+                insert.setLong(1, i + 1);
+                insert.setInt(2, i % 2 == 0 ? 1 : 2);
+                if (i == 24) {
+                    insert.setNull(3, java.sql.Types.INTEGER);
+                } else {
+                    insert.setInt(3, i % 2 == 0 ? 2 : 1);
+                }
+                insert.setString(4, "legacy " + i);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private long keyOf(long messageId) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT conversation_key FROM messages WHERE message_id = ?");
+            stmt.setLong(1, messageId);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Test every row gets the key the application would have written
+     */
+    @Test
+    public void testBackfillInBatches() throws Exception {
+        ConversationKeyBackfill backfill = new ConversationKeyBackfill(db, 7, 0);
+        assertEquals(25, backfill.remaining());
+
+        assertEquals(25, backfill.run());
+
+        assertEquals(0, backfill.remaining());
+        assertEquals(ChatServer.conversationKey(1, 2), keyOf(1));
+        assertEquals(ChatServer.conversationKey(2, 1), keyOf(2));
+        assertEquals(ChatServer.conversationKey(1, 0), keyOf(25));
+        assertEquals(1L, keyOf(25));
+    }
+
+    /**
+     * Test re-running only touches rows still missing a key
+     */
+    @Test
+    public void testRerunIsNoOp() throws Exception {
+        ConversationKeyBackfill backfill = new ConversationKeyBackfill(db, 100, 0);
+        backfill.run();
+        assertEquals(0, backfill.run());
+    }
+
+    /**
+     * Test history reads by key see backfilled rows alongside new ones
+     */
+    @Test
+    public void testHistoryAfterBackfill() throws Exception {
+        ChatServer chatServer = new ChatServer(db);
+        assertTrue(chatServer.getConversationHistory("alice", "bob", 1000, 50).isEmpty());
+
+        new ConversationKeyBackfill(db, 10, 0).run();
+        chatServer.storeMessage("bob", "alice", "new");
+
+        List<Message> history = chatServer.getConversationHistory("alice", "bob", Long.MAX_VALUE, 50);
+        assertEquals(25, history.size());
+        assertEquals("legacy 0", history.get(0).getContent());
+        assertEquals("new", history.get(24).getContent());
+    }
+}
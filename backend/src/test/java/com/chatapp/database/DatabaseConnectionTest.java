@@ -0,0 +1,164 @@
+package com.chatapp.database;
+
+import com.chatapp.config.TestConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * DatabaseConnectionTest - Unit tests for read/write splitting in DatabaseConnection
+ *
+ * Uses separate in-memory H2 databases as primary and replicas, each
+ * tagged with its name, so a test can see which one served a read.
+ *
+ * Tests cover:
+ * - Reads on the primary without replicas
+ * - Reads on replicas, and read-your-writes per key and globally
+ * - Least-outstanding-requests balancing
+ * - Ejection of a failing replica and re-admission after a health check
+ */
+public class DatabaseConnectionTest {
+    private static final long WINDOW_MS = 200;
+
+    private DatabaseConnection routed;
+
+    /**
+     * Teardown - Close pools
+     */
+    @After
+    public void tearDown() {
+        if (routed != null) {
+            routed.close();
+        }
+    }
+
+    private static String tagged(String name) throws SQLException {
+        DatabaseConnection db = TestConfig.createTestDatabase();
+        try (Connection conn = db.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE node (name VARCHAR(20))");
+            stmt.execute("INSERT INTO node VALUES ('" + name + "')");
+        }
+        db.close();
+        return db.getUrl();
+    }
+
+    private static String nodeOf(Connection conn) throws SQLException {
+        try (Connection c = conn; Statement stmt = c.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT name FROM node");
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private DatabaseConnection withReplicas(String... replicas) throws SQLException {
+        routed = new DatabaseConnection(tagged("primary"), "sa", "", Arrays.asList(replicas), 4, WINDOW_MS);
+        return routed;
+    }
+
+    /**
+     * Test reads go to the primary when no replica is configured
+     */
+    @Test
+    public void testNoReplicasReadsPrimary() throws SQLException {
+        routed = new DatabaseConnection(tagged("primary"), "sa", "", Collections.emptyList(), 4, WINDOW_MS);
+        assertEquals("primary", nodeOf(routed.getReadConnection("alice")));
+        assertEquals(0, routed.getReplicaCount());
+    }
+
+    /**
+     * Test reads for a recently written key stay on the primary until the window passes
+     */
+    @Test
+    public void testReadYourWrites() throws Exception {
+        withReplicas(tagged("replica"));
+        assertEquals("replica", nodeOf(routed.getReadConnection("alice")));
+        assertEquals("primary", nodeOf(routed.getConnection()));
+
+        routed.recordWrite("alice", "bob");
+        assertEquals("primary", nodeOf(routed.getReadConnection("alice")));
+        assertEquals("primary", nodeOf(routed.getReadConnection("charlie", "bob")));
+        assertEquals("replica", nodeOf(routed.getReadConnection("charlie")));
+
+        Thread.sleep(WINDOW_MS + 50);
+        assertEquals("replica", nodeOf(routed.getReadConnection("alice")));
+    }
+
+    /**
+     * Test a write without keys keeps every read on the primary for the window
+     */
+    @Test
+    public void testGlobalWrite() throws SQLException {
+        withReplicas(tagged("replica"));
+        routed.recordWrite();
+        assertEquals("primary", nodeOf(routed.getReadConnection("charlie")));
+        assertEquals("primary", nodeOf(routed.getReadConnection()));
+    }
+
+    private static String peek(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT name FROM node");
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /**
+     * Test reads go to the replica with the fewest checked-out connections
+     */
+    @Test
+    public void testLeastOutstanding() throws SQLException {
+        withReplicas(tagged("r0"), tagged("r1"));
+        Connection first = routed.getReadConnection();
+        Connection second = routed.getReadConnection();
+        assertNotEquals("Second read should avoid the busy replica", peek(first), peek(second));
+
+        String held = peek(first);
+        second.close();
+        for (int i = 0; i < 3; i++) {
+            assertNotEquals("Reads should avoid the replica with a connection out", held, nodeOf(routed.getReadConnection()));
+        }
+        first.close();
+        assertArrayEquals(new int[] {0, 0}, routed.getReplicaOutstanding());
+    }
+
+    /**
+     * Test a replica that cannot be reached is ejected and re-admitted once it recovers
+     */
+    @Test
+    public void testEjectAndReadmit() throws SQLException {
+        String lateName = "chatapp_late_replica_" + System.nanoTime();
+        String lateUrl = "jdbc:h2:mem:" + lateName + ";IFEXISTS=TRUE;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE";
+        withReplicas(lateUrl, tagged("replica"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("replica", nodeOf(routed.getReadConnection()));
+        }
+        assertEquals(1, routed.getHealthyReplicaCount());
+
+        // Bring the replica up and keep it alive
+        Connection keepAlive = java.sql.DriverManager.getConnection(
+                "jdbc:h2:mem:" + lateName + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("CREATE TABLE node (name VARCHAR(20))");
+            stmt.execute("INSERT INTO node VALUES ('late')");
+            routed.checkReplicas();
+            assertEquals(2, routed.getHealthyReplicaCount());
+
+            boolean servedByLate = false;
+            for (int i = 0; i < 4 && !servedByLate; i++) {
+                servedByLate = "late".equals(nodeOf(routed.getReadConnection()));
+            }
+            assertTrue("Re-admitted replica should receive reads", servedByLate);
+        } finally {
+            keepAlive.close();
+        }
+    }
+}
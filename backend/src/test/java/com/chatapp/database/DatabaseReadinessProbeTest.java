@@ -0,0 +1,57 @@
+package com.chatapp.database;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * DatabaseReadinessProbeTest - Unit tests for DatabaseReadinessProbe
+ *
+ * Probes are run directly rather than on the background thread.
+ *
+ * Tests cover:
+ * - Not ready until the database first answers
+ * - Readiness lost when a later probe fails, and regained when it answers again
+ */
+public class DatabaseReadinessProbeTest {
+
+    /**
+     * Test readiness follows the database after the first successful probe
+     */
+    @Test
+    public void testReadinessLostAndRegained() throws Exception {
+        DatabaseConnection dbConnection = mock(DatabaseConnection.class);
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(2)).thenReturn(true);
+        when(dbConnection.getConnection())
+                .thenThrow(new SQLException("Connection refused"))
+                .thenReturn(connection)
+                .thenThrow(new SQLException("Connection reset"))
+                .thenReturn(connection);
+        DatabaseReadinessProbe probe = new DatabaseReadinessProbe(dbConnection);
+
+        assertFalse(probe.probe());
+        assertFalse(probe.isReady());
+        assertEquals(0, probe.getReadyAtMs());
+        assertEquals("Connection refused", probe.getLastError());
+
+        assertTrue(probe.probe());
+        assertTrue(probe.isReady());
+        assertTrue(probe.getReadyAtMs() > 0);
+        assertNull(probe.getLastError());
+
+        assertFalse("A failure after success is reported", probe.probe());
+        assertFalse(probe.isReady());
+        assertEquals("Connection reset", probe.getLastError());
+        assertTrue("Still known to have been ready", probe.getReadyAtMs() > 0);
+
+        assertTrue(probe.probe());
+        assertTrue(probe.isReady());
+        assertEquals(4, probe.getAttempts());
+    }
+}
@@ -0,0 +1,67 @@
+package com.chatapp.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ShardMapTest - Unit tests for the consistent-hash ShardMap
+ *
+ * Tests cover:
+ * - Even spread of consecutive conversation keys
+ * - Appending a shard only moves keys to the new shard
+ * - A single shard owns every key
+ */
+public class ShardMapTest {
+    private static final int KEYS = 100_000;
+
+    private static long key(int i) {
+        // Conversation keys of user pairs (i, i + 1)
+        return ((long) i << 32) | (i + 1);
+    }
+
+    /**
+     * Test keys spread evenly over the shards
+     */
+    @Test
+    public void testEvenSpread() {
+        ShardMap map = new ShardMap(4);
+        int[] counts = new int[4];
+        for (int i = 1; i <= KEYS; i++) {
+            counts[map.shardOf(key(i))]++;
+        }
+        for (int count : counts) {
+            assertEquals("Each shard should own about a quarter of the keys", KEYS / 4.0, count, KEYS * 0.05);
+        }
+    }
+
+    /**
+     * Test that adding a shard moves about 1/(N+1) of the keys, all to the new shard
+     */
+    @Test
+    public void testAppendingShardMovesKeysOnlyToIt() {
+        ShardMap four = new ShardMap(4);
+        ShardMap five = new ShardMap(5);
+        int moved = 0;
+        for (int i = 1; i <= KEYS; i++) {
+            int before = four.shardOf(key(i));
+            int after = five.shardOf(key(i));
+            if (before != after) {
+                assertEquals("Keys only move to the new shard", 4, after);
+                moved++;
+            }
+        }
+        assertEquals(KEYS / 5.0, moved, KEYS * 0.05);
+    }
+
+    /**
+     * Test a single shard owns every key
+     */
+    @Test
+    public void testSingleShard() {
+        ShardMap map = new ShardMap(1);
+        assertEquals(0, map.shardOf(key(7)));
+        assertEquals(0, map.shardOf(Long.MIN_VALUE));
+        assertEquals(1, map.getShardCount());
+    }
+}
@@ -0,0 +1,151 @@
+package com.chatapp.database;
+
+import com.chatapp.auth.AuthService;
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.server.ChatServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlStatisticsTest - Unit tests for SqlStatistics and instrumented connections
+ *
+ * Tests cover:
+ * - SQL normalization of literals, IN-lists and whitespace
+ * - Execution counts, affected and fetched rows per statement
+ * - Failed executions
+ * - The slow-query log redacting bind values
+ * - Ordering of the top statements by total time
+ */
+public class SqlStatisticsTest {
+    private DatabaseConnection plain;
+    private DatabaseConnection instrumented;
+    private SqlStatistics statistics;
+
+    /**
+     * Setup - Open an instrumented connection to a fresh database
+     */
+    @Before
+    public void setUp() {
+        plain = TestConfig.createTestDatabase();
+        statistics = new SqlStatistics(10_000);
+        instrumented = instrument(statistics);
+    }
+
+    /**
+     * Teardown - Close both pools
+     */
+    @After
+    public void tearDown() {
+        instrumented.close();
+        plain.close();
+    }
+
+    private DatabaseConnection instrument(SqlStatistics stats) {
+        return new DatabaseConnection(plain.getUrl(), "sa", "", Collections.emptyList(), 4, 0, stats);
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("SELECT * FROM users WHERE username = ? AND user_id > ?",
+                SqlStatistics.normalize("SELECT *\n  FROM users WHERE username = 'o''brien' AND user_id > 42"));
+        assertEquals("SELECT user_id FROM users WHERE user_id IN (?...)",
+                SqlStatistics.normalize("SELECT user_id FROM users WHERE user_id IN (?, ?,?)"));
+        assertEquals("Identifiers with digits are kept", "SELECT col2 FROM t1 WHERE a = ?",
+                SqlStatistics.normalize("SELECT col2 FROM t1 WHERE a = 7"));
+    }
+
+    @Test
+    public void testRecordsExecutionsAndRows() {
+        UserDictionary dictionary = new UserDictionary(instrumented);
+        AuthService authService = new AuthService(instrumented, dictionary);
+        ChatServer chatServer = new ChatServer(instrumented, dictionary);
+        authService.registerUser("carol", "pw");
+        authService.registerUser("dave", "pw");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(chatServer.sendMessage("carol", "dave", "message " + i));
+        }
+        assertTrue(authService.authenticate("carol", "pw"));
+        assertTrue(authService.authenticate("dave", "pw"));
+
+        SqlStatistics.StatementStats login = statistics.get("SELECT user_id, password FROM users WHERE username = ?");
+        assertNotNull(login);
+        assertEquals(2, login.getExecutions());
+        assertEquals("Fetched rows are counted", 2, login.getRows());
+        assertTrue(login.getFetchNanos() > 0);
+
+        SqlStatistics.StatementStats insert = statistics.get("INSERT INTO users (username, password) VALUES (?, ?)");
+        assertEquals(2, insert.getExecutions());
+        assertEquals("Affected rows are counted", 2, insert.getRows());
+        assertEquals(0, statistics.getSlowQueryCount());
+    }
+
+    @Test
+    public void testRecordsFailures() throws SQLException {
+        try (Connection conn = instrumented.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeQuery("SELECT * FROM no_such_table WHERE id = 5");
+            fail("Query should fail");
+        } catch (SQLException expected) {
+            // Recorded below
+        }
+        SqlStatistics.StatementStats stats = statistics.get("SELECT * FROM no_such_table WHERE id = 9");
+        assertNotNull("Literals share one entry", stats);
+        assertEquals(1, stats.getExecutions());
+        assertEquals(1, stats.getErrors());
+    }
+
+    @Test
+    public void testSlowQueryLogRedactsBinds() throws SQLException {
+        SqlStatistics logAll = new SqlStatistics(0);
+        DatabaseConnection logged = instrument(logAll);
+        PrintStream originalErr = System.err;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try (Connection conn = logged.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT user_id FROM users WHERE username = ? AND user_id > ?");
+            stmt.setString(1, "secret-name");
+            stmt.setInt(2, 12345);
+            ResultSet rs = stmt.executeQuery();
+            assertFalse(rs.next());
+        } finally {
+            System.setErr(originalErr);
+            logged.close();
+        }
+        String log = captured.toString(StandardCharsets.UTF_8);
+        assertEquals(1, logAll.getSlowQueryCount());
+        assertTrue(log, log.contains("Slow query"));
+        assertTrue(log, log.contains("binds=[String, Int]"));
+        assertFalse("Bind values must not be logged", log.contains("secret-name") || log.contains("12345"));
+    }
+
+    @Test
+    public void testTopOrdersByTotalTime() {
+        SqlStatistics.StatementStats cheap = statistics.statement("SELECT 1");
+        SqlStatistics.StatementStats costly = statistics.statement("SELECT 2 FROM users");
+        statistics.recordExecution(cheap, 1_000_000, 0, false, Collections.emptyList());
+        statistics.recordExecution(cheap, 1_000_000, 0, false, Collections.emptyList());
+        statistics.recordExecution(costly, 50_000_000, 0, false, Collections.emptyList());
+
+        List<Map<String, Object>> top = statistics.top(5);
+        assertEquals(2, top.size());
+        assertEquals("SELECT ? FROM users", top.get(0).get("sql"));
+        assertEquals(2L, top.get(1).get("executions"));
+        assertEquals(1, statistics.top(1).size());
+        assertTrue(costly.percentileMicros(99) >= 50_000);
+    }
+}
@@ -0,0 +1,170 @@
+package com.chatapp.filter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * ContentFilterTest - Unit tests for ContentFilter
+ *
+ * Tests cover:
+ * - Reject, mask and flag actions, with the most severe match deciding
+ * - Masking whole code points
+ * - Parsing dictionary lines and skipping malformed ones
+ * - Hot reload on file change, keeping the dictionary when the file goes away
+ * - Sends during reloads always seeing a complete dictionary
+ */
+public class ContentFilterTest {
+    private Path directory;
+    private Path dictionary;
+
+    /**
+     * Setup - Empty temporary directory for the dictionary file
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("content-filter");
+        dictionary = directory.resolve("terms.txt");
+    }
+
+    /**
+     * Teardown - Remove the temporary directory
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dictionary);
+        Files.deleteIfExists(directory);
+    }
+
+    private void write(long modifiedMillis, String... lines) throws IOException {
+        Files.write(dictionary, Arrays.asList(lines), StandardCharsets.UTF_8);
+        // Explicit times so a rewrite within the file system's timestamp granularity is still seen
+        Files.setLastModifiedTime(dictionary, FileTime.fromMillis(modifiedMillis));
+    }
+
+    /**
+     * Test each action and that a reject outranks mask and flag in the same message
+     */
+    @Test
+    public void testActions() throws IOException {
+        write(1_000, "reject buy-followers.example", "mask darn", "flag crypto");
+        ContentFilter filter = new ContentFilter(dictionary);
+
+        ContentFilter.Result clean = filter.check("hello there");
+        assertNull(clean.getAction());
+        assertEquals("hello there", clean.getContent());
+
+        ContentFilter.Result masked = filter.check("Darn it, darn");
+        assertEquals(FilterAction.MASK, masked.getAction());
+        assertEquals("**** it, ****", masked.getContent());
+        assertFalse(masked.isFlagged());
+
+        ContentFilter.Result flagged = filter.check("free CRYPTO, darn");
+        assertEquals(FilterAction.MASK, flagged.getAction());
+        assertTrue(flagged.isFlagged());
+        assertEquals("free CRYPTO, ****", flagged.getContent());
+        assertEquals(Arrays.asList("crypto", "darn"), flagged.getTerms());
+
+        ContentFilter.Result rejected = filter.check("darn, see https://buy-followers.example/now");
+        assertTrue(rejected.isRejected());
+
+        assertEquals(4, filter.getScannedCount());
+        assertEquals(1, filter.getRejectedCount());
+        assertEquals(2, filter.getMaskedCount());
+        assertEquals(1, filter.getFlaggedCount());
+        filter.shutdown();
+    }
+
+    /**
+     * Test a masked term containing a surrogate pair becomes one asterisk per code point
+     */
+    @Test
+    public void testMaskKeepsCodePoints() throws IOException {
+        write(1_000, "mask b💩d");
+        ContentFilter filter = new ContentFilter(dictionary);
+        assertEquals("a *** c", filter.check("a b💩d c").getContent());
+        filter.shutdown();
+    }
+
+    /**
+     * Test parsing skips comments, blank and malformed lines and keeps the most severe action per term
+     */
+    @Test
+    public void testParse() {
+        Map<String, FilterAction> rules = ContentFilter.parse(Arrays.asList(
+                "# banned terms", "", "REJECT spam link", "mask  heck ", "flag spam link", "block nope", "reject"));
+        assertEquals(2, rules.size());
+        assertEquals(FilterAction.REJECT, rules.get("spam link"));
+        assertEquals(FilterAction.MASK, rules.get("heck"));
+    }
+
+    /**
+     * Test a changed file is picked up and a missing one keeps the current dictionary
+     */
+    @Test
+    public void testReload() throws IOException {
+        ContentFilter filter = new ContentFilter(dictionary);
+        assertEquals("No file yet: nothing filtered", 0, filter.getTermCount());
+
+        write(1_000, "reject alpha");
+        assertTrue(filter.reloadIfChanged());
+        assertFalse("Unchanged file is not reloaded", filter.reloadIfChanged());
+        assertTrue(filter.check("ALPHA").isRejected());
+
+        write(2_000, "reject beta", "flag gamma");
+        assertTrue(filter.reloadIfChanged());
+        assertEquals(2, filter.getTermCount());
+        assertFalse(filter.check("alpha").isRejected());
+        assertTrue(filter.check("beta").isRejected());
+
+        Files.delete(dictionary);
+        assertFalse(filter.reloadIfChanged());
+        assertTrue("Deleting the file keeps the loaded terms", filter.check("beta").isRejected());
+        filter.shutdown();
+    }
+
+    /**
+     * Test checks running during repeated reloads see either dictionary in full
+     */
+    @Test
+    public void testChecksDuringReload() throws Exception {
+        write(1_000, "reject one", "reject two");
+        ContentFilter filter = new ContentFilter(dictionary);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread sender = new Thread(() -> {
+            while (running.get()) {
+                ContentFilter.Result result = filter.check("one two three four");
+                // The first dictionary rejects, the second only masks; anything else is a torn read
+                if (!result.isRejected() && !"*** *** ***** four".equals(result.getContent())) {
+                    failure.set(result.getContent());
+                }
+            }
+        });
+        sender.start();
+        for (int i = 0; i < 50; i++) {
+            if (i % 2 == 0) {
+                write(2_000 + i, "mask one", "mask two", "mask three");
+            } else {
+                write(2_000 + i, "reject one", "reject two");
+            }
+            assertTrue(filter.reloadIfChanged());
+        }
+        running.set(false);
+        sender.join();
+        assertNull(failure.get());
+        filter.shutdown();
+    }
+}
@@ -0,0 +1,112 @@
+package com.chatapp.filter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * FilterAutomatonTest - Unit tests for the Aho-Corasick FilterAutomaton
+ *
+ * Tests cover:
+ * - Overlapping and nested matches through failure links
+ * - Case folding with match positions in the original text
+ * - Agreement with a naive scan over random text and terms
+ * - Automata without terms
+ */
+public class FilterAutomatonTest {
+
+    private static FilterAutomaton automaton(String... terms) {
+        Map<String, FilterAction> rules = new LinkedHashMap<>();
+        for (String term : terms) {
+            rules.put(term, FilterAction.FLAG);
+        }
+        return FilterAutomaton.build(rules);
+    }
+
+    private static List<String> found(FilterAutomaton automaton, String text) {
+        List<String> found = new ArrayList<>();
+        for (FilterAutomaton.Match match : automaton.scan(text)) {
+            found.add(match.getTerm() + "@" + match.getStart());
+        }
+        return found;
+    }
+
+    /**
+     * Test every overlapping occurrence is reported, ordered by end position then length
+     */
+    @Test
+    public void testOverlappingMatches() {
+        FilterAutomaton automaton = automaton("he", "she", "his", "hers");
+        List<String> found = found(automaton, "ushers");
+        assertEquals(3, found.size());
+        assertEquals("she@1", found.get(0));
+        assertEquals("he@2", found.get(1));
+        assertEquals("hers@2", found.get(2));
+        assertEquals(4, automaton.getTermCount());
+    }
+
+    /**
+     * Test matching ignores case and reports positions in the original text
+     */
+    @Test
+    public void testCaseFolding() {
+        FilterAutomaton automaton = automaton("Spam", "BIT.LY/");
+        List<FilterAutomaton.Match> matches = automaton.scan("Buy SPAM at bit.ly/x or sPaM");
+        assertEquals(3, matches.size());
+        assertEquals(4, matches.get(0).getStart());
+        assertEquals(8, matches.get(0).getEnd());
+        assertEquals("bit.ly/", matches.get(1).getTerm());
+        assertEquals(24, matches.get(2).getStart());
+        assertEquals("Terms differing only in case are one term", 1, automaton("spam", "SPAM").getTermCount());
+    }
+
+    /**
+     * Test the automaton finds exactly what a naive scan of every term finds
+     */
+    @Test
+    public void testAgreesWithNaiveScan() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            Set<String> terms = new HashSet<>();
+            while (terms.size() < 20) {
+                terms.add(randomText(random, 1 + random.nextInt(4)));
+            }
+            FilterAutomaton automaton = automaton(terms.toArray(new String[0]));
+            String text = randomText(random, 300);
+
+            Set<String> expected = new HashSet<>();
+            for (String term : terms) {
+                for (int i = text.indexOf(term); i >= 0; i = text.indexOf(term, i + 1)) {
+                    expected.add(term + "@" + i);
+                }
+            }
+            assertEquals(expected, new HashSet<>(found(automaton, text)));
+        }
+    }
+
+    /**
+     * Test an automaton without terms matches nothing
+     */
+    @Test
+    public void testEmpty() {
+        assertTrue(FilterAutomaton.empty().scan("anything at all").isEmpty());
+        assertEquals(0, FilterAutomaton.empty().getTermCount());
+        assertTrue(automaton("").scan("text").isEmpty());
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(3)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package com.chatapp.journal;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * MessageJournalTest - Unit tests for MessageJournal
+ *
+ * Tests cover:
+ * - Append, read in order and commit
+ * - Concurrent appends sharing fsyncs
+ * - Segment rolling and deletion of replayed segments
+ * - Recovery of pending records and torn tails after a restart
+ */
+public class MessageJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MessageJournal journal;
+
+    /**
+     * Teardown - Close the journal
+     */
+    @After
+    public void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private static JournalRecord record(int i) {
+        return new JournalRecord(i + 1, 1_000L + i, "alice", "bob", "message " + i);
+    }
+
+    private static List<String> contents(MessageJournal.Batch batch) {
+        return batch.getRecords().stream().map(JournalRecord::getContent).collect(Collectors.toList());
+    }
+
+    private static long segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).count();
+        }
+    }
+
+    /**
+     * Test records come back in append order, in batches, and are gone once committed
+     */
+    @Test
+    public void testAppendReadCommit() throws IOException {
+        journal = new MessageJournal(folder.getRoot().toPath());
+        for (int i = 0; i < 5; i++) {
+            journal.append(record(i));
+        }
+        assertEquals(5, journal.getPendingCount());
+
+        MessageJournal.Batch first = journal.read(3);
+        assertEquals(Arrays.asList("message 0", "message 1", "message 2"), contents(first));
+        assertEquals("alice", first.getRecords().get(0).getSender());
+        assertEquals(1, first.getRecords().get(0).getMessageId());
+        journal.commit(first);
+        assertEquals(2, journal.getPendingCount());
+
+        MessageJournal.Batch second = journal.read(3);
+        assertEquals(Arrays.asList("message 3", "message 4"), contents(second));
+        journal.commit(second);
+        assertFalse(journal.hasPending());
+        assertTrue(journal.read(3).isEmpty());
+    }
+
+    /**
+     * Test concurrent appends all become durable and readable
+     */
+    @Test
+    public void testConcurrentAppends() throws Exception {
+        journal = new MessageJournal(folder.getRoot().toPath());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> appends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            appends.add(pool.submit(() -> {
+                journal.append(record(n));
+                return null;
+            }));
+        }
+        for (Future<?> append : appends) {
+            append.get();
+        }
+        pool.shutdown();
+
+        assertEquals(200, journal.getPendingCount());
+        assertEquals(200, journal.read(1000).getRecords().size());
+    }
+
+    /**
+     * Test the journal rolls segments and deletes them once replayed
+     */
+    @Test
+    public void testSegmentsRollAndAreDeleted() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        journal = new MessageJournal(directory, 100, 0);
+        for (int i = 0; i < 10; i++) {
+            journal.append(record(i));
+        }
+        assertTrue(segmentFiles(directory) > 1);
+
+        MessageJournal.Batch batch = journal.read(100);
+        assertEquals(10, batch.getRecords().size());
+        assertEquals("message 9", batch.getRecords().get(9).getContent());
+        journal.commit(batch);
+        assertEquals(1, segmentFiles(directory));
+        assertEquals(1, journal.getSegmentCount());
+    }
+
+    /**
+     * Test pending records survive a restart and committed ones are not returned again
+     */
+    @Test
+    public void testRecoversPendingAfterRestart() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        journal = new MessageJournal(directory);
+        for (int i = 0; i < 4; i++) {
+            journal.append(record(i));
+        }
+        journal.commit(journal.read(1));
+        journal.close();
+
+        journal = new MessageJournal(directory);
+        assertEquals(3, journal.getPendingCount());
+        journal.append(record(4));
+        assertEquals(Arrays.asList("message 1", "message 2", "message 3", "message 4"), contents(journal.read(10)));
+    }
+
+    /**
+     * Test a record torn by a crash is cut off on open and earlier records survive
+     */
+    @Test
+    public void testTruncatesTornTail() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        journal = new MessageJournal(directory);
+        journal.append(record(0));
+        journal.append(record(1));
+        journal.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".seg")).sorted().findFirst().get();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        journal = new MessageJournal(directory);
+        assertEquals(1, journal.getPendingCount());
+        assertEquals(Arrays.asList("message 0"), contents(journal.read(10)));
+    }
+}
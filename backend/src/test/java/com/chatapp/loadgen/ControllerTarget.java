@@ -0,0 +1,133 @@
+package com.chatapp.loadgen;
+
+import com.chatapp.ChatApplicationMain;
+import com.chatapp.api.ChatController;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import jakarta.servlet.http.HttpServletRequest;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ControllerTarget - Drives the REST handlers in-process
+ *
+ * Calls ChatController methods with the same request maps the HTTP layer
+ * would pass, so login checks, validation and response building are
+ * measured without a socket. Sends carry the session token returned at
+ * login, as the web client does. {@link #embedded()} wires the application's
+ * services to a fresh in-memory H2 database, with the journal and trace
+ * file in a temporary directory.
+ */
+public class ControllerTarget implements LoadTarget {
+    private static final String PASSWORD = "loadgen";
+
+    private final ChatController controller;
+    private final HttpServletRequest client;
+    private final Map<String, String> tokens;
+
+    /**
+     * Constructor - Drive a controller
+     *
+     * @param controller - Controller wired to initialized services
+     */
+    public ControllerTarget(ChatController controller) {
+        this.controller = controller;
+        // Stub only, so the many calls made during a run are not recorded
+        this.client = Mockito.mock(HttpServletRequest.class, Mockito.withSettings().stubOnly());
+        Mockito.when(client.getRemoteAddr()).thenReturn("127.0.0.1");
+        this.tokens = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Initialize the application's services on H2 and create a controller
+     *
+     * Service wiring is static and happens once per JVM.
+     *
+     * @return Controller target
+     * @throws IOException - If the journal directory cannot be created
+     */
+    public static ControllerTarget embedded() throws IOException {
+        if (ChatApplicationMain.getChatServer() == null) {
+            DatabaseConnection database = TestConfig.createTestDatabase();
+            // The services read an empty password as unset, so give sa one
+            try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER USER sa SET PASSWORD '" + PASSWORD + "'");
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not prepare load test database", e);
+            }
+            database.close();
+            System.setProperty("chatapp.db.url", database.getUrl());
+            System.setProperty("chatapp.db.user", "sa");
+            System.setProperty("chatapp.db.password", PASSWORD);
+            Path scratch = Files.createTempDirectory("loadgen");
+            System.setProperty("chatapp.journal.dir", scratch.resolve("journal").toString());
+            System.setProperty("chatapp.tracing.file", scratch.resolve("traces.json").toString());
+            ChatApplicationMain.initializeServices();
+        }
+        return new ControllerTarget(new ChatController());
+    }
+
+    @Override
+    public void createUsers(String[] usernames, String password) {
+        for (String username : usernames) {
+            controller.register(request("username", username, "password", password));
+        }
+    }
+
+    @Override
+    public boolean login(String username, String password) {
+        Map<String, Object> response = controller.login(request("username", username, "password", password), client);
+        if (!succeeded(response)) {
+            return false;
+        }
+        tokens.put(username, (String) response.get("token"));
+        return true;
+    }
+
+    @Override
+    public boolean send(String sender, String recipient, String content) {
+        String token = tokens.get(sender);
+        if (token == null) {
+            return succeeded(controller.sendMessage(request("sender", sender, "recipient", recipient, "message", content),
+                    null));
+        }
+        return succeeded(controller.sendMessage(request("recipient", recipient, "message", content), "Bearer " + token));
+    }
+
+    @Override
+    public boolean history(String username, String peer, int limit) {
+        return succeeded(controller.history(username, peer, Long.MAX_VALUE, limit));
+    }
+
+    @Override
+    public boolean logout(String username) {
+        String token = tokens.remove(username);
+        return succeeded(controller.logout(request("username", username), token != null ? "Bearer " + token : null));
+    }
+
+    @Override
+    public void close() {
+        ChatApplicationMain.shutdownServices();
+    }
+
+    private static boolean succeeded(Map<String, Object> response) {
+        return Boolean.TRUE.equals(response.get("success"));
+    }
+
+    private static Map<String, String> request(String... keysAndValues) {
+        Map<String, String> request = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            request.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,116 @@
+package com.chatapp.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HttpTarget - Drives a running server over its REST API
+ *
+ * Uses one shared HTTP/1.1 client; requests time out after 30s so a
+ * stalled server shows up as failures and tail latency, not a hang.
+ * Sends and logouts carry the session token returned at login.
+ */
+public class HttpTarget implements LoadTarget {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final Map<String, String> tokens;
+
+    /**
+     * Constructor - Drive a server
+     *
+     * @param baseUrl - API base URL, e.g. http://localhost:8080/api
+     */
+    public HttpTarget(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .build();
+        this.mapper = new ObjectMapper();
+        this.tokens = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void createUsers(String[] usernames, String password) throws IOException, InterruptedException {
+        for (String username : usernames) {
+            // Already registered users from an earlier run fail here and are reused
+            post("/auth/register", null, "username", username, "password", password);
+        }
+    }
+
+    @Override
+    public boolean login(String username, String password) throws IOException, InterruptedException {
+        Map<?, ?> response = post("/auth/login", null, "username", username, "password", password);
+        if (!Boolean.TRUE.equals(response.get("success"))) {
+            return false;
+        }
+        tokens.put(username, (String) response.get("token"));
+        return true;
+    }
+
+    @Override
+    public boolean send(String sender, String recipient, String content) throws IOException, InterruptedException {
+        String token = tokens.get(sender);
+        if (token == null) {
+            return succeeded(post("/chat/send", null, "sender", sender, "recipient", recipient, "message", content));
+        }
+        return succeeded(post("/chat/send", token, "recipient", recipient, "message", content));
+    }
+
+    @Override
+    public boolean history(String username, String peer, int limit) throws IOException, InterruptedException {
+        String query = "/chat/history?username=" + encode(username) + "&peer=" + encode(peer) + "&limit=" + limit;
+        return succeeded(fetch(HttpRequest.newBuilder(URI.create(baseUrl + query)).timeout(TIMEOUT).GET().build()));
+    }
+
+    @Override
+    public boolean logout(String username) throws IOException, InterruptedException {
+        return succeeded(post("/auth/logout", tokens.remove(username), "username", username));
+    }
+
+    private Map<?, ?> post(String path, String token, String... keysAndValues) throws IOException, InterruptedException {
+        Map<String, String> body = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            body.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return fetch(request.build());
+    }
+
+    private Map<?, ?> fetch(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2) {
+            return Collections.emptyMap();
+        }
+        return mapper.readValue(response.body(), Map.class);
+    }
+
+    private static boolean succeeded(Map<?, ?> response) {
+        return Boolean.TRUE.equals(response.get("success"));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package com.chatapp.loadgen;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * LatencyHistogramTest - Unit tests for LatencyHistogram
+ *
+ * Tests cover:
+ * - Exact values below 128 us and bounded relative error above
+ * - Percentiles of a known distribution
+ * - Merging histograms
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test every value maps to a bucket whose upper bound is within 1/64 of it
+     */
+    @Test
+    public void testBucketPrecision() {
+        for (long value = 0; value < 128; value++) {
+            assertEquals(value, LatencyHistogram.highestValueAt(LatencyHistogram.indexOf(value)));
+        }
+        for (long value = 128; value < 10_000_000; value = value * 3 / 2 + 7) {
+            long upper = LatencyHistogram.highestValueAt(LatencyHistogram.indexOf(value));
+            assertTrue(upper >= value);
+            assertTrue("value " + value + " reported as " + upper, upper - value <= value / 64);
+        }
+        assertTrue(LatencyHistogram.indexOf(Long.MAX_VALUE) >= 0);
+    }
+
+    /**
+     * Test percentiles of 1..10000 us
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(5_000.5, histogram.getMean(), 0.001);
+        assertEquals(5_000, histogram.percentile(50), 5_000 / 64);
+        assertEquals(9_900, histogram.percentile(99), 9_900 / 64);
+        assertEquals(9_990, histogram.percentile(99.9), 9_990 / 64);
+        assertEquals(10_000, histogram.percentile(100));
+    }
+
+    /**
+     * Test merged histograms report the combined distribution
+     */
+    @Test
+    public void testAdd() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            fast.record(100);
+        }
+        slow.record(1_000_000);
+
+        fast.add(slow);
+        assertEquals(100, fast.getCount());
+        assertEquals(100, fast.percentile(99));
+        assertEquals(1_000_000, fast.percentile(99.9), 1_000_000 / 64);
+        assertEquals(1_000_000, fast.getMax());
+    }
+}
@@ -0,0 +1,437 @@
+package com.chatapp.loadgen;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator - Open-loop load generator with coordinated-omission correction
+ *
+ * Virtual users run scripted sessions: login, a mix of sends and
+ * history reads to random peers, logout, repeat. Operations arrive at a
+ * fixed offered rate (constant or Poisson), independent of how fast the
+ * target answers; each arrival goes to the next user round-robin. A
+ * user's operations run in order, so an arrival for a user who is still
+ * busy queues behind the previous operation.
+ *
+ * Latency is measured from the arrival's scheduled time, not from when a
+ * worker got to it, so time spent queued behind a stall is counted
+ * (coordinated-omission correction). Service time, from the actual start,
+ * is reported alongside; a large gap between the two means the target
+ * could not keep up with the offered rate. Arrival times, session scripts
+ * and peers are derived from the seed, so runs are reproducible.
+ *
+ * Run against an embedded H2 database (no network needed) with:
+ *
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.chatapp.loadgen.LoadGenerator \
+ *       -Dloadgen.target=services -Dloadgen.rate=500 -Dloadgen.duration=10
+ * </pre>
+ *
+ * loadgen.target is services (AuthService/ChatServer), controller (REST
+ * handlers in-process) or http (a running server at loadgen.url). See
+ * {@link Config#fromSystemProperties()} for the other settings.
+ */
+public class LoadGenerator {
+    private static final String PASSWORD = "loadgen-password";
+    private static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long DRAIN_TIMEOUT_SECONDS = 120;
+
+    /**
+     * Operation - One user-visible action
+     */
+    public enum Operation {
+        LOGIN, SEND, HISTORY, LOGOUT
+    }
+
+    private final Config config;
+
+    /**
+     * Constructor - Create a generator
+     *
+     * @param config - Load shape
+     */
+    public LoadGenerator(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * Create the users, run warmup and measurement, and wait for every operation to finish
+     *
+     * @param target - System under load
+     * @return Measured results
+     * @throws Exception - If users cannot be created or the run does not finish
+     */
+    public Report run(LoadTarget target) throws Exception {
+        String[] usernames = new String[config.users];
+        for (int i = 0; i < usernames.length; i++) {
+            usernames[i] = "load" + i;
+        }
+        target.createUsers(usernames, PASSWORD);
+
+        Random random = new Random(config.seed);
+        VirtualUser[] users = new VirtualUser[usernames.length];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new VirtualUser(usernames[i], new Random(random.nextLong()));
+        }
+
+        Report report = new Report(config);
+        ExecutorService workers = Executors.newFixedThreadPool(config.threads, r -> {
+            Thread thread = new Thread(r, "loadgen-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        double meanIntervalNanos = 1e9 / config.ratePerSecond;
+        long start = System.nanoTime() + START_DELAY_NANOS;
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(config.warmupMillis);
+        long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(config.durationMillis);
+        report.measureFrom = measureFrom;
+        report.measureUntil = end;
+
+        double offset = 0;
+        int next = 0;
+        long scheduled = start;
+        while (scheduled < end) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            VirtualUser user = users[next++ % users.length];
+            Action action = user.next(usernames);
+            long scheduledAt = scheduled;
+            boolean measured = scheduledAt >= measureFrom;
+            user.tail = user.tail.thenRunAsync(() -> execute(target, user, action, scheduledAt, measured, report), workers);
+
+            offset += config.poisson ? -Math.log(1 - random.nextDouble()) * meanIntervalNanos : meanIntervalNanos;
+            scheduled = start + (long) offset;
+        }
+
+        List<CompletableFuture<Void>> tails = new ArrayList<>(users.length);
+        for (VirtualUser user : users) {
+            tails.add(user.tail);
+        }
+        CompletableFuture.allOf(tails.toArray(new CompletableFuture[0])).get(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        workers.shutdown();
+        return report;
+    }
+
+    private static void execute(LoadTarget target, VirtualUser user, Action action, long scheduledAt,
+                                boolean measured, Report report) {
+        long started = System.nanoTime();
+        boolean ok;
+        try {
+            switch (action.operation) {
+                case LOGIN:
+                    ok = target.login(user.username, PASSWORD);
+                    break;
+                case SEND:
+                    ok = target.send(user.username, action.peer, action.content);
+                    break;
+                case HISTORY:
+                    ok = target.history(user.username, action.peer, 50);
+                    break;
+                default:
+                    ok = target.logout(user.username);
+                    break;
+            }
+        } catch (Exception e) {
+            ok = false;
+        }
+        long finished = System.nanoTime();
+        if (measured) {
+            report.record(action.operation, ok, scheduledAt, started, finished);
+        }
+    }
+
+    /**
+     * Main method - Run a load test configured by system properties and print the report
+     *
+     * @param args - Command line arguments (unused)
+     */
+    public static void main(String[] args) throws Exception {
+        Config config = Config.fromSystemProperties();
+        String targetName = System.getProperty("loadgen.target", "services");
+        LoadTarget target;
+        if ("http".equals(targetName)) {
+            target = new HttpTarget(System.getProperty("loadgen.url", "http://localhost:8080/api"));
+        } else if ("controller".equals(targetName)) {
+            target = ControllerTarget.embedded();
+        } else {
+            target = ServiceTarget.embedded();
+        }
+
+        Report report = new LoadGenerator(config).run(target);
+        System.out.println("target: " + targetName);
+        report.print(System.out);
+        target.close();
+        System.exit(0);
+    }
+
+    /**
+     * Action - An operation chosen for one arrival
+     */
+    private static final class Action {
+        private final Operation operation;
+        private final String peer;
+        private final String content;
+
+        private Action(Operation operation, String peer, String content) {
+            this.operation = operation;
+            this.peer = peer;
+            this.content = content;
+        }
+    }
+
+    /**
+     * VirtualUser - Session script state of one simulated user
+     *
+     * Only touched by the dispatcher thread, except the tail future.
+     */
+    private final class VirtualUser {
+        private final String username;
+        private final Random random;
+        private boolean loggedIn;
+        private int remaining;
+        private int sent;
+        private volatile CompletableFuture<Void> tail;
+
+        private VirtualUser(String username, Random random) {
+            this.username = username;
+            this.random = random;
+            this.tail = CompletableFuture.completedFuture(null);
+        }
+
+        private Action next(String[] usernames) {
+            if (!loggedIn) {
+                loggedIn = true;
+                remaining = config.sessionLength;
+                return new Action(Operation.LOGIN, null, null);
+            }
+            if (remaining-- == 0) {
+                loggedIn = false;
+                return new Action(Operation.LOGOUT, null, null);
+            }
+            String peer = usernames[random.nextInt(usernames.length)];
+            if (random.nextInt(100) < config.sendPercent) {
+                return new Action(Operation.SEND, peer, "load message " + (sent++) + " from " + username);
+            }
+            return new Action(Operation.HISTORY, peer, null);
+        }
+    }
+
+    /**
+     * Config - Shape of a load test
+     */
+    public static final class Config {
+        private int users = 100;
+        private double ratePerSecond = 500;
+        private long warmupMillis = 2_000;
+        private long durationMillis = 10_000;
+        private int threads = 64;
+        private boolean poisson = true;
+        private long seed = 42;
+        private int sessionLength = 20;
+        private int sendPercent = 60;
+
+        /**
+         * Read settings from loadgen.* system properties, keeping defaults for unset ones
+         *
+         * loadgen.users, loadgen.rate (operations/s), loadgen.warmup and
+         * loadgen.duration (seconds), loadgen.threads, loadgen.arrival
+         * (poisson or constant), loadgen.seed, loadgen.session (operations
+         * between login and logout), loadgen.send.percent.
+         *
+         * @return Config
+         */
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.users = Integer.getInteger("loadgen.users", config.users);
+            config.ratePerSecond = Double.parseDouble(System.getProperty("loadgen.rate", "" + config.ratePerSecond));
+            config.warmupMillis = (long) (1000 * Double.parseDouble(System.getProperty("loadgen.warmup", "2")));
+            config.durationMillis = (long) (1000 * Double.parseDouble(System.getProperty("loadgen.duration", "10")));
+            config.threads = Integer.getInteger("loadgen.threads", config.threads);
+            config.poisson = !"constant".equals(System.getProperty("loadgen.arrival", "poisson"));
+            config.seed = Long.getLong("loadgen.seed", config.seed);
+            config.sessionLength = Integer.getInteger("loadgen.session", config.sessionLength);
+            config.sendPercent = Integer.getInteger("loadgen.send.percent", config.sendPercent);
+            return config;
+        }
+
+        public Config users(int users) {
+            this.users = users;
+            return this;
+        }
+
+        public Config rate(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        public Config warmupMillis(long warmupMillis) {
+            this.warmupMillis = warmupMillis;
+            return this;
+        }
+
+        public Config durationMillis(long durationMillis) {
+            this.durationMillis = durationMillis;
+            return this;
+        }
+
+        public Config threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Config poisson(boolean poisson) {
+            this.poisson = poisson;
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Config sessionLength(int sessionLength) {
+            this.sessionLength = sessionLength;
+            return this;
+        }
+
+        public Config sendPercent(int sendPercent) {
+            this.sendPercent = sendPercent;
+            return this;
+        }
+    }
+
+    /**
+     * Report - Per-operation latency, service time and errors of the measured window
+     */
+    public static final class Report {
+        private final Config config;
+        private final Map<Operation, LatencyHistogram> latency;
+        private final Map<Operation, LatencyHistogram> serviceTime;
+        private final Map<Operation, AtomicLong> errors;
+        private final AtomicLong lastFinished;
+        private long measureFrom;
+        private long measureUntil;
+
+        private Report(Config config) {
+            this.config = config;
+            this.latency = new EnumMap<>(Operation.class);
+            this.serviceTime = new EnumMap<>(Operation.class);
+            this.errors = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                latency.put(operation, new LatencyHistogram());
+                serviceTime.put(operation, new LatencyHistogram());
+                errors.put(operation, new AtomicLong());
+            }
+            this.lastFinished = new AtomicLong();
+        }
+
+        private void record(Operation operation, boolean ok, long scheduledAt, long started, long finished) {
+            if (ok) {
+                latency.get(operation).record((finished - scheduledAt) / 1_000);
+                serviceTime.get(operation).record((finished - started) / 1_000);
+            } else {
+                errors.get(operation).incrementAndGet();
+            }
+            lastFinished.accumulateAndGet(finished, Math::max);
+        }
+
+        /**
+         * Get latency from scheduled arrival to completion of one operation type
+         *
+         * @param operation - Operation type
+         * @return Histogram in microseconds
+         */
+        public LatencyHistogram getLatency(Operation operation) {
+            return latency.get(operation);
+        }
+
+        /**
+         * Get latency from actual start to completion of one operation type
+         *
+         * @param operation - Operation type
+         * @return Histogram in microseconds
+         */
+        public LatencyHistogram getServiceTime(Operation operation) {
+            return serviceTime.get(operation);
+        }
+
+        /**
+         * Get latency over all operation types
+         *
+         * @return Merged histogram in microseconds
+         */
+        public LatencyHistogram getTotalLatency() {
+            LatencyHistogram total = new LatencyHistogram();
+            for (LatencyHistogram histogram : latency.values()) {
+                total.add(histogram);
+            }
+            return total;
+        }
+
+        public long getErrors(Operation operation) {
+            return errors.get(operation).get();
+        }
+
+        public long getTotalErrors() {
+            long total = 0;
+            for (AtomicLong count : errors.values()) {
+                total += count.get();
+            }
+            return total;
+        }
+
+        /**
+         * Get completed operations per second over the measured window, including its drain
+         *
+         * @return Throughput
+         */
+        public double getThroughput() {
+            long elapsed = Math.max(measureUntil, lastFinished.get()) - measureFrom;
+            return elapsed <= 0 ? 0 : getTotalLatency().getCount() * 1e9 / elapsed;
+        }
+
+        /**
+         * Print a summary table, latencies in milliseconds
+         *
+         * @param out - Stream to print to
+         */
+        public void print(PrintStream out) {
+            out.printf("users %d, offered %.0f ops/s (%s), warmup %.1fs, measured %.1fs, seed %d%n",
+                    config.users, config.ratePerSecond, config.poisson ? "poisson" : "constant",
+                    config.warmupMillis / 1000.0, config.durationMillis / 1000.0, config.seed);
+            out.printf("%-8s %8s %7s %9s %9s %9s %9s %12s%n",
+                    "op", "count", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms", "svc p99 ms");
+            for (Operation operation : Operation.values()) {
+                printRow(out, operation.name().toLowerCase(), latency.get(operation), getErrors(operation),
+                        serviceTime.get(operation).percentile(99));
+            }
+            LatencyHistogram totalService = new LatencyHistogram();
+            for (LatencyHistogram histogram : serviceTime.values()) {
+                totalService.add(histogram);
+            }
+            printRow(out, "all", getTotalLatency(), getTotalErrors(), totalService.percentile(99));
+            out.printf("throughput: %.1f ops/s%n", getThroughput());
+        }
+
+        private static void printRow(PrintStream out, String name, LatencyHistogram histogram, long errors,
+                                     long serviceP99) {
+            out.printf("%-8s %8d %7d %9.2f %9.2f %9.2f %9.2f %12.2f%n", name, histogram.getCount(), errors,
+                    histogram.percentile(50) / 1000.0, histogram.percentile(99) / 1000.0,
+                    histogram.percentile(99.9) / 1000.0, histogram.getMax() / 1000.0, serviceP99 / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.chatapp.loadgen;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * LoadGeneratorTest - Unit tests for LoadGenerator
+ *
+ * Tests cover:
+ * - A short run against the services on embedded H2
+ * - Open-loop arrivals and coordinated-omission correction with a stalling target
+ */
+public class LoadGeneratorTest {
+
+    /**
+     * Target that answers instantly except for one stall
+     */
+    private static class StallingTarget implements LoadTarget {
+        private final long stallMillis;
+        private final AtomicBoolean stalled = new AtomicBoolean();
+
+        StallingTarget(long stallMillis) {
+            this.stallMillis = stallMillis;
+        }
+
+        @Override
+        public void createUsers(String[] usernames, String password) {
+        }
+
+        @Override
+        public boolean login(String username, String password) {
+            return true;
+        }
+
+        @Override
+        public boolean send(String sender, String recipient, String content) throws InterruptedException {
+            if (stalled.compareAndSet(false, true)) {
+                Thread.sleep(stallMillis);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean history(String username, String peer, int limit) {
+            return true;
+        }
+
+        @Override
+        public boolean logout(String username) {
+            return true;
+        }
+    }
+
+    /**
+     * Test a short run completes every operation type without errors
+     */
+    @Test
+    public void testRunAgainstEmbeddedServices() throws Exception {
+        LoadGenerator.Config config = new LoadGenerator.Config()
+                .users(10).rate(400).warmupMillis(200).durationMillis(1_000).threads(8).sessionLength(5);
+        ServiceTarget target = ServiceTarget.embedded();
+        LoadGenerator.Report report = new LoadGenerator(config).run(target);
+        target.close();
+
+        assertEquals(0, report.getTotalErrors());
+        long count = report.getTotalLatency().getCount();
+        assertTrue("expected about 400 operations, got " + count, count > 300 && count < 500);
+        for (LoadGenerator.Operation operation : LoadGenerator.Operation.values()) {
+            assertTrue(operation + " not exercised", report.getLatency(operation).getCount() > 0);
+        }
+        assertTrue(report.getThroughput() > 0);
+    }
+
+    /**
+     * Test operations queued behind a stall are charged from their scheduled time
+     */
+    @Test
+    public void testCoordinatedOmissionCorrection() throws Exception {
+        LoadGenerator.Config config = new LoadGenerator.Config()
+                .users(1).rate(200).poisson(false).warmupMillis(0).durationMillis(1_000).threads(1).sendPercent(100);
+        LoadGenerator.Report report = new LoadGenerator(config).run(new StallingTarget(500));
+
+        LatencyHistogram latency = report.getTotalLatency();
+        assertEquals(200, latency.getCount(), 2);
+        assertTrue(latency.getMax() >= 490_000);
+        // About a quarter of the arrivals landed during the stall and waited for it
+        assertTrue("p75 was " + latency.percentile(75), latency.percentile(75) > 50_000);
+        assertTrue(report.getServiceTime(LoadGenerator.Operation.SEND).percentile(75) < 50_000);
+    }
+}
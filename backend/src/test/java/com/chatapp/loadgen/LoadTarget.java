@@ -0,0 +1,33 @@
+package com.chatapp.loadgen;
+
+/**
+ * LoadTarget - The system under load, as seen by a virtual user
+ *
+ * Each call is one user-visible operation and returns whether it
+ * succeeded; exceptions also count as failures. Implementations must be
+ * thread-safe.
+ */
+public interface LoadTarget {
+
+    /**
+     * Create the accounts the virtual users log in with
+     *
+     * @param usernames - Accounts to create; existing ones may be kept
+     * @param password - Password for every account
+     */
+    void createUsers(String[] usernames, String password) throws Exception;
+
+    boolean login(String username, String password) throws Exception;
+
+    boolean send(String sender, String recipient, String content) throws Exception;
+
+    boolean history(String username, String peer, int limit) throws Exception;
+
+    boolean logout(String username) throws Exception;
+
+    /**
+     * Release resources after the run
+     */
+    default void close() {
+    }
+}
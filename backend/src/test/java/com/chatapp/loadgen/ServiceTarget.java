@@ -0,0 +1,74 @@
+package com.chatapp.loadgen;
+
+import com.chatapp.auth.AuthService;
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.server.ChatServer;
+
+/**
+ * ServiceTarget - Drives AuthService and ChatServer directly
+ *
+ * Measures the service and database layers without HTTP or controller
+ * overhead. {@link #embedded()} runs them on a fresh in-memory H2 database.
+ */
+public class ServiceTarget implements LoadTarget {
+    private final DatabaseConnection dbConnection;
+    private final AuthService authService;
+    private final ChatServer chatServer;
+
+    /**
+     * Constructor - Drive services over a database
+     *
+     * @param dbConnection - Database with the chat schema loaded
+     */
+    public ServiceTarget(DatabaseConnection dbConnection) {
+        UserDictionary dictionary = new UserDictionary(dbConnection);
+        this.dbConnection = dbConnection;
+        this.authService = new AuthService(dbConnection, dictionary);
+        this.chatServer = new ChatServer(dbConnection, dictionary);
+    }
+
+    /**
+     * Create a target on a fresh in-memory H2 database
+     *
+     * @return Service target
+     */
+    public static ServiceTarget embedded() {
+        return new ServiceTarget(TestConfig.createTestDatabase());
+    }
+
+    @Override
+    public void createUsers(String[] usernames, String password) {
+        for (String username : usernames) {
+            authService.registerUser(username, password);
+        }
+    }
+
+    @Override
+    public boolean login(String username, String password) {
+        return authService.authenticate(username, password);
+    }
+
+    @Override
+    public boolean send(String sender, String recipient, String content) {
+        return chatServer.sendMessage(sender, recipient, content);
+    }
+
+    @Override
+    public boolean history(String username, String peer, int limit) {
+        chatServer.getConversationHistory(username, peer, Long.MAX_VALUE, limit);
+        return true;
+    }
+
+    @Override
+    public boolean logout(String username) {
+        authService.logout(username);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        dbConnection.close();
+    }
+}
@@ -0,0 +1,95 @@
+package com.chatapp.presence;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * HierarchicalTimingWheelTest - Unit tests for HierarchicalTimingWheel
+ *
+ * Tests cover:
+ * - Expiry within the root wheel
+ * - Cascading from overflow wheels
+ * - Cancellation and rescheduling
+ */
+public class HierarchicalTimingWheelTest {
+    private HierarchicalTimingWheel<String> wheel;
+
+    /**
+     * Setup - 10ms ticks, 8 buckets per level, starting at t=0
+     */
+    @Before
+    public void setUp() {
+        wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+    }
+
+    /**
+     * Test timeout fires once its deadline has passed, not before
+     */
+    @Test
+    public void testExpiresInRootWheel() {
+        wheel.schedule(new HierarchicalTimingWheel.Timeout<>("a"), 25);
+
+        assertTrue("Should not expire early", wheel.advance(20).isEmpty());
+        List<String> expired = wheel.advance(30);
+        assertEquals("Should expire after deadline", 1, expired.size());
+        assertEquals("a", expired.get(0));
+        assertEquals("Wheel should be empty", 0, wheel.size());
+    }
+
+    /**
+     * Test long deadlines cascade through overflow wheels
+     */
+    @Test
+    public void testCascadesFromOverflowWheels() {
+        wheel.schedule(new HierarchicalTimingWheel.Timeout<>("mid"), 200);
+        wheel.schedule(new HierarchicalTimingWheel.Timeout<>("far"), 5000);
+
+        assertTrue("Nothing should expire early", wheel.advance(190).isEmpty());
+        assertEquals("Mid deadline should fire", 1, wheel.advance(210).size());
+        assertTrue("Far deadline should not fire yet", wheel.advance(4990).isEmpty());
+        List<String> expired = wheel.advance(5010);
+        assertEquals("Far deadline should fire", 1, expired.size());
+        assertEquals("far", expired.get(0));
+    }
+
+    /**
+     * Test cancelled timeouts never fire
+     */
+    @Test
+    public void testCancel() {
+        HierarchicalTimingWheel.Timeout<String> timeout = new HierarchicalTimingWheel.Timeout<>("a");
+        wheel.schedule(timeout, 50);
+
+        assertTrue("Cancel should report pending timeout", wheel.cancel(timeout));
+        assertFalse("Second cancel should be a no-op", wheel.cancel(timeout));
+        assertTrue("Cancelled timeout should not fire", wheel.advance(100).isEmpty());
+    }
+
+    /**
+     * Test rescheduling moves a timeout instead of duplicating it
+     */
+    @Test
+    public void testReschedule() {
+        HierarchicalTimingWheel.Timeout<String> timeout = new HierarchicalTimingWheel.Timeout<>("a");
+        wheel.schedule(timeout, 50);
+        wheel.schedule(timeout, 500);
+
+        assertEquals("Only one pending timeout", 1, wheel.size());
+        assertTrue("Old deadline should not fire", wheel.advance(100).isEmpty());
+        assertEquals("New deadline should fire", 1, wheel.advance(510).size());
+    }
+
+    /**
+     * Test past deadlines are rejected
+     */
+    @Test
+    public void testPastDeadlineRejected() {
+        wheel.advance(100);
+        assertFalse("Past deadline should not be scheduled",
+                wheel.schedule(new HierarchicalTimingWheel.Timeout<>("a"), 50));
+    }
+}
@@ -0,0 +1,163 @@
+package com.chatapp.presence;
+
+import com.chatapp.push.PushConnection;
+import com.chatapp.push.PushRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * PresenceServiceTest - Unit tests for PresenceService
+ *
+ * Tests cover:
+ * - Heartbeat and logout transitions
+ * - Bulk lookups
+ * - Expiry through the timing wheel
+ * - Batched pushes to watching contacts
+ * - Contact limit and dropping subscriptions of expired watchers
+ */
+public class PresenceServiceTest {
+    private PushRegistry pushRegistry;
+    private PresenceService presenceService;
+    private RecordingConnection aliceConnection;
+
+    /**
+     * Test push connection that records events
+     */
+    private static class RecordingConnection implements PushConnection {
+        private final String username;
+        public final List<Object> payloads = new ArrayList<>();
+
+        RecordingConnection(String username) {
+            this.username = username;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public boolean send(String eventType, Object payload) {
+            payloads.add(payload);
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+    }
+
+    /**
+     * Setup - Short TTL, scheduler not started so tests drive time directly
+     */
+    @Before
+    public void setUp() {
+        pushRegistry = new PushRegistry();
+        presenceService = new PresenceService(pushRegistry, 50, 10, 1000);
+        aliceConnection = new RecordingConnection("alice");
+        pushRegistry.register(aliceConnection);
+    }
+
+    /**
+     * Test heartbeat marks user online and logout marks offline
+     */
+    @Test
+    public void testHeartbeatAndDisconnect() {
+        presenceService.heartbeat("bob");
+        assertTrue("Bob should be online", presenceService.isOnline("bob"));
+
+        presenceService.disconnect("bob");
+        assertFalse("Bob should be offline", presenceService.isOnline("bob"));
+    }
+
+    /**
+     * Test bulk lookup returns every requested user
+     */
+    @Test
+    public void testBulkLookup() {
+        presenceService.heartbeat("bob");
+
+        Map<String, Boolean> presence = presenceService.getPresence(Arrays.asList("bob", "charlie"));
+        assertEquals("Should contain both users", 2, presence.size());
+        assertTrue("Bob should be online", presence.get("bob"));
+        assertFalse("Charlie should be offline", presence.get("charlie"));
+    }
+
+    /**
+     * Test users without heartbeat expire after the TTL
+     */
+    @Test
+    public void testExpiry() {
+        presenceService.heartbeat("bob");
+        long now = System.currentTimeMillis();
+
+        presenceService.expire(now + 20);
+        assertTrue("Bob should still be online", presenceService.isOnline("bob"));
+
+        presenceService.expire(now + 200);
+        assertFalse("Bob should have expired", presenceService.isOnline("bob"));
+    }
+
+    /**
+     * Test changes are coalesced into a single push per watcher
+     */
+    @Test
+    public void testChangesPushedInBatches() {
+        presenceService.setContacts("alice", Arrays.asList("bob", "charlie"));
+        presenceService.heartbeat("bob");
+        presenceService.heartbeat("charlie");
+        presenceService.disconnect("charlie");
+        presenceService.heartbeat("dave");
+
+        presenceService.flushChanges();
+
+        assertEquals("Alice should receive one frame", 1, aliceConnection.payloads.size());
+        @SuppressWarnings("unchecked")
+        Map<String, Boolean> batch = (Map<String, Boolean>) aliceConnection.payloads.get(0);
+        assertEquals("Frame should contain watched contacts only", 2, batch.size());
+        assertTrue("Bob should be online", batch.get("bob"));
+        assertFalse("Latest charlie status should win", batch.get("charlie"));
+    }
+
+    /**
+     * Test contact lists over the limit are rejected and change nothing
+     */
+    @Test
+    public void testContactLimit() {
+        PresenceService limited = new PresenceService(pushRegistry, 50, 10, 1000, 2);
+
+        assertTrue(limited.setContacts("alice", Arrays.asList("bob", "charlie")));
+        assertFalse(limited.setContacts("alice", Arrays.asList("bob", "charlie", "dave")));
+        assertEquals("Previous contacts kept", 2, limited.getWatchedCount());
+    }
+
+    /**
+     * Test a watcher's subscriptions are dropped when its presence expires or it disconnects
+     */
+    @Test
+    public void testExpiredWatcherUnsubscribed() {
+        presenceService.setContacts("alice", Arrays.asList("bob", "charlie"));
+        presenceService.setContacts("dave", Arrays.asList("bob"));
+        assertTrue("Setting contacts counts as a heartbeat", presenceService.isOnline("alice"));
+        assertEquals(2, presenceService.getWatchedCount());
+
+        presenceService.disconnect("dave");
+        assertEquals(2, presenceService.getWatchedCount());
+
+        presenceService.expire(System.currentTimeMillis() + 200);
+        assertFalse(presenceService.isOnline("alice"));
+        assertEquals(0, presenceService.getWatchedCount());
+
+        presenceService.heartbeat("bob");
+        presenceService.flushChanges();
+        assertTrue("No longer subscribed", aliceConnection.payloads.isEmpty());
+    }
+}
@@ -0,0 +1,204 @@
+package com.chatapp.push;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * PushCoalescerTest - Unit tests for PushCoalescer
+ *
+ * Tests cover:
+ * - No added delay for an idle recipient
+ * - Batching of events arriving within the window into one frame
+ * - Immediate flush at the batch cap
+ * - One frame per event type, and pass-through with a zero window
+ * - Delivery notifications and frame counters
+ * - A stalled connection blocking neither push() nor other recipients
+ */
+public class PushCoalescerTest {
+    private static final long WINDOW_MS = 100;
+
+    private PushRegistry pushRegistry;
+    private PushCoalescer coalescer;
+    private RecordingConnection bob;
+    private final List<List<Object>> delivered = new ArrayList<>();
+
+    /**
+     * PushConnection that records frames
+     */
+    private static class RecordingConnection implements PushConnection {
+        private final String username;
+        final List<String> events = new ArrayList<>();
+        final List<Object> payloads = new ArrayList<>();
+
+        RecordingConnection(String username) {
+            this.username = username;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public synchronized boolean send(String eventType, Object payload) {
+            events.add(eventType);
+            payloads.add(payload);
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        synchronized int frameCount() {
+            return events.size();
+        }
+    }
+
+    /**
+     * Setup - Coalescer with a 100ms window and a cap of 4 over one connected user
+     */
+    @Before
+    public void setUp() {
+        pushRegistry = new PushRegistry();
+        coalescer = new PushCoalescer(pushRegistry, WINDOW_MS, 4);
+        coalescer.addListener((username, eventType, payloads) -> delivered.add(payloads));
+        bob = new RecordingConnection("bob");
+        pushRegistry.register(bob);
+    }
+
+    /**
+     * Teardown - Stop the coalescer
+     */
+    @After
+    public void tearDown() {
+        coalescer.shutdown();
+    }
+
+    private static void awaitFrames(RecordingConnection connection, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (connection.frameCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, connection.frameCount());
+    }
+
+    @Test
+    public void testIdleRecipientGetsEventImmediately() throws Exception {
+        assertTrue(coalescer.push("bob", "message", "m1"));
+        awaitFrames(bob, 1);
+        assertEquals("message", bob.events.get(0));
+        assertEquals("m1", bob.payloads.get(0));
+
+        assertFalse("Offline users are skipped", coalescer.push("alice", "message", "m2"));
+    }
+
+    @Test
+    public void testBurstIsBatchedWithinWindow() throws Exception {
+        coalescer.push("bob", "message", "m1");
+        awaitFrames(bob, 1);
+        coalescer.push("bob", "message", "m2");
+        coalescer.push("bob", "message", "m3");
+        assertEquals("Later events wait for the window", 1, bob.frameCount());
+
+        awaitFrames(bob, 2);
+        assertEquals("messages", bob.events.get(1));
+        assertEquals(Arrays.asList("m2", "m3"), bob.payloads.get(1));
+        assertEquals(2, coalescer.getFrameCount());
+        assertEquals(3, coalescer.getMessageCount());
+        assertEquals(1.5, coalescer.getMessagesPerFrame(), 0.001);
+        assertEquals(Arrays.asList(Arrays.asList("m1"), Arrays.asList("m2", "m3")), delivered);
+
+        // Once the window has passed with nothing sent, the recipient is idle again
+        Thread.sleep(WINDOW_MS + 20);
+        coalescer.push("bob", "message", "m4");
+        awaitFrames(bob, 3);
+    }
+
+    @Test
+    public void testBatchCapFlushesImmediately() throws Exception {
+        // A window far longer than the wait below, so only the cap can trigger the second frame
+        PushCoalescer capped = new PushCoalescer(pushRegistry, 60_000, 4);
+        try {
+            capped.push("bob", "message", "m0");
+            awaitFrames(bob, 1);
+            for (int i = 1; i <= 4; i++) {
+                capped.push("bob", "message", "m" + i);
+            }
+            awaitFrames(bob, 2);
+            assertEquals(Arrays.asList("m1", "m2", "m3", "m4"), bob.payloads.get(1));
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    public void testOneFramePerEventType() throws Exception {
+        coalescer.push("bob", "message", "m0");
+        awaitFrames(bob, 1);
+        coalescer.push("bob", "room_message", "r1");
+        coalescer.push("bob", "message", "m1");
+        coalescer.push("bob", "room_message", "r2");
+        coalescer.push("bob", "message", "m2");
+        awaitFrames(bob, 3);
+        assertEquals(Arrays.asList("message", "room_messages", "messages"), bob.events.subList(0, 3));
+        assertEquals(Arrays.asList("r1", "r2"), bob.payloads.get(1));
+        assertEquals(Arrays.asList("m1", "m2"), bob.payloads.get(2));
+    }
+
+    @Test
+    public void testZeroWindowPassesThrough() throws Exception {
+        PushCoalescer passThrough = new PushCoalescer(pushRegistry, 0, 1);
+        try {
+            for (int i = 0; i < 3; i++) {
+                passThrough.push("bob", "message", "m" + i);
+            }
+            awaitFrames(bob, 3);
+            assertEquals(Arrays.asList("message", "message", "message"), bob.events);
+            assertEquals(Arrays.asList("m0", "m1", "m2"), bob.payloads);
+            assertEquals(1.0, passThrough.getMessagesPerFrame(), 0.001);
+        } finally {
+            passThrough.shutdown();
+        }
+    }
+
+    @Test
+    public void testStalledConnectionDoesNotBlockSenders() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        pushRegistry.register(new RecordingConnection("carol") {
+            @Override
+            public boolean send(String eventType, Object payload) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.send(eventType, payload);
+            }
+        });
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                assertTrue(coalescer.push("carol", "message", "c" + i));
+            }
+            coalescer.pushToAll("message", "everyone", "carol");
+            assertTrue("push() only queues",
+                    System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+            awaitFrames(bob, 1);
+            assertEquals("everyone", bob.payloads.get(0));
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.chatapp.push;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * PushRegistryTest - Unit tests for PushRegistry
+ *
+ * Tests cover:
+ * - Several connections per user, and removal of the last one
+ * - A connection registered while another one of the same user closes is kept
+ */
+public class PushRegistryTest {
+
+    /**
+     * PushConnection that accepts every event
+     */
+    private static class OpenConnection implements PushConnection {
+        private final String username;
+
+        OpenConnection(String username) {
+            this.username = username;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public boolean send(String eventType, Object payload) {
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+    }
+
+    /**
+     * Test events reach every connection of a user until the last one is removed
+     */
+    @Test
+    public void testRegisterAndUnregister() {
+        PushRegistry registry = new PushRegistry();
+        PushConnection phone = new OpenConnection("bob");
+        PushConnection laptop = new OpenConnection("bob");
+        registry.register(phone);
+        registry.register(laptop);
+        assertEquals(2, registry.push("bob", "message", "hi"));
+
+        registry.unregister(phone);
+        assertTrue(registry.isConnected("bob"));
+        registry.unregister(laptop);
+        assertFalse(registry.isConnected("bob"));
+        assertEquals(0, registry.getConnectedUserCount());
+    }
+
+    /**
+     * Test a reconnect racing the close of the previous connection is never lost
+     */
+    @Test
+    public void testRegisterRacingUnregister() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                PushRegistry registry = new PushRegistry();
+                PushConnection closing = new OpenConnection("bob");
+                PushConnection reconnect = new OpenConnection("bob");
+                registry.register(closing);
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> close = pool.submit(() -> {
+                    start.await();
+                    registry.unregister(closing);
+                    return null;
+                });
+                Future<?> open = pool.submit(() -> {
+                    start.await();
+                    registry.register(reconnect);
+                    return null;
+                });
+                start.countDown();
+                close.get();
+                open.get();
+                assertEquals("Iteration " + i, 1, registry.push("bob", "message", "hi"));
+            }
+        } finally {
+            pool.shutdownNow();
+            assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+}
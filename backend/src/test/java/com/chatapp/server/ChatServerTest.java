@@ -1,6 +1,9 @@
 package com.chatapp.server;
 
 import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.filter.ContentFilter;
+import com.chatapp.journal.MessageJournal;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -13,6 +16,11 @@ import static org.junit.Assert.*;
  * - Message storage
  * - Event listeners
  * - Conversation history
+ * - Cached newest history page
+ * - User ID resolution and broadcasts
+ * - Inbox rows upserted with each send, and read receipts
+ * - Content filter rejecting or masking before storage
+ * - Export of a user's sent and received messages
  */
 public class ChatServerTest {
     private ChatServer chatServer;
@@ -140,4 +148,131 @@ public class ChatServerTest {
         assertTrue("Message with special characters should be sent", result);
         assertEquals("Special characters should be preserved", "Hello! @#$%^&*()", testListener.lastMessage);
     }
+
+    /**
+     * Test the newest history page stays correct once cached and new messages arrive
+     */
+    @Test
+    public void testNewestPageServedFromCacheIncludesNewMessages() {
+        long first = chatServer.storeMessage("alice", "bob", "one");
+        long second = chatServer.storeMessage("bob", "alice", "two");
+
+        java.util.List<Message> page = chatServer.getConversationHistory("alice", "bob", Long.MAX_VALUE, 10);
+        assertEquals(2, page.size());
+        assertEquals(first, page.get(0).getMessageId());
+
+        long third = chatServer.storeMessage("alice", "bob", "thrëe");
+        page = chatServer.getConversationHistory("bob", "alice", Long.MAX_VALUE, 2);
+        assertEquals(2, page.size());
+        assertEquals(second, page.get(0).getMessageId());
+        assertEquals(third, page.get(1).getMessageId());
+        assertEquals("thrëe", page.get(1).getContent());
+        assertEquals("alice", page.get(1).getSender());
+    }
+
+    /**
+     * Test messages to unknown users are rejected before reaching the database
+     */
+    @Test
+    public void testStoreMessageUnknownRecipient() {
+        assertEquals(-1, chatServer.storeMessage("alice", "nobody", "hi"));
+        assertEquals(0, testListener.messageCount);
+    }
+
+    /**
+     * Test broadcasts are stored with no recipient row and returned by delta sync
+     */
+    @Test
+    public void testBroadcastRoundTrip() {
+        long id = chatServer.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "hello all");
+        assertTrue(id > 0);
+
+        java.util.List<Message> sync = chatServer.getMessagesSince("charlie", 0, 10);
+        assertEquals(1, sync.size());
+        assertEquals("alice", sync.get(0).getSender());
+        assertEquals(ChatServer.BROADCAST_RECIPIENT, sync.get(0).getRecipient());
+    }
+
+    /**
+     * Test the inbox keeps the newest message and unread count per peer, in the table and the cache
+     */
+    @Test
+    public void testInboxTracksNewestMessageAndUnread() {
+        DatabaseConnection database = TestConfig.createTestDatabase();
+        ChatServer server = new ChatServer(database);
+        long one = server.storeMessage("alice", "bob", "one");
+        server.storeMessage("bob", "alice", "two");
+        assertTrue(server.getInbox("bob", 10).size() == 1);
+        long three = server.storeMessage("alice", "bob", "three");
+        server.storeMessage("charlie", "bob", "hey");
+        server.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "not a conversation");
+
+        for (ChatServer reader : new ChatServer[] {server, new ChatServer(database)}) {
+            java.util.List<ConversationSummary> inbox = reader.getInbox("bob", 10);
+            assertEquals(2, inbox.size());
+            assertEquals("charlie", inbox.get(0).getPeer());
+            assertEquals(1, inbox.get(0).getUnreadCount());
+            assertEquals("alice", inbox.get(1).getPeer());
+            assertEquals(three, inbox.get(1).getLastMessageId());
+            assertEquals("three", inbox.get(1).getPreview());
+            assertEquals("alice", inbox.get(1).getLastSender());
+            assertEquals("Both of alice's messages are unread", 2, inbox.get(1).getUnreadCount());
+            assertEquals("Bob's reply is unread for alice", 1, reader.getInbox("alice", 10).get(0).getUnreadCount());
+        }
+
+        assertTrue(server.markConversationRead("bob", "alice", one));
+        assertEquals(1, server.getInbox("bob", 10).get(1).getUnreadCount());
+        assertEquals(1, new ChatServer(database).getInbox("bob", 10).get(1).getUnreadCount());
+        assertFalse("No conversation with dave", server.markConversationRead("bob", "dave", three));
+        database.close();
+    }
+
+    /**
+     * Test rejected messages are not stored and masked terms are stored masked
+     */
+    @Test
+    public void testContentFilterBeforeStorage() throws Exception {
+        java.nio.file.Path terms = java.nio.file.Files.createTempFile("terms", ".txt");
+        java.nio.file.Files.write(terms, java.util.Arrays.asList("reject spam.example", "mask heck"));
+        ContentFilter filter = new ContentFilter(terms);
+        DatabaseConnection database = TestConfig.createTestDatabase();
+        ChatServer server = new ChatServer(database, new com.chatapp.auth.UserDictionary(database),
+                (MessageJournal) null, new MessageIdGenerator(0), filter);
+
+        assertEquals(ChatServer.REJECTED, server.storeMessage("alice", "bob", "visit SPAM.example"));
+        assertFalse(server.sendMessage("alice", "bob", "spam.example again"));
+        assertTrue(server.storeMessage("alice", "bob", "what the heck") > 0);
+
+        java.util.List<Message> history = server.getConversationHistory("alice", "bob");
+        assertEquals(1, history.size());
+        assertEquals("what the ****", history.get(0).getContent());
+        assertEquals(2, filter.getRejectedCount());
+        filter.shutdown();
+        database.close();
+        java.nio.file.Files.delete(terms);
+    }
+
+    /**
+     * Test an export covers messages sent and received, oldest first, across fetches
+     */
+    @Test
+    public void testExportMessages() throws Exception {
+        java.util.List<Long> expected = new java.util.ArrayList<>();
+        for (int i = 0; i < ChatServer.EXPORT_FETCH_SIZE + 10; i++) {
+            expected.add(chatServer.storeMessage(i % 2 == 0 ? "alice" : "bob", i % 2 == 0 ? "bob" : "alice", "m" + i));
+        }
+        expected.add(chatServer.storeMessage("alice", "alice", "note to self"));
+        expected.add(chatServer.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "hello all"));
+        chatServer.storeMessage("charlie", ChatServer.BROADCAST_RECIPIENT, "not alice's");
+        chatServer.storeMessage("bob", "charlie", "not for alice");
+
+        java.util.List<Message> exported = new java.util.ArrayList<>();
+        assertEquals(expected.size(), chatServer.exportMessages("alice", exported::add));
+        assertEquals(expected.size(), exported.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).longValue(), exported.get(i).getMessageId());
+        }
+        assertEquals("m1", exported.get(1).getContent());
+        assertEquals("bob", exported.get(1).getSender());
+    }
 }
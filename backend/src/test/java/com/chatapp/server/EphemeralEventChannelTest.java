@@ -0,0 +1,124 @@
+package com.chatapp.server;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * EphemeralEventChannelTest - Unit tests for EphemeralEventChannel
+ *
+ * Tests cover:
+ * - Latest-wins coalescing per conversation
+ * - Highest-message-wins coalescing of read receipts
+ * - Keys that cannot collide through separators in usernames
+ * - Batching per recipient
+ * - Bounded pending set
+ */
+public class EphemeralEventChannelTest {
+    private EphemeralEventChannel channel;
+    private List<EphemeralEventChannel.EphemeralEvent> delivered;
+    private int batchCount;
+
+    /**
+     * Setup - Channel with a recording listener; flushes are driven by the test
+     */
+    @Before
+    public void setUp() {
+        channel = new EphemeralEventChannel(1000, 3);
+        delivered = new ArrayList<>();
+        batchCount = 0;
+        channel.addListener((recipient, events) -> {
+            batchCount++;
+            delivered.addAll(events);
+        });
+    }
+
+    /**
+     * Test repeated typing signals collapse to the latest one
+     */
+    @Test
+    public void testTypingCoalescedLatestWins() {
+        channel.publishTyping("alice", "bob", true);
+        channel.publishTyping("alice", "bob", true);
+        channel.publishTyping("alice", "bob", false);
+
+        channel.flush();
+
+        assertEquals("Only one event should be delivered", 1, delivered.size());
+        assertEquals("Latest value should win", 0, delivered.get(0).getValue());
+    }
+
+    /**
+     * Test a late receipt for an older message does not replace a newer one
+     */
+    @Test
+    public void testSeenKeepsHighestMessageId() {
+        channel.publishSeen("alice", "bob", 42);
+        channel.publishSeen("alice", "bob", 40);
+
+        channel.flush();
+
+        assertEquals(1, delivered.size());
+        assertEquals(42, delivered.get(0).getValue());
+    }
+
+    /**
+     * Test usernames containing the old separator character do not share a key
+     */
+    @Test
+    public void testKeysDoNotCollide() {
+        channel.publishTyping("a|b", "c", true);
+        channel.publishTyping("a", "b|c", true);
+
+        channel.flush();
+
+        assertEquals(2, delivered.size());
+    }
+
+    /**
+     * Test different event types for the same recipient arrive in one batch
+     */
+    @Test
+    public void testEventsBatchedPerRecipient() {
+        channel.publishTyping("alice", "bob", true);
+        channel.publishSeen("alice", "bob", 42);
+
+        channel.flush();
+
+        assertEquals("One batch for bob", 1, batchCount);
+        assertEquals("Both events delivered", 2, delivered.size());
+    }
+
+    /**
+     * Test flush empties the pending set
+     */
+    @Test
+    public void testFlushClearsPending() {
+        channel.publishTyping("alice", "bob", true);
+        channel.flush();
+        channel.flush();
+
+        assertEquals("Event should be delivered once", 1, delivered.size());
+    }
+
+    /**
+     * Test new keys are dropped once the pending set is full
+     */
+    @Test
+    public void testPendingBounded() {
+        channel.publishTyping("a", "bob", true);
+        channel.publishTyping("b", "bob", true);
+        channel.publishTyping("c", "bob", true);
+        channel.publishTyping("d", "bob", true);
+        channel.publishTyping("a", "bob", false);
+
+        channel.flush();
+
+        assertEquals("Pending set should be capped", 3, delivered.size());
+        assertEquals("Overflowing key should be dropped", 1, channel.getDroppedCount());
+    }
+}
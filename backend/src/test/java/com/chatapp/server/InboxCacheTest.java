@@ -0,0 +1,123 @@
+package com.chatapp.server;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * InboxCacheTest - Unit tests for InboxCache
+ *
+ * Tests cover:
+ * - Misses before a load and for limits beyond a truncated inbox
+ * - Stored messages moving a conversation to the top and counting unread
+ * - Loads discarded when an update races them
+ * - Eviction when a message arrives from a peer outside a truncated inbox
+ * - Read receipts
+ */
+public class InboxCacheTest {
+    private InboxCache cache;
+
+    /**
+     * Setup - Cache keeping three conversations per user
+     */
+    @Before
+    public void setUp() {
+        cache = new InboxCache(3, 100);
+    }
+
+    private static ConversationSummary summary(String peer, long lastMessageId, int unread) {
+        return new ConversationSummary(peer, lastMessageId, peer, "m" + lastMessageId, new Timestamp(0), unread);
+    }
+
+    private static Message message(long id, String sender, String recipient) {
+        Message message = new Message(sender, recipient, "m" + id, new Timestamp(id));
+        message.setMessageId(id);
+        return message;
+    }
+
+    private static List<String> peers(List<ConversationSummary> inbox) {
+        List<String> peers = new ArrayList<>();
+        for (ConversationSummary summary : inbox) {
+            peers.add(summary.getPeer());
+        }
+        return peers;
+    }
+
+    private void load(String username, boolean complete, ConversationSummary... rows) {
+        cache.completeLoad(username, cache.beginLoad(username), Arrays.asList(rows), complete);
+    }
+
+    /**
+     * Test misses before a load and past the end of a truncated inbox
+     */
+    @Test
+    public void testLoadAndLimits() {
+        assertNull(cache.getInbox("alice", 3));
+        load("alice", false, summary("bob", 9, 0), summary("carol", 5, 1), summary("dave", 2, 0));
+        assertEquals(Arrays.asList("bob", "carol"), peers(cache.getInbox("alice", 2)));
+        assertNull("The database may hold more", cache.getInbox("alice", 4));
+
+        load("erin", true, summary("bob", 4, 0));
+        assertEquals(1, cache.getInbox("erin", 3).size());
+    }
+
+    /**
+     * Test a stored message moves its conversation to the top and counts as unread once
+     */
+    @Test
+    public void testMessageStored() {
+        load("alice", true, summary("bob", 9, 0), summary("carol", 5, 1));
+        Message fromCarol = message(12, "carol", "alice");
+        cache.messageStored("alice", "carol", fromCarol, 1);
+        cache.messageStored("alice", "carol", fromCarol, 1);
+
+        List<ConversationSummary> inbox = cache.getInbox("alice", 3);
+        assertEquals(Arrays.asList("carol", "bob"), peers(inbox));
+        assertEquals(2, inbox.get(0).getUnreadCount());
+        assertEquals("m12", inbox.get(0).getPreview());
+
+        cache.messageStored("alice", "dave", message(13, "alice", "dave"), 0);
+        cache.messageStored("alice", "erin", message(14, "erin", "alice"), 1);
+        assertEquals(Arrays.asList("erin", "dave", "carol"), peers(cache.getInbox("alice", 3)));
+        assertNull("Trimmed past capacity, so no longer complete", cache.getInbox("alice", 4));
+    }
+
+    /**
+     * Test an update during a load makes the load stale
+     */
+    @Test
+    public void testRacingUpdateDiscardsLoad() {
+        Object token = cache.beginLoad("alice");
+        cache.messageStored("alice", "bob", message(10, "bob", "alice"), 1);
+        cache.completeLoad("alice", token, Arrays.asList(summary("bob", 9, 0)), true);
+        assertNull(cache.getInbox("alice", 1));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test a message from a peer outside a truncated inbox evicts it
+     */
+    @Test
+    public void testUnknownPeerEvictsTruncatedInbox() {
+        load("alice", false, summary("bob", 9, 0), summary("carol", 5, 0), summary("dave", 2, 0));
+        cache.messageStored("alice", "erin", message(20, "erin", "alice"), 1);
+        assertNull(cache.getInbox("alice", 1));
+    }
+
+    /**
+     * Test a read receipt replaces the unread count
+     */
+    @Test
+    public void testMarkedRead() {
+        load("alice", true, summary("bob", 9, 4));
+        cache.markedRead("alice", "bob", 1);
+        cache.markedRead("alice", "zed", 0);
+        assertEquals(1, cache.getInbox("alice", 1).get(0).getUnreadCount());
+    }
+}
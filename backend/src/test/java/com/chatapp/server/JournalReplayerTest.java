@@ -0,0 +1,221 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.journal.JournalRecord;
+import com.chatapp.journal.MessageJournal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * JournalReplayerTest - Unit tests for journaled sends and JournalReplayer
+ *
+ * Runs ChatServer against an H2 database that can be switched to fail
+ * every connection, as PostgreSQL does during a restart.
+ *
+ * Tests cover:
+ * - Sends during an outage are journaled and acknowledged without an ID
+ * - Sends whose users are not cached yet are journaled too, not refused as unknown
+ * - Replay in acceptance order once the database is back, with listeners notified
+ * - Sends keep queueing behind the journal until it is drained
+ * - Deduplication when a batch is replayed twice
+ * - Replayed messages visible to cursors that other shards' writes moved past their accepted IDs
+ * - Records for unknown users are dropped instead of blocking the journal
+ */
+public class JournalReplayerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FlakyDatabase database;
+    private MessageJournal journal;
+    private ChatServer chatServer;
+    private JournalReplayer replayer;
+    private List<Message> notified;
+
+    /**
+     * Database whose connections can be made to fail
+     */
+    private static class FlakyDatabase extends DatabaseConnection {
+        private volatile boolean down;
+
+        FlakyDatabase(String url) {
+            super(url, "sa", "");
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLTransientConnectionException("Connection is not available", "08001");
+            }
+            return super.getConnection();
+        }
+    }
+
+    /**
+     * Setup - Create a server with a journal over a fresh database
+     */
+    @Before
+    public void setUp() throws Exception {
+        DatabaseConnection schema = TestConfig.createTestDatabase();
+        schema.close();
+        database = new FlakyDatabase(schema.getUrl());
+        journal = new MessageJournal(folder.getRoot().toPath());
+        chatServer = new ChatServer(database, new UserDictionary(database), journal);
+        replayer = new JournalReplayer(chatServer, journal, 2, 1000);
+        notified = new ArrayList<>();
+        chatServer.addListener(new ChatServer.ChatListener() {
+            @Override
+            public void onMessageReceived(String sender, String message) {
+            }
+
+            @Override
+            public void onMessageStored(Message message) {
+                notified.add(message);
+            }
+        });
+        // Resolve users while the database is up, as logged-in senders are
+        chatServer.getUserDictionary().idOf("alice");
+        chatServer.getUserDictionary().idOf("bob");
+    }
+
+    /**
+     * Teardown - Close journal and pools
+     */
+    @After
+    public void tearDown() {
+        journal.close();
+        database.close();
+    }
+
+    private List<String> storedContents() throws SQLException {
+        List<String> contents = new ArrayList<>();
+        try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT content FROM messages ORDER BY message_id");
+            while (rs.next()) {
+                contents.add(rs.getString(1));
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * Test sends during an outage succeed and reach the database in order afterwards
+     */
+    @Test
+    public void testOutageIsJournaledAndReplayedInOrder() throws SQLException {
+        assertTrue(chatServer.sendMessage("alice", "bob", "before"));
+
+        database.down = true;
+        assertEquals("No ID until stored", ChatServer.JOURNALED, chatServer.storeMessage("alice", "bob", "one"));
+        assertTrue(chatServer.sendMessage("bob", "alice", "two"));
+        assertTrue(chatServer.sendMessage("alice", ChatServer.BROADCAST_RECIPIENT, "three"));
+        assertEquals(3, chatServer.getJournalPendingCount());
+        assertEquals(0, replayer.drain());
+        assertTrue(replayer.isWaitingForDatabase());
+
+        database.down = false;
+        // Still queued behind the journal so it is not stored ahead of one..three
+        assertEquals(ChatServer.JOURNALED, chatServer.storeMessage("bob", "alice", "four"));
+        assertEquals(4, replayer.drain());
+
+        assertEquals(Arrays.asList("before", "one", "two", "three", "four"), storedContents());
+        assertEquals(Arrays.asList("before", "one", "two", "three", "four"),
+                notified.stream().map(Message::getContent).collect(Collectors.toList()));
+        assertTrue("Stored under IDs issued at replay", notified.get(1).getMessageId() > notified.get(0).getMessageId());
+        assertTrue(notified.get(4).getMessageId() > notified.get(1).getMessageId());
+        assertEquals(0, chatServer.getJournalPendingCount());
+        assertFalse(replayer.isWaitingForDatabase());
+
+        // Drained: sends go straight to the database again
+        assertTrue(chatServer.storeMessage("alice", "bob", "five") > 0);
+        assertEquals(5, chatServer.getConversationHistory("alice", "bob").size());
+    }
+
+    /**
+     * Test a sender not looked up before the outage is journaled rather than reported unknown
+     */
+    @Test
+    public void testUncachedUserJournaledDuringOutage() throws SQLException {
+        database.down = true;
+        assertEquals(ChatServer.JOURNALED, chatServer.storeMessage("charlie", "bob", "hello"));
+        assertEquals(1, chatServer.getJournalPendingCount());
+        assertEquals("Still only alice and bob", 2, chatServer.getUserDictionary().size());
+        database.down = false;
+
+        assertEquals(1, replayer.drain());
+        assertEquals(Arrays.asList("hello"), storedContents());
+    }
+
+    /**
+     * Test a record replayed twice is stored once
+     */
+    @Test
+    public void testReplayIsDeduplicated() throws SQLException {
+        List<JournalRecord> records = Arrays.asList(
+                new JournalRecord(42, 1_000, "alice", "bob", "once"),
+                new JournalRecord(43, 2_000, "bob", "alice", "twice"));
+        assertEquals(2, chatServer.storeJournaled(records));
+        assertEquals(0, chatServer.storeJournaled(records));
+        assertEquals(Arrays.asList("once", "twice"), storedContents());
+    }
+
+    /**
+     * Test a message replayed after another node kept writing to another shard is not skipped by sync
+     */
+    @Test
+    public void testReplayNotSkippedByCursorsOfOtherShards() throws SQLException {
+        DatabaseConnection sharded = TestConfig.createShardedTestDatabase(2);
+        ChatServer replaying = new ChatServer(sharded, new UserDictionary(sharded), null, new MessageIdGenerator(1));
+        ChatServer otherNode = new ChatServer(sharded, new UserDictionary(sharded), null, new MessageIdGenerator(2));
+        // bob-alice and bob-charlie live on different shards
+        assertNotSame(sharded.shardFor(ChatServer.conversationKey(1, 2)),
+                sharded.shardFor(ChatServer.conversationKey(2, 3)));
+
+        long acceptedId = new MessageIdGenerator(1).nextId();
+        JournalRecord record = new JournalRecord(acceptedId, System.currentTimeMillis(), "alice", "bob", "journaled");
+        otherNode.storeMessage("charlie", "bob", "meanwhile");
+        List<Message> synced = otherNode.getMessagesSince("bob", 0, 10);
+        long cursor = synced.get(synced.size() - 1).getMessageId();
+        assertTrue(cursor > acceptedId);
+
+        assertEquals(1, replaying.storeJournaled(List.of(record)));
+        List<Message> next = replaying.getMessagesSince("bob", cursor, 10);
+        assertEquals(1, next.size());
+        assertEquals("journaled", next.get(0).getContent());
+        assertEquals("Replayed again after a crash", 0, replaying.storeJournaled(List.of(record)));
+        sharded.close();
+    }
+
+    /**
+     * Test a record whose user does not exist is dropped and the rest are stored
+     */
+    @Test
+    public void testUnknownUserIsDropped() throws SQLException {
+        database.down = true;
+        assertTrue(chatServer.sendMessage("alice", "bob", "first"));
+        // Journaled without resolving users, since the users table is unreachable
+        assertTrue(chatServer.sendMessage("alice", "nobody", "lost"));
+        assertTrue(chatServer.sendMessage("alice", "bob", "kept"));
+        database.down = false;
+
+        assertEquals(2, replayer.drain());
+        assertEquals(Arrays.asList("first", "kept"), storedContents());
+        assertFalse(journal.hasPending());
+    }
+}
@@ -0,0 +1,365 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.push.PushCoalescer;
+import com.chatapp.push.PushConnection;
+import com.chatapp.push.PushRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * MailboxServiceTest - Unit tests for MailboxService
+ *
+ * Tests cover:
+ * - Draining messages stored while offline in one frame and one query on connect
+ * - Frames of at most the drain limit
+ * - Live delivery and cursor persistence
+ * - Coalesced live delivery, with the cursor moved by the next reconciling drain
+ * - Messages stored through another node not skipped by cursors moved past live pushes
+ * - Coalescing of drain requests per user
+ * - Keeping the mailbox when the user has no open connection
+ * - Cursors held back by the commit window, so a late commit is drained
+ */
+public class MailboxServiceTest {
+    private DatabaseConnection dbConnection;
+    private ChatServer chatServer;
+    private PushRegistry pushRegistry;
+    private MailboxService mailboxService;
+
+    /**
+     * PushConnection that records events and can hold the first one until released
+     */
+    private static class RecordingConnection implements PushConnection {
+        private final String username;
+        private final CountDownLatch release;
+        final List<String> events = new ArrayList<>();
+        final List<Object> payloads = new ArrayList<>();
+
+        RecordingConnection(String username) {
+            this(username, new CountDownLatch(0));
+        }
+
+        RecordingConnection(String username, CountDownLatch release) {
+            this.username = username;
+            this.release = release;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public boolean send(String eventType, Object payload) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                events.add(eventType);
+                payloads.add(payload);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        synchronized int eventCount() {
+            return events.size();
+        }
+    }
+
+    /**
+     * Setup - Services over a fresh test database; cursor flusher not started
+     */
+    @Before
+    public void setUp() {
+        dbConnection = TestConfig.createTestDatabase();
+        chatServer = new ChatServer(dbConnection);
+        pushRegistry = new PushRegistry();
+        mailboxService = service(chatServer, pushRegistry, new PushCoalescer(pushRegistry, 0, 1), 3);
+    }
+
+    /**
+     * Service without a commit window, so cursors reach the newest delivered message
+     */
+    private MailboxService service(ChatServer server, PushRegistry registry, PushCoalescer coalescer, int drainLimit) {
+        return new MailboxService(server, dbConnection, registry, coalescer, drainLimit, 1000, 0);
+    }
+
+    /**
+     * Teardown - Stop drain threads and close pools
+     */
+    @After
+    public void tearDown() {
+        mailboxService.shutdown();
+        dbConnection.close();
+    }
+
+    private static void awaitEvents(RecordingConnection connection, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (connection.eventCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, connection.eventCount());
+    }
+
+    private static void awaitDrained(MailboxService service, String username) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (service.isDrainPending(username) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(service.isDrainPending(username));
+    }
+
+    /**
+     * Reconcile until the cursor reaches an ID; live deliveries are recorded on the flush thread
+     */
+    private static void awaitReconciled(MailboxService service, String username, long cursor)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (service.getCursor(username) < cursor && System.currentTimeMillis() < deadline) {
+            service.reconcile();
+            awaitDrained(service, username);
+            Thread.sleep(5);
+        }
+        assertEquals(cursor, service.getCursor(username));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Message> frame(RecordingConnection connection, int index) {
+        return (List<Message>) connection.payloads.get(index);
+    }
+
+    private long persistedCursor(String username) throws SQLException {
+        try (Connection conn = dbConnection.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT delivered_message_id FROM mailbox_cursors"
+                    + " WHERE user_id = (SELECT user_id FROM users WHERE username = ?)");
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Test messages stored while offline arrive in one frame from one query on connect
+     */
+    @Test
+    public void testOfflineMessagesDrainedOnConnect() throws Exception {
+        // Stored without a live listener, as on a node bob is not connected to
+        ChatServer otherNode = new ChatServer(dbConnection);
+        otherNode.sendMessage("alice", "bob", "one");
+        otherNode.sendMessage("bob", ChatServer.BROADCAST_RECIPIENT, "own broadcast");
+        long last = otherNode.storeMessage("charlie", ChatServer.BROADCAST_RECIPIENT, "two");
+
+        RecordingConnection bob = new RecordingConnection("bob");
+        pushRegistry.register(bob);
+        awaitEvents(bob, 1);
+
+        assertEquals("mailbox", bob.events.get(0));
+        List<Message> messages = frame(bob, 0);
+        assertEquals(2, messages.size());
+        assertEquals("one", messages.get(0).getContent());
+        assertEquals("two", messages.get(1).getContent());
+        assertEquals(ChatServer.BROADCAST_RECIPIENT, messages.get(1).getRecipient());
+        assertEquals(last, mailboxService.getCursor("bob"));
+        assertEquals(1, mailboxService.getDrainQueryCount());
+    }
+
+    /**
+     * Test a large mailbox is pushed in frames of the drain limit
+     */
+    @Test
+    public void testDrainsInFramesOfLimit() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            chatServer.sendMessage("alice", "bob", "m" + i);
+        }
+        RecordingConnection bob = new RecordingConnection("bob");
+        pushRegistry.register(bob);
+        awaitEvents(bob, 2);
+
+        assertEquals(3, frame(bob, 0).size());
+        assertEquals(2, frame(bob, 1).size());
+        assertEquals("m4", frame(bob, 1).get(1).getContent());
+        assertEquals(2, mailboxService.getDrainQueryCount());
+    }
+
+    /**
+     * Test live messages are pushed as stored and the cursor survives on another node
+     */
+    @Test
+    public void testLiveDeliveryAndCursorPersistence() throws Exception {
+        RecordingConnection bob = new RecordingConnection("bob");
+        pushRegistry.register(bob);
+        awaitDrained(mailboxService, "bob");
+        assertEquals(0, bob.eventCount());
+
+        long id = chatServer.storeMessage("alice", "bob", "live");
+        awaitEvents(bob, 1);
+        assertEquals("message", bob.events.get(0));
+        assertEquals("Live pushes alone do not move the cursor", 0, mailboxService.getCursor("bob"));
+
+        awaitReconciled(mailboxService, "bob", id);
+        assertEquals("Not pushed again", 1, bob.eventCount());
+
+        mailboxService.flush();
+        assertEquals(id, persistedCursor("bob"));
+
+        // A fresh node reads the persisted cursor and finds nothing pending
+        PushRegistry otherRegistry = new PushRegistry();
+        MailboxService other = service(chatServer, otherRegistry, new PushCoalescer(otherRegistry, 0, 1), 2);
+        RecordingConnection bobElsewhere = new RecordingConnection("bob");
+        otherRegistry.register(bobElsewhere);
+        Thread.sleep(100);
+        assertEquals(0, bobElsewhere.eventCount());
+        other.shutdown();
+    }
+
+    /**
+     * Test live messages sent in a burst arrive batched and advance the cursor to the last one
+     */
+    @Test
+    public void testCoalescedLiveDelivery() throws Exception {
+        ChatServer server = new ChatServer(dbConnection);
+        PushRegistry registry = new PushRegistry();
+        PushCoalescer coalescer = new PushCoalescer(registry, 100, 64);
+        MailboxService batched = service(server, registry, coalescer, 3);
+        RecordingConnection bob = new RecordingConnection("bob");
+        registry.register(bob);
+        awaitDrained(batched, "bob");
+        assertEquals(0, bob.eventCount());
+
+        server.storeMessage("alice", "bob", "first");
+        awaitEvents(bob, 1);
+        server.storeMessage("alice", "bob", "second");
+        long last = server.storeMessage("alice", "bob", "third");
+        awaitEvents(bob, 2);
+
+        assertEquals("message", bob.events.get(0));
+        assertEquals("messages", bob.events.get(1));
+        assertEquals("third", frame(bob, 1).get(1).getContent());
+        awaitReconciled(batched, "bob", last);
+        assertEquals(2, bob.eventCount());
+        batched.shutdown();
+        coalescer.shutdown();
+    }
+
+    /**
+     * Test a message stored through another node is drained, not skipped, after a newer live push
+     */
+    @Test
+    public void testOtherNodeMessageNotSkipped() throws Exception {
+        RecordingConnection bob = new RecordingConnection("bob");
+        pushRegistry.register(bob);
+        awaitDrained(mailboxService, "bob");
+
+        ChatServer otherNode = new ChatServer(dbConnection, new UserDictionary(dbConnection), null,
+                new MessageIdGenerator(2, () -> System.currentTimeMillis() - 10));
+        long elsewhere = otherNode.storeMessage("charlie", "bob", "from elsewhere");
+        long live = chatServer.storeMessage("alice", "bob", "live");
+        assertTrue(elsewhere < live);
+        awaitEvents(bob, 1);
+
+        awaitReconciled(mailboxService, "bob", live);
+        assertEquals(2, bob.eventCount());
+        assertEquals("mailbox", bob.events.get(1));
+        assertEquals(1, frame(bob, 1).size());
+        assertEquals("from elsewhere", frame(bob, 1).get(0).getContent());
+    }
+
+    /**
+     * Test drain requests arriving while a drain runs fold into a single rerun
+     */
+    @Test
+    public void testDrainRequestsCoalesce() throws Exception {
+        chatServer.sendMessage("alice", "bob", "pending");
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingConnection bob = new RecordingConnection("bob", release);
+        pushRegistry.register(bob);
+        while (mailboxService.getDrainQueryCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        // The first drain is blocked pushing its frame
+        for (int i = 0; i < 50; i++) {
+            mailboxService.requestDrain("bob");
+        }
+        release.countDown();
+        awaitEvents(bob, 1);
+        Thread.sleep(100);
+
+        assertEquals(2, mailboxService.getDrainQueryCount());
+        assertEquals(1, bob.eventCount());
+    }
+
+    /**
+     * Test a drain without an open connection leaves the mailbox for later
+     */
+    @Test
+    public void testNoConnectionKeepsMailbox() throws Exception {
+        chatServer.sendMessage("alice", "bob", "waiting");
+        mailboxService.requestDrain("bob");
+        assertEquals(0, mailboxService.drain("bob"));
+        assertEquals(0, mailboxService.getCursor("bob"));
+
+        RecordingConnection bob = new RecordingConnection("bob");
+        pushRegistry.register(bob);
+        awaitEvents(bob, 1);
+        assertEquals("waiting", frame(bob, 0).get(0).getContent());
+    }
+
+    /**
+     * Test a message committed late under a lower ID by another node is drained on the next connect
+     */
+    @Test
+    public void testLateCommitDrainedAfterReconnect() throws Exception {
+        MailboxService windowed = new MailboxService(chatServer, dbConnection, pushRegistry, 3, 1000);
+        // Another node whose clock runs half a second behind
+        ChatServer laggingNode = new ChatServer(dbConnection, new UserDictionary(dbConnection), null,
+                new MessageIdGenerator(2, () -> System.currentTimeMillis() - 500));
+        RecordingConnection bob = new RecordingConnection("bob");
+        pushRegistry.register(bob);
+        awaitDrained(windowed, "bob");
+        awaitDrained(mailboxService, "bob");
+
+        long onTime = chatServer.storeMessage("alice", "bob", "on time");
+        long late = laggingNode.storeMessage("charlie", "bob", "late");
+        assertTrue(late < onTime);
+        assertTrue("Held back by the commit window", windowed.getCursor("bob") < late);
+
+        pushRegistry.unregister(bob);
+        RecordingConnection reconnected = new RecordingConnection("bob");
+        pushRegistry.register(reconnected);
+        awaitDrained(windowed, "bob");
+        awaitDrained(mailboxService, "bob");
+
+        List<String> drained = new ArrayList<>();
+        for (int i = 0; i < reconnected.eventCount(); i++) {
+            if ("mailbox".equals(reconnected.events.get(i))) {
+                for (Message message : frame(reconnected, i)) {
+                    drained.add(message.getContent());
+                }
+            }
+        }
+        assertTrue(drained.contains("late"));
+        windowed.shutdown();
+    }
+}
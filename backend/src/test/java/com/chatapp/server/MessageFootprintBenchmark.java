@@ -0,0 +1,65 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+
+import java.sql.Timestamp;
+
+/**
+ * MessageFootprintBenchmark - Measures retained heap per cached message
+ *
+ * Builds the same messages as {@link Message}s the way the database
+ * mapper does (fresh Strings and a Timestamp per row) and as
+ * {@link CompactMessage}s, and reports bytes per message from the heap
+ * delta after GC. Run with a fixed heap for stable numbers:
+ *
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.chatapp.server.MessageFootprintBenchmark
+ * </pre>
+ */
+public class MessageFootprintBenchmark {
+    private static final int COUNT = 1_000_000;
+    private static final int USERS = 10_000;
+
+    /**
+     * Main method - Run the benchmark
+     *
+     * @param args - Command line arguments (unused)
+     */
+    public static void main(String[] args) {
+        String content = "See you at the station around six, bring the tickets";
+
+        long base = usedHeap();
+        Message[] messages = new Message[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            // Fresh strings per row, as ResultSet.getString allocates them
+            Message message = new Message("user" + (i % USERS), "user" + ((i + 1) % USERS),
+                    new String(content.toCharArray()), new Timestamp(1_700_000_000_000L + i));
+            message.setMessageId(i);
+            messages[i] = message;
+        }
+        long messageBytes = usedHeap() - base;
+
+        UserDictionary dictionary = new UserDictionary();
+        base = usedHeap();
+        CompactMessage[] compact = new CompactMessage[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            compact[i] = CompactMessage.from(messages[i], dictionary);
+        }
+        long compactBytes = usedHeap() - base;
+
+        System.out.printf("content length: %d bytes, %d messages%n", content.length(), COUNT);
+        System.out.printf("Message:        %6.1f bytes/message%n", (double) messageBytes / COUNT);
+        System.out.printf("CompactMessage: %6.1f bytes/message (including dictionary)%n", (double) compactBytes / COUNT);
+        // Keep both arrays reachable until measured
+        System.out.println("last ids: " + messages[COUNT - 1].getMessageId() + ", " + compact[COUNT - 1].getMessageId());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
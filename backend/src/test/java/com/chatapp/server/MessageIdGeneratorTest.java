@@ -0,0 +1,158 @@
+package com.chatapp.server;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * MessageIdGeneratorTest - Unit tests for MessageIdGenerator
+ *
+ * Tests cover:
+ * - Time and node encoded in each ID
+ * - Sequence exhaustion borrowing the next millisecond
+ * - IDs still increasing when the clock steps backwards
+ * - Unique IDs from concurrent threads and across nodes
+ * - Node ID range check
+ * - Continuing from the last ID of an earlier generator
+ * - The largest ID of a millisecond bounding every node's IDs
+ */
+public class MessageIdGeneratorTest {
+    private static final long NOW = MessageIdGenerator.EPOCH_MILLIS + 86_400_000L;
+
+    /**
+     * Test an ID decodes to the time and node it was issued with
+     */
+    @Test
+    public void testTimeAndNodeEncoded() {
+        MessageIdGenerator generator = new MessageIdGenerator(37, () -> NOW);
+        long id = generator.nextId();
+        assertEquals(NOW, MessageIdGenerator.timestampOf(id));
+        assertEquals(37, MessageIdGenerator.nodeOf(id));
+        assertEquals(id + 1, generator.nextId());
+    }
+
+    /**
+     * Test the 4097th ID of a millisecond moves to the next millisecond instead of repeating
+     */
+    @Test
+    public void testSequenceExhaustionBorrowsNextMillisecond() {
+        MessageIdGenerator generator = new MessageIdGenerator(5, () -> NOW);
+        long previous = 0;
+        for (int i = 0; i < 4096; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(NOW, MessageIdGenerator.timestampOf(id));
+            previous = id;
+        }
+        long borrowed = generator.nextId();
+        assertTrue(borrowed > previous);
+        assertEquals(NOW + 1, MessageIdGenerator.timestampOf(borrowed));
+        assertEquals(5, MessageIdGenerator.nodeOf(borrowed));
+    }
+
+    /**
+     * Test IDs keep increasing when the clock steps backwards
+     */
+    @Test
+    public void testClockStepBackKeepsOrder() {
+        AtomicLong clock = new AtomicLong(NOW);
+        MessageIdGenerator generator = new MessageIdGenerator(1, clock::get);
+        long before = generator.nextId();
+        clock.set(NOW - 5_000);
+        long after = generator.nextId();
+        assertTrue(after > before);
+        assertEquals(1, MessageIdGenerator.nodeOf(after));
+        clock.set(NOW + 1);
+        assertEquals(NOW + 1, MessageIdGenerator.timestampOf(generator.nextId()));
+    }
+
+    /**
+     * Test concurrent callers never get the same ID and nodes never collide
+     */
+    @Test
+    public void testUniqueAcrossThreadsAndNodes() throws InterruptedException {
+        MessageIdGenerator node1 = new MessageIdGenerator(1);
+        MessageIdGenerator node2 = new MessageIdGenerator(2);
+        int threads = 8;
+        int perThread = 20_000;
+        List<long[]> issued = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            MessageIdGenerator generator = t % 2 == 0 ? node1 : node2;
+            long[] ids = new long[perThread];
+            issued.add(ids);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = generator.nextId();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Set<Long> unique = new HashSet<>();
+        for (long[] ids : issued) {
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue("Increasing per thread", i == 0 || ids[i] > ids[i - 1]);
+                assertTrue("Unique", unique.add(ids[i]));
+            }
+        }
+        assertEquals(threads * perThread, unique.size());
+    }
+
+    /**
+     * Test node IDs outside the 10-bit range are rejected
+     */
+    @Test
+    public void testNodeIdRange() {
+        new MessageIdGenerator(MessageIdGenerator.MAX_NODE_ID);
+        try {
+            new MessageIdGenerator(MessageIdGenerator.MAX_NODE_ID + 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * Test a generator continued from another's last ID issues the same IDs it would have
+     */
+    @Test
+    public void testContinueFromLastId() {
+        MessageIdGenerator original = new MessageIdGenerator(5, () -> NOW);
+        original.nextId();
+        original.nextId();
+        MessageIdGenerator continued = new MessageIdGenerator(5, () -> NOW, original.getLastId());
+        assertEquals(original.nextId(), continued.nextId());
+        try {
+            new MessageIdGenerator(6, () -> NOW, original.getLastId());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * Test maxIdAt is above every ID of that millisecond and below the next one's
+     */
+    @Test
+    public void testMaxIdAt() {
+        long bound = MessageIdGenerator.maxIdAt(NOW);
+        for (int node : new int[] {0, MessageIdGenerator.MAX_NODE_ID}) {
+            MessageIdGenerator generator = new MessageIdGenerator(node, () -> NOW);
+            for (int i = 0; i < 100; i++) {
+                assertTrue(generator.nextId() <= bound);
+            }
+            assertTrue(new MessageIdGenerator(node, () -> NOW + 1).nextId() > bound);
+        }
+        assertEquals(NOW, MessageIdGenerator.timestampOf(bound));
+    }
+}
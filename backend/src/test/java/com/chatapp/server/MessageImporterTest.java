@@ -0,0 +1,189 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * MessageImporterTest - Unit tests for MessageImporter
+ *
+ * Runs the batched-INSERT path against H2.
+ *
+ * Tests cover:
+ * - Messages stored with IDs in input order and inbox rows with unread counts
+ * - Malformed lines and unknown users skipped and counted
+ * - Re-running a completed import writing nothing twice
+ * - Resuming from the checkpoint after a shard failed part way
+ * - COPY text escaping
+ */
+public class MessageImporterTest {
+    private Path directory;
+    private Path checkpoint;
+
+    /**
+     * Setup - Temporary directory for the input and checkpoint files
+     */
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("import");
+        checkpoint = directory.resolve("import.checkpoint");
+    }
+
+    /**
+     * Teardown - Delete the temporary files
+     */
+    @After
+    public void tearDown() throws Exception {
+        for (Path file : Files.list(directory).toArray(Path[]::new)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    private Path input(String... lines) throws Exception {
+        Path file = directory.resolve("messages.ndjson");
+        Files.write(file, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String line(String sender, String recipient, String content, long sentAt, boolean read) {
+        return "{\"sender\":\"" + sender + "\",\"recipient\":\"" + recipient + "\",\"content\":\"" + content
+                + "\",\"sentAt\":" + sentAt + ",\"read\":" + read + "}";
+    }
+
+    /**
+     * Test messages, broadcasts and inbox rows are imported and bad lines are skipped
+     */
+    @Test
+    public void testImport() throws Exception {
+        DatabaseConnection database = TestConfig.createTestDatabase();
+        Path file = input(
+                "{\"sender\":\"alice\",\"recipient\":\"bob\",\"content\":\"hello\",\"sentAt\":\"2025-06-01T10:00:00Z\"}",
+                "{\"messageId\":9,\"sender\":\"bob\",\"recipient\":\"alice\",\"content\":\"tab\\there\",\"sentAt\":1748772060000,\"read\":false,\"roomId\":0}",
+                "",
+                "{\"sender\":\"alice\",\"recipient\":\"broadcast\",\"content\":\"all\",\"sentAt\":\"2025-06-01 10:02:00\"}",
+                "not json",
+                "{\"sender\":\"mallory\",\"recipient\":\"bob\",\"content\":\"who\",\"sentAt\":1748772180000}",
+                "{\"sender\":\"charlie\",\"recipient\":\"alice\",\"content\":\"later\",\"sentAt\":\"2026-03-01T00:00:00.000+00:00\",\"read\":false}",
+                "{\"sender\":\"alice\",\"recipient\":\"charlie\",\"content\":\"reply\",\"sentAt\":\"2026-03-01T00:00:01Z\"}");
+        MessageImporter importer = new MessageImporter(database, new UserDictionary(database), checkpoint, 2,
+                MessageImporter.DEFAULT_NODE_ID);
+
+        assertEquals(5, importer.run(file));
+        assertEquals(1, importer.getInvalidCount());
+        assertEquals(1, importer.getUnknownUserCount());
+        assertFalse("Checkpoint removed once complete", Files.exists(checkpoint));
+
+        ChatServer chatServer = new ChatServer(database);
+        List<Message> history = chatServer.getConversationHistory("alice", "bob");
+        assertEquals(2, history.size());
+        assertEquals("hello", history.get(0).getContent());
+        assertEquals("tab\there", history.get(1).getContent());
+        assertTrue(history.get(0).getMessageId() < history.get(1).getMessageId());
+        assertEquals(MessageImporter.DEFAULT_NODE_ID, MessageIdGenerator.nodeOf(history.get(0).getMessageId()));
+
+        Message later = chatServer.getConversationHistory("alice", "charlie").get(0);
+        assertEquals("Time-ordered IDs from sentAt after the ID epoch",
+                later.getSentAt().getTime(), MessageIdGenerator.timestampOf(later.getMessageId()));
+        assertEquals(1, chatServer.getMessagesSince("charlie", 0, 10).stream()
+                .filter(m -> ChatServer.BROADCAST_RECIPIENT.equals(m.getRecipient())).count());
+
+        List<ConversationSummary> inbox = chatServer.getInbox("alice", 10);
+        assertEquals(2, inbox.size());
+        assertEquals("charlie", inbox.get(0).getPeer());
+        assertEquals("reply", inbox.get(0).getPreview());
+        assertEquals(1, inbox.get(0).getUnreadCount());
+        assertEquals(1, inbox.get(1).getUnreadCount());
+        assertEquals(0, chatServer.getInbox("bob", 10).get(0).getUnreadCount());
+
+        MessageImporter again = new MessageImporter(database, new UserDictionary(database), checkpoint, 2,
+                MessageImporter.DEFAULT_NODE_ID);
+        assertEquals("Same IDs again, so nothing is written twice", 0, again.run(file));
+        assertEquals(5, again.getAlreadyPresentCount());
+        database.close();
+    }
+
+    /**
+     * Test an import stopped by a failing shard resumes from its checkpoint and stores every message once
+     */
+    @Test
+    public void testResumeAfterShardFailure() throws Exception {
+        DatabaseConnection database = TestConfig.createShardedTestDatabase(2);
+        UserDictionary dictionary = new UserDictionary(database);
+        String[][] pairs = {{"alice", "bob"}, {"alice", "charlie"}, {"bob", "charlie"}};
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String[] pair = pairs[i % pairs.length];
+            lines.add(line(pair[0], pair[1], i == 45 ? "boom" : "m" + i, 1_780_000_000_000L + i * 1000, true));
+        }
+        long failingKey = ChatServer.conversationKey(dictionary.idOf(pairs[0][0]), dictionary.idOf(pairs[0][1]));
+        DatabaseConnection failingShard = database.shardFor(failingKey);
+        execute(failingShard, "ALTER TABLE messages ADD CONSTRAINT no_boom CHECK (content <> 'boom')");
+        Path file = input(lines.toArray(new String[0]));
+
+        MessageImporter first = new MessageImporter(database, dictionary, checkpoint, 5, MessageImporter.DEFAULT_NODE_ID);
+        try {
+            first.run(file);
+            fail("The shard rejects a message");
+        } catch (SQLException expected) {
+            assertTrue(Files.exists(checkpoint));
+        }
+
+        execute(failingShard, "ALTER TABLE messages DROP CONSTRAINT no_boom");
+        MessageImporter second = new MessageImporter(database, dictionary, checkpoint, 5, MessageImporter.DEFAULT_NODE_ID);
+        second.run(file);
+        assertEquals(60, first.getImportedCount() + second.getImportedCount());
+
+        List<String> contents = new ArrayList<>();
+        for (DatabaseConnection shard : database.getShards()) {
+            try (Connection conn = shard.getConnection(); Statement stmt = conn.createStatement()) {
+                ResultSet rs = stmt.executeQuery("SELECT content FROM messages");
+                while (rs.next()) {
+                    contents.add(rs.getString(1));
+                }
+            }
+        }
+        assertEquals(60, contents.size());
+        assertTrue(contents.contains("boom"));
+        assertFalse(Files.exists(checkpoint));
+        database.close();
+    }
+
+    private static void execute(DatabaseConnection db, String sql) throws SQLException {
+        try (Connection conn = db.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * Test values are escaped for COPY text format
+     */
+    @Test
+    public void testWriteCopyText() throws Exception {
+        StringWriter writer = new StringWriter();
+        MessageImporter.writeCopyText(writer, "a\tb\\c\nd\re");
+        assertEquals("a\\tb\\\\c\\nd\\re", writer.toString());
+        for (String plain : Arrays.asList("", "plain text")) {
+            writer = new StringWriter();
+            MessageImporter.writeCopyText(writer, plain);
+            assertEquals(plain, writer.toString());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * ReactionServiceTest - Unit tests for ReactionService
+ *
+ * Tests cover:
+ * - One count per user and emoji, and visibility of direct messages
+ * - Counts written on flush and read back by another instance
+ * - Repeats and removals of reactions stored earlier corrected at the next flush
+ * - Reactions kept and retried after a failed flush
+ * - One publication per changed message however many reactions it got
+ */
+public class ReactionServiceTest {
+    private DatabaseConnection dbConnection;
+    private UserDictionary userDictionary;
+    private ChatServer chatServer;
+    private ReactionService reactionService;
+
+    /**
+     * Setup - Fresh database and service, without background flushing
+     */
+    @Before
+    public void setUp() {
+        dbConnection = TestConfig.createTestDatabase();
+        userDictionary = new UserDictionary(dbConnection);
+        chatServer = new ChatServer(dbConnection, userDictionary);
+        reactionService = newService();
+    }
+
+    /**
+     * Teardown - Close the database
+     */
+    @After
+    public void tearDown() {
+        reactionService.shutdown();
+        dbConnection.close();
+    }
+
+    private ReactionService newService() {
+        return new ReactionService(dbConnection, userDictionary);
+    }
+
+    /**
+     * Test a second identical reaction is not counted and direct messages are private
+     */
+    @Test
+    public void testReactCountsOncePerUser() {
+        long messageId = chatServer.storeMessage("alice", "bob", "lunch?");
+
+        reactionService.react("alice", messageId, "+1");
+        reactionService.react("alice", messageId, "+1");
+        reactionService.react("bob", messageId, "taco");
+        ReactionCounts counts = reactionService.react("bob", messageId, "+1");
+
+        assertEquals(messageId, counts.getMessageId());
+        assertEquals(List.of("+1", "taco"), new ArrayList<>(counts.getCounts().keySet()));
+        assertEquals(Long.valueOf(2), counts.getCounts().get("+1"));
+        assertEquals(3, reactionService.getPendingCount());
+
+        assertNull("Not a participant", reactionService.react("charlie", messageId, "+1"));
+        assertNull(reactionService.getCounts("charlie", messageId));
+        assertNull("Unknown message", reactionService.react("alice", messageId + 1, "+1"));
+        assertNull(reactionService.react("alice", messageId, "thumbs up"));
+        assertNull(reactionService.react("alice", messageId, ""));
+        assertNull(reactionService.react("mallory", messageId, "+1"));
+    }
+
+    /**
+     * Test a flush writes reactions and counts that a new instance reads back
+     */
+    @Test
+    public void testFlushPersistsCounts() throws Exception {
+        long messageId = chatServer.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "release is out");
+        for (String user : List.of("alice", "bob", "charlie")) {
+            reactionService.react(user, messageId, "tada");
+        }
+        reactionService.react("bob", messageId, "eyes");
+        reactionService.unreact("bob", messageId, "eyes");
+
+        assertEquals("bob's eyes folded away", 4, reactionService.flush());
+        assertEquals(0, reactionService.getPendingCount());
+        assertEquals(3, count("SELECT reaction_count FROM message_reactions WHERE emoji = 'tada'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM message_reactions WHERE emoji = 'eyes'"));
+        assertEquals(3, count("SELECT COUNT(*) FROM message_reaction_users"));
+        assertEquals(0, reactionService.getCorrectionCount());
+
+        ReactionService otherNode = newService();
+        assertEquals(Collections.singletonMap("tada", 3L), otherNode.getCounts("charlie", messageId).getCounts());
+        otherNode.shutdown();
+    }
+
+    /**
+     * Test reactions stored before a message was loaded are corrected by the flush
+     */
+    @Test
+    public void testStoredReactionsCorrectedOnFlush() throws Exception {
+        long messageId = chatServer.storeMessage("alice", "bob", "ship it?");
+        reactionService.react("alice", messageId, "+1");
+        reactionService.react("bob", messageId, "+1");
+        reactionService.flush();
+
+        ReactionService otherNode = newService();
+        assertEquals(Long.valueOf(3), otherNode.react("alice", messageId, "+1").getCounts().get("+1"));
+        assertEquals("Counted until the flush shows it was stored", Long.valueOf(3),
+                otherNode.unreact("bob", messageId, "+1").getCounts().get("+1"));
+        assertEquals(2, otherNode.flush());
+
+        assertEquals(2, otherNode.getCorrectionCount());
+        assertEquals(Collections.singletonMap("+1", 1L), otherNode.getCounts("bob", messageId).getCounts());
+        assertEquals(1, count("SELECT reaction_count FROM message_reactions"));
+        assertEquals(1, count("SELECT COUNT(*) FROM message_reaction_users"));
+        otherNode.shutdown();
+    }
+
+    /**
+     * Test reactions survive a failed flush and are written by the next one
+     */
+    @Test
+    public void testFailedFlushRetried() throws Exception {
+        long messageId = chatServer.storeMessage("alice", "bob", "retry me");
+        reactionService.getCounts("alice", messageId);
+        execute("ALTER TABLE message_reactions RENAME TO message_reactions_away");
+        reactionService.react("alice", messageId, "+1");
+
+        assertEquals(0, reactionService.flush());
+        assertEquals(1, reactionService.getPendingCount());
+        assertEquals(0, count("SELECT COUNT(*) FROM message_reaction_users"));
+
+        execute("ALTER TABLE message_reactions_away RENAME TO message_reactions");
+        reactionService.react("bob", messageId, "+1");
+        assertEquals(2, reactionService.flush());
+        assertEquals(2, count("SELECT reaction_count FROM message_reactions"));
+    }
+
+    /**
+     * Test many reactions to one message are published once, to its participants
+     */
+    @Test
+    public void testPublishCoalesces() {
+        long messageId = chatServer.storeMessage("alice", "bob", "vote");
+        List<ReactionCounts> published = new ArrayList<>();
+        List<String> audience = new ArrayList<>();
+        reactionService.addListener((counts, sender, recipient) -> {
+            published.add(counts);
+            audience.add(sender + ">" + recipient);
+        });
+
+        for (int i = 0; i < 20; i++) {
+            reactionService.react(i % 2 == 0 ? "alice" : "bob", messageId, "e" + (i % 4));
+        }
+        assertEquals(1, reactionService.publish());
+        assertEquals(0, reactionService.publish());
+
+        assertEquals(List.of("alice>bob"), audience);
+        Map<String, Long> counts = published.get(0).getCounts();
+        assertEquals(4, counts.size());
+        assertEquals(Long.valueOf(1), counts.get("e0"));
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection conn = dbConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery(sql);
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = dbConnection.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
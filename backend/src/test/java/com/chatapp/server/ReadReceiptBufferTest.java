@@ -0,0 +1,122 @@
+package com.chatapp.server;
+
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+/**
+ * ReadReceiptBufferTest - Unit tests for ReadReceiptBuffer
+ *
+ * Tests cover:
+ * - Receipts kept in memory until the flush, coalesced to the newest message
+ * - One flush resetting conversations on every shard and the cached inboxes
+ * - Positions kept and retried after a failed flush
+ */
+public class ReadReceiptBufferTest {
+    private DatabaseConnection dbConnection;
+    private ChatServer chatServer;
+    private ReadReceiptBuffer readReceipts;
+
+    /**
+     * Setup - Sharded database and a buffer without background flushing
+     */
+    @Before
+    public void setUp() {
+        dbConnection = TestConfig.createShardedTestDatabase(2);
+        chatServer = new ChatServer(dbConnection);
+        readReceipts = new ReadReceiptBuffer(chatServer);
+    }
+
+    /**
+     * Teardown - Close the database
+     */
+    @After
+    public void tearDown() {
+        readReceipts.shutdown();
+        dbConnection.close();
+    }
+
+    /**
+     * Test receipts change nothing until the flush, which applies the newest of them
+     */
+    @Test
+    public void testReceiptsCoalesceUntilFlush() {
+        long one = chatServer.storeMessage("alice", "bob", "one");
+        long two = chatServer.storeMessage("alice", "bob", "two");
+        chatServer.storeMessage("alice", "bob", "three");
+
+        readReceipts.markRead("bob", "alice", two);
+        readReceipts.markRead("bob", "alice", one);
+        assertEquals(1, readReceipts.getPendingCount());
+        assertEquals(2, readReceipts.getReceiptCount());
+        assertEquals("Not written yet", 3, chatServer.getInbox("bob", 10).get(0).getUnreadCount());
+
+        assertEquals(1, readReceipts.flush());
+        assertEquals(0, readReceipts.getPendingCount());
+        assertEquals("The older receipt does not win", 1, chatServer.getInbox("bob", 10).get(0).getUnreadCount());
+        assertEquals(1, new ChatServer(dbConnection).getInbox("bob", 10).get(0).getUnreadCount());
+        assertEquals(0, readReceipts.flush());
+    }
+
+    /**
+     * Test one flush resets conversations stored on different shards
+     */
+    @Test
+    public void testFlushCoversAllShards() {
+        long fromAlice = chatServer.storeMessage("alice", "bob", "hi bob");
+        long fromCharlie = chatServer.storeMessage("charlie", "bob", "hi bob");
+        long toCharlie = chatServer.storeMessage("alice", "charlie", "hi charlie");
+        chatServer.storeMessage("bob", "alice", "hi alice");
+
+        readReceipts.markRead("bob", "alice", fromAlice);
+        readReceipts.markRead("bob", "charlie", fromCharlie);
+        readReceipts.markRead("charlie", "alice", toCharlie);
+        readReceipts.markRead("dave", "alice", fromAlice);
+
+        assertEquals("No conversation for dave", 3, readReceipts.flush());
+        for (ConversationSummary summary : chatServer.getInbox("bob", 10)) {
+            assertEquals(0, summary.getUnreadCount());
+        }
+        assertEquals(0, chatServer.getInbox("charlie", 10).get(0).getUnreadCount());
+        assertEquals("Alice did not read", 1, chatServer.getInbox("alice", 10).get(0).getUnreadCount());
+        assertEquals(3, readReceipts.getFlushedRowCount());
+    }
+
+    /**
+     * Test positions survive a failed flush and are written by the next one
+     */
+    @Test
+    public void testFailedFlushRetried() throws SQLException {
+        DatabaseConnection single = TestConfig.createTestDatabase();
+        ChatServer server = new ChatServer(single);
+        ReadReceiptBuffer buffer = new ReadReceiptBuffer(server);
+        long one = server.storeMessage("alice", "bob", "one");
+        long two = server.storeMessage("alice", "bob", "two");
+
+        execute(single, "ALTER TABLE conversations RENAME TO conversations_away");
+        buffer.markRead("bob", "alice", one);
+        assertEquals(0, buffer.flush());
+        assertEquals(1, buffer.getPendingCount());
+
+        execute(single, "ALTER TABLE conversations_away RENAME TO conversations");
+        buffer.markRead("bob", "alice", two);
+        assertEquals(1, buffer.flush());
+        assertEquals(0, new ChatServer(single).getInbox("bob", 10).get(0).getUnreadCount());
+        buffer.shutdown();
+        single.close();
+    }
+
+    private void execute(DatabaseConnection database, String sql) throws SQLException {
+        try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.UserDictionary;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * RecentMessageCacheTest - Unit tests for RecentMessageCache and CompactMessage
+ *
+ * Tests cover:
+ * - Compact round trip including non-ASCII content
+ * - Serving pages only when the cache can answer completely
+ * - Appends during and after a load
+ * - Trimming to capacity and LRU eviction
+ */
+public class RecentMessageCacheTest {
+    private UserDictionary dictionary;
+    private RecentMessageCache cache;
+
+    /**
+     * Setup - Small cache of 3 messages per conversation and 2 conversations
+     */
+    @Before
+    public void setUp() {
+        dictionary = new UserDictionary();
+        cache = new RecentMessageCache(dictionary, 3, 2);
+    }
+
+    private static Message message(long id, String sender, String recipient) {
+        Message message = new Message(sender, recipient, "msg " + id, new Timestamp(1_700_000_000_000L + id));
+        message.setMessageId(id);
+        return message;
+    }
+
+    private static List<Long> ids(List<Message> messages) {
+        List<Long> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessageId());
+        }
+        return ids;
+    }
+
+    /**
+     * Test compact conversion preserves every field
+     */
+    @Test
+    public void testCompactRoundTrip() {
+        Message original = new Message("alice", "bob", "héllo 👋", new Timestamp(1_700_000_000_123L));
+        original.setMessageId(42);
+        original.setRead(true);
+
+        CompactMessage compact = CompactMessage.from(original, dictionary);
+        Message restored = compact.toMessage(dictionary);
+
+        assertEquals(42, restored.getMessageId());
+        assertEquals("alice", restored.getSender());
+        assertEquals("bob", restored.getRecipient());
+        assertEquals("héllo 👋", restored.getContent());
+        assertEquals(original.getSentAt(), restored.getSentAt());
+        assertTrue(restored.isRead());
+        assertEquals(11, compact.getContentLength());
+    }
+
+    /**
+     * Test an uncached or loading conversation is a miss
+     */
+    @Test
+    public void testMissUntilLoaded() {
+        assertNull(cache.getRecent("alice", "bob", 2));
+        Object load = cache.beginLoad("alice", "bob");
+        assertNull(cache.getRecent("alice", "bob", 2));
+
+        cache.completeLoad(load, Arrays.asList(message(1, "alice", "bob"), message(2, "bob", "alice")), true);
+        assertEquals(Arrays.asList(1L, 2L), ids(cache.getRecent("bob", "alice", 2)));
+    }
+
+    /**
+     * Test a request larger than the cached page is only served if the conversation is complete
+     */
+    @Test
+    public void testIncompleteConversationServesOnlyCachedDepth() {
+        Object load = cache.beginLoad("alice", "bob");
+        cache.completeLoad(load, Arrays.asList(message(5, "alice", "bob"), message(6, "bob", "alice")), false);
+
+        assertEquals(Arrays.asList(6L), ids(cache.getRecent("alice", "bob", 1)));
+        assertEquals(Arrays.asList(5L, 6L), ids(cache.getRecent("alice", "bob", 2)));
+        assertNull(cache.getRecent("alice", "bob", 3));
+    }
+
+    /**
+     * Test messages appended while loading are merged without duplicates
+     */
+    @Test
+    public void testAppendDuringLoadIsMerged() {
+        Object load = cache.beginLoad("alice", "bob");
+        cache.append(message(3, "alice", "bob"));
+        cache.append(message(2, "bob", "alice"));
+        cache.completeLoad(load, Arrays.asList(message(1, "alice", "bob"), message(2, "bob", "alice")), true);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(cache.getRecent("alice", "bob", 3)));
+    }
+
+    /**
+     * Test appends after loading keep only the newest messages
+     */
+    @Test
+    public void testAppendTrimsToCapacity() {
+        Object load = cache.beginLoad("alice", "bob");
+        cache.completeLoad(load, Arrays.asList(message(1, "alice", "bob")), true);
+        cache.append(message(2, "bob", "alice"));
+        cache.append(message(3, "alice", "bob"));
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(cache.getRecent("alice", "bob", 10)));
+
+        cache.append(message(4, "bob", "alice"));
+        assertEquals(Arrays.asList(2L, 3L, 4L), ids(cache.getRecent("alice", "bob", 3)));
+        assertNull(cache.getRecent("alice", "bob", 4));
+    }
+
+    /**
+     * Test appends to uncached conversations are ignored
+     */
+    @Test
+    public void testAppendToUncachedConversationIgnored() {
+        cache.append(message(1, "alice", "charlie"));
+        assertEquals(0, cache.size());
+        assertNull(cache.getRecent("alice", "charlie", 1));
+    }
+
+    /**
+     * Test the least recently used conversation is evicted
+     */
+    @Test
+    public void testLruEviction() {
+        cache.completeLoad(cache.beginLoad("alice", "bob"), Arrays.asList(message(1, "alice", "bob")), true);
+        cache.completeLoad(cache.beginLoad("alice", "charlie"), Arrays.asList(message(2, "alice", "charlie")), true);
+        assertNotNull(cache.getRecent("alice", "bob", 1));
+
+        cache.completeLoad(cache.beginLoad("bob", "charlie"), Arrays.asList(message(3, "bob", "charlie")), true);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.getRecent("alice", "bob", 1));
+        assertNull(cache.getRecent("alice", "charlie", 1));
+    }
+
+    /**
+     * Test an abandoned load leaves no entry behind
+     */
+    @Test
+    public void testAbandonLoad() {
+        Object load = cache.beginLoad("alice", "bob");
+        cache.abandonLoad("alice", "bob", load);
+        assertEquals(0, cache.size());
+    }
+}
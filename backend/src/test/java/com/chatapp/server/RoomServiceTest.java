@@ -0,0 +1,148 @@
+package com.chatapp.server;
+
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * RoomServiceTest - Unit tests for RoomService
+ *
+ * Tests cover:
+ * - Room creation and membership
+ * - Single INSERT per room message with no membership query
+ * - Batched fan-out
+ * - Room history
+ */
+public class RoomServiceTest {
+    private CountingDatabaseConnection dbConnection;
+    private RoomService roomService;
+
+    /**
+     * DatabaseConnection that counts connections handed out
+     */
+    private static class CountingDatabaseConnection extends DatabaseConnection {
+        private final DatabaseConnection delegate;
+        final AtomicInteger connections = new AtomicInteger();
+
+        CountingDatabaseConnection(DatabaseConnection delegate) {
+            super(delegate.getUrl(), "sa", "");
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connections.incrementAndGet();
+            return delegate.getConnection();
+        }
+    }
+
+    /**
+     * Setup - RoomService with batches of 2 on a fresh test database
+     */
+    @Before
+    public void setUp() {
+        dbConnection = new CountingDatabaseConnection(TestConfig.createTestDatabase());
+        roomService = new RoomService(dbConnection, 2, 100);
+    }
+
+    /**
+     * Teardown - Stop fan-out threads
+     */
+    @After
+    public void tearDown() {
+        roomService.shutdown();
+    }
+
+    /**
+     * Test creator is a member and others can join and leave
+     */
+    @Test
+    public void testCreateJoinLeave() {
+        long roomId = roomService.createRoom("general", "alice");
+        assertTrue("Room should be created", roomId > 0);
+        assertTrue("Creator should be a member", roomService.isMember(roomId, "alice"));
+
+        assertTrue("Bob should join", roomService.joinRoom(roomId, "bob"));
+        assertTrue("Bob should be a member", roomService.isMember(roomId, "bob"));
+
+        assertTrue("Bob should leave", roomService.leaveRoom(roomId, "bob"));
+        assertFalse("Bob should no longer be a member", roomService.isMember(roomId, "bob"));
+    }
+
+    /**
+     * Test non-members cannot send
+     */
+    @Test
+    public void testNonMemberCannotSend() {
+        long roomId = roomService.createRoom("general", "alice");
+        assertEquals("Non-member send should fail", -1, roomService.sendRoomMessage(roomId, "bob", "hi"));
+    }
+
+    /**
+     * Test a send with cached membership uses exactly one connection
+     */
+    @Test
+    public void testSendUsesSingleDatabaseWrite() {
+        long roomId = roomService.createRoom("general", "alice");
+        roomService.joinRoom(roomId, "bob");
+        roomService.joinRoom(roomId, "charlie");
+
+        int before = dbConnection.connections.get();
+        long messageId = roomService.sendRoomMessage(roomId, "alice", "Hello room");
+        assertTrue("Message should be stored", messageId > 0);
+        assertEquals("Send should use one connection", 1, dbConnection.connections.get() - before);
+    }
+
+    /**
+     * Test fan-out delivers to every other member in batches
+     */
+    @Test
+    public void testFanOutInBatches() throws Exception {
+        long roomId = roomService.createRoom("general", "alice");
+        roomService.joinRoom(roomId, "bob");
+        roomService.joinRoom(roomId, "charlie");
+        roomService.getMembers(roomId);
+
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(1);
+        roomService.addListener((message, recipients) -> {
+            batches.add(recipients);
+            delivered.countDown();
+        });
+
+        roomService.sendRoomMessage(roomId, "alice", "Hello room");
+        assertTrue("Batch should be delivered", delivered.await(2, TimeUnit.SECONDS));
+
+        assertEquals("Two recipients fit one batch of two", 1, batches.size());
+        assertEquals("Sender should be excluded", 2, batches.get(0).size());
+        assertFalse("Sender should be excluded", batches.get(0).contains("alice"));
+    }
+
+    /**
+     * Test room history returns messages oldest first
+     */
+    @Test
+    public void testRoomHistory() {
+        long roomId = roomService.createRoom("general", "alice");
+        roomService.sendRoomMessage(roomId, "alice", "first");
+        roomService.sendRoomMessage(roomId, "alice", "second");
+
+        List<Message> history = roomService.getRoomHistory(roomId, Long.MAX_VALUE, 10);
+        assertEquals("Should return both messages", 2, history.size());
+        assertEquals("Oldest first", "first", history.get(0).getContent());
+        assertEquals("Room ID should be set", roomId, history.get(1).getRoomId());
+    }
+}
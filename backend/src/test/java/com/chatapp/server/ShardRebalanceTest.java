@@ -0,0 +1,108 @@
+package com.chatapp.server;
+
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * ShardRebalanceTest - Unit tests for ShardRebalance
+ *
+ * Tests cover:
+ * - Moving the messages and inbox rows of conversations remapped by an appended shard
+ * - Merging inbox rows with the ones the new owner created after the append
+ * - A second run finding nothing to move
+ */
+public class ShardRebalanceTest {
+
+    /**
+     * Test every conversation's full history and inbox row are on its owner after a rebalance
+     */
+    @Test
+    public void testRebalanceAfterAppendingShard() throws Exception {
+        DatabaseConnection before = TestConfig.createShardedTestDatabase(2);
+        List<String> users = new ArrayList<>(List.of("alice", "bob", "charlie"));
+        for (int i = 0; i < 9; i++) {
+            String username = "user" + i;
+            try (Connection conn = before.getConnection()) {
+                PreparedStatement stmt = conn.prepareStatement("INSERT INTO users (username, password) VALUES (?, 'x')");
+                stmt.setString(1, username);
+                stmt.executeUpdate();
+            }
+            users.add(username);
+        }
+        ChatServer oldServer = new ChatServer(before);
+        Map<String, Integer> sent = new HashMap<>();
+        for (int i = 0; i + 1 < users.size(); i++) {
+            for (int n = 0; n < 3; n++) {
+                oldServer.storeMessage(users.get(i), users.get(i + 1), "m" + n);
+            }
+            sent.put(users.get(i + 1), 3);
+        }
+        List<String> shardUrls = new ArrayList<>();
+        for (DatabaseConnection shard : before.getShards()) {
+            shardUrls.add(shard.getUrl());
+        }
+        before.close();
+
+        shardUrls.add(TestConfig.createTestShard());
+        DatabaseConnection after = TestConfig.withShards(before.getUrl(), shardUrls);
+        ChatServer newServer = new ChatServer(after);
+        List<String> remapped = new ArrayList<>();
+        for (int i = 0; i + 1 < users.size(); i++) {
+            if (newServer.getConversationHistory(users.get(i), users.get(i + 1)).isEmpty()) {
+                remapped.add(users.get(i + 1));
+                newServer.storeMessage(users.get(i + 1), users.get(i), "after the append");
+                sent.merge(users.get(i + 1), 1, Integer::sum);
+            }
+        }
+        assertFalse("Some conversations map to the new shard", remapped.isEmpty());
+        assertTrue("Others stay", remapped.size() < users.size() - 1);
+
+        ShardRebalance rebalance = new ShardRebalance(after, 2, 0);
+        assertEquals(3L * remapped.size(), rebalance.run());
+        assertEquals(remapped.size(), rebalance.getMovedKeyCount());
+
+        ChatServer reader = new ChatServer(after);
+        for (int i = 0; i + 1 < users.size(); i++) {
+            String peer = users.get(i + 1);
+            assertEquals(peer, (int) sent.get(peer), reader.getConversationHistory(users.get(i), peer).size());
+            ConversationSummary summary = reader.getInbox(users.get(i), 50).stream()
+                    .filter(c -> c.getPeer().equals(peer)).findFirst().orElseThrow();
+            if (remapped.contains(peer)) {
+                assertEquals("Newest message wins", "after the append", summary.getPreview());
+                assertEquals("Unread counts added", 1, summary.getUnreadCount());
+            }
+        }
+        for (String user : users) {
+            int conversations = user.equals(users.get(0)) || user.equals(users.get(users.size() - 1)) ? 1 : 2;
+            assertEquals("One inbox row per conversation", conversations, reader.getInbox(user, 50).size());
+        }
+        long stored = 0;
+        for (DatabaseConnection shard : after.getShards()) {
+            stored += countRows(shard);
+        }
+        assertEquals("Moved, not copied", 3L * (users.size() - 1) + remapped.size(), stored);
+
+        assertEquals("Nothing left to move", 0, new ShardRebalance(after, 2, 0).run());
+        after.close();
+    }
+
+    private static long countRows(DatabaseConnection shard) throws SQLException {
+        try (Connection conn = shard.getConnection()) {
+            ResultSet rs = conn.prepareStatement("SELECT COUNT(*) FROM messages").executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.chatapp.server;
+
+import com.chatapp.auth.AuthService;
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.journal.JournalRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * ShardedChatServerTest - Unit tests for ChatServer over message shards
+ *
+ * Runs against an H2 primary holding the users and three H2 shard
+ * databases holding the messages.
+ *
+ * Tests cover:
+ * - Messages stored on the shard of their conversation only, with application-assigned IDs
+ * - History reads from a single shard
+ * - Sync, mailbox and export reads merged across shards in message ID order
+ * - Journal replay split per shard, deduplicated
+ * - Inbox rows kept on each conversation's shard and merged newest first
+ */
+public class ShardedChatServerTest {
+    private static final String[] USERS = {"alice", "bob", "charlie", "dave", "erin", "frank"};
+
+    private DatabaseConnection database;
+    private UserDictionary dictionary;
+    private ChatServer chatServer;
+
+    /**
+     * Setup - Three shards and six users
+     */
+    @Before
+    public void setUp() {
+        database = TestConfig.createShardedTestDatabase(3);
+        dictionary = new UserDictionary(database);
+        chatServer = new ChatServer(database, dictionary);
+        AuthService authService = new AuthService(database, dictionary);
+        for (String user : Arrays.asList(USERS).subList(3, USERS.length)) {
+            assertTrue(authService.registerUser(user, "pw"));
+        }
+    }
+
+    /**
+     * Teardown - Close the primary and shard pools
+     */
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    private long keyOf(String user1, String user2) {
+        return ChatServer.conversationKey(dictionary.idOf(user1), dictionary.idOf(user2));
+    }
+
+    private static List<Long> idsOn(DatabaseConnection db) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Connection conn = db.getConnection(); Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT message_id FROM messages ORDER BY message_id");
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(List<Message> messages) {
+        List<Long> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessageId());
+        }
+        return ids;
+    }
+
+    /**
+     * Test each message is stored once, on its conversation's shard, and none on the primary
+     */
+    @Test
+    public void testMessagesStoredOnTheirShard() throws SQLException {
+        List<Long> sent = new ArrayList<>();
+        for (int i = 0; i < USERS.length; i++) {
+            for (int j = i + 1; j < USERS.length; j++) {
+                long id = chatServer.storeMessage(USERS[i], USERS[j], USERS[i] + " to " + USERS[j]);
+                assertTrue(id > 0);
+                sent.add(id);
+            }
+        }
+        List<Long> sorted = new ArrayList<>(sent);
+        Collections.sort(sorted);
+        assertEquals("IDs increase across shards", sorted, sent);
+
+        Set<Long> stored = new HashSet<>();
+        int usedShards = 0;
+        for (DatabaseConnection shard : database.getShards()) {
+            List<Long> onShard = idsOn(shard);
+            usedShards += onShard.isEmpty() ? 0 : 1;
+            for (long id : onShard) {
+                assertTrue("Stored once", stored.add(id));
+            }
+        }
+        assertEquals(new HashSet<>(sent), stored);
+        assertTrue("Conversations spread over shards", usedShards > 1);
+        assertTrue("Messages are not stored on the primary", idsOn(database).isEmpty());
+
+        DatabaseConnection shard = database.shardFor(keyOf("bob", "erin"));
+        try (Connection conn = shard.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT content FROM messages WHERE conversation_key = ?");
+            stmt.setLong(1, keyOf("bob", "erin"));
+            ResultSet rs = stmt.executeQuery();
+            assertTrue(rs.next());
+            assertEquals("bob to erin", rs.getString(1));
+        }
+    }
+
+    /**
+     * Test paged history comes from the conversation's shard
+     */
+    @Test
+    public void testHistoryFromOneShard() {
+        for (int i = 0; i < 5; i++) {
+            chatServer.sendMessage("alice", "dave", "a" + i);
+            chatServer.sendMessage("bob", "erin", "b" + i);
+        }
+        List<Message> page = chatServer.getConversationHistory("dave", "alice", Long.MAX_VALUE, 3);
+        assertEquals(3, page.size());
+        assertEquals("a4", page.get(2).getContent());
+        List<Message> older = chatServer.getConversationHistory("alice", "dave", page.get(0).getMessageId(), 10);
+        assertEquals(2, older.size());
+        assertEquals("a0", older.get(0).getContent());
+        assertEquals(5, chatServer.getConversationHistory("alice", "dave").size());
+    }
+
+    /**
+     * Test sync merges every shard's messages in ID order up to the limit
+     */
+    @Test
+    public void testSyncMergesShards() {
+        List<Long> expected = new ArrayList<>();
+        for (String peer : Arrays.asList("bob", "charlie", "dave", "erin", "frank")) {
+            expected.add(chatServer.storeMessage("alice", peer, "hi " + peer));
+            expected.add(chatServer.storeMessage(peer, "alice", "hello from " + peer));
+        }
+        expected.add(chatServer.storeMessage("frank", ChatServer.BROADCAST_RECIPIENT, "all"));
+        chatServer.storeMessage("bob", "charlie", "not for alice");
+
+        assertEquals(expected, ids(chatServer.getMessagesSince("alice", 0, 100)));
+        assertEquals(expected.subList(0, 4), ids(chatServer.getMessagesSince("alice", 0, 4)));
+        assertEquals(expected.subList(6, expected.size()),
+                ids(chatServer.getMessagesSince("alice", expected.get(5), 100)));
+    }
+
+    /**
+     * Test an export streams the user's messages from every shard in ID order
+     */
+    @Test
+    public void testExportMergesShards() throws Exception {
+        List<Long> expected = new ArrayList<>();
+        for (String peer : Arrays.asList("bob", "charlie", "dave", "erin", "frank")) {
+            expected.add(chatServer.storeMessage(peer, "alice", "hello from " + peer));
+            expected.add(chatServer.storeMessage("alice", peer, "hi " + peer));
+        }
+        expected.add(chatServer.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "all"));
+        chatServer.storeMessage("frank", ChatServer.BROADCAST_RECIPIENT, "not alice's");
+        chatServer.storeMessage("bob", "charlie", "not for alice");
+
+        List<Message> exported = new ArrayList<>();
+        assertEquals(expected.size(), chatServer.exportMessages("alice", exported::add));
+        assertEquals(expected, ids(exported));
+        assertEquals(0, chatServer.exportMessages("nobody", exported::add));
+    }
+
+    /**
+     * Test the mailbox merges shards and honours the cursor on the primary
+     */
+    @Test
+    public void testMailboxMergesShards() throws SQLException {
+        long first = chatServer.storeMessage("bob", "alice", "one");
+        long second = chatServer.storeMessage("erin", "alice", "two");
+        long broadcast = chatServer.storeMessage("frank", ChatServer.BROADCAST_RECIPIENT, "three");
+        chatServer.storeMessage("alice", ChatServer.BROADCAST_RECIPIENT, "own broadcast");
+
+        assertEquals(Arrays.asList(first, second, broadcast), ids(chatServer.getMailbox("alice", 0, 10)));
+        try (Connection conn = database.getConnection()) {
+            PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO mailbox_cursors (user_id, delivered_message_id) VALUES (?, ?)");
+            stmt.setInt(1, dictionary.idOf("alice"));
+            stmt.setLong(2, first);
+            stmt.executeUpdate();
+        }
+        assertEquals(Arrays.asList(second, broadcast), ids(chatServer.getMailbox("alice", 0, 10)));
+        assertEquals(Arrays.asList(broadcast), ids(chatServer.getMailbox("alice", second, 10)));
+    }
+
+    /**
+     * Test a journal batch spanning shards is stored once, in acceptance order
+     */
+    @Test
+    public void testJournalReplayAcrossShards() throws SQLException {
+        MessageIdGenerator ids = new MessageIdGenerator(1);
+        List<JournalRecord> records = new ArrayList<>();
+        for (String peer : Arrays.asList("bob", "dave", "erin", "frank", "nobody")) {
+            records.add(new JournalRecord(ids.nextId(), System.currentTimeMillis(), "alice", peer, "to " + peer));
+        }
+        assertEquals(4, chatServer.storeJournaled(records));
+        assertEquals("Replaying again stores nothing", 0, chatServer.storeJournaled(records));
+
+        List<Message> synced = chatServer.getMessagesSince("alice", 0, 100);
+        List<String> contents = new ArrayList<>();
+        for (Message message : synced) {
+            contents.add(message.getContent());
+        }
+        assertEquals(Arrays.asList("to bob", "to dave", "to erin", "to frank"), contents);
+    }
+
+    /**
+     * Test the inbox merges conversations from every shard, most recent first
+     */
+    @Test
+    public void testInboxMergesShards() throws SQLException {
+        for (String peer : Arrays.asList("bob", "charlie", "dave", "erin", "frank")) {
+            chatServer.sendMessage(peer, "alice", "from " + peer);
+        }
+        chatServer.sendMessage("alice", "charlie", "reply");
+
+        List<String> peers = new ArrayList<>();
+        for (ConversationSummary summary : chatServer.getInbox("alice", 10)) {
+            peers.add(summary.getPeer());
+        }
+        assertEquals(Arrays.asList("charlie", "frank", "erin", "dave", "bob"), peers);
+        assertEquals(3, chatServer.getInbox("alice", 3).size());
+        assertEquals("Bob's inbox read past the cache", 1, chatServer.getInbox("bob", 200).size());
+        try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM conversations");
+            rs.next();
+            assertEquals("Rows are not kept on the primary", 0, rs.getInt(1));
+        }
+    }
+
+    /**
+     * Test merging sorted lists stops at the limit
+     */
+    @Test
+    public void testMerge() {
+        List<Message> a = Arrays.asList(message(1), message(4), message(5));
+        List<Message> b = Arrays.asList(message(2), message(3));
+        List<Message> c = Collections.emptyList();
+        Comparator<Message> byId = Comparator.comparingLong(Message::getMessageId);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), ids(ChatServer.merge(Arrays.asList(a, b, c), byId, 4)));
+        assertEquals(5, ChatServer.merge(Arrays.asList(a, b, c), byId, 10).size());
+    }
+
+    private static Message message(long id) {
+        Message message = new Message("alice", "bob", "m" + id, null);
+        message.setMessageId(id);
+        return message;
+    }
+}
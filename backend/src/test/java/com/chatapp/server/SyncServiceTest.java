@@ -0,0 +1,160 @@
+package com.chatapp.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * SyncServiceTest - Unit tests for SyncService
+ *
+ * Tests cover:
+ * - Immediate delta sync
+ * - Parking and waking on new messages
+ * - Timeouts
+ * - Querying before parking, so messages stored through other nodes are seen
+ * - Re-reading the commit window below the client's ID
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SyncServiceTest {
+    private static final long SINCE = MessageIdGenerator.maxIdAt(System.currentTimeMillis());
+    private static final long FROM = MessageIdGenerator.rewind(SINCE, MessageIdGenerator.DEFAULT_COMMIT_WINDOW_MS);
+
+    @Mock
+    private ChatServer chatServer;
+
+    private SyncService syncService;
+
+    /**
+     * Setup - SyncService over a mocked ChatServer
+     */
+    @Before
+    public void setUp() {
+        syncService = new SyncService(chatServer);
+    }
+
+    /**
+     * Teardown - Stop wake threads
+     */
+    @After
+    public void tearDown() {
+        syncService.shutdown();
+    }
+
+    private static Message message(long id, String sender, String recipient) {
+        Message message = new Message(sender, recipient, "hi", new Timestamp(System.currentTimeMillis()));
+        message.setMessageId(id);
+        return message;
+    }
+
+    /**
+     * Test pending messages are returned without waiting
+     */
+    @Test
+    public void testReturnsNewMessagesImmediately() throws Exception {
+        when(chatServer.getMessagesSince("bob", FROM, 200))
+                .thenReturn(Collections.singletonList(message(SINCE + 1, "alice", "bob")));
+
+        List<Message> result = syncService.sync("bob", SINCE, 200, 10_000).get(1, TimeUnit.SECONDS);
+
+        assertEquals("Should return one message", 1, result.size());
+        assertEquals("Should return the newer message", SINCE + 1, result.get(0).getMessageId());
+    }
+
+    /**
+     * Test a parked request completes when a message for the user is stored
+     */
+    @Test
+    public void testParkedRequestWokenByMessage() throws Exception {
+        when(chatServer.getMessagesSince("bob", FROM, 200))
+                .thenReturn(Collections.<Message>emptyList())
+                .thenReturn(Collections.singletonList(message(SINCE + 1, "alice", "bob")));
+
+        CompletableFuture<List<Message>> future = syncService.sync("bob", SINCE, 200, 10_000);
+        assertFalse("Request should be parked", future.isDone());
+        assertEquals("One waiter should be parked", 1, syncService.getWaiterCount());
+
+        syncService.onMessageStored(message(SINCE + 1, "alice", "bob"));
+
+        assertEquals("Woken request should return new message", 1, future.get(1, TimeUnit.SECONDS).size());
+    }
+
+    /**
+     * Test a parked request returns an empty list after the timeout if nothing committed meanwhile
+     */
+    @Test
+    public void testTimeoutReturnsEmpty() throws Exception {
+        when(chatServer.getMessagesSince("bob", FROM, 200)).thenReturn(Collections.<Message>emptyList());
+
+        List<Message> result = syncService.sync("bob", SINCE, 200, 50).get(1, TimeUnit.SECONDS);
+
+        assertTrue("Timed out sync should be empty", result.isEmpty());
+        assertEquals("Waiter should be removed", 0, syncService.getWaiterCount());
+    }
+
+    /**
+     * Test a re-poll queries before parking and returns a message stored through another node
+     */
+    @Test
+    public void testRepollSeesMessagesFromOtherNodes() throws Exception {
+        when(chatServer.getMessagesSince("bob", FROM, 200))
+                .thenReturn(Collections.<Message>emptyList())
+                .thenReturn(Collections.<Message>emptyList())
+                .thenReturn(Collections.singletonList(message(SINCE + 1, "alice", "bob")));
+
+        assertTrue(syncService.sync("bob", SINCE, 200, 20).get(1, TimeUnit.SECONDS).isEmpty());
+        // No event on this node for the new message
+        CompletableFuture<List<Message>> repoll = syncService.sync("bob", SINCE, 200, 10_000);
+
+        assertTrue("Returned by the query before parking", repoll.isDone());
+        assertEquals(SINCE + 1, repoll.get().get(0).getMessageId());
+        assertEquals(0, syncService.getWaiterCount());
+        verify(chatServer, times(3)).getMessagesSince(eq("bob"), anyLong(), anyInt());
+    }
+
+    /**
+     * Test a message that committed late under a lower ID parks the request and comes back on timeout
+     */
+    @Test
+    public void testLateCommitReturnedOnTimeout() throws Exception {
+        when(chatServer.getMessagesSince("bob", FROM, 200))
+                .thenReturn(Collections.singletonList(message(SINCE - 1, "charlie", "bob")));
+
+        CompletableFuture<List<Message>> future = syncService.sync("bob", SINCE, 200, 50);
+        assertFalse("Nothing newer than since, so the request parks", future.isDone());
+
+        List<Message> result = future.get(1, TimeUnit.SECONDS);
+        assertEquals(1, result.size());
+        assertEquals(SINCE - 1, result.get(0).getMessageId());
+    }
+
+    /**
+     * Test a commit window filling the whole page is skipped so the client moves forward
+     */
+    @Test
+    public void testFullWindowSkipped() throws Exception {
+        when(chatServer.getMessagesSince("bob", FROM, 2))
+                .thenReturn(List.of(message(SINCE - 2, "alice", "bob"), message(SINCE - 1, "alice", "bob")));
+        when(chatServer.getMessagesSince("bob", SINCE, 2))
+                .thenReturn(Collections.singletonList(message(SINCE + 1, "alice", "bob")));
+
+        List<Message> result = syncService.sync("bob", SINCE, 2, 10_000).get(1, TimeUnit.SECONDS);
+
+        assertEquals(1, result.size());
+        assertEquals(SINCE + 1, result.get(0).getMessageId());
+    }
+}
@@ -0,0 +1,157 @@
+package com.chatapp.tracing;
+
+import com.chatapp.auth.AuthService;
+import com.chatapp.auth.UserDictionary;
+import com.chatapp.config.TestConfig;
+import com.chatapp.database.DatabaseConnection;
+import com.chatapp.server.ChatServer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * TracerTest - Unit tests for Tracer and TailSampler
+ *
+ * Tests cover:
+ * - No-op spans without an installed tracer or a current trace
+ * - Span nesting and trace completion when the root closes
+ * - Tail sampling of slow, failed and ordinary traces
+ * - The span cap per trace
+ * - Service and JDBC spans recorded for a traced send
+ */
+public class TracerTest {
+    private final List<Trace> reported = new ArrayList<>();
+
+    /**
+     * Teardown - Uninstall the tracer and unbind any trace
+     */
+    @After
+    public void tearDown() {
+        Tracer.install(null);
+        Tracer.clear();
+    }
+
+    private void install(long slowMs, double sampleRate) {
+        Tracer.install(new Tracer(new TailSampler(slowMs, sampleRate), reported::add));
+    }
+
+    private static List<String> names(Trace trace) {
+        return trace.getSpans().stream().map(Span::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testNoopWithoutTracer() {
+        Span root = Tracer.startTrace("GET /api/health");
+        assertFalse(root.isRecording());
+        assertFalse(Tracer.isActive());
+
+        install(0, 1.0);
+        Span span = Tracer.span("outside");
+        assertFalse("Spans need a trace on the thread", span.isRecording());
+        span.tag("key", "value").close();
+        assertTrue(reported.isEmpty());
+    }
+
+    @Test
+    public void testSpansNestAndRootFinishesTrace() {
+        install(0, 0);
+        Span root = Tracer.startTrace("POST /api/chat/send");
+        String traceId = Tracer.currentTraceId();
+        try (Span handler = Tracer.span("ChatController.sendMessage")) {
+            try (Span store = Tracer.span("ChatServer.storeMessage")) {
+                store.tag("journaled", "false");
+            }
+            try (Span notify = Tracer.span("ChatServer.notifyListeners")) {
+                assertTrue(notify.isRecording());
+            }
+        }
+        assertTrue(reported.isEmpty());
+        root.close();
+
+        assertFalse("Closing the root unbinds the trace", Tracer.isActive());
+        assertEquals(1, reported.size());
+        Trace trace = reported.get(0);
+        assertEquals(32, traceId.length());
+        assertEquals(traceId, trace.getTraceId());
+        assertEquals(List.of("POST /api/chat/send", "ChatController.sendMessage",
+                "ChatServer.storeMessage", "ChatServer.notifyListeners"), names(trace));
+        List<Span> spans = trace.getSpans();
+        assertNull(spans.get(0).getParent());
+        assertSame(spans.get(0), spans.get(1).getParent());
+        assertSame(spans.get(1), spans.get(2).getParent());
+        assertSame("Siblings share a parent", spans.get(1), spans.get(3).getParent());
+        assertEquals("false", spans.get(2).getTags().get("journaled"));
+        assertTrue(trace.getDurationMicros() >= 0);
+    }
+
+    @Test
+    public void testTailSamplingKeepsSlowAndFailedTraces() throws InterruptedException {
+        install(20, 0);
+        TailSampler sampler = Tracer.getInstalled().getSampler();
+
+        Tracer.startTrace("fast").close();
+        assertTrue("Fast traces are dropped at rate 0", reported.isEmpty());
+
+        Span slow = Tracer.startTrace("slow");
+        Thread.sleep(25);
+        slow.close();
+        assertEquals(1, reported.size());
+
+        Span failed = Tracer.startTrace("failed");
+        Tracer.span("jdbc.executeUpdate").error(new IllegalStateException("boom")).close();
+        failed.close();
+        assertEquals(2, reported.size());
+        assertTrue(reported.get(1).isError());
+        assertEquals(2, sampler.getKeptCount());
+        assertEquals(1, sampler.getDroppedCount());
+    }
+
+    @Test
+    public void testSpanCap() {
+        install(0, 1.0);
+        Span root = Tracer.startTrace("loop");
+        for (int i = 0; i < Trace.MAX_SPANS + 10; i++) {
+            Tracer.span("step").close();
+        }
+        root.close();
+        Trace trace = reported.get(0);
+        assertEquals(Trace.MAX_SPANS, trace.getSpans().size());
+        assertEquals(11, trace.getDroppedSpans());
+    }
+
+    @Test
+    public void testTracedSendRecordsServiceAndJdbcSpans() {
+        DatabaseConnection db = TestConfig.createTestDatabase();
+        UserDictionary dictionary = new UserDictionary(db);
+        AuthService authService = new AuthService(db, dictionary);
+        ChatServer chatServer = new ChatServer(db, dictionary);
+        authService.registerUser("alice", "pw");
+        authService.registerUser("bob", "pw");
+
+        install(0, 1.0);
+        Span root = Tracer.startTrace("POST /api/chat/send");
+        authService.isLoggedIn("alice");
+        assertTrue(chatServer.sendMessage("alice", "bob", "hello"));
+        root.close();
+
+        Trace trace = reported.get(0);
+        List<String> names = names(trace);
+        assertTrue(names.toString(), names.contains("AuthService.isLoggedIn"));
+        assertTrue(names.toString(), names.contains("ChatServer.storeMessage"));
+        assertTrue(names.toString(), names.contains("jdbc.acquire"));
+        assertTrue(names.toString(), names.contains("ChatServer.notifyListeners"));
+        Span insert = trace.getSpans().stream()
+                .filter(span -> span.getName().equals("jdbc.executeUpdate")).findFirst().orElse(null);
+        assertNotNull(names.toString(), insert);
+        assertEquals(Span.KIND_CLIENT, insert.getKind());
+        assertTrue(insert.getTags().get("db.statement").startsWith("INSERT INTO messages"));
+        assertEquals("ChatServer.storeMessage", insert.getParent().getName());
+        assertFalse("Bind values are not recorded", insert.getTags().toString().contains("hello"));
+        db.close();
+    }
+}
@@ -0,0 +1,105 @@
+package com.chatapp.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ZipkinFileReporterTest - Unit tests for ZipkinFileReporter
+ *
+ * Tests cover:
+ * - Zipkin v2 JSON encoding of a trace, one array per line
+ * - Size-based rotation keeping a bounded number of files
+ */
+public class ZipkinFileReporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Teardown - Uninstall the tracer
+     */
+    @After
+    public void tearDown() {
+        Tracer.install(null);
+        Tracer.clear();
+    }
+
+    private static void trace(String name) {
+        Span root = Tracer.startTrace(name);
+        root.tag("http.method", "POST");
+        try (Span span = Tracer.clientSpan("jdbc.executeUpdate")) {
+            span.tag("db.statement", "INSERT INTO messages (sender_id) VALUES (?)");
+        }
+        root.close();
+    }
+
+    @Test
+    public void testWritesZipkinV2Json() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("traces/traces.json");
+        ZipkinFileReporter reporter = new ZipkinFileReporter(file, "chatapp");
+        Tracer.install(new Tracer(new TailSampler(0, 1.0), reporter));
+        trace("POST /api/chat/send");
+        trace("GET /api/chat/history");
+        reporter.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        JsonNode spans = mapper.readTree(lines.get(0));
+        assertTrue(spans.isArray());
+        assertEquals(2, spans.size());
+
+        JsonNode root = spans.get(0);
+        JsonNode child = spans.get(1);
+        assertTrue(root.get("traceId").asText().matches("[0-9a-f]{32}"));
+        assertTrue(root.get("id").asText().matches("[0-9a-f]{16}"));
+        assertEquals("POST /api/chat/send", root.get("name").asText());
+        assertEquals("SERVER", root.get("kind").asText());
+        assertNull(root.get("parentId"));
+        assertEquals("chatapp", root.get("localEndpoint").get("serviceName").asText());
+        assertEquals("POST", root.get("tags").get("http.method").asText());
+        assertTrue(root.get("duration").asLong() >= 1);
+        long nowMicros = System.currentTimeMillis() * 1_000;
+        assertTrue(Math.abs(nowMicros - root.get("timestamp").asLong()) < 60_000_000L);
+
+        assertEquals(root.get("traceId").asText(), child.get("traceId").asText());
+        assertEquals(root.get("id").asText(), child.get("parentId").asText());
+        assertEquals("CLIENT", child.get("kind").asText());
+        assertEquals("INSERT INTO messages (sender_id) VALUES (?)", child.get("tags").get("db.statement").asText());
+        assertEquals(2, reporter.getWrittenCount());
+    }
+
+    @Test
+    public void testRotatesBySize() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("traces.json");
+        ZipkinFileReporter reporter = new ZipkinFileReporter(file, "chatapp", 1_000, 2);
+        Tracer.install(new Tracer(new TailSampler(0, 1.0), reporter));
+        for (int i = 0; i < 20; i++) {
+            trace("POST /api/chat/send");
+        }
+        reporter.close();
+
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(file.resolveSibling("traces.json.1")));
+        assertTrue(Files.exists(file.resolveSibling("traces.json.2")));
+        assertFalse("Only maxFiles rotated files are kept", Files.exists(file.resolveSibling("traces.json.3")));
+        for (String name : new String[] {"traces.json", "traces.json.1", "traces.json.2"}) {
+            Path rotated = file.resolveSibling(name);
+            assertTrue(name + " exceeds the limit", Files.size(rotated) <= 1_000);
+            for (String line : Files.readAllLines(rotated)) {
+                assertTrue(mapper.readTree(line).isArray());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+-- Chat Application Test Schema
+-- H2 (PostgreSQL mode) equivalent of database/schema.sql, loaded by TestConfig
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id SERIAL PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    email VARCHAR(100) UNIQUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    is_active BOOLEAN DEFAULT TRUE
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    message_id BIGINT PRIMARY KEY,
+    sender_id INT NOT NULL,
+    recipient_id INT,
+    content TEXT NOT NULL,
+    sent_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    is_read BOOLEAN DEFAULT FALSE,
+    conversation_key BIGINT NOT NULL,
+    FOREIGN KEY (sender_id) REFERENCES users(user_id),
+    FOREIGN KEY (recipient_id) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS sessions (
+    session_id SERIAL PRIMARY KEY,
+    user_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS revoked_sessions (
+    revocation_id BIGSERIAL PRIMARY KEY,
+    token_id VARCHAR(32) NOT NULL,
+    expires_at BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS mailbox_cursors (
+    user_id INT PRIMARY KEY,
+    delivered_message_id BIGINT NOT NULL DEFAULT 0,
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS rooms (
+    room_id SERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    created_by INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (created_by) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS room_members (
+    room_id INT NOT NULL,
+    user_id INT NOT NULL,
+    joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (room_id, user_id),
+    FOREIGN KEY (room_id) REFERENCES rooms(room_id),
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS room_messages (
+    message_id SERIAL PRIMARY KEY,
+    room_id INT NOT NULL,
+    sender_id INT NOT NULL,
+    content TEXT NOT NULL,
+    sent_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (room_id) REFERENCES rooms(room_id),
+    FOREIGN KEY (sender_id) REFERENCES users(user_id)
+);
+
+CREATE TABLE IF NOT EXISTS conversations (
+    user_id INT NOT NULL,
+    peer_id INT NOT NULL,
+    conversation_key BIGINT NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    last_sender_id INT NOT NULL,
+    preview VARCHAR(100) NOT NULL,
+    last_sent_at TIMESTAMP NOT NULL,
+    unread_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, peer_id)
+);
+
+CREATE TABLE IF NOT EXISTS message_reactions (
+    message_id BIGINT NOT NULL,
+    emoji VARCHAR(32) NOT NULL,
+    reaction_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (message_id, emoji)
+);
+
+CREATE TABLE IF NOT EXISTS message_reaction_users (
+    message_id BIGINT NOT NULL,
+    user_id INT NOT NULL,
+    emoji VARCHAR(32) NOT NULL,
+    PRIMARY KEY (message_id, user_id, emoji)
+);
+
+CREATE TABLE IF NOT EXISTS journaled_messages (
+    accepted_id BIGINT PRIMARY KEY,
+    message_id BIGINT NOT NULL,
+    replayed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_messages_sender_id ON messages(sender_id, message_id);
+CREATE INDEX IF NOT EXISTS idx_messages_recipient_id ON messages(recipient_id, message_id);
+CREATE INDEX IF NOT EXISTS idx_messages_conversation ON messages(conversation_key, message_id);
+CREATE INDEX IF NOT EXISTS idx_messages_sent_at ON messages(sent_at);
+CREATE INDEX IF NOT EXISTS idx_conversations_recent ON conversations(user_id, last_message_id DESC);
+CREATE INDEX IF NOT EXISTS idx_sessions_user_id ON sessions(user_id);
+CREATE INDEX IF NOT EXISTS idx_revoked_sessions_expires_at ON revoked_sessions(expires_at);
+CREATE INDEX IF NOT EXISTS idx_room_members_user_id ON room_members(user_id);
+CREATE INDEX IF NOT EXISTS idx_room_messages_room_id ON room_messages(room_id, message_id);
+
+INSERT INTO users (username, password, email) VALUES
+('alice', 'password123', 'alice@example.com'),
+('bob', 'password123', 'bob@example.com'),
+('charlie', 'password123', 'charlie@example.com');
@@ -0,0 +1,59 @@
+-- Migration 001: reference users by user_id instead of username
+-- PostgreSQL. Brings a database created from an older schema.sql in line
+-- with the current one. Runs in one transaction; on large messages tables
+-- schedule it in a maintenance window, since the UPDATEs rewrite every row.
+
+BEGIN;
+
+-- messages: sender/recipient -> sender_id/recipient_id (NULL = broadcast)
+ALTER TABLE messages ADD COLUMN sender_id INT;
+ALTER TABLE messages ADD COLUMN recipient_id INT;
+UPDATE messages m SET sender_id = u.user_id FROM users u WHERE u.username = m.sender;
+UPDATE messages m SET recipient_id = u.user_id FROM users u WHERE u.username = m.recipient;
+ALTER TABLE messages ALTER COLUMN sender_id SET NOT NULL;
+ALTER TABLE messages ADD FOREIGN KEY (sender_id) REFERENCES users(user_id);
+ALTER TABLE messages ADD FOREIGN KEY (recipient_id) REFERENCES users(user_id);
+DROP INDEX IF EXISTS idx_messages_sender_id;
+DROP INDEX IF EXISTS idx_messages_recipient_id;
+ALTER TABLE messages DROP COLUMN sender;
+ALTER TABLE messages DROP COLUMN recipient;
+CREATE INDEX idx_messages_sender_id ON messages(sender_id, message_id);
+CREATE INDEX idx_messages_recipient_id ON messages(recipient_id, message_id);
+
+-- sessions: username -> user_id
+ALTER TABLE sessions ADD COLUMN user_id INT;
+UPDATE sessions s SET user_id = u.user_id FROM users u WHERE u.username = s.username;
+DELETE FROM sessions WHERE user_id IS NULL;
+ALTER TABLE sessions ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE sessions ADD FOREIGN KEY (user_id) REFERENCES users(user_id);
+DROP INDEX IF EXISTS idx_sessions_username;
+ALTER TABLE sessions DROP COLUMN username;
+CREATE INDEX idx_sessions_user_id ON sessions(user_id);
+
+-- rooms: created_by username -> user_id
+ALTER TABLE rooms ADD COLUMN created_by_id INT;
+UPDATE rooms r SET created_by_id = u.user_id FROM users u WHERE u.username = r.created_by;
+ALTER TABLE rooms DROP COLUMN created_by;
+ALTER TABLE rooms RENAME COLUMN created_by_id TO created_by;
+ALTER TABLE rooms ALTER COLUMN created_by SET NOT NULL;
+ALTER TABLE rooms ADD FOREIGN KEY (created_by) REFERENCES users(user_id);
+
+-- room_members: username -> user_id (part of the primary key)
+ALTER TABLE room_members ADD COLUMN user_id INT;
+UPDATE room_members m SET user_id = u.user_id FROM users u WHERE u.username = m.username;
+ALTER TABLE room_members DROP CONSTRAINT room_members_pkey;
+DROP INDEX IF EXISTS idx_room_members_username;
+ALTER TABLE room_members DROP COLUMN username;
+ALTER TABLE room_members ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE room_members ADD PRIMARY KEY (room_id, user_id);
+ALTER TABLE room_members ADD FOREIGN KEY (user_id) REFERENCES users(user_id);
+CREATE INDEX idx_room_members_user_id ON room_members(user_id);
+
+-- room_messages: sender -> sender_id
+ALTER TABLE room_messages ADD COLUMN sender_id INT;
+UPDATE room_messages m SET sender_id = u.user_id FROM users u WHERE u.username = m.sender;
+ALTER TABLE room_messages ALTER COLUMN sender_id SET NOT NULL;
+ALTER TABLE room_messages ADD FOREIGN KEY (sender_id) REFERENCES users(user_id);
+ALTER TABLE room_messages DROP COLUMN sender;
+
+COMMIT;
@@ -0,0 +1,19 @@
+-- Migration 002: conversation_key and its covering index (online)
+-- PostgreSQL 11+. Run outside a transaction block: CREATE INDEX
+-- CONCURRENTLY cannot run inside one. Neither statement blocks writes.
+--
+-- Rollout:
+--   1. Apply this file.
+--   2. Deploy the application version that writes conversation_key.
+--   3. Backfill older rows in batches while serving traffic:
+--        mvn compile exec:java -Dexec.mainClass=com.chatapp.database.ConversationKeyBackfill
+--   4. Apply 003_conversation_key_not_null.sql.
+--
+-- Until step 3 finishes, history reads do not return rows that have no key
+-- yet. The backfill runs newest first, so recent history comes back first.
+
+-- Nullable with no default: a catalog-only change, no table rewrite
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS conversation_key BIGINT;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_conversation ON messages(conversation_key, message_id)
+    INCLUDE (sender_id, recipient_id, sent_at, is_read);
@@ -0,0 +1,10 @@
+-- Migration 003: enforce conversation_key once the backfill has finished
+-- PostgreSQL 12+. The CHECK constraint is added NOT VALID (instant) and
+-- validated without blocking writes; SET NOT NULL then reuses it instead
+-- of scanning the table under an exclusive lock.
+
+ALTER TABLE messages ADD CONSTRAINT messages_conversation_key_not_null
+    CHECK (conversation_key IS NOT NULL) NOT VALID;
+ALTER TABLE messages VALIDATE CONSTRAINT messages_conversation_key_not_null;
+ALTER TABLE messages ALTER COLUMN conversation_key SET NOT NULL;
+ALTER TABLE messages DROP CONSTRAINT messages_conversation_key_not_null;
@@ -0,0 +1,11 @@
+-- Migration 004: journal_key for deduplicating message journal replays (online)
+-- PostgreSQL 11+. Run outside a transaction block: CREATE INDEX
+-- CONCURRENTLY cannot run inside one. Apply before deploying the
+-- application version that writes journal_key.
+
+-- Nullable with no default: a catalog-only change, no table rewrite
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS journal_key BIGINT;
+
+-- Partial: only replayed rows carry a key, so the index stays tiny
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_journal_key ON messages(journal_key)
+    WHERE journal_key IS NOT NULL;
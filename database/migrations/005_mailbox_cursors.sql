@@ -0,0 +1,15 @@
+-- Migration 005: per-user mailbox cursors for offline delivery
+-- Apply before deploying the application version with MailboxService.
+--
+-- Existing users start at the newest message, so the first login after the
+-- upgrade does not push their whole history as undelivered.
+
+CREATE TABLE IF NOT EXISTS mailbox_cursors (
+    user_id INT PRIMARY KEY,
+    delivered_message_id BIGINT NOT NULL DEFAULT 0,
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+INSERT INTO mailbox_cursors (user_id, delivered_message_id)
+SELECT user_id, (SELECT COALESCE(MAX(message_id), 0) FROM messages) FROM users
+ON CONFLICT (user_id) DO NOTHING;
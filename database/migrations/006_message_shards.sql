@@ -0,0 +1,18 @@
+-- Migration 006: message ID sequence for sharded message storage
+-- Apply on the primary before setting chatapp.db.shards. Each shard gets
+-- its messages table from shard_schema.sql.
+--
+-- With shards, message IDs come from message_id_seq instead of the
+-- messages table's own serial column. The sequence starts past every
+-- existing message so IDs keep increasing across the switch.
+--
+-- Existing conversations are not moved: a conversation whose shard (per
+-- the consistent-hash ring) is not the primary starts a new history on
+-- its shard. List the primary's own URL first in chatapp.db.shards to
+-- keep the conversations that hash to it readable.
+
+CREATE SEQUENCE IF NOT EXISTS message_id_seq AS BIGINT;
+
+SELECT setval('message_id_seq', GREATEST(
+    (SELECT COALESCE(MAX(message_id), 0) FROM messages),
+    (SELECT last_value FROM message_id_seq)) + 1, false);
@@ -0,0 +1,32 @@
+-- Migration 007: conversations summary table for the inbox
+-- Apply before deploying the application version with GET /api/chat/inbox.
+-- With message shards, apply on every shard instead (rows live with
+-- their conversation's messages).
+--
+-- The backfill reads every direct message once. Existing messages are
+-- treated as read, so every backfilled row starts with unread_count 0.
+
+CREATE TABLE IF NOT EXISTS conversations (
+    user_id INT NOT NULL,
+    peer_id INT NOT NULL,
+    conversation_key BIGINT NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    last_sender_id INT NOT NULL,
+    preview VARCHAR(100) NOT NULL,
+    last_sent_at TIMESTAMP NOT NULL,
+    unread_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, peer_id)
+);
+
+INSERT INTO conversations (user_id, peer_id, conversation_key, last_message_id, last_sender_id,
+                           preview, last_sent_at, unread_count)
+SELECT DISTINCT ON (side.user_id, side.peer_id)
+       side.user_id, side.peer_id, m.conversation_key, m.message_id, m.sender_id,
+       LEFT(m.content, 100), COALESCE(m.sent_at, CURRENT_TIMESTAMP), 0
+FROM messages m
+CROSS JOIN LATERAL (VALUES (m.sender_id, m.recipient_id), (m.recipient_id, m.sender_id)) AS side(user_id, peer_id)
+WHERE m.recipient_id IS NOT NULL
+ORDER BY side.user_id, side.peer_id, m.message_id DESC
+ON CONFLICT (user_id, peer_id) DO NOTHING;
+
+CREATE INDEX IF NOT EXISTS idx_conversations_recent ON conversations(user_id, last_message_id DESC);
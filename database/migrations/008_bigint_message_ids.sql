@@ -0,0 +1,17 @@
+-- Migration 008: 64-bit message IDs assigned by the application
+-- Apply on the primary before deploying the application version that
+-- assigns message IDs; shards created from shard_schema.sql already use
+-- BIGINT.
+--
+-- Rollout:
+--   1. Apply this file. Older nodes keep inserting through the serial
+--      default, which stays in place.
+--   2. Drain every node's message journal (journalPending 0 on /api/ready),
+--      then deploy the new version. Its IDs start far above any serial
+--      value, so sync and mailbox cursors keep advancing across the switch.
+--   3. Apply 009_drop_message_id_defaults.sql.
+--
+-- Widening the column rewrites the table and its indexes under an
+-- exclusive lock; on a large table run it in a maintenance window.
+
+ALTER TABLE messages ALTER COLUMN message_id TYPE BIGINT;
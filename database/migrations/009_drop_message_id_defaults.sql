@@ -0,0 +1,10 @@
+-- Migration 009: retire database-generated message IDs and journal keys
+-- Apply once every node assigns message IDs itself (see 008). Journal
+-- replays are now deduplicated by message_id. With message shards, apply
+-- it on every shard as well.
+
+ALTER TABLE messages ALTER COLUMN message_id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS messages_message_id_seq;
+DROP SEQUENCE IF EXISTS message_id_seq;
+DROP INDEX IF EXISTS idx_messages_journal_key;
+ALTER TABLE messages DROP COLUMN IF EXISTS journal_key;
@@ -0,0 +1,13 @@
+-- Migration 010: revocation list for signed session tokens
+-- Apply before deploying the application version that issues session
+-- tokens at login. Logouts add a row; every node polls for rows with a
+-- higher revocation_id and rejects those tokens until they expire.
+-- Rows of expired tokens are deleted by the application.
+
+CREATE TABLE IF NOT EXISTS revoked_sessions (
+    revocation_id BIGSERIAL PRIMARY KEY,
+    token_id VARCHAR(32) NOT NULL,
+    expires_at BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_sessions_expires_at ON revoked_sessions(expires_at);
@@ -0,0 +1,19 @@
+-- Migration 011: emoji reactions on messages
+-- Apply before deploying the application version with reactions. Nodes
+-- count reactions in memory and add their deltas to message_reactions in
+-- batches; message_reaction_users records who reacted with which emoji.
+-- Both tables live on the primary, also when messages are sharded.
+
+CREATE TABLE IF NOT EXISTS message_reactions (
+    message_id BIGINT NOT NULL,
+    emoji VARCHAR(32) NOT NULL,
+    reaction_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (message_id, emoji)
+);
+
+CREATE TABLE IF NOT EXISTS message_reaction_users (
+    message_id BIGINT NOT NULL,
+    user_id INT NOT NULL,
+    emoji VARCHAR(32) NOT NULL,
+    PRIMARY KEY (message_id, user_id, emoji)
+);
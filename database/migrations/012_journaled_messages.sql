@@ -0,0 +1,13 @@
+-- Migration 012: accepted IDs of replayed journal records
+-- Apply on the primary and on every shard before deploying the application
+-- version that assigns a new message ID when it replays the journal. A
+-- journaled send keeps the ID it was acknowledged with only as a key in
+-- this table, written in the same transaction as the message, so a record
+-- replayed twice is stored once. Rows are only needed while a node's
+-- journal may still hold the record; ones older than a day can be deleted.
+
+CREATE TABLE IF NOT EXISTS journaled_messages (
+    accepted_id BIGINT PRIMARY KEY,
+    message_id BIGINT NOT NULL,
+    replayed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -13,32 +13,134 @@ CREATE TABLE IF NOT EXISTS users (
 );
 
 -- Create messages table
+-- Users are referenced by user_id; a NULL recipient_id is a broadcast
+-- conversation_key is the ordered user pair (smaller_id << 32) | larger_id,
+-- or sender_id for a broadcast; set by the application on insert
+-- message_id is assigned by the application (time, node and sequence bits),
+-- so it is unique across nodes and shards and ordered by send time
 CREATE TABLE IF NOT EXISTS messages (
-    message_id SERIAL PRIMARY KEY,
-    sender VARCHAR(50) NOT NULL,
-    recipient VARCHAR(50) NOT NULL,
+    message_id BIGINT PRIMARY KEY,
+    sender_id INT NOT NULL,
+    recipient_id INT,
     content TEXT NOT NULL,
     sent_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     is_read BOOLEAN DEFAULT FALSE,
-    FOREIGN KEY (sender) REFERENCES users(username),
-    FOREIGN KEY (recipient) REFERENCES users(username)
+    conversation_key BIGINT NOT NULL,
+    FOREIGN KEY (sender_id) REFERENCES users(user_id),
+    FOREIGN KEY (recipient_id) REFERENCES users(user_id)
+);
+
+-- Create conversations table: one row per user and direct-message peer,
+-- upserted in the same transaction as each message insert; an inbox page
+-- is one range scan of idx_conversations_recent
+CREATE TABLE IF NOT EXISTS conversations (
+    user_id INT NOT NULL,
+    peer_id INT NOT NULL,
+    conversation_key BIGINT NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    last_sender_id INT NOT NULL,
+    preview VARCHAR(100) NOT NULL,
+    last_sent_at TIMESTAMP NOT NULL,
+    unread_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, peer_id)
+);
+
+-- Create journaled messages table: the ID a send was acknowledged with
+-- while the database was unreachable, and the ID it was stored under
+CREATE TABLE IF NOT EXISTS journaled_messages (
+    accepted_id BIGINT PRIMARY KEY,
+    message_id BIGINT NOT NULL,
+    replayed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
 -- Create sessions table (for managing active sessions)
 CREATE TABLE IF NOT EXISTS sessions (
     session_id SERIAL PRIMARY KEY,
-    username VARCHAR(50) NOT NULL,
+    user_id INT NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     expires_at TIMESTAMP,
-    FOREIGN KEY (username) REFERENCES users(username)
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+-- Revoked session tokens, polled by every node; expires_at is epoch milliseconds
+CREATE TABLE IF NOT EXISTS revoked_sessions (
+    revocation_id BIGSERIAL PRIMARY KEY,
+    token_id VARCHAR(32) NOT NULL,
+    expires_at BIGINT NOT NULL
+);
+
+-- Reaction counts per message and emoji, kept on the primary; each node adds
+-- its batched deltas. message_reaction_users holds who reacted, one row per
+-- user and emoji, so a user reacts at most once with each emoji
+CREATE TABLE IF NOT EXISTS message_reactions (
+    message_id BIGINT NOT NULL,
+    emoji VARCHAR(32) NOT NULL,
+    reaction_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (message_id, emoji)
+);
+
+CREATE TABLE IF NOT EXISTS message_reaction_users (
+    message_id BIGINT NOT NULL,
+    user_id INT NOT NULL,
+    emoji VARCHAR(32) NOT NULL,
+    PRIMARY KEY (message_id, user_id, emoji)
+);
+
+-- Create mailbox cursor table: newest message_id pushed to each user;
+-- messages past it are waiting for the user's next login or connect
+CREATE TABLE IF NOT EXISTS mailbox_cursors (
+    user_id INT PRIMARY KEY,
+    delivered_message_id BIGINT NOT NULL DEFAULT 0,
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+-- Create rooms table (group conversations)
+CREATE TABLE IF NOT EXISTS rooms (
+    room_id SERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    created_by INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (created_by) REFERENCES users(user_id)
+);
+
+-- Create room membership table
+CREATE TABLE IF NOT EXISTS room_members (
+    room_id INT NOT NULL,
+    user_id INT NOT NULL,
+    joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (room_id, user_id),
+    FOREIGN KEY (room_id) REFERENCES rooms(room_id),
+    FOREIGN KEY (user_id) REFERENCES users(user_id)
+);
+
+-- Create room messages table (one row per message, regardless of member count)
+CREATE TABLE IF NOT EXISTS room_messages (
+    message_id SERIAL PRIMARY KEY,
+    room_id INT NOT NULL,
+    sender_id INT NOT NULL,
+    content TEXT NOT NULL,
+    sent_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (room_id) REFERENCES rooms(room_id),
+    FOREIGN KEY (sender_id) REFERENCES users(user_id)
 );
 
 -- Create indexes for better performance
-CREATE INDEX IF NOT EXISTS idx_messages_sender ON messages(sender);
-CREATE INDEX IF NOT EXISTS idx_messages_recipient ON messages(recipient);
+-- (sender_id|recipient_id, message_id) also serve plain sender/recipient
+-- lookups and give delta sync (message_id > ?) a range scan per user;
+-- recipient_id IS NULL (broadcasts) uses the recipient index as well
+CREATE INDEX IF NOT EXISTS idx_messages_sender_id ON messages(sender_id, message_id);
+CREATE INDEX IF NOT EXISTS idx_messages_recipient_id ON messages(recipient_id, message_id);
+-- History reads are one range scan in message_id order; content is left out
+-- of INCLUDE since a btree entry is capped at ~2.7 kB
+CREATE INDEX IF NOT EXISTS idx_messages_conversation ON messages(conversation_key, message_id)
+    INCLUDE (sender_id, recipient_id, sent_at, is_read);
 CREATE INDEX IF NOT EXISTS idx_messages_sent_at ON messages(sent_at);
+CREATE INDEX IF NOT EXISTS idx_conversations_recent ON conversations(user_id, last_message_id DESC);
 CREATE INDEX IF NOT EXISTS idx_users_username ON users(username);
-CREATE INDEX IF NOT EXISTS idx_sessions_username ON sessions(username);
+CREATE INDEX IF NOT EXISTS idx_sessions_user_id ON sessions(user_id);
+CREATE INDEX IF NOT EXISTS idx_revoked_sessions_expires_at ON revoked_sessions(expires_at);
+CREATE INDEX IF NOT EXISTS idx_room_members_user_id ON room_members(user_id);
+CREATE INDEX IF NOT EXISTS idx_room_messages_room_id ON room_messages(room_id, message_id);
 
 -- Insert sample users for testing (passwords should be hashed in production)
 INSERT INTO users (username, password, email) VALUES 
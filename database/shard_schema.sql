@@ -0,0 +1,44 @@
+-- Chat Application Message Shard Schema
+-- PostgreSQL SQL Script
+-- Run on each database listed in chatapp.db.shards (except the primary,
+-- which already has these tables from schema.sql). Users stay on the
+-- primary, so sender_id and recipient_id have no foreign keys here.
+-- message_id is assigned by the application, so it is unique and
+-- ordered across shards.
+
+CREATE TABLE IF NOT EXISTS messages (
+    message_id BIGINT PRIMARY KEY,
+    sender_id INT NOT NULL,
+    recipient_id INT,
+    content TEXT NOT NULL,
+    sent_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    is_read BOOLEAN DEFAULT FALSE,
+    conversation_key BIGINT NOT NULL
+);
+
+-- Conversations rows live with their conversation's messages
+CREATE TABLE IF NOT EXISTS conversations (
+    user_id INT NOT NULL,
+    peer_id INT NOT NULL,
+    conversation_key BIGINT NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    last_sender_id INT NOT NULL,
+    preview VARCHAR(100) NOT NULL,
+    last_sent_at TIMESTAMP NOT NULL,
+    unread_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, peer_id)
+);
+
+-- Accepted IDs of replayed journal records, for deduplicating replays
+CREATE TABLE IF NOT EXISTS journaled_messages (
+    accepted_id BIGINT PRIMARY KEY,
+    message_id BIGINT NOT NULL,
+    replayed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_messages_sender_id ON messages(sender_id, message_id);
+CREATE INDEX IF NOT EXISTS idx_messages_recipient_id ON messages(recipient_id, message_id);
+CREATE INDEX IF NOT EXISTS idx_messages_conversation ON messages(conversation_key, message_id)
+    INCLUDE (sender_id, recipient_id, sent_at, is_read);
+CREATE INDEX IF NOT EXISTS idx_messages_sent_at ON messages(sent_at);
+CREATE INDEX IF NOT EXISTS idx_conversations_recent ON conversations(user_id, last_message_id DESC);
@@ -5,6 +5,7 @@
 
 const API_BASE_URL = 'http://localhost:8080/api';
 let currentUser = null;
+let sessionToken = null;
 
 /**
  * Initialize event listeners on page load
@@ -38,8 +39,9 @@ async function handleLogin(event) {
 
         const data = await response.json();
 
-        if (response.ok) {
+        if (response.ok && data.success) {
             currentUser = username;
+            sessionToken = data.token;
             loginMessage.className = 'message success';
             loginMessage.textContent = 'Login successful! Redirecting...';
             
@@ -79,19 +81,21 @@ async function sendMessage() {
         const response = await fetch(`${API_BASE_URL}/chat/send`, {
             method: 'POST',
             headers: {
-                'Content-Type': 'application/json'
+                'Content-Type': 'application/json',
+                'Authorization': `Bearer ${sessionToken}`
             },
             body: JSON.stringify({
-                sender: currentUser,
                 message: message
             })
         });
 
-        if (response.ok) {
+        const data = await response.json();
+
+        if (response.ok && data.success) {
             displayMessage(message, 'sent');
             messageInput.value = '';
         } else {
-            console.error('Failed to send message');
+            console.error('Failed to send message:', data.message);
         }
     } catch (error) {
         console.error('Error sending message:', error);
@@ -120,12 +124,14 @@ async function logout() {
         await fetch(`${API_BASE_URL}/auth/logout`, {
             method: 'POST',
             headers: {
-                'Content-Type': 'application/json'
+                'Content-Type': 'application/json',
+                'Authorization': `Bearer ${sessionToken}`
             },
             body: JSON.stringify({ username: currentUser })
         });
 
         currentUser = null;
+        sessionToken = null;
         document.querySelector('.container').classList.remove('hidden');
         document.getElementById('dashboard').classList.add('hidden');
         document.getElementById('loginForm').reset();